@@ -0,0 +1,156 @@
+package com.lb.im.common.benchmark;
+
+import com.lb.im.common.domain.enums.IMCmdType;
+import com.lb.im.common.domain.enums.IMTerminalType;
+import com.lb.im.common.domain.model.IMGroupMessage;
+import com.lb.im.common.domain.model.IMReceiveInfo;
+import com.lb.im.common.domain.model.IMUserInfo;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 基准测试使用的IM消息数据，规模与线上常见的群聊推送接近：
+ * 群消息推送给数百个群成员，每个成员多个终端，消息内容为一段中文文本。
+ */
+public final class BenchmarkPayloads {
+
+    //群成员数量
+    public static final int GROUP_MEMBERS = 500;
+    //一次推送的接收终端数量
+    public static final int RECEIVERS = 200;
+
+    private static final String CONTENT = "今晚八点线上评审新版本的消息同步方案，请大家提前看一下文档里离线消息补偿和多端已读回执的部分，有问题直接在群里讨论。";
+
+    private BenchmarkPayloads() {
+    }
+
+    /**
+     * 群聊消息
+     */
+    public static IMGroupMessage<ChatMessage> groupMessage() {
+        List<Long> receiveIds = new ArrayList<>(GROUP_MEMBERS);
+        for (long i = 0; i < GROUP_MEMBERS; i++) {
+            receiveIds.add(100000L + i);
+        }
+        return new IMGroupMessage<>(new IMUserInfo(100000L, IMTerminalType.WEB.getCode()), receiveIds,
+                IMTerminalType.getAllCode(), true, true, chatMessage());
+    }
+
+    /**
+     * 推送给IM服务的群聊消息
+     */
+    public static IMReceiveInfo receiveInfo() {
+        List<IMUserInfo> receivers = new ArrayList<>(RECEIVERS);
+        for (int i = 0; i < RECEIVERS; i++) {
+            receivers.add(new IMUserInfo(100000L + i / 2, i % 2 == 0 ? IMTerminalType.WEB.getCode() : IMTerminalType.APP.getCode()));
+        }
+        IMReceiveInfo receiveInfo = new IMReceiveInfo(IMCmdType.GROUP_MESSAGE.getCode(), new IMUserInfo(100000L, IMTerminalType.WEB.getCode()),
+                receivers, true, chatMessage());
+        receiveInfo.setDestination("im_message_group_0");
+        return receiveInfo;
+    }
+
+    /**
+     * 消息内容
+     */
+    public static ChatMessage chatMessage() {
+        ChatMessage message = new ChatMessage();
+        message.setId(1897654321098765432L);
+        message.setGroupId(10086L);
+        message.setSendId(100000L);
+        message.setSendNickName("产品-小林");
+        message.setContent(CONTENT);
+        message.setType(0);
+        message.setStatus(1);
+        message.setSendTime(new Date(1744383328694L));
+        return message;
+    }
+
+    /**
+     * 群聊消息内容
+     */
+    public static class ChatMessage {
+
+        private Long id;
+
+        private Long groupId;
+
+        private Long sendId;
+
+        private String sendNickName;
+
+        private String content;
+
+        private Integer type;
+
+        private Integer status;
+
+        private Date sendTime;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public Long getGroupId() {
+            return groupId;
+        }
+
+        public void setGroupId(Long groupId) {
+            this.groupId = groupId;
+        }
+
+        public Long getSendId() {
+            return sendId;
+        }
+
+        public void setSendId(Long sendId) {
+            this.sendId = sendId;
+        }
+
+        public String getSendNickName() {
+            return sendNickName;
+        }
+
+        public void setSendNickName(String sendNickName) {
+            this.sendNickName = sendNickName;
+        }
+
+        public String getContent() {
+            return content;
+        }
+
+        public void setContent(String content) {
+            this.content = content;
+        }
+
+        public Integer getType() {
+            return type;
+        }
+
+        public void setType(Integer type) {
+            this.type = type;
+        }
+
+        public Integer getStatus() {
+            return status;
+        }
+
+        public void setStatus(Integer status) {
+            this.status = status;
+        }
+
+        public Date getSendTime() {
+            return sendTime;
+        }
+
+        public void setSendTime(Date sendTime) {
+            this.sendTime = sendTime;
+        }
+    }
+}
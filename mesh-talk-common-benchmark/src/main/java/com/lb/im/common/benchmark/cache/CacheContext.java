@@ -0,0 +1,14 @@
+package com.lb.im.common.benchmark.cache;
+
+import com.lb.im.common.cache.distribute.DistributedCacheService;
+
+/**
+ * 基准测试使用的缓存环境，{@link MemoryCacheContext}为进程内缓存，{@link RedisCacheContext}为经过RESP协议访问的Redis缓存
+ */
+public interface CacheContext extends AutoCloseable {
+
+    DistributedCacheService getCacheService();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,112 @@
+package com.lb.im.common.benchmark.cache;
+
+import cn.hutool.json.JSONUtil;
+import com.lb.im.common.benchmark.BenchmarkPayloads;
+import com.lb.im.common.cache.distribute.DistributedCacheService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DistributedCacheService中key生成和值转换的默认方法：getKey、getValue、getResult。
+ * 每次缓存读写都会经过这些方法，contended开头的方法在8个线程下运行，观察线程复用的编码缓冲区和JSON工具的竞争。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheKeyBenchmark {
+
+    private static final String KEY_PREFIX = "im:group:message:";
+
+    private MemoryCacheContext context;
+
+    private DistributedCacheService cacheService;
+
+    private Long longId;
+
+    private String stringId;
+
+    private BenchmarkPayloads.ChatMessage complexId;
+
+    private BenchmarkPayloads.ChatMessage message;
+
+    private String messageJson;
+
+    @Setup
+    public void setup() {
+        context = MemoryCacheContext.start("json");
+        cacheService = context.getCacheService();
+        longId = 1897654321098765432L;
+        stringId = "user_100000_web";
+        complexId = BenchmarkPayloads.chatMessage();
+        message = BenchmarkPayloads.chatMessage();
+        messageJson = JSONUtil.toJsonStr(message);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String getKeyLong() {
+        return cacheService.getKey(KEY_PREFIX, longId);
+    }
+
+    @Benchmark
+    public String getKeyString() {
+        return cacheService.getKey(KEY_PREFIX, stringId);
+    }
+
+    @Benchmark
+    public String getKeyComplex() {
+        return cacheService.getKey(KEY_PREFIX, complexId);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String contendedGetKeyLong() {
+        return cacheService.getKey(KEY_PREFIX, longId);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String contendedGetKeyComplex() {
+        return cacheService.getKey(KEY_PREFIX, complexId);
+    }
+
+    @Benchmark
+    public String getValueSimple() {
+        return cacheService.getValue(stringId);
+    }
+
+    @Benchmark
+    public String getValueComplex() {
+        return cacheService.getValue(message);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String contendedGetValueComplex() {
+        return cacheService.getValue(message);
+    }
+
+    @Benchmark
+    public Long getResultSimple() {
+        return cacheService.getResult(longId, Long.class);
+    }
+
+    @Benchmark
+    public BenchmarkPayloads.ChatMessage getResultComplex() {
+        return cacheService.getResult(messageJson, BenchmarkPayloads.ChatMessage.class);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public BenchmarkPayloads.ChatMessage contendedGetResultComplex() {
+        return cacheService.getResult(messageJson, BenchmarkPayloads.ChatMessage.class);
+    }
+}
@@ -0,0 +1,135 @@
+package com.lb.im.common.benchmark.cache;
+
+import com.lb.im.common.benchmark.BenchmarkPayloads;
+import com.lb.im.common.cache.distribute.DistributedCacheService;
+import com.lb.im.common.domain.model.IMReceiveInfo;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * DistributedCacheService的读写和各查询策略在缓存命中时的开销，分别运行在进程内缓存{@link MemoryCacheContext}
+ * 和经过RESP协议访问的Redis缓存{@link RedisCacheContext}上，分别使用json和protostuff编解码器。
+ * contended开头的方法在8个线程下读写同一个热点key。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistributedCacheBenchmark {
+
+    private static final String MESSAGE_PREFIX = "im:benchmark:message:";
+
+    private static final String RECEIVE_PREFIX = "im:benchmark:receive:";
+
+    private static final String LOGICAL_PREFIX = "im:benchmark:logical:";
+
+    private static final Long MESSAGE_ID = 1897654321098765432L;
+
+    //数据库中不存在的数据
+    private static final Long ABSENT_ID = -1L;
+
+    private static final Long TIMEOUT = 30L;
+
+    @Param({"memory", "redis"})
+    private String store;
+
+    @Param({"json", "protostuff"})
+    private String codec;
+
+    private CacheContext context;
+
+    private DistributedCacheService cacheService;
+
+    private BenchmarkPayloads.ChatMessage message;
+
+    private IMReceiveInfo receiveInfo;
+
+    private String messageKey;
+
+    private String receiveKey;
+
+    private Function<Long, BenchmarkPayloads.ChatMessage> dbFallback;
+
+    @Setup
+    public void setup() {
+        context = "redis".equals(store) ? RedisCacheContext.start(codec) : MemoryCacheContext.start(codec);
+        cacheService = context.getCacheService();
+        message = BenchmarkPayloads.chatMessage();
+        receiveInfo = BenchmarkPayloads.receiveInfo();
+        messageKey = cacheService.getKey(MESSAGE_PREFIX, MESSAGE_ID);
+        receiveKey = cacheService.getKey(RECEIVE_PREFIX, MESSAGE_ID);
+        //模拟数据库查询，只在缓存未命中时调用
+        dbFallback = id -> MESSAGE_ID.equals(id) ? message : null;
+        cacheService.set(messageKey, message, TimeUnit.MINUTES.toSeconds(TIMEOUT), TimeUnit.SECONDS);
+        cacheService.set(receiveKey, receiveInfo, TimeUnit.MINUTES.toSeconds(TIMEOUT), TimeUnit.SECONDS);
+        cacheService.setWithLogicalExpire(cacheService.getKey(LOGICAL_PREFIX, MESSAGE_ID), message, TIMEOUT, TimeUnit.MINUTES);
+        cacheService.queryWithPassThrough(MESSAGE_PREFIX, ABSENT_ID, BenchmarkPayloads.ChatMessage.class, dbFallback, TIMEOUT, TimeUnit.MINUTES);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public BenchmarkPayloads.ChatMessage getObject() {
+        return cacheService.getObject(messageKey, BenchmarkPayloads.ChatMessage.class);
+    }
+
+    @Benchmark
+    public IMReceiveInfo getObjectReceiveInfo() {
+        return cacheService.getObject(receiveKey, IMReceiveInfo.class);
+    }
+
+    @Benchmark
+    public void set() {
+        cacheService.set(messageKey, message, TIMEOUT, TimeUnit.MINUTES);
+    }
+
+    @Benchmark
+    public void setReceiveInfo() {
+        cacheService.set(receiveKey, receiveInfo, TIMEOUT, TimeUnit.MINUTES);
+    }
+
+    @Benchmark
+    public BenchmarkPayloads.ChatMessage queryWithPassThrough() {
+        return cacheService.queryWithPassThrough(MESSAGE_PREFIX, MESSAGE_ID, BenchmarkPayloads.ChatMessage.class, dbFallback, TIMEOUT, TimeUnit.MINUTES);
+    }
+
+    @Benchmark
+    public BenchmarkPayloads.ChatMessage queryWithPassThroughNullHit() {
+        return cacheService.queryWithPassThrough(MESSAGE_PREFIX, ABSENT_ID, BenchmarkPayloads.ChatMessage.class, dbFallback, TIMEOUT, TimeUnit.MINUTES);
+    }
+
+    @Benchmark
+    public BenchmarkPayloads.ChatMessage queryWithMutex() {
+        return cacheService.queryWithMutex(MESSAGE_PREFIX, MESSAGE_ID, BenchmarkPayloads.ChatMessage.class, dbFallback, TIMEOUT, TimeUnit.MINUTES);
+    }
+
+    @Benchmark
+    public BenchmarkPayloads.ChatMessage queryWithLogicalExpire() {
+        return cacheService.queryWithLogicalExpire(LOGICAL_PREFIX, MESSAGE_ID, BenchmarkPayloads.ChatMessage.class, dbFallback, TIMEOUT, TimeUnit.MINUTES);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public BenchmarkPayloads.ChatMessage contendedGetObject() {
+        return cacheService.getObject(messageKey, BenchmarkPayloads.ChatMessage.class);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void contendedSet() {
+        cacheService.set(messageKey, message, TIMEOUT, TimeUnit.MINUTES);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public BenchmarkPayloads.ChatMessage contendedQueryWithMutex() {
+        return cacheService.queryWithMutex(MESSAGE_PREFIX, MESSAGE_ID, BenchmarkPayloads.ChatMessage.class, dbFallback, TIMEOUT, TimeUnit.MINUTES);
+    }
+}
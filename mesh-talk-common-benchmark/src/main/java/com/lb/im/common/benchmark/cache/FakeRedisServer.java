@@ -0,0 +1,375 @@
+package com.lb.im.common.benchmark.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 基准测试使用的进程内RESP2服务端，监听本机的随机端口，让Lettuce客户端经过真实的网络协议访问缓存，
+ * 不需要外部Redis即可测量RedisDistributedCacheService的完整调用路径（模板、序列化、客户端编解码和本机网络往返）。
+ * 只实现字符串结构的常用命令（GET、SET、SETEX、PSETEX、MGET、DEL、UNLINK、EXISTS、EXPIRE、PEXPIRE、TTL、PTTL），
+ * 不支持Lua脚本和Hash结构，HELLO返回错误，客户端回退到RESP2协议。每个连接一个线程，按顺序执行命令，
+ * 输入中没有剩余的命令时才刷新输出，管道中的命令一次写回。
+ */
+public class FakeRedisServer implements Closeable {
+
+    private final Logger logger = LoggerFactory.getLogger(FakeRedisServer.class);
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private final ConcurrentMap<String, Entry> store = new ConcurrentHashMap<>();
+
+    private final List<Socket> connections = new CopyOnWriteArrayList<>();
+
+    private final ServerSocket serverSocket;
+
+    private volatile boolean running = true;
+
+    private FakeRedisServer() throws IOException {
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        Thread acceptor = new Thread(this::accept, "fake-redis-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * 在本机随机端口上启动服务端
+     */
+    public static FakeRedisServer start() {
+        try {
+            return new FakeRedisServer();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public String getHost() {
+        return serverSocket.getInetAddress().getHostAddress();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            serverSocket.close();
+        } catch (IOException ignored) {
+        }
+        for (Socket socket : connections) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+        store.clear();
+    }
+
+    private void accept() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connections.add(socket);
+                Thread worker = new Thread(() -> this.serve(socket), "fake-redis-connection");
+                worker.setDaemon(true);
+                worker.start();
+            } catch (IOException e) {
+                if (running) {
+                    logger.error("fake redis accept | {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (InputStream in = new BufferedInputStream(socket.getInputStream());
+             OutputStream out = new BufferedOutputStream(socket.getOutputStream())) {
+            while (running) {
+                List<byte[]> command = this.readCommand(in);
+                if (command == null) {
+                    return;
+                }
+                this.execute(command, out);
+                //管道中的命令全部执行后再写回
+                if (in.available() == 0) {
+                    out.flush();
+                }
+            }
+        } catch (SocketException ignored) {
+            //连接关闭
+        } catch (IOException e) {
+            logger.error("fake redis connection | {}", e.getMessage());
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    /**
+     * 读取一条命令，客户端发送的命令都是批量字符串组成的数组，连接关闭时返回null
+     */
+    private List<byte[]> readCommand(InputStream in) throws IOException {
+        int type = in.read();
+        if (type == -1) {
+            return null;
+        }
+        if (type != '*') {
+            throw new IOException("unexpected resp type: " + (char) type);
+        }
+        int count = Integer.parseInt(this.readLine(in));
+        List<byte[]> args = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (in.read() != '$') {
+                throw new IOException("expected bulk string");
+            }
+            int length = Integer.parseInt(this.readLine(in));
+            byte[] arg = new byte[length];
+            int offset = 0;
+            while (offset < length) {
+                int read = in.read(arg, offset, length - offset);
+                if (read == -1) {
+                    throw new EOFException();
+                }
+                offset += read;
+            }
+            in.read();
+            in.read();
+            args.add(arg);
+        }
+        return args;
+    }
+
+    private String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != '\r') {
+            if (b == -1) {
+                throw new EOFException();
+            }
+            line.append((char) b);
+        }
+        in.read();
+        return line.toString();
+    }
+
+    private void execute(List<byte[]> command, OutputStream out) throws IOException {
+        String name = new String(command.get(0), StandardCharsets.US_ASCII).toUpperCase(Locale.ROOT);
+        switch (name) {
+            case "PING":
+                this.writeSimple(out, "PONG");
+                break;
+            case "SELECT":
+            case "CLIENT":
+                this.writeSimple(out, "OK");
+                break;
+            case "GET":
+                this.writeBulk(out, this.getValue(this.key(command, 1)));
+                break;
+            case "MGET":
+                this.writeArrayHeader(out, command.size() - 1);
+                for (int i = 1; i < command.size(); i++) {
+                    this.writeBulk(out, this.getValue(this.key(command, i)));
+                }
+                break;
+            case "SET":
+                this.set(command, out);
+                break;
+            case "SETEX":
+                this.put(this.key(command, 1), command.get(3), System.currentTimeMillis() + this.number(command, 2) * 1000);
+                this.writeSimple(out, "OK");
+                break;
+            case "PSETEX":
+                this.put(this.key(command, 1), command.get(3), System.currentTimeMillis() + this.number(command, 2));
+                this.writeSimple(out, "OK");
+                break;
+            case "DEL":
+            case "UNLINK":
+                long deleted = 0;
+                for (int i = 1; i < command.size(); i++) {
+                    Entry entry = store.remove(this.key(command, i));
+                    if (entry != null && !entry.isExpired(System.currentTimeMillis())) {
+                        deleted++;
+                    }
+                }
+                this.writeInteger(out, deleted);
+                break;
+            case "EXISTS":
+                long exists = 0;
+                for (int i = 1; i < command.size(); i++) {
+                    if (this.getEntry(this.key(command, i)) != null) {
+                        exists++;
+                    }
+                }
+                this.writeInteger(out, exists);
+                break;
+            case "EXPIRE":
+                this.writeInteger(out, this.expire(this.key(command, 1), this.number(command, 2) * 1000) ? 1 : 0);
+                break;
+            case "PEXPIRE":
+                this.writeInteger(out, this.expire(this.key(command, 1), this.number(command, 2)) ? 1 : 0);
+                break;
+            case "TTL":
+                long ttl = this.ttl(this.key(command, 1));
+                this.writeInteger(out, ttl < 0 ? ttl : (ttl + 999) / 1000);
+                break;
+            case "PTTL":
+                this.writeInteger(out, this.ttl(this.key(command, 1)));
+                break;
+            case "FLUSHDB":
+            case "FLUSHALL":
+                store.clear();
+                this.writeSimple(out, "OK");
+                break;
+            default:
+                this.writeError(out, "ERR unknown command '" + name + "'");
+        }
+    }
+
+    /**
+     * SET key value [EX seconds|PX milliseconds] [NX|XX]
+     */
+    private void set(List<byte[]> command, OutputStream out) throws IOException {
+        String key = this.key(command, 1);
+        long expireAt = 0;
+        boolean nx = false;
+        boolean xx = false;
+        for (int i = 3; i < command.size(); i++) {
+            String option = new String(command.get(i), StandardCharsets.US_ASCII).toUpperCase(Locale.ROOT);
+            if ("EX".equals(option)) {
+                expireAt = System.currentTimeMillis() + this.number(command, ++i) * 1000;
+            } else if ("PX".equals(option)) {
+                expireAt = System.currentTimeMillis() + this.number(command, ++i);
+            } else if ("NX".equals(option)) {
+                nx = true;
+            } else if ("XX".equals(option)) {
+                xx = true;
+            } else {
+                this.writeError(out, "ERR syntax error");
+                return;
+            }
+        }
+        boolean present = this.getEntry(key) != null;
+        if ((nx && present) || (xx && !present)) {
+            this.writeBulk(out, null);
+            return;
+        }
+        this.put(key, command.get(2), expireAt);
+        this.writeSimple(out, "OK");
+    }
+
+    private void put(String key, byte[] value, long expireAt) {
+        store.put(key, new Entry(value, expireAt));
+    }
+
+    private boolean expire(String key, long ttlMillis) {
+        Entry entry = this.getEntry(key);
+        if (entry == null) {
+            return false;
+        }
+        store.put(key, new Entry(entry.value, System.currentTimeMillis() + ttlMillis));
+        return true;
+    }
+
+    //key不存在时返回-2，永不过期时返回-1
+    private long ttl(String key) {
+        Entry entry = this.getEntry(key);
+        if (entry == null) {
+            return -2;
+        }
+        return entry.expireAt == 0 ? -1 : Math.max(0, entry.expireAt - System.currentTimeMillis());
+    }
+
+    private byte[] getValue(String key) {
+        Entry entry = this.getEntry(key);
+        return entry == null ? null : entry.value;
+    }
+
+    /**
+     * 读取未过期的数据，过期的数据在读取时删除
+     */
+    private Entry getEntry(String key) {
+        Entry entry = store.get(key);
+        if (entry != null && entry.isExpired(System.currentTimeMillis())) {
+            store.remove(key, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    //key按照ISO-8859-1转换为字符串，任意字节都能无损往返
+    private String key(List<byte[]> command, int index) {
+        return new String(command.get(index), StandardCharsets.ISO_8859_1);
+    }
+
+    private long number(List<byte[]> command, int index) {
+        return Long.parseLong(new String(command.get(index), StandardCharsets.US_ASCII));
+    }
+
+    private void writeSimple(OutputStream out, String value) throws IOException {
+        out.write('+');
+        out.write(value.getBytes(StandardCharsets.US_ASCII));
+        out.write(CRLF);
+    }
+
+    private void writeError(OutputStream out, String message) throws IOException {
+        out.write('-');
+        out.write(message.getBytes(StandardCharsets.US_ASCII));
+        out.write(CRLF);
+    }
+
+    private void writeInteger(OutputStream out, long value) throws IOException {
+        out.write(':');
+        out.write(String.valueOf(value).getBytes(StandardCharsets.US_ASCII));
+        out.write(CRLF);
+    }
+
+    private void writeArrayHeader(OutputStream out, int size) throws IOException {
+        out.write('*');
+        out.write(String.valueOf(size).getBytes(StandardCharsets.US_ASCII));
+        out.write(CRLF);
+    }
+
+    private void writeBulk(OutputStream out, byte[] value) throws IOException {
+        if (value == null) {
+            out.write("$-1".getBytes(StandardCharsets.US_ASCII));
+            out.write(CRLF);
+            return;
+        }
+        out.write('$');
+        out.write(String.valueOf(value.length).getBytes(StandardCharsets.US_ASCII));
+        out.write(CRLF);
+        out.write(value);
+        out.write(CRLF);
+    }
+
+    /**
+     * 缓存的数据，expireAt为过期时间点，0表示永不过期
+     */
+    private static class Entry {
+        private final byte[] value;
+        private final long expireAt;
+
+        private Entry(byte[] value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+
+        private boolean isExpired(long now) {
+            return expireAt > 0 && expireAt <= now;
+        }
+    }
+}
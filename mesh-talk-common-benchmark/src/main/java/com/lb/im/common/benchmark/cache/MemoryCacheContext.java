@@ -0,0 +1,60 @@
+package com.lb.im.common.benchmark.cache;
+
+import com.lb.im.common.cache.distribute.DistributedCacheService;
+import com.lb.im.common.cache.distribute.codec.CacheCodecRegistry;
+import com.lb.im.common.cache.distribute.codec.JsonCacheCodec;
+import com.lb.im.common.cache.distribute.codec.ProtostuffCacheCodec;
+import com.lb.im.common.cache.distribute.compress.CacheCompression;
+import com.lb.im.common.cache.distribute.compress.DeflateCacheCompressor;
+import com.lb.im.common.cache.distribute.expire.ExpiryPolicyManager;
+import com.lb.im.common.cache.distribute.memory.MemoryCacheByteStore;
+import com.lb.im.common.cache.distribute.memory.MemoryDistributedCacheService;
+import com.lb.im.common.cache.distribute.metrics.CacheMetrics;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 基准测试使用的进程内缓存环境，以distribute.cache.type=memory的{@link MemoryDistributedCacheService}代替Redis，
+ * 只注册缓存服务依赖的编解码、压缩、过期策略和指标组件，不需要Redis即可离线运行。
+ * 测得的是缓存服务自身的开销（key生成、编解码、策略逻辑），不包含网络往返。
+ */
+public class MemoryCacheContext implements CacheContext {
+
+    private final AnnotationConfigApplicationContext context;
+
+    private MemoryCacheContext(String codec) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("distribute.cache.type", "memory");
+        properties.put("distribute.cache.codec", codec);
+        properties.put("distribute.cache.memory.maximum-size", 1000000);
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", properties));
+        context.register(PropertySourcesPlaceholderConfigurer.class, JsonCacheCodec.class, ProtostuffCacheCodec.class,
+                DeflateCacheCompressor.class, CacheCompression.class, CacheCodecRegistry.class,
+                ExpiryPolicyManager.class, CacheMetrics.class, MemoryCacheByteStore.class, MemoryDistributedCacheService.class);
+        context.refresh();
+    }
+
+    /**
+     * 启动进程内缓存环境
+     *
+     * @param codec 缓存值编解码器，json或protostuff
+     */
+    public static MemoryCacheContext start(String codec) {
+        return new MemoryCacheContext(codec);
+    }
+
+    @Override
+    public DistributedCacheService getCacheService() {
+        return context.getBean(DistributedCacheService.class);
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
@@ -0,0 +1,82 @@
+package com.lb.im.common.benchmark.cache;
+
+import com.lb.im.common.cache.config.RedisPoolConfig;
+import com.lb.im.common.cache.distribute.DistributedCacheService;
+import com.lb.im.common.cache.distribute.codec.CacheCodecRegistry;
+import com.lb.im.common.cache.distribute.codec.JsonCacheCodec;
+import com.lb.im.common.cache.distribute.codec.ProtostuffCacheCodec;
+import com.lb.im.common.cache.distribute.compress.CacheCompression;
+import com.lb.im.common.cache.distribute.compress.DeflateCacheCompressor;
+import com.lb.im.common.cache.distribute.expire.ExpiryPolicyManager;
+import com.lb.im.common.cache.distribute.metrics.CacheMetrics;
+import com.lb.im.common.cache.distribute.redis.RedisBatchOperations;
+import com.lb.im.common.cache.distribute.redis.RedisCacheByteStore;
+import com.lb.im.common.cache.distribute.redis.RedisDistributedCacheService;
+import com.lb.im.common.cache.lock.local.LocalLockFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 基准测试使用的Redis缓存环境，以distribute.cache.type=redis启用{@link RedisDistributedCacheService}，
+ * Redis连接由生产环境的{@link RedisPoolConfig}创建，指向进程内的{@link FakeRedisServer}，不需要外部Redis即可离线运行。
+ * 测得的开销包括RedisTemplate、Lettuce客户端的命令编解码和本机网络往返，不包含真实Redis的执行时间；
+ * 分布式锁使用进程内的锁，缓存命中时的各查询策略不会加锁。
+ */
+public class RedisCacheContext implements CacheContext {
+
+    private final FakeRedisServer server;
+
+    private final AnnotationConfigApplicationContext context;
+
+    private RedisCacheContext(String codec) {
+        server = FakeRedisServer.start();
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("distribute.cache.type", "redis");
+        properties.put("distribute.cache.codec", codec);
+        properties.put("distribute.lock.type", "local");
+        properties.put("spring.redis.host", server.getHost());
+        properties.put("spring.redis.port", server.getPort());
+        properties.put("spring.redis.password", "");
+        properties.put("spring.redis.database", 0);
+        properties.put("spring.redis.lettuce.pool.max-idle", 8);
+        properties.put("spring.redis.lettuce.pool.min-idle", 0);
+        properties.put("spring.redis.lettuce.pool.max-active", 8);
+        properties.put("spring.redis.lettuce.pool.max-wait", 1000);
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", properties));
+        context.register(PropertySourcesPlaceholderConfigurer.class, RedisPoolConfig.class, JsonCacheCodec.class,
+                ProtostuffCacheCodec.class, DeflateCacheCompressor.class, CacheCompression.class, CacheCodecRegistry.class,
+                ExpiryPolicyManager.class, CacheMetrics.class, LocalLockFactory.class, RedisBatchOperations.class,
+                RedisCacheByteStore.class, RedisDistributedCacheService.class);
+        try {
+            context.refresh();
+        } catch (RuntimeException e) {
+            server.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 启动进程内的RESP服务端和Redis缓存环境
+     *
+     * @param codec 缓存值编解码器，json或protostuff
+     */
+    public static RedisCacheContext start(String codec) {
+        return new RedisCacheContext(codec);
+    }
+
+    @Override
+    public DistributedCacheService getCacheService() {
+        return context.getBean(DistributedCacheService.class);
+    }
+
+    @Override
+    public void close() {
+        context.close();
+        server.close();
+    }
+}
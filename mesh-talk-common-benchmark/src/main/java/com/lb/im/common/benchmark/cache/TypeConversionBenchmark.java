@@ -0,0 +1,62 @@
+package com.lb.im.common.benchmark.cache;
+
+import cn.hutool.json.JSONUtil;
+import com.lb.im.common.benchmark.BenchmarkPayloads;
+import com.lb.im.common.cache.distribute.conversion.TypeConversion;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TypeConversion.isSimpleType，字符串需要判断是否为JSON，是getKey和getValue中开销最大的类型判断
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TypeConversionBenchmark {
+
+    private Object longValue;
+
+    private Object plainString;
+
+    private Object jsonString;
+
+    private Object bean;
+
+    @Setup
+    public void setup() {
+        longValue = 1897654321098765432L;
+        plainString = "user_100000_web";
+        jsonString = JSONUtil.toJsonStr(BenchmarkPayloads.chatMessage());
+        bean = BenchmarkPayloads.chatMessage();
+    }
+
+    @Benchmark
+    public boolean isSimpleTypeLong() {
+        return TypeConversion.isSimpleType(longValue);
+    }
+
+    @Benchmark
+    public boolean isSimpleTypePlainString() {
+        return TypeConversion.isSimpleType(plainString);
+    }
+
+    @Benchmark
+    public boolean isSimpleTypeJsonString() {
+        return TypeConversion.isSimpleType(jsonString);
+    }
+
+    @Benchmark
+    public boolean isSimpleTypeBean() {
+        return TypeConversion.isSimpleType(bean);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean contendedIsSimpleTypeJsonString() {
+        return TypeConversion.isSimpleType(jsonString);
+    }
+}
@@ -0,0 +1,37 @@
+package com.lb.im.common.benchmark.id;
+
+import com.lb.im.common.cache.id.SnowFlake;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SnowFlake.nextId，所有线程共享同一个生成器，与服务中单例的使用方式一致。
+ * 每毫秒最多生成4096个ID，吞吐达到上限后会自旋等待下一毫秒，contended方法同时反映synchronized的竞争开销。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnowFlakeBenchmark {
+
+    private SnowFlake snowFlake;
+
+    @Setup
+    public void setup() {
+        snowFlake = new SnowFlake(1, 1);
+    }
+
+    @Benchmark
+    public long nextId() {
+        return snowFlake.nextId();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long contendedNextId() {
+        return snowFlake.nextId();
+    }
+}
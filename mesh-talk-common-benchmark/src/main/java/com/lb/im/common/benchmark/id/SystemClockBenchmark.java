@@ -0,0 +1,47 @@
+package com.lb.im.common.benchmark.id;
+
+import com.lb.im.common.cache.time.SystemClock;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SystemClock.now与System.currentTimeMillis的对比，SnowFlake每次生成ID都会读取时钟
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SystemClockBenchmark {
+
+    private SystemClock systemClock;
+
+    @Setup
+    public void setup() {
+        systemClock = SystemClock.millisClock();
+    }
+
+    @Benchmark
+    public long systemClockNow() {
+        return systemClock.now();
+    }
+
+    @Benchmark
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long contendedSystemClockNow() {
+        return systemClock.now();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long contendedCurrentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,46 @@
+package com.lb.im.common.benchmark.md5;
+
+import cn.hutool.json.JSONUtil;
+import com.lb.im.common.benchmark.BenchmarkPayloads;
+import com.lb.im.common.cache.md5.MD5Hash;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MD5Hash.md5Java，分别对短key和群聊消息的JSON计算摘要
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MD5HashBenchmark {
+
+    private String shortKey;
+
+    private String messageJson;
+
+    @Setup
+    public void setup() {
+        shortKey = "im:user:session:100000:0";
+        messageJson = JSONUtil.toJsonStr(BenchmarkPayloads.groupMessage());
+    }
+
+    @Benchmark
+    public String md5ShortKey() {
+        return MD5Hash.md5Java(shortKey);
+    }
+
+    @Benchmark
+    public String md5Message() {
+        return MD5Hash.md5Java(messageJson);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String contendedMd5ShortKey() {
+        return MD5Hash.md5Java(shortKey);
+    }
+}
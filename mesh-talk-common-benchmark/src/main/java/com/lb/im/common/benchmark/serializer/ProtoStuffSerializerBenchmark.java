@@ -0,0 +1,95 @@
+package com.lb.im.common.benchmark.serializer;
+
+import com.lb.im.common.benchmark.BenchmarkPayloads;
+import com.lb.im.common.cache.serializer.ProtoStuffSerializerUtils;
+import com.lb.im.common.domain.model.IMGroupMessage;
+import com.lb.im.common.domain.model.IMReceiveInfo;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ProtoStuffSerializerUtils对群聊消息（500个接收者）和IM推送消息（200个接收终端）的序列化与反序列化，
+ * contended开头的方法在8个线程下运行，验证按线程复用的LinkedBuffer在并发下的表现
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProtoStuffSerializerBenchmark {
+
+    //批量序列化的消息条数
+    private static final int BATCH_SIZE = 20;
+
+    private IMGroupMessage<BenchmarkPayloads.ChatMessage> groupMessage;
+
+    private IMReceiveInfo receiveInfo;
+
+    private List<IMReceiveInfo> receiveInfos;
+
+    private byte[] groupMessageBytes;
+
+    private byte[] receiveInfoBytes;
+
+    private byte[] receiveInfoListBytes;
+
+    @Setup
+    public void setup() {
+        groupMessage = BenchmarkPayloads.groupMessage();
+        receiveInfo = BenchmarkPayloads.receiveInfo();
+        receiveInfos = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            receiveInfos.add(BenchmarkPayloads.receiveInfo());
+        }
+        groupMessageBytes = ProtoStuffSerializerUtils.serialize(groupMessage);
+        receiveInfoBytes = ProtoStuffSerializerUtils.serialize(receiveInfo);
+        receiveInfoListBytes = ProtoStuffSerializerUtils.serializeList(receiveInfos);
+    }
+
+    @Benchmark
+    public byte[] serializeGroupMessage() {
+        return ProtoStuffSerializerUtils.serialize(groupMessage);
+    }
+
+    @Benchmark
+    @SuppressWarnings("rawtypes")
+    public IMGroupMessage deserializeGroupMessage() {
+        return ProtoStuffSerializerUtils.deserialize(groupMessageBytes, IMGroupMessage.class);
+    }
+
+    @Benchmark
+    public byte[] serializeReceiveInfo() {
+        return ProtoStuffSerializerUtils.serialize(receiveInfo);
+    }
+
+    @Benchmark
+    public IMReceiveInfo deserializeReceiveInfo() {
+        return ProtoStuffSerializerUtils.deserialize(receiveInfoBytes, IMReceiveInfo.class);
+    }
+
+    @Benchmark
+    public byte[] serializeReceiveInfoList() {
+        return ProtoStuffSerializerUtils.serializeList(receiveInfos);
+    }
+
+    @Benchmark
+    public List<IMReceiveInfo> deserializeReceiveInfoList() {
+        return ProtoStuffSerializerUtils.deserializeList(receiveInfoListBytes, IMReceiveInfo.class);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public byte[] contendedSerializeReceiveInfo() {
+        return ProtoStuffSerializerUtils.serialize(receiveInfo);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public IMReceiveInfo contendedDeserializeReceiveInfo() {
+        return ProtoStuffSerializerUtils.deserialize(receiveInfoBytes, IMReceiveInfo.class);
+    }
+}
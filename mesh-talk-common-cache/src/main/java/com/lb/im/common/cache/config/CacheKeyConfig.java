@@ -0,0 +1,31 @@
+package com.lb.im.common.cache.config;
+
+import cn.hutool.core.util.StrUtil;
+import com.lb.im.common.cache.distribute.key.CacheKeyBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * 缓存key生成配置类，通过distribute.cache.key.mode指定复杂类型业务标识的摘要方式：
+ * murmur3（默认）或md5（与历史版本生成的key一致，滚动升级期间使用）；
+ * 通过distribute.cache.key.hash-tag-prefixes指定开启hash tag的key前缀，多个前缀使用逗号分隔。
+ */
+@Configuration
+public class CacheKeyConfig {
+
+    @Value("${distribute.cache.key.mode:murmur3}")
+    private String mode;
+
+    @Value("${distribute.cache.key.hash-tag-prefixes:}")
+    private String hashTagPrefixes;
+
+    @PostConstruct
+    public void init() {
+        CacheKeyBuilder.setMode(CacheKeyBuilder.Mode.valueOf(mode.trim().toUpperCase()));
+        for (String keyPrefix : StrUtil.split(hashTagPrefixes, ',', true, true)) {
+            CacheKeyBuilder.enableHashTag(keyPrefix);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.lb.im.common.cache.config;
+
+import com.lb.im.common.cache.distribute.near.NearDistributedCacheService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * 近端缓存配置类，订阅Redis失效消息通道，驱动各节点一级缓存的失效。
+ */
+@Configuration
+@ConditionalOnProperty(name = "distribute.cache.near.enabled", havingValue = "true")
+public class NearCacheConfig {
+
+    /**
+     * 创建监听近端缓存失效消息的Redis消息监听容器
+     *
+     * @param lettuceConnectionFactory    Redis连接工厂
+     * @param nearDistributedCacheService 近端缓存服务，同时作为失效消息的监听器
+     * @return RedisMessageListenerContainer 消息监听容器
+     */
+    @Bean
+    public RedisMessageListenerContainer nearCacheListenerContainer(LettuceConnectionFactory lettuceConnectionFactory,
+                                                                    NearDistributedCacheService nearDistributedCacheService) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(lettuceConnectionFactory);
+        container.addMessageListener(nearDistributedCacheService, new ChannelTopic(nearDistributedCacheService.getChannel()));
+        return container;
+    }
+}
@@ -7,6 +7,13 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateTimeSerializer;
+import cn.hutool.core.util.StrUtil;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.cluster.ClusterClientOptions;
+import io.lettuce.core.protocol.ProtocolVersion;
+import io.lettuce.core.cluster.ClusterTopologyRefreshOptions;
 import io.lettuce.core.resource.ClientResources;
 import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateDeserializer;
 import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateTimeDeserializer;
@@ -15,10 +22,13 @@ import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateSerializer;
 import com.fasterxml.jackson.datatype.jsr310.ser.LocalTimeSerializer;
 import io.lettuce.core.resource.DefaultClientResources;
 import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisClusterConfiguration;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
@@ -33,6 +43,8 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.List;
 
 @Configuration
 public class RedisPoolConfig {
@@ -57,6 +69,15 @@ public class RedisPoolConfig {
     private String password;
     @Value("${spring.redis.database}")
     private int database;
+    //集群节点，多个节点使用逗号分隔，为空时使用host和port作为初始节点
+    @Value("${spring.redis.cluster.nodes:}")
+    private String clusterNodes;
+    //集群拓扑的定时刷新间隔，单位秒
+    @Value("${spring.redis.cluster.refresh-seconds:30}")
+    private long clusterRefreshSeconds;
+    //Redis部署类型，single或cluster
+    @Value("${redis.arrange.type:single}")
+    private String arrangeType;
 
     /**
      * 配置Redis连接池参数
@@ -97,27 +118,77 @@ public class RedisPoolConfig {
     }
 
     /**
-     * 创建Lettuce客户端配置
+     * 配置Redis集群连接信息
+     * @return RedisClusterConfiguration Redis集群配置对象
+     */
+    @Bean
+    @ConditionalOnProperty(name = "redis.arrange.type", havingValue = "cluster")
+    public RedisClusterConfiguration redisClusterConfiguration() {
+        List<String> nodes = StrUtil.isEmpty(clusterNodes) ? Collections.singletonList(host + ":" + port) : StrUtil.split(clusterNodes, ',', true, true);
+        RedisClusterConfiguration redisClusterConfiguration = new RedisClusterConfiguration(nodes);
+        if (!StrUtil.isEmpty(password)) {
+            redisClusterConfiguration.setPassword(password);
+        }
+        return redisClusterConfiguration;
+    }
+
+    /**
+     * 创建Lettuce客户端配置，集群模式下开启拓扑的定时刷新和自适应刷新，slot迁移后批量命令能路由到新的节点
      * @param genericObjectPoolConfig 连接池配置
      * @param lettuceClientResources 客户端资源
      * @return LettuceClientConfiguration 客户端配置对象
      */
     @Bean
     public LettuceClientConfiguration lettuceClientConfiguration(GenericObjectPoolConfig<Object> genericObjectPoolConfig, ClientResources lettuceClientResources) {
-        return LettucePoolingClientConfiguration.builder().clientResources(lettuceClientResources).poolConfig(genericObjectPoolConfig).build();
+        LettucePoolingClientConfiguration.LettucePoolingClientConfigurationBuilder builder = LettucePoolingClientConfiguration.builder()
+                .clientResources(lettuceClientResources).poolConfig(genericObjectPoolConfig);
+        if ("cluster".equals(arrangeType)) {
+            ClusterTopologyRefreshOptions topologyRefreshOptions = ClusterTopologyRefreshOptions.builder()
+                    .enablePeriodicRefresh(Duration.ofSeconds(clusterRefreshSeconds))
+                    .enableAllAdaptiveRefreshTriggers()
+                    .build();
+            builder.clientOptions(ClusterClientOptions.builder().topologyRefreshOptions(topologyRefreshOptions).build());
+        }
+        return builder.build();
     }
 
     /**
-     * 创建Lettuce连接工厂
+     * 创建Lettuce连接工厂，配置了Redis集群时使用集群模式
      * @param redisSentinelConfiguration Redis连接配置
+     * @param redisClusterConfiguration Redis集群配置
      * @param lettuceClientConfiguration 客户端配置
      * @return LettuceConnectionFactory Redis连接工厂实例
      */
     @Bean
-    public LettuceConnectionFactory lettuceConnectionFactory(RedisStandaloneConfiguration redisSentinelConfiguration, LettuceClientConfiguration lettuceClientConfiguration) {
+    public LettuceConnectionFactory lettuceConnectionFactory(RedisStandaloneConfiguration redisSentinelConfiguration, ObjectProvider<RedisClusterConfiguration> redisClusterConfiguration, LettuceClientConfiguration lettuceClientConfiguration) {
+        RedisClusterConfiguration clusterConfiguration = redisClusterConfiguration.getIfAvailable();
+        if (clusterConfiguration != null) {
+            return new LettuceConnectionFactory(clusterConfiguration, lettuceClientConfiguration);
+        }
         return new LettuceConnectionFactory(redisSentinelConfiguration, lettuceClientConfiguration);
     }
 
+    /**
+     * 创建客户端缓存专用的Redis客户端，跟踪连接必须使用RESP3协议才能在同一条连接上接收失效消息；
+     * 连接断开期间直接拒绝命令，由ClientSideCacheManager改为读取Redis
+     * @param lettuceClientResources 客户端资源
+     * @return RedisClient 单节点Redis客户端
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(name = "distribute.cache.client-side.enabled", havingValue = "true")
+    public RedisClient clientSideCachingRedisClient(ClientResources lettuceClientResources) {
+        RedisURI.Builder uriBuilder = RedisURI.builder().withHost(host).withPort(port).withDatabase(database);
+        if (!StrUtil.isEmpty(password)) {
+            uriBuilder.withPassword(password.toCharArray());
+        }
+        RedisClient redisClient = RedisClient.create(lettuceClientResources, uriBuilder.build());
+        redisClient.setOptions(ClientOptions.builder()
+                .protocolVersion(ProtocolVersion.RESP3)
+                .disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS)
+                .build());
+        return redisClient;
+    }
+
     /**
      * 配置RedisTemplate对象
      * @param lettuceConnectionFactory Redis连接工厂
@@ -167,4 +238,21 @@ public class RedisPoolConfig {
         return new StringRedisTemplate(lettuceConnectionFactory);
     }
 
+    /**
+     * 配置按字节读写的RedisTemplate对象，缓存值的编解码由CacheCodec完成
+     * @param lettuceConnectionFactory Redis连接工厂
+     * @return RedisTemplate<String, byte[]> 字节操作模板
+     */
+    @Bean(name = "byteRedisTemplate")
+    public RedisTemplate<String, byte[]> byteRedisTemplate(LettuceConnectionFactory lettuceConnectionFactory) {
+        RedisTemplate<String, byte[]> redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(lettuceConnectionFactory);
+        redisTemplate.setKeySerializer(RedisSerializer.string());
+        redisTemplate.setHashKeySerializer(RedisSerializer.string());
+        redisTemplate.setValueSerializer(RedisSerializer.byteArray());
+        redisTemplate.setHashValueSerializer(RedisSerializer.byteArray());
+        redisTemplate.afterPropertiesSet();
+        return redisTemplate;
+    }
+
 }
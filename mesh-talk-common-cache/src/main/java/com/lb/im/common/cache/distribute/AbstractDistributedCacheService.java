@@ -0,0 +1,1361 @@
+package com.lb.im.common.cache.distribute;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import com.lb.im.common.cache.distribute.codec.CacheCodecRegistry;
+import com.lb.im.common.cache.distribute.data.LogicalExpireData;
+import com.lb.im.common.cache.distribute.data.RebuildLease;
+import com.lb.im.common.cache.distribute.data.VersionedData;
+import com.lb.im.common.cache.distribute.expire.ExpiryPolicyManager;
+import com.lb.im.common.cache.distribute.hash.HashFieldCodec;
+import com.lb.im.common.cache.distribute.metrics.CacheMetrics;
+import com.lb.im.common.cache.distribute.metrics.CacheStats;
+import com.lb.im.common.cache.distribute.metrics.CacheStrategy;
+import com.lb.im.common.cache.distribute.refresh.RefreshAheadRegistry;
+import com.lb.im.common.cache.distribute.store.CacheByteStore;
+import com.lb.im.common.cache.distribute.writebehind.WriteBehindBuffer;
+import com.lb.im.common.cache.flight.SingleFlight;
+import com.lb.im.common.cache.lock.DistributedLock;
+import com.lb.im.common.cache.lock.factory.DistributedLockFactory;
+import com.lb.im.common.cache.model.IMBusinessCache;
+import com.lb.im.common.cache.threadpool.ThreadPoolUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 分布式缓存各查询策略的通用实现，只通过{@link CacheByteStore}读写编码后的原始字节，
+ * Redis和进程内实现只提供字节存储和锁，空数据标记、逻辑过期、概率提前过期、重建租约和带版本号数据的格式完全相同。
+ * 开启write-behind时读取优先返回缓冲区中未刷新的数据，同步写入和删除会丢弃缓冲区中未刷新的写入
+ */
+public abstract class AbstractDistributedCacheService implements DistributedCacheService {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    //线程休眠的毫秒数
+    private static final long THREAD_SLEEP_MILLISECONDS = 50;
+    //keys方法每次遍历返回的建议数量
+    private static final int DEFAULT_SCAN_COUNT = 1000;
+
+    //互斥锁查询等待其他线程重建缓存的最长时间，单位毫秒
+    @Value("${distribute.cache.mutex.wait-millis:3000}")
+    private long mutexWaitMillis;
+
+    //概率提前过期的beta参数，大于1时更倾向于提前重新计算，小于1时更倾向于接近过期时间才重新计算
+    @Value("${distribute.cache.early-expire.beta:1.0}")
+    private double earlyExpireBeta;
+
+    //重建租约的有效时长，持有租约的调用方异常退出时，超过该时长后其他调用方可以重新获取租约，单位毫秒
+    @Value("${distribute.cache.lease.ttl-millis:3000}")
+    private long leaseTtlMillis;
+
+    //等待其他调用方重建时重新读取缓存的间隔，单位毫秒
+    @Value("${distribute.cache.lease.retry-millis:20}")
+    private long leaseRetryMillis;
+
+    @Autowired
+    private CacheByteStore byteStore;
+
+    @Autowired
+    private CacheCodecRegistry cacheCodecRegistry;
+
+    @Autowired
+    private ExpiryPolicyManager expiryPolicyManager;
+
+    @Autowired
+    private CacheMetrics cacheMetrics;
+
+    @Autowired(required = false)
+    private WriteBehindBuffer writeBehindBuffer;
+
+    @Autowired(required = false)
+    private RefreshAheadRegistry refreshAheadRegistry;
+
+    //进程内请求合并，缓存未命中时同一个key只有一个线程竞争锁，每种策略各自合并
+    private final SingleFlight mutexFlight = new SingleFlight();
+
+    private final SingleFlight leaseFlight = new SingleFlight();
+
+    private final SingleFlight earlyExpireFlight = new SingleFlight();
+
+    //后台重建逻辑过期数据后的回调，参数为重建的缓存key
+    private final List<Consumer<String>> rebuildListeners = new CopyOnWriteArrayList<>();
+
+    //未开启write-behind时延迟写入直接写入缓存后的回调，参数为写入的缓存key
+    private final List<Consumer<Collection<String>>> behindListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 重建缓存使用的锁，Redis实现使用分布式锁，进程内实现使用进程内的锁
+     */
+    protected abstract DistributedLockFactory getLockFactory();
+
+    /**
+     * 布隆过滤器判断业务标识是否可能存在，未开启布隆过滤器的实现返回true
+     */
+    protected <ID> boolean mightContain(String keyPrefix, ID id) {
+        return true;
+    }
+
+    @Override
+    public void set(String key, Object value) {
+        this.setBytes(key, cacheCodecRegistry.encode(key, value), null, null);
+    }
+
+    @Override
+    public void set(String key, Object value, Long timeout, TimeUnit unit) {
+        if (timeout == null) {
+            this.set(key, value);
+            return;
+        }
+        //按照过期策略增加抖动和错峰
+        this.setBytes(key, cacheCodecRegistry.encode(key, value), expiryPolicyManager.getTtlMillis(key, timeout, unit), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Boolean expire(String key, long timeout, TimeUnit unit) {
+        //丢弃write-behind缓冲区中未刷新的写入，避免之后刷新时覆盖这次修改的过期时间，未刷新的数据按新的过期时间直接写入
+        byte[] pending = writeBehindBuffer == null ? null : writeBehindBuffer.discard(key);
+        if (pending != null) {
+            this.setBytes(key, pending, timeout, unit);
+            return true;
+        }
+        return byteStore.expire(key, unit.toMillis(timeout));
+    }
+
+    @Override
+    public void multiSet(Map<String, ?> values, Long timeout, TimeUnit unit) {
+        Map<String, byte[]> encoded = new LinkedHashMap<>();
+        values.forEach((key, value) -> {
+            if (value != null) {
+                encoded.put(key, cacheCodecRegistry.encode(key, value));
+            }
+        });
+        this.setAllBytes(encoded, timeout == null ? key -> null : key -> expiryPolicyManager.getTtlMillis(key, timeout, unit));
+    }
+
+    @Override
+    public void multiSetWithLogicalExpire(Map<String, ?> values, Long timeout, TimeUnit unit) {
+        Map<String, byte[]> encoded = new LinkedHashMap<>();
+        values.forEach((key, value) -> {
+            if (value != null) {
+                encoded.put(key, this.encodeLogicalExpire(key, value, timeout, unit));
+            }
+        });
+        this.setAllBytes(encoded, key -> null);
+    }
+
+    @Override
+    public void setBehind(String key, Object value, Long timeout, TimeUnit unit) {
+        if (writeBehindBuffer == null) {
+            DistributedCacheService.super.setBehind(key, value, timeout, unit);
+            this.notifyBehind(key);
+            return;
+        }
+        byteStore.evictLocal(key);
+        Long ttlMillis = timeout == null ? null : expiryPolicyManager.getTtlMillis(key, timeout, unit);
+        writeBehindBuffer.set(key, cacheCodecRegistry.encode(key, value), ttlMillis);
+    }
+
+    @Override
+    public void expireBehind(String key, long timeout, TimeUnit unit) {
+        if (writeBehindBuffer == null) {
+            this.expire(key, timeout, unit);
+            this.notifyBehind(key);
+            return;
+        }
+        writeBehindBuffer.expire(key, unit.toMillis(timeout));
+    }
+
+    @Override
+    public int flush() {
+        return writeBehindBuffer == null ? 0 : writeBehindBuffer.flush();
+    }
+
+    @Override
+    public void setWithLogicalExpire(String key, Object value, Long timeout, TimeUnit unit) {
+        this.setBytes(key, this.encodeLogicalExpire(key, value, timeout, unit), null, null);
+    }
+
+    @Override
+    public String get(String key) {
+        return this.decodeString(key, this.getBytes(key));
+    }
+
+    @Override
+    public <T> T getObject(String key, Class<T> targetClass) {
+        byte[] bytes = this.getBytes(key);
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        try {
+            return cacheCodecRegistry.decode(key, bytes, targetClass);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    @Override
+    public List<String> multiGet(Collection<String> keys) {
+        List<byte[]> values = this.multiGetBytes(keys);
+        if (values == null) {
+            return null;
+        }
+        List<String> result = new ArrayList<>(values.size());
+        Iterator<String> keyIterator = keys.iterator();
+        for (byte[] bytes : values) {
+            result.add(this.decodeString(keyIterator.next(), bytes));
+        }
+        return result;
+    }
+
+    @Override
+    public Set<String> keys(String pattern) {
+        try (Stream<String> keys = this.scan(pattern, DEFAULT_SCAN_COUNT)) {
+            return keys.collect(Collectors.toCollection(LinkedHashSet::new));
+        }
+    }
+
+    @Override
+    public Stream<String> scan(String pattern, int batchSize) {
+        return byteStore.scan(pattern, batchSize);
+    }
+
+    @Override
+    public long deleteByPattern(String pattern, int batchSize) {
+        return this.deleteByPattern(pattern, batchSize, null);
+    }
+
+    /**
+     * 遍历删除匹配的键，每删除一批键后回调deletedConsumer
+     *
+     * @param pattern         匹配模式
+     * @param batchSize       每批删除的键数量
+     * @param deletedConsumer 每批删除完成后的回调，可以为空
+     * @return 删除的键数量
+     */
+    public long deleteByPattern(String pattern, int batchSize, Consumer<List<String>> deletedConsumer) {
+        int size = Math.max(1, batchSize);
+        long count = 0;
+        try (Stream<String> keys = this.scan(pattern, size)) {
+            Iterator<String> iterator = keys.iterator();
+            List<String> batch = new ArrayList<>(size);
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if (batch.size() >= size || !iterator.hasNext()) {
+                    batch.forEach(this::prepareDelete);
+                    count += byteStore.deleteAll(batch);
+                    if (deletedConsumer != null) {
+                        deletedConsumer.accept(batch);
+                    }
+                    batch = new ArrayList<>(size);
+                }
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public Boolean delete(String key) {
+        if (StrUtil.isEmpty(key)) {
+            return false;
+        }
+        this.prepareDelete(key);
+        return byteStore.delete(key);
+    }
+
+    /**
+     * 删除缓存前清理本节点登记的状态：丢弃write-behind缓冲区中未刷新的写入，取消提前刷新的登记，
+     * 避免删除后被缓冲区刷新或后台提前刷新重新写回。单个删除、按模式删除和异步删除都需要先调用
+     *
+     * @param key 要删除的缓存key
+     */
+    public void prepareDelete(String key) {
+        this.discardPending(key);
+        if (refreshAheadRegistry != null) {
+            refreshAheadRegistry.remove(key);
+        }
+    }
+
+    /**
+     * 获取按key前缀和查询策略统计的缓存指标快照
+     *
+     * @return 缓存指标列表
+     */
+    public List<CacheStats> getCacheStats() {
+        return cacheMetrics.getSnapshot();
+    }
+
+    /**
+     * 注册后台重建逻辑过期数据（包括提前刷新）后的回调，调用方写入缓存之外的数据变化需要通过回调感知，例如近端缓存广播失效消息
+     *
+     * @param listener 参数为重建的缓存key
+     */
+    public void addRebuildListener(Consumer<String> listener) {
+        rebuildListeners.add(listener);
+    }
+
+    /**
+     * 注册延迟写入（setBehind、expireBehind）写入缓存后的回调，开启write-behind时每批刷新回调一次，
+     * 未开启时每次直接写入后回调一次，例如近端缓存按批广播失效消息
+     *
+     * @param listener 参数为写入的缓存key
+     */
+    public void addBehindListener(Consumer<Collection<String>> listener) {
+        if (writeBehindBuffer != null) {
+            writeBehindBuffer.addFlushListener(listener);
+        } else {
+            behindListeners.add(listener);
+        }
+    }
+
+    @Override
+    public <R, ID> R queryWithPassThrough(String keyPrefix, ID id, Class<R> type, Function<ID, R> dbFallback, Long timeout, TimeUnit unit) {
+        //布隆过滤器判断不存在，直接返回
+        if (!this.mightContain(keyPrefix, id)) {
+            return null;
+        }
+        String key = this.getKey(keyPrefix, id);
+        return this.doQueryWithPassThrough(this.getStats(keyPrefix, CacheStrategy.PASS_THROUGH), key, bytes -> cacheCodecRegistry.decode(key, bytes, type), () -> dbFallback.apply(id), timeout, unit);
+    }
+
+    @Override
+    public <R> R queryWithPassThroughWithoutArgs(String keyPrefix, Class<R> type, Supplier<R> dbFallback, Long timeout, TimeUnit unit) {
+        String key = this.getKey(keyPrefix);
+        return this.doQueryWithPassThrough(this.getStats(keyPrefix, CacheStrategy.PASS_THROUGH), key, bytes -> cacheCodecRegistry.decode(key, bytes, type), dbFallback, timeout, unit);
+    }
+
+    @Override
+    public <R, ID> List<R> queryWithPassThroughList(String keyPrefix, ID id, Class<R> type, Function<ID, List<R>> dbFallback, Long timeout, TimeUnit unit) {
+        //布隆过滤器判断不存在，直接返回
+        if (!this.mightContain(keyPrefix, id)) {
+            return null;
+        }
+        String key = this.getKey(keyPrefix, id);
+        return this.doQueryWithPassThrough(this.getStats(keyPrefix, CacheStrategy.PASS_THROUGH), key, bytes -> cacheCodecRegistry.decodeList(key, bytes, type), () -> this.emptyListAsNull(dbFallback.apply(id)), timeout, unit);
+    }
+
+    @Override
+    public <R> List<R> queryWithPassThroughListWithoutArgs(String keyPrefix, Class<R> type, Supplier<List<R>> dbFallback, Long timeout, TimeUnit unit) {
+        String key = this.getKey(keyPrefix);
+        return this.doQueryWithPassThrough(this.getStats(keyPrefix, CacheStrategy.PASS_THROUGH), key, bytes -> cacheCodecRegistry.decodeList(key, bytes, type), () -> this.emptyListAsNull(dbFallback.get()), timeout, unit);
+    }
+
+    /**
+     * 防止缓存穿透的查询，先查缓存再查数据库，数据库不存在的数据缓存空数据
+     */
+    private <T> T doQueryWithPassThrough(CacheStats stats, String key, Function<byte[], T> decoder, Supplier<T> dbFallback, Long timeout, TimeUnit unit) {
+        long start = System.nanoTime();
+        byte[] bytes = this.getBytes(key);
+        stats.recordRedis(start);
+        //缓存存在数据，直接返回
+        if (bytes != null && bytes.length > 0) {
+            stats.recordHit();
+            return decoder.apply(bytes);
+        }
+        //缓存中存储的是空数据
+        if (bytes != null) {
+            stats.recordNullHit();
+            return null;
+        }
+        stats.recordMiss();
+        //从数据库查询数据
+        long loadStart = System.nanoTime();
+        T r = dbFallback.get();
+        stats.recordLoad(loadStart);
+        if (r == null) {
+            this.setBytes(key, CacheConstants.EMPTY_BYTES, CacheConstants.CACHE_NULL_TTL, TimeUnit.SECONDS);
+            return null;
+        }
+        this.set(key, r, timeout, unit);
+        return r;
+    }
+
+    @Override
+    public <R, ID> R queryWithLogicalExpire(String keyPrefix, ID id, Class<R> type, Function<ID, R> dbFallback, Long timeout, TimeUnit unit) {
+        String key = this.getKey(keyPrefix, id);
+        return this.doQueryWithLogicalExpire(this.getStats(keyPrefix, CacheStrategy.LOGICAL_EXPIRE), key, bytes -> cacheCodecRegistry.decode(key, bytes, type), data -> this.getResult(data, type), () -> dbFallback.apply(id), CacheConstants.EMPTY_VALUE, () -> null, timeout, unit);
+    }
+
+    @Override
+    public <R> R queryWithLogicalExpireWithoutArgs(String keyPrefix, Class<R> type, Supplier<R> dbFallback, Long timeout, TimeUnit unit) {
+        String key = this.getKey(keyPrefix);
+        return this.doQueryWithLogicalExpire(this.getStats(keyPrefix, CacheStrategy.LOGICAL_EXPIRE), key, bytes -> cacheCodecRegistry.decode(key, bytes, type), data -> this.getResult(data, type), dbFallback, CacheConstants.EMPTY_VALUE, () -> null, timeout, unit);
+    }
+
+    @Override
+    public <R, ID> List<R> queryWithLogicalExpireList(String keyPrefix, ID id, Class<R> type, Function<ID, List<R>> dbFallback, Long timeout, TimeUnit unit) {
+        String key = this.getKey(keyPrefix, id);
+        return this.doQueryWithLogicalExpire(this.getStats(keyPrefix, CacheStrategy.LOGICAL_EXPIRE), key, bytes -> cacheCodecRegistry.decodeList(key, bytes, type), data -> this.getResultList(JSONUtil.toJsonStr(data), type), () -> dbFallback.apply(id), CacheConstants.EMPTY_LIST_VALUE, ArrayList::new, timeout, unit);
+    }
+
+    @Override
+    public <R> List<R> queryWithLogicalExpireListWithoutArgs(String keyPrefix, Class<R> type, Supplier<List<R>> dbFallback, Long timeout, TimeUnit unit) {
+        String key = this.getKey(keyPrefix);
+        return this.doQueryWithLogicalExpire(this.getStats(keyPrefix, CacheStrategy.LOGICAL_EXPIRE), key, bytes -> cacheCodecRegistry.decodeList(key, bytes, type), data -> this.getResultList(JSONUtil.toJsonStr(data), type), dbFallback, CacheConstants.EMPTY_LIST_VALUE, ArrayList::new, timeout, unit);
+    }
+
+    /**
+     * 使用逻辑过期时间的查询，逻辑过期的数据直接返回并异步重建缓存。
+     * 通过头部的过期时间点判断是否过期，业务数据只解码一次
+     *
+     * @param key               缓存key
+     * @param decoder           业务数据解码函数
+     * @param legacyConverter   将历史格式RedisData中的数据转换为目标类型
+     * @param dbFallback        数据库查询函数
+     * @param legacyEmptyMarker 历史格式中缓存的空数据标记
+     * @param emptyResult       命中空数据时返回的结果
+     * @param timeout           逻辑过期时长
+     * @param unit              时间单位
+     */
+    private <T> T doQueryWithLogicalExpire(CacheStats stats, String key, Function<byte[], T> decoder, Function<Object, T> legacyConverter, Supplier<T> dbFallback, Object legacyEmptyMarker, Supplier<T> emptyResult, Long timeout, TimeUnit unit) {
+        long start = System.nanoTime();
+        byte[] bytes = this.getBytes(key);
+        stats.recordRedis(start);
+        if (bytes == null || bytes.length == 0) {
+            stats.recordMiss();
+            try {
+                //构建缓存数据
+                this.buildCache(stats, key, dbFallback, timeout, unit);
+                Thread.sleep(THREAD_SLEEP_MILLISECONDS);
+                //重试
+                return this.doQueryWithLogicalExpire(stats, key, decoder, legacyConverter, dbFallback, legacyEmptyMarker, emptyResult, timeout, unit);
+            } catch (InterruptedException e) {
+                logger.error("query data with logical expire|{}", e.getMessage());
+                throw new RuntimeException(e);
+            }
+        }
+        //命中，解析头部的过期时间点
+        LogicalExpireData logicalExpireData = LogicalExpireData.parse(bytes);
+        T r = this.getLogicalExpireResult(logicalExpireData, decoder, legacyConverter, legacyEmptyMarker, emptyResult);
+        if (r == null) {
+            stats.recordNullHit();
+        } else {
+            stats.recordHit();
+            this.trackRefreshAhead(stats, key, dbFallback, timeout, unit, logicalExpireData.getExpireMillis());
+        }
+        if (!logicalExpireData.isExpired(System.currentTimeMillis())) {
+            return r;
+        }
+        stats.recordStaleServed();
+        //逻辑过期，异步重建缓存并返回过期数据
+        this.buildCache(stats, key, dbFallback, timeout, unit);
+        return r;
+    }
+
+    /**
+     * 解码逻辑过期数据中的业务数据，兼容历史的RedisData格式，异步实现复用
+     */
+    public <T> T getLogicalExpireResult(LogicalExpireData logicalExpireData, Function<byte[], T> decoder, Function<Object, T> legacyConverter, Object legacyEmptyMarker, Supplier<T> emptyResult) {
+        if (logicalExpireData.isLegacy()) {
+            Object data = logicalExpireData.getLegacyData().getData();
+            if (legacyEmptyMarker.equals(data)) {
+                return emptyResult.get();
+            }
+            return legacyConverter.apply(data);
+        }
+        if (logicalExpireData.isEmpty()) {
+            return emptyResult.get();
+        }
+        return decoder.apply(logicalExpireData.getPayload());
+    }
+
+    /**
+     * 构建缓存逻辑过期数据
+     */
+    private <T> void buildCache(CacheStats stats, String key, Supplier<T> dbFallback, Long timeout, TimeUnit unit) {
+        ThreadPoolUtils.execute(() -> this.rebuildLogicalExpire(stats, key, dbFallback, timeout, unit, 0));
+    }
+
+    /**
+     * 获取锁后重建逻辑过期数据，Double Check时剩余的逻辑过期时间大于aheadMillis说明已经被其他线程或节点重建，不再查询数据库
+     *
+     * @param aheadMillis 提前重建的时长，逻辑过期后重建时为0
+     * @return 缓存中数据的逻辑过期时间点，没有获取到锁时返回-1
+     */
+    private <T> long rebuildLogicalExpire(CacheStats stats, String key, Supplier<T> dbFallback, Long timeout, TimeUnit unit, long aheadMillis) {
+        DistributedLock lock = this.getLockFactory().getDistributedLock(CacheConstants.getLockKey(key));
+        boolean isLock;
+        try {
+            isLock = lock.tryLock();
+        } catch (InterruptedException e) {
+            logger.error("build cache | {}", e.getMessage());
+            throw new RuntimeException(e);
+        }
+        if (!isLock) {
+            stats.recordLockFailure();
+            return -1;
+        }
+        try {
+            //获取锁成功, Double Check
+            byte[] bytes = byteStore.getDirect(key);
+            if (bytes != null && bytes.length > 0) {
+                LogicalExpireData logicalExpireData = LogicalExpireData.parse(bytes);
+                if (!logicalExpireData.isExpired(System.currentTimeMillis() + aheadMillis)) {
+                    return logicalExpireData.getExpireMillis();
+                }
+            }
+            long loadStart = System.nanoTime();
+            T newR = dbFallback.get();
+            stats.recordLoad(loadStart);
+            byte[] value = newR != null ? this.encodeLogicalExpire(key, newR, timeout, unit)
+                    : this.encodeLogicalExpire(key, null, CacheConstants.CACHE_NULL_TTL, TimeUnit.SECONDS);
+            this.setBytes(key, value, null, null);
+            this.notifyRebuilt(Collections.singletonList(key));
+            return LogicalExpireData.parse(value).getExpireMillis();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 登记需要提前刷新的逻辑过期数据，已经登记的key只更新访问时间
+     */
+    private <T> void trackRefreshAhead(CacheStats stats, String key, Supplier<T> dbFallback, Long timeout, TimeUnit unit, long expireMillis) {
+        if (refreshAheadRegistry == null || timeout == null || refreshAheadRegistry.touch(key, expireMillis)) {
+            return;
+        }
+        refreshAheadRegistry.register(key, unit.toMillis(timeout), expireMillis, aheadMillis -> this.rebuildLogicalExpire(stats, key, dbFallback, timeout, unit, aheadMillis));
+    }
+
+    @Override
+    public <R, ID> R queryWithMutex(String keyPrefix, ID id, Class<R> type, Function<ID, R> dbFallback, Long timeout, TimeUnit unit) {
+        String key = this.getKey(keyPrefix, id);
+        return this.doQueryWithMutex(this.getStats(keyPrefix, CacheStrategy.MUTEX), key, bytes -> cacheCodecRegistry.decode(key, bytes, type), () -> dbFallback.apply(id), timeout, unit);
+    }
+
+    @Override
+    public <R> R queryWithMutexWithoutArgs(String keyPrefix, Class<R> type, Supplier<R> dbFallback, Long timeout, TimeUnit unit) {
+        String key = this.getKey(keyPrefix);
+        return this.doQueryWithMutex(this.getStats(keyPrefix, CacheStrategy.MUTEX), key, bytes -> cacheCodecRegistry.decode(key, bytes, type), dbFallback, timeout, unit);
+    }
+
+    @Override
+    public <R, ID> List<R> queryWithMutexList(String keyPrefix, ID id, Class<R> type, Function<ID, List<R>> dbFallback, Long timeout, TimeUnit unit) {
+        String key = this.getKey(keyPrefix, id);
+        return this.doQueryWithMutex(this.getStats(keyPrefix, CacheStrategy.MUTEX), key, bytes -> cacheCodecRegistry.decodeList(key, bytes, type), () -> dbFallback.apply(id), timeout, unit);
+    }
+
+    @Override
+    public <R> List<R> queryWithMutexListWithoutArgs(String keyPrefix, Class<R> type, Supplier<List<R>> dbFallback, Long timeout, TimeUnit unit) {
+        String key = this.getKey(keyPrefix);
+        return this.doQueryWithMutex(this.getStats(keyPrefix, CacheStrategy.MUTEX), key, bytes -> cacheCodecRegistry.decodeList(key, bytes, type), dbFallback, timeout, unit);
+    }
+
+    /**
+     * 互斥锁查询，缓存未命中时先在进程内合并同一个key的并发请求，
+     * 只有一个线程去竞争锁并查询数据库，其他线程等待同一个结果
+     */
+    private <T> T doQueryWithMutex(CacheStats stats, String key, Function<byte[], T> decoder, Supplier<T> dbFallback, Long timeout, TimeUnit unit) {
+        long start = System.nanoTime();
+        byte[] bytes = this.getBytes(key);
+        stats.recordRedis(start);
+        if (bytes != null && bytes.length > 0) {
+            stats.recordHit();
+            return decoder.apply(bytes);
+        }
+        //缓存了空数据
+        if (bytes != null) {
+            stats.recordNullHit();
+            return null;
+        }
+        stats.recordMiss();
+        return mutexFlight.execute(key, () -> this.rebuildWithMutex(stats, key, decoder, dbFallback, timeout, unit), r -> cacheCodecRegistry.copy(r, decoder));
+    }
+
+    /**
+     * 获取锁后重建缓存。锁被占用时阻塞等待锁释放的通知，
+     * 拿到锁后通过Double Check读取其他线程或节点重建的结果，总等待时长不超过mutexWaitMillis
+     */
+    private <T> T rebuildWithMutex(CacheStats stats, String key, Function<byte[], T> decoder, Supplier<T> dbFallback, Long timeout, TimeUnit unit) {
+        DistributedLock lock = this.getLockFactory().getDistributedLock(CacheConstants.getLockKey(key));
+        try {
+            boolean isLock = lock.tryLock(mutexWaitMillis, TimeUnit.MILLISECONDS);
+            //获取锁成功时Double Check，等待超时时也再检查一次缓存
+            byte[] bytes = byteStore.getDirect(key);
+            if (bytes != null && bytes.length > 0) {
+                return decoder.apply(bytes);
+            }
+            if (bytes != null) {
+                return null;
+            }
+            if (!isLock) {
+                stats.recordLockFailure();
+                //超过等待时长，直接查询数据库，不写回缓存
+                logger.warn("query data with mutex wait timeout | {}", key);
+                return dbFallback.get();
+            }
+            long loadStart = System.nanoTime();
+            T r = dbFallback.get();
+            stats.recordLoad(loadStart);
+            if (r == null) {
+                //缓存空数据
+                this.setBytes(key, CacheConstants.EMPTY_BYTES, CacheConstants.CACHE_NULL_TTL, TimeUnit.SECONDS);
+                return null;
+            }
+            this.set(key, r, timeout, unit);
+            return r;
+        } catch (InterruptedException e) {
+            logger.error("query data with mutex |{}", e.getMessage());
+            throw new RuntimeException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public <R, ID> R queryWithLease(String keyPrefix, ID id, Class<R> type, Function<ID, R> dbFallback, Long timeout, TimeUnit unit) {
+        String key = this.getKey(keyPrefix, id);
+        return this.doQueryWithLease(this.getStats(keyPrefix, CacheStrategy.LEASE), key, bytes -> cacheCodecRegistry.decode(key, bytes, type), () -> dbFallback.apply(id), timeout, unit);
+    }
+
+    @Override
+    public <R, ID> List<R> queryWithLeaseList(String keyPrefix, ID id, Class<R> type, Function<ID, List<R>> dbFallback, Long timeout, TimeUnit unit) {
+        String key = this.getKey(keyPrefix, id);
+        return this.doQueryWithLease(this.getStats(keyPrefix, CacheStrategy.LEASE), key, bytes -> cacheCodecRegistry.decodeList(key, bytes, type), () -> dbFallback.apply(id), timeout, unit);
+    }
+
+    /**
+     * 基于重建租约的查询，一次原子操作返回缓存值或租约：拿到租约时查询数据库并通过第二次原子操作写回，
+     * 其他调用方持有租约时在进程内合并同一个key的请求，按间隔重新读取，总等待时长不超过mutexWaitMillis
+     */
+    private <T> T doQueryWithLease(CacheStats stats, String key, Function<byte[], T> decoder, Supplier<T> dbFallback, Long timeout, TimeUnit unit) {
+        //write-behind缓冲区中未刷新的数据优先
+        byte[] pending = writeBehindBuffer == null ? null : writeBehindBuffer.getPending(key);
+        if (pending != null) {
+            return this.decodeLeaseHit(stats, pending, decoder);
+        }
+        long start = System.nanoTime();
+        byte[] token = RebuildLease.newToken();
+        byte[] bytes = byteStore.getOrLease(key, token, leaseTtlMillis);
+        stats.recordRedis(start);
+        if (!RebuildLease.isLease(bytes)) {
+            return this.decodeLeaseHit(stats, bytes, decoder);
+        }
+        stats.recordMiss();
+        if (Arrays.equals(bytes, token)) {
+            return this.rebuildWithLease(stats, key, token, dbFallback, timeout, unit);
+        }
+        return leaseFlight.execute(key, () -> this.waitForLease(stats, key, decoder, dbFallback, timeout, unit), r -> cacheCodecRegistry.copy(r, decoder));
+    }
+
+    /**
+     * 等待持有租约的调用方写回数据，期间租约过期或被释放时由当前调用方重新获取租约并重建
+     */
+    private <T> T waitForLease(CacheStats stats, String key, Function<byte[], T> decoder, Supplier<T> dbFallback, Long timeout, TimeUnit unit) {
+        long deadline = System.currentTimeMillis() + mutexWaitMillis;
+        try {
+            while (System.currentTimeMillis() < deadline) {
+                Thread.sleep(leaseRetryMillis);
+                byte[] token = RebuildLease.newToken();
+                byte[] bytes = byteStore.getOrLease(key, token, leaseTtlMillis);
+                if (!RebuildLease.isLease(bytes)) {
+                    //其他调用方已经写回数据
+                    return bytes.length > 0 ? decoder.apply(bytes) : null;
+                }
+                if (Arrays.equals(bytes, token)) {
+                    return this.rebuildWithLease(stats, key, token, dbFallback, timeout, unit);
+                }
+            }
+        } catch (InterruptedException e) {
+            logger.error("query data with lease |{}", e.getMessage());
+            throw new RuntimeException(e);
+        }
+        stats.recordLockFailure();
+        //超过等待时长，直接查询数据库，不写回缓存
+        logger.warn("query data with lease wait timeout | {}", key);
+        return dbFallback.get();
+    }
+
+    /**
+     * 持有租约时查询数据库，写回数据的同时释放租约；查询失败时释放租约，其他调用方可以立即重新获取
+     */
+    private <T> T rebuildWithLease(CacheStats stats, String key, byte[] token, Supplier<T> dbFallback, Long timeout, TimeUnit unit) {
+        T r;
+        try {
+            long loadStart = System.nanoTime();
+            r = dbFallback.get();
+            stats.recordLoad(loadStart);
+        } catch (RuntimeException e) {
+            byteStore.releaseLease(key, token);
+            throw e;
+        }
+        byte[] value;
+        long ttlMillis;
+        if (r == null) {
+            //缓存空数据
+            value = CacheConstants.EMPTY_BYTES;
+            ttlMillis = TimeUnit.SECONDS.toMillis(CacheConstants.CACHE_NULL_TTL);
+        } else {
+            value = cacheCodecRegistry.encode(key, r);
+            ttlMillis = timeout == null ? 0 : expiryPolicyManager.getTtlMillis(key, timeout, unit);
+        }
+        this.discardPending(key);
+        if (!byteStore.setIfLeased(key, token, value, ttlMillis)) {
+            //租约已经过期并被其他调用方接管，由新的持有者写回
+            logger.warn("rebuild lease expired before set | {}", key);
+        }
+        return r;
+    }
+
+    private <T> T decodeLeaseHit(CacheStats stats, byte[] bytes, Function<byte[], T> decoder) {
+        //缓存了空数据
+        if (bytes.length == 0) {
+            stats.recordNullHit();
+            return null;
+        }
+        stats.recordHit();
+        return decoder.apply(bytes);
+    }
+
+    @Override
+    public <R, ID> R queryWithEarlyExpire(String keyPrefix, ID id, Class<R> type, Function<ID, R> dbFallback, Long timeout, TimeUnit unit) {
+        String key = this.getKey(keyPrefix, id);
+        return this.doQueryWithEarlyExpire(this.getStats(keyPrefix, CacheStrategy.EARLY_EXPIRE), key, bytes -> cacheCodecRegistry.decode(key, bytes, type), () -> dbFallback.apply(id), timeout, unit);
+    }
+
+    @Override
+    public <R> R queryWithEarlyExpireWithoutArgs(String keyPrefix, Class<R> type, Supplier<R> dbFallback, Long timeout, TimeUnit unit) {
+        String key = this.getKey(keyPrefix);
+        return this.doQueryWithEarlyExpire(this.getStats(keyPrefix, CacheStrategy.EARLY_EXPIRE), key, bytes -> cacheCodecRegistry.decode(key, bytes, type), dbFallback, timeout, unit);
+    }
+
+    @Override
+    public <R, ID> List<R> queryWithEarlyExpireList(String keyPrefix, ID id, Class<R> type, Function<ID, List<R>> dbFallback, Long timeout, TimeUnit unit) {
+        String key = this.getKey(keyPrefix, id);
+        return this.doQueryWithEarlyExpire(this.getStats(keyPrefix, CacheStrategy.EARLY_EXPIRE), key, bytes -> cacheCodecRegistry.decodeList(key, bytes, type), () -> dbFallback.apply(id), timeout, unit);
+    }
+
+    @Override
+    public <R> List<R> queryWithEarlyExpireListWithoutArgs(String keyPrefix, Class<R> type, Supplier<List<R>> dbFallback, Long timeout, TimeUnit unit) {
+        String key = this.getKey(keyPrefix);
+        return this.doQueryWithEarlyExpire(this.getStats(keyPrefix, CacheStrategy.EARLY_EXPIRE), key, bytes -> cacheCodecRegistry.decodeList(key, bytes, type), dbFallback, timeout, unit);
+    }
+
+    /**
+     * 概率提前过期查询，命中的数据按照XFetch公式决定是否由当前调用方提前重新计算，
+     * 需要重新计算时在进程内合并同一个key的请求，不加分布式锁
+     */
+    private <T> T doQueryWithEarlyExpire(CacheStats stats, String key, Function<byte[], T> decoder, Supplier<T> dbFallback, Long timeout, TimeUnit unit) {
+        long start = System.nanoTime();
+        byte[] bytes = this.getBytes(key);
+        stats.recordRedis(start);
+        if (LogicalExpireData.isEnvelope(bytes)) {
+            LogicalExpireData logicalExpireData = LogicalExpireData.parse(bytes);
+            if (!this.shouldRecomputeEarly(logicalExpireData)) {
+                if (logicalExpireData.isEmpty()) {
+                    stats.recordNullHit();
+                    return null;
+                }
+                stats.recordHit();
+                return decoder.apply(logicalExpireData.getPayload());
+            }
+        }
+        stats.recordMiss();
+        return earlyExpireFlight.execute(key, () -> this.recompute(stats, key, dbFallback, timeout, unit), r -> cacheCodecRegistry.copy(r, decoder));
+    }
+
+    /**
+     * XFetch公式：now - delta * beta * ln(random) >= expireTime 时提前重新计算
+     */
+    private boolean shouldRecomputeEarly(LogicalExpireData logicalExpireData) {
+        long now = System.currentTimeMillis();
+        //random取值范围(0, 1]，-ln(random)取值范围[0, +∞)
+        double random = 1.0D - ThreadLocalRandom.current().nextDouble();
+        double gap = -logicalExpireData.getDeltaMillis() * earlyExpireBeta * Math.log(random);
+        return now + gap >= logicalExpireData.getExpireMillis();
+    }
+
+    /**
+     * 查询数据库并记录重新计算耗时，过期时间点与物理过期时间一致
+     */
+    private <T> T recompute(CacheStats stats, String key, Supplier<T> dbFallback, Long timeout, TimeUnit unit) {
+        long start = System.currentTimeMillis();
+        long loadStart = System.nanoTime();
+        T r = dbFallback.get();
+        stats.recordLoad(loadStart);
+        long now = System.currentTimeMillis();
+        int deltaMillis = (int) Math.min(Integer.MAX_VALUE, now - start);
+        if (r == null) {
+            //缓存空数据
+            long nullTtlMillis = TimeUnit.SECONDS.toMillis(CacheConstants.CACHE_NULL_TTL);
+            this.setBytes(key, LogicalExpireData.encode(now + nullTtlMillis, deltaMillis, null), nullTtlMillis, TimeUnit.MILLISECONDS);
+            return null;
+        }
+        long ttlMillis = expiryPolicyManager.getTtlMillis(key, timeout, unit);
+        this.setBytes(key, LogicalExpireData.encode(now + ttlMillis, deltaMillis, cacheCodecRegistry.encode(key, r)), ttlMillis, TimeUnit.MILLISECONDS);
+        return r;
+    }
+
+    @Override
+    public <R, ID> Map<ID, R> queryWithPassThroughBatch(String keyPrefix, Collection<ID> ids, Class<R> type, Function<Collection<ID>, Map<ID, R>> dbFallback, Long timeout, TimeUnit unit) {
+        Map<ID, R> result = new LinkedHashMap<>();
+        if (ids == null || ids.isEmpty()) {
+            return result;
+        }
+        //布隆过滤器判断不存在的业务标识直接忽略
+        List<ID> candidateIds = new ArrayList<>(ids.size());
+        for (ID id : ids) {
+            if (this.mightContain(keyPrefix, id)) {
+                candidateIds.add(id);
+            }
+        }
+        if (candidateIds.isEmpty()) {
+            return result;
+        }
+        Map<ID, String> idKeys = this.getKeys(keyPrefix, candidateIds);
+        CacheStats stats = this.getStats(keyPrefix, CacheStrategy.PASS_THROUGH);
+        //一次批量查询所有缓存数据
+        List<ID> missIds = this.fillBatchResult(stats, idKeys, type, result);
+        if (missIds.isEmpty()) {
+            return result;
+        }
+        //未命中的数据一次性从数据库查询并写回缓存
+        this.loadBatch(stats, idKeys, missIds, dbFallback, timeout, unit, result);
+        return this.sortBatchResult(idKeys, result);
+    }
+
+    @Override
+    public <R, ID> Map<ID, R> queryWithMutexBatch(String keyPrefix, Collection<ID> ids, Class<R> type, Function<Collection<ID>, Map<ID, R>> dbFallback, Long timeout, TimeUnit unit) {
+        Map<ID, R> result = new LinkedHashMap<>();
+        if (ids == null || ids.isEmpty()) {
+            return result;
+        }
+        Map<ID, String> idKeys = this.getKeys(keyPrefix, ids);
+        CacheStats stats = this.getStats(keyPrefix, CacheStrategy.MUTEX);
+        //一次批量查询所有缓存数据
+        List<ID> missIds = this.fillBatchResult(stats, idKeys, type, result);
+        if (missIds.isEmpty()) {
+            return result;
+        }
+        long deadline = System.currentTimeMillis() + mutexWaitMillis;
+        try {
+            while (!missIds.isEmpty()) {
+                List<ID> waitIds = this.rebuildBatchWithMutex(stats, idKeys, missIds, type, dbFallback, timeout, unit, result);
+                if (waitIds.isEmpty()) {
+                    break;
+                }
+                //其他线程正在重建的数据，阻塞等待锁释放的通知，等到后立即释放，不同时持有多把锁，避免批量查询之间相互等待
+                for (ID id : waitIds) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    DistributedLock lock = this.getLockFactory().getDistributedLock(CacheConstants.getLockKey(idKeys.get(id)));
+                    if (lock.tryLock(remaining, TimeUnit.MILLISECONDS)) {
+                        lock.unlock();
+                    }
+                }
+                Map<ID, String> waitKeys = new LinkedHashMap<>();
+                waitIds.forEach(id -> waitKeys.put(id, idKeys.get(id)));
+                missIds = this.fillBatchResult(null, waitKeys, type, result);
+                if (!missIds.isEmpty() && System.currentTimeMillis() >= deadline) {
+                    //超过等待时长，直接查询数据库，不写回缓存
+                    logger.warn("query data with mutex batch wait timeout | {}", missIds.size());
+                    result.putAll(this.applyBatchFallback(stats, dbFallback, missIds));
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            logger.error("query data with mutex batch |{}", e.getMessage());
+            throw new RuntimeException(e);
+        }
+        return this.sortBatchResult(idKeys, result);
+    }
+
+    /**
+     * 对未命中的数据非阻塞加锁，获取到锁的数据一次性重建，返回需要等待其他线程重建的业务标识
+     */
+    private <R, ID> List<ID> rebuildBatchWithMutex(CacheStats stats, Map<ID, String> idKeys, List<ID> missIds, Class<R> type, Function<Collection<ID>, Map<ID, R>> dbFallback, Long timeout, TimeUnit unit, Map<ID, R> result) throws InterruptedException {
+        Map<ID, DistributedLock> locks = new LinkedHashMap<>();
+        List<ID> waitIds = new ArrayList<>();
+        try {
+            for (ID id : missIds) {
+                DistributedLock lock = this.getLockFactory().getDistributedLock(CacheConstants.getLockKey(idKeys.get(id)));
+                if (lock.tryLock()) {
+                    locks.put(id, lock);
+                } else {
+                    waitIds.add(id);
+                }
+            }
+            stats.recordLockFailures(waitIds.size());
+            if (!locks.isEmpty()) {
+                //获取锁成功, Double Check
+                Map<ID, String> lockedKeys = new LinkedHashMap<>();
+                locks.keySet().forEach(id -> lockedKeys.put(id, idKeys.get(id)));
+                List<ID> loadIds = this.fillBatchResult(null, lockedKeys, type, result);
+                if (!loadIds.isEmpty()) {
+                    this.loadBatch(stats, idKeys, loadIds, dbFallback, timeout, unit, result);
+                }
+            }
+        } finally {
+            locks.values().forEach(DistributedLock::unlock);
+        }
+        return waitIds;
+    }
+
+    @Override
+    public <R, ID> Map<ID, R> queryWithLogicalExpireBatch(String keyPrefix, Collection<ID> ids, Class<R> type, Function<Collection<ID>, Map<ID, R>> dbFallback, Long timeout, TimeUnit unit) {
+        Map<ID, R> result = new LinkedHashMap<>();
+        if (ids == null || ids.isEmpty()) {
+            return result;
+        }
+        Map<ID, String> idKeys = this.getKeys(keyPrefix, ids);
+        CacheStats stats = this.getStats(keyPrefix, CacheStrategy.LOGICAL_EXPIRE);
+        long start = System.nanoTime();
+        List<byte[]> values = this.multiGetBytes(idKeys.values());
+        stats.recordRedis(start);
+        List<ID> missIds = new ArrayList<>();
+        List<ID> expiredIds = new ArrayList<>();
+        int index = 0;
+        long now = System.currentTimeMillis();
+        for (ID id : idKeys.keySet()) {
+            byte[] bytes = values == null ? null : values.get(index);
+            index++;
+            if (bytes == null || bytes.length == 0) {
+                missIds.add(id);
+                continue;
+            }
+            //命中，解析头部的过期时间点
+            LogicalExpireData logicalExpireData = LogicalExpireData.parse(bytes);
+            if (logicalExpireData.isExpired(now)) {
+                expiredIds.add(id);
+            }
+            R r = this.getLogicalExpireResult(logicalExpireData, data -> cacheCodecRegistry.decode(idKeys.get(id), data, type), data -> this.getResult(data, type), CacheConstants.EMPTY_VALUE, () -> null);
+            if (r != null) {
+                result.put(id, r);
+                if (refreshAheadRegistry != null) {
+                    this.trackRefreshAhead(stats, idKeys.get(id), () -> this.applyBatchFallback(stats, dbFallback, Collections.singletonList(id)).get(id), timeout, unit, logicalExpireData.getExpireMillis());
+                }
+            }
+        }
+        stats.recordHits(result.size());
+        stats.recordNullHits(idKeys.size() - missIds.size() - result.size());
+        stats.recordMisses(missIds.size());
+        stats.recordStaleServed(expiredIds.size());
+        //缓存中不存在的数据同步加载
+        if (!missIds.isEmpty()) {
+            Map<ID, R> loaded = this.applyBatchFallback(stats, dbFallback, missIds);
+            this.setBatchWithLogicalExpire(idKeys, missIds, loaded, timeout, unit);
+            result.putAll(loaded);
+        }
+        //逻辑过期的数据异步批量重建，当前直接返回过期数据
+        if (!expiredIds.isEmpty()) {
+            this.buildCacheBatch(stats, idKeys, expiredIds, dbFallback, timeout, unit);
+        }
+        return this.sortBatchResult(idKeys, result);
+    }
+
+    /**
+     * 批量构建缓存逻辑过期数据，只重建获取到锁的数据
+     */
+    private <R, ID> void buildCacheBatch(CacheStats stats, Map<ID, String> idKeys, List<ID> expiredIds, Function<Collection<ID>, Map<ID, R>> dbFallback, Long timeout, TimeUnit unit) {
+        ThreadPoolUtils.execute(() -> {
+            Map<ID, DistributedLock> locks = new LinkedHashMap<>();
+            try {
+                for (ID id : expiredIds) {
+                    DistributedLock lock = this.getLockFactory().getDistributedLock(CacheConstants.getLockKey(idKeys.get(id)));
+                    if (lock.tryLock()) {
+                        locks.put(id, lock);
+                    }
+                }
+                stats.recordLockFailures(expiredIds.size() - locks.size());
+                if (locks.isEmpty()) {
+                    return;
+                }
+                //获取锁成功, Double Check
+                List<ID> lockedIds = new ArrayList<>(locks.keySet());
+                List<byte[]> values = byteStore.multiGet(lockedIds.stream().map(idKeys::get).collect(Collectors.toList()));
+                List<ID> loadIds = new ArrayList<>();
+                long now = System.currentTimeMillis();
+                for (int i = 0; i < lockedIds.size(); i++) {
+                    byte[] bytes = values == null ? null : values.get(i);
+                    if (bytes == null || bytes.length == 0 || LogicalExpireData.parse(bytes).isExpired(now)) {
+                        loadIds.add(lockedIds.get(i));
+                    }
+                }
+                if (!loadIds.isEmpty()) {
+                    this.setBatchWithLogicalExpire(idKeys, loadIds, this.applyBatchFallback(stats, dbFallback, loadIds), timeout, unit);
+                    this.notifyRebuilt(loadIds.stream().map(idKeys::get).collect(Collectors.toList()));
+                }
+            } catch (InterruptedException e) {
+                logger.error("build cache batch | {}", e.getMessage());
+                throw new RuntimeException(e);
+            } finally {
+                locks.values().forEach(DistributedLock::unlock);
+            }
+        });
+    }
+
+    @Override
+    public boolean setIfNewer(String key, Object value, long version, Long timeout, TimeUnit unit) {
+        byte[] bytes = VersionedData.encode(version, value == null ? null : cacheCodecRegistry.encode(key, value));
+        //按照过期策略增加抖动和错峰
+        long ttlMillis = timeout == null ? 0 : expiryPolicyManager.getTtlMillis(key, timeout, unit);
+        this.discardPending(key);
+        return byteStore.setIfNewer(key, version, bytes, ttlMillis);
+    }
+
+    @Override
+    public <T> IMBusinessCache<T> getVersioned(String key, Class<T> type) {
+        IMBusinessCache<T> result = new IMBusinessCache<>();
+        byte[] bytes;
+        try {
+            bytes = this.getBytes(key);
+        } catch (DataAccessException e) {
+            logger.warn("get versioned cache | {} | {}", key, e.getMessage());
+            return result.retryLater();
+        }
+        //不存在或不是带版本号的数据，按照未命中处理
+        VersionedData versionedData = VersionedData.parse(bytes);
+        if (versionedData == null) {
+            return result;
+        }
+        result.withVersion(versionedData.getVersion());
+        return versionedData.isEmpty() ? result : result.with(cacheCodecRegistry.decode(key, versionedData.getPayload(), type));
+    }
+
+    @Override
+    public void setHash(String key, Object value, Long timeout, TimeUnit unit) {
+        //按照过期策略增加抖动和错峰
+        Long ttlMillis = timeout == null ? null : expiryPolicyManager.getTtlMillis(key, timeout, unit);
+        byteStore.setHash(key, HashFieldCodec.encode(value), ttlMillis);
+    }
+
+    @Override
+    public <T> T getHash(String key, Class<T> type) {
+        Map<String, String> fields = byteStore.getHash(key);
+        if (fields.isEmpty() || HashFieldCodec.isNull(fields)) {
+            return null;
+        }
+        return HashFieldCodec.decode(fields, type);
+    }
+
+    @Override
+    public Map<String, String> getFields(String key, String... fields) {
+        Map<String, String> result = new LinkedHashMap<>();
+        if (fields.length == 0) {
+            return result;
+        }
+        List<String> names = Arrays.asList(fields);
+        List<String> values = byteStore.getHashFields(key, names);
+        for (int i = 0; i < names.size(); i++) {
+            String value = values.get(i);
+            if (value != null) {
+                result.put(names.get(i), value);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public <T> T getFields(String key, Class<T> type, String... fields) {
+        Map<String, String> values = this.getFields(key, fields);
+        return values.isEmpty() ? null : HashFieldCodec.decode(values, type);
+    }
+
+    @Override
+    public Boolean updateFields(String key, Map<String, ?> fields) {
+        if (fields.isEmpty()) {
+            return false;
+        }
+        Map<String, String> setFields = new LinkedHashMap<>();
+        List<String> deleteFields = new ArrayList<>();
+        fields.forEach((field, value) -> {
+            String encoded = HashFieldCodec.encodeValue(value);
+            if (encoded == null) {
+                deleteFields.add(field);
+            } else {
+                setFields.put(field, encoded);
+            }
+        });
+        return byteStore.updateHash(key, HashFieldCodec.NULL_FIELD, setFields, deleteFields);
+    }
+
+    @Override
+    public <R, ID> R queryWithHash(String keyPrefix, ID id, Class<R> type, Function<ID, R> dbFallback, Long timeout, TimeUnit unit) {
+        //布隆过滤器判断不存在，直接返回
+        if (!this.mightContain(keyPrefix, id)) {
+            return null;
+        }
+        String key = this.getKey(keyPrefix, id);
+        CacheStats stats = this.getStats(keyPrefix, CacheStrategy.HASH);
+        long start = System.nanoTime();
+        Map<String, String> fields = byteStore.getHash(key);
+        stats.recordRedis(start);
+        if (!fields.isEmpty()) {
+            //缓存中存储的是空数据
+            if (HashFieldCodec.isNull(fields)) {
+                stats.recordNullHit();
+                return null;
+            }
+            stats.recordHit();
+            return HashFieldCodec.decode(fields, type);
+        }
+        stats.recordMiss();
+        //从数据库查询数据
+        long loadStart = System.nanoTime();
+        R r = dbFallback.apply(id);
+        stats.recordLoad(loadStart);
+        if (r == null) {
+            //缓存空数据
+            byteStore.setHash(key, Collections.singletonMap(HashFieldCodec.NULL_FIELD, CacheConstants.EMPTY_VALUE), TimeUnit.SECONDS.toMillis(CacheConstants.CACHE_NULL_TTL));
+            return null;
+        }
+        this.setHash(key, r, timeout, unit);
+        return r;
+    }
+
+    /**
+     * 获取key前缀和查询策略对应的缓存指标
+     */
+    private CacheStats getStats(String keyPrefix, CacheStrategy strategy) {
+        return cacheMetrics.getStats(keyPrefix, strategy);
+    }
+
+    /**
+     * 生成业务标识到缓存key的映射，保持输入顺序并去重
+     */
+    private <ID> Map<ID, String> getKeys(String keyPrefix, Collection<ID> ids) {
+        Map<ID, String> idKeys = new LinkedHashMap<>();
+        for (ID id : ids) {
+            idKeys.computeIfAbsent(id, k -> this.getKey(keyPrefix, k));
+        }
+        return idKeys;
+    }
+
+    /**
+     * 批量查询缓存，命中的数据放入结果中，返回未命中的业务标识（缓存了空数据的业务标识视为命中）
+     * stats不为空时记录命中指标，Double Check时传空，避免重复统计
+     */
+    private <R, ID> List<ID> fillBatchResult(CacheStats stats, Map<ID, String> idKeys, Class<R> type, Map<ID, R> result) {
+        long start = System.nanoTime();
+        List<byte[]> values = this.multiGetBytes(idKeys.values());
+        List<ID> missIds = new ArrayList<>();
+        int hits = 0;
+        int index = 0;
+        for (ID id : idKeys.keySet()) {
+            byte[] bytes = values == null ? null : values.get(index);
+            index++;
+            if (bytes == null) {
+                missIds.add(id);
+            } else if (bytes.length > 0) {
+                hits++;
+                result.put(id, cacheCodecRegistry.decode(idKeys.get(id), bytes, type));
+            }
+        }
+        if (stats != null) {
+            stats.recordRedis(start);
+            stats.recordHits(hits);
+            stats.recordNullHits(idKeys.size() - missIds.size() - hits);
+            stats.recordMisses(missIds.size());
+        }
+        return missIds;
+    }
+
+    /**
+     * 一次性从数据库查询未命中的数据，并将数据和空数据标记一次性写回缓存
+     */
+    private <R, ID> void loadBatch(CacheStats stats, Map<ID, String> idKeys, List<ID> loadIds, Function<Collection<ID>, Map<ID, R>> dbFallback, Long timeout, TimeUnit unit, Map<ID, R> result) {
+        Map<ID, R> loaded = this.applyBatchFallback(stats, dbFallback, loadIds);
+        Map<String, byte[]> values = new LinkedHashMap<>();
+        Set<String> nullKeys = new HashSet<>();
+        for (ID id : loadIds) {
+            R r = loaded.get(id);
+            if (r == null) {
+                values.put(idKeys.get(id), CacheConstants.EMPTY_BYTES);
+                nullKeys.add(idKeys.get(id));
+            } else {
+                values.put(idKeys.get(id), cacheCodecRegistry.encode(idKeys.get(id), r));
+                result.put(id, r);
+            }
+        }
+        long nullTtlMillis = TimeUnit.SECONDS.toMillis(CacheConstants.CACHE_NULL_TTL);
+        this.setAllBytes(values, key -> nullKeys.contains(key) ? nullTtlMillis
+                : timeout == null ? null : expiryPolicyManager.getTtlMillis(key, timeout, unit));
+    }
+
+    /**
+     * 将批量查询的数据附加逻辑过期时间后一次性写回缓存
+     */
+    private <R, ID> void setBatchWithLogicalExpire(Map<ID, String> idKeys, List<ID> loadIds, Map<ID, R> loaded, Long timeout, TimeUnit unit) {
+        Map<String, byte[]> values = new LinkedHashMap<>();
+        for (ID id : loadIds) {
+            R r = loaded.get(id);
+            values.put(idKeys.get(id), r == null ? this.encodeLogicalExpire(idKeys.get(id), null, CacheConstants.CACHE_NULL_TTL, TimeUnit.SECONDS)
+                    : this.encodeLogicalExpire(idKeys.get(id), r, timeout, unit));
+        }
+        this.setAllBytes(values, key -> null);
+    }
+
+    /**
+     * 调用数据库批量查询函数，过滤掉空数据
+     */
+    private <R, ID> Map<ID, R> applyBatchFallback(CacheStats stats, Function<Collection<ID>, Map<ID, R>> dbFallback, List<ID> ids) {
+        long start = System.nanoTime();
+        Map<ID, R> loaded = dbFallback.apply(Collections.unmodifiableList(ids));
+        stats.recordLoad(start);
+        Map<ID, R> result = new LinkedHashMap<>();
+        if (loaded != null) {
+            loaded.forEach((id, r) -> {
+                if (r != null) {
+                    result.put(id, r);
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * 按照输入业务标识的顺序整理批量查询结果
+     */
+    private <R, ID> Map<ID, R> sortBatchResult(Map<ID, String> idKeys, Map<ID, R> result) {
+        Map<ID, R> sorted = new LinkedHashMap<>();
+        for (ID id : idKeys.keySet()) {
+            R r = result.get(id);
+            if (r != null) {
+                sorted.put(id, r);
+            }
+        }
+        return sorted;
+    }
+
+    /**
+     * 读取原始字节，write-behind缓冲区中未刷新的数据优先
+     */
+    private byte[] getBytes(String key) {
+        if (writeBehindBuffer != null) {
+            byte[] pending = writeBehindBuffer.getPending(key);
+            if (pending != null) {
+                return pending;
+            }
+        }
+        return byteStore.get(key);
+    }
+
+    /**
+     * 批量读取原始字节，write-behind缓冲区中未刷新的数据优先
+     */
+    private List<byte[]> multiGetBytes(Collection<String> keys) {
+        List<byte[]> values = byteStore.multiGet(keys);
+        if (values == null || writeBehindBuffer == null) {
+            return values;
+        }
+        List<byte[]> result = new ArrayList<>(values.size());
+        Iterator<String> keyIterator = keys.iterator();
+        for (byte[] bytes : values) {
+            byte[] pending = writeBehindBuffer.getPending(keyIterator.next());
+            result.add(pending != null ? pending : bytes);
+        }
+        return result;
+    }
+
+    /**
+     * 写入原始字节，timeout为空时不设置过期时间
+     */
+    private void setBytes(String key, byte[] value, Long timeout, TimeUnit unit) {
+        this.discardPending(key);
+        byteStore.set(key, value, timeout == null ? null : unit.toMillis(timeout));
+    }
+
+    /**
+     * 批量写入原始字节，过期时长按key计算，单位毫秒，为空时不设置过期时间
+     */
+    private void setAllBytes(Map<String, byte[]> values, Function<String, Long> ttlMillis) {
+        if (values.isEmpty()) {
+            return;
+        }
+        values.keySet().forEach(this::discardPending);
+        byteStore.setAll(values, ttlMillis);
+    }
+
+    /**
+     * 丢弃write-behind缓冲区中未刷新的写入，同步和异步的写入、删除时调用
+     */
+    public void discardPending(String key) {
+        if (writeBehindBuffer != null) {
+            writeBehindBuffer.discard(key);
+        }
+    }
+
+    /**
+     * write-behind缓冲区中未刷新的数据，没有时返回空，异步读取优先返回该数据
+     */
+    public byte[] getPending(String key) {
+        return writeBehindBuffer == null ? null : writeBehindBuffer.getPending(key);
+    }
+
+    private void notifyBehind(String key) {
+        List<String> keys = Collections.singletonList(key);
+        for (Consumer<Collection<String>> listener : behindListeners) {
+            try {
+                listener.accept(keys);
+            } catch (Exception e) {
+                logger.error("cache behind listener | {} | {}", key, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 通知后台重建的回调，异步实现重建逻辑过期数据后同样调用
+     */
+    public void notifyRebuilt(List<String> keys) {
+        for (Consumer<String> listener : rebuildListeners) {
+            for (String key : keys) {
+                try {
+                    listener.accept(key);
+                } catch (Exception e) {
+                    logger.error("cache rebuild listener | {} | {}", key, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * 将缓存值解码为字符串，空数据返回空字符串，异步实现复用
+     */
+    public String decodeString(String key, byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        if (bytes.length == 0) {
+            return CacheConstants.EMPTY_VALUE;
+        }
+        //逻辑过期数据只返回业务数据
+        if (LogicalExpireData.isEnvelope(bytes)) {
+            LogicalExpireData logicalExpireData = LogicalExpireData.parse(bytes);
+            return logicalExpireData.isEmpty() ? CacheConstants.EMPTY_VALUE : cacheCodecRegistry.decodeString(key, logicalExpireData.getPayload());
+        }
+        //带版本号的数据只返回业务数据
+        if (VersionedData.isEnvelope(bytes)) {
+            VersionedData versionedData = VersionedData.parse(bytes);
+            return versionedData.isEmpty() ? CacheConstants.EMPTY_VALUE : cacheCodecRegistry.decodeString(key, versionedData.getPayload());
+        }
+        return cacheCodecRegistry.decodeString(key, bytes);
+    }
+
+    /**
+     * 编码逻辑过期数据，value为空时表示缓存的空数据，非空数据的逻辑过期时间点按照过期策略计算，异步实现复用
+     */
+    public byte[] encodeLogicalExpire(String key, Object value, Long timeout, TimeUnit unit) {
+        long ttlMillis = value == null ? unit.toMillis(timeout) : expiryPolicyManager.getTtlMillis(key, timeout, unit);
+        long expireMillis = System.currentTimeMillis() + ttlMillis;
+        return LogicalExpireData.encode(expireMillis, value == null ? null : cacheCodecRegistry.encode(key, value));
+    }
+
+    //空列表按照空数据缓存
+    private <R> List<R> emptyListAsNull(List<R> list) {
+        return list == null || list.isEmpty() ? null : list;
+    }
+}
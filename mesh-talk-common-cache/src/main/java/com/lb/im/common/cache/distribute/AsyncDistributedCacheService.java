@@ -0,0 +1,211 @@
+package com.lb.im.common.cache.distribute;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 异步分布式缓存接口，与{@link DistributedCacheService}的缓存格式和key规则一致，
+ * 所有方法都不阻塞调用线程，数据库查询函数同样返回CompletableFuture，可以直接在Netty的事件循环线程中调用。
+ * 注意：结果的回调可能在Redis客户端的IO线程中执行，后续处理中不能有阻塞操作。
+ */
+public interface AsyncDistributedCacheService {
+
+    /**
+     * 永久缓存
+     *
+     * @param key   缓存键名
+     * @param value 缓存值对象
+     * @return 写入完成的通知
+     */
+    CompletableFuture<Void> set(String key, Object value);
+
+    /**
+     * 带过期时间的缓存
+     *
+     * @param key     缓存键名
+     * @param value   缓存值对象
+     * @param timeout 过期时长
+     * @param unit    时间单位
+     * @return 写入完成的通知
+     */
+    CompletableFuture<Void> set(String key, Object value, Long timeout, TimeUnit unit);
+
+    /**
+     * 获取字符串形式的缓存值
+     *
+     * @param key 缓存键名
+     * @return 缓存值，不存在时为null
+     */
+    CompletableFuture<String> get(String key);
+
+    /**
+     * 批量获取字符串形式的缓存值
+     *
+     * @param keys 键名集合
+     * @return 键值列表（顺序与输入一致）
+     */
+    CompletableFuture<List<String>> multiGet(Collection<String> keys);
+
+    /**
+     * 删除指定键的缓存
+     *
+     * @param key 要删除的键名
+     * @return 删除是否成功
+     */
+    CompletableFuture<Boolean> delete(String key);
+
+    /**
+     * 防止缓存穿透的异步查询
+     *
+     * @param keyPrefix  缓存键前缀
+     * @param id         业务标识
+     * @param type       缓存对象类型
+     * @param dbFallback 异步数据库查询函数
+     * @param timeout    缓存时长
+     * @param unit       时间单位
+     * @param <R>        返回类型
+     * @param <ID>       业务标识类型
+     * @return 查询结果
+     */
+    <R, ID> CompletableFuture<R> queryWithPassThrough(String keyPrefix, ID id, Class<R> type, Function<ID, CompletableFuture<R>> dbFallback, Long timeout, TimeUnit unit);
+
+    /**
+     * 无参数防止缓存穿透的异步查询
+     */
+    <R> CompletableFuture<R> queryWithPassThroughWithoutArgs(String keyPrefix, Class<R> type, Supplier<CompletableFuture<R>> dbFallback, Long timeout, TimeUnit unit);
+
+    /**
+     * 防止缓存穿透的异步集合查询
+     */
+    <R, ID> CompletableFuture<List<R>> queryWithPassThroughList(String keyPrefix, ID id, Class<R> type, Function<ID, CompletableFuture<List<R>>> dbFallback, Long timeout, TimeUnit unit);
+
+    /**
+     * 无参数防止缓存穿透的异步集合查询
+     */
+    <R> CompletableFuture<List<R>> queryWithPassThroughListWithoutArgs(String keyPrefix, Class<R> type, Supplier<CompletableFuture<List<R>>> dbFallback, Long timeout, TimeUnit unit);
+
+    /**
+     * 逻辑过期的异步查询，逻辑过期的数据直接返回并在后台重建缓存，缓存不存在时加锁加载
+     *
+     * @param keyPrefix  缓存键前缀
+     * @param id         业务标识
+     * @param type       缓存对象类型
+     * @param dbFallback 异步数据库查询函数
+     * @param timeout    逻辑过期时长
+     * @param unit       时间单位
+     * @param <R>        返回类型
+     * @param <ID>       业务标识类型
+     * @return 查询结果
+     */
+    <R, ID> CompletableFuture<R> queryWithLogicalExpire(String keyPrefix, ID id, Class<R> type, Function<ID, CompletableFuture<R>> dbFallback, Long timeout, TimeUnit unit);
+
+    /**
+     * 无参数逻辑过期的异步查询
+     */
+    <R> CompletableFuture<R> queryWithLogicalExpireWithoutArgs(String keyPrefix, Class<R> type, Supplier<CompletableFuture<R>> dbFallback, Long timeout, TimeUnit unit);
+
+    /**
+     * 逻辑过期的异步集合查询
+     */
+    <R, ID> CompletableFuture<List<R>> queryWithLogicalExpireList(String keyPrefix, ID id, Class<R> type, Function<ID, CompletableFuture<List<R>>> dbFallback, Long timeout, TimeUnit unit);
+
+    /**
+     * 无参数逻辑过期的异步集合查询
+     */
+    <R> CompletableFuture<List<R>> queryWithLogicalExpireListWithoutArgs(String keyPrefix, Class<R> type, Supplier<CompletableFuture<List<R>>> dbFallback, Long timeout, TimeUnit unit);
+
+    /**
+     * 互斥锁的异步查询，等待锁通过异步回调完成，不占用调用线程
+     *
+     * @param keyPrefix  缓存键前缀
+     * @param id         业务标识
+     * @param type       缓存对象类型
+     * @param dbFallback 异步数据库查询函数
+     * @param timeout    缓存时长
+     * @param unit       时间单位
+     * @param <R>        返回类型
+     * @param <ID>       业务标识类型
+     * @return 查询结果
+     */
+    <R, ID> CompletableFuture<R> queryWithMutex(String keyPrefix, ID id, Class<R> type, Function<ID, CompletableFuture<R>> dbFallback, Long timeout, TimeUnit unit);
+
+    /**
+     * 无参数互斥锁的异步查询
+     */
+    <R> CompletableFuture<R> queryWithMutexWithoutArgs(String keyPrefix, Class<R> type, Supplier<CompletableFuture<R>> dbFallback, Long timeout, TimeUnit unit);
+
+    /**
+     * 互斥锁的异步集合查询
+     */
+    <R, ID> CompletableFuture<List<R>> queryWithMutexList(String keyPrefix, ID id, Class<R> type, Function<ID, CompletableFuture<List<R>>> dbFallback, Long timeout, TimeUnit unit);
+
+    /**
+     * 无参数互斥锁的异步集合查询
+     */
+    <R> CompletableFuture<List<R>> queryWithMutexListWithoutArgs(String keyPrefix, Class<R> type, Supplier<CompletableFuture<List<R>>> dbFallback, Long timeout, TimeUnit unit);
+
+    /**
+     * 概率提前过期（XFetch）的异步查询
+     *
+     * @param keyPrefix  缓存键前缀
+     * @param id         业务标识
+     * @param type       缓存对象类型
+     * @param dbFallback 异步数据库查询函数
+     * @param timeout    缓存时长
+     * @param unit       时间单位
+     * @param <R>        返回类型
+     * @param <ID>       业务标识类型
+     * @return 查询结果
+     */
+    <R, ID> CompletableFuture<R> queryWithEarlyExpire(String keyPrefix, ID id, Class<R> type, Function<ID, CompletableFuture<R>> dbFallback, Long timeout, TimeUnit unit);
+
+    /**
+     * 无参数概率提前过期的异步查询
+     */
+    <R> CompletableFuture<R> queryWithEarlyExpireWithoutArgs(String keyPrefix, Class<R> type, Supplier<CompletableFuture<R>> dbFallback, Long timeout, TimeUnit unit);
+
+    /**
+     * 概率提前过期的异步集合查询
+     */
+    <R, ID> CompletableFuture<List<R>> queryWithEarlyExpireList(String keyPrefix, ID id, Class<R> type, Function<ID, CompletableFuture<List<R>>> dbFallback, Long timeout, TimeUnit unit);
+
+    /**
+     * 无参数概率提前过期的异步集合查询
+     */
+    <R> CompletableFuture<List<R>> queryWithEarlyExpireListWithoutArgs(String keyPrefix, Class<R> type, Supplier<CompletableFuture<List<R>>> dbFallback, Long timeout, TimeUnit unit);
+
+    /**
+     * 批量防止缓存穿透的异步查询，一次批量读取所有缓存，未命中的业务标识一次性交给数据库查询，查询结果和空数据标记写回缓存
+     *
+     * @param keyPrefix  缓存键前缀
+     * @param ids        业务标识集合
+     * @param type       缓存对象类型
+     * @param dbFallback 异步数据库批量查询函数（参数为未命中的业务标识集合，返回业务标识到数据的映射）
+     * @param timeout    缓存时长
+     * @param unit       时间单位
+     * @param <R>        返回值类型
+     * @param <ID>       业务标识类型
+     * @return 业务标识到查询结果的映射（按输入顺序，不存在的数据不包含在结果中）
+     */
+    <R, ID> CompletableFuture<Map<ID, R>> queryWithPassThroughBatch(String keyPrefix, Collection<ID> ids, Class<R> type, Function<Collection<ID>, CompletableFuture<Map<ID, R>>> dbFallback, Long timeout, TimeUnit unit);
+
+    /**
+     * 批量逻辑过期的异步查询，逻辑过期的数据直接返回并在后台批量重建，缓存中不存在的数据批量加载
+     *
+     * @param keyPrefix  缓存键前缀
+     * @param ids        业务标识集合
+     * @param type       缓存对象类型
+     * @param dbFallback 异步数据库批量查询函数（参数为需要加载的业务标识集合，返回业务标识到数据的映射）
+     * @param timeout    逻辑过期时长
+     * @param unit       时间单位
+     * @param <R>        返回值类型
+     * @param <ID>       业务标识类型
+     * @return 业务标识到查询结果的映射（可能包含过期数据）
+     */
+    <R, ID> CompletableFuture<Map<ID, R>> queryWithLogicalExpireBatch(String keyPrefix, Collection<ID> ids, Class<R> type, Function<Collection<ID>, CompletableFuture<Map<ID, R>>> dbFallback, Long timeout, TimeUnit unit);
+}
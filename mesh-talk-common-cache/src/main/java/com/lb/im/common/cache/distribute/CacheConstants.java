@@ -0,0 +1,42 @@
+package com.lb.im.common.cache.distribute;
+
+/**
+ * 分布式缓存各实现共用的常量，同步、异步和进程内实现写入的空数据标记和锁key格式必须一致，同一个key才能被混合读写
+ */
+public final class CacheConstants {
+
+    /**
+     * 缓存空数据的时长，单位秒
+     */
+    public static final Long CACHE_NULL_TTL = 60L;
+
+    /**
+     * 缓存的空数据
+     */
+    public static final String EMPTY_VALUE = "";
+
+    /**
+     * 缓存的空数据对应的字节数组，只读
+     */
+    public static final byte[] EMPTY_BYTES = new byte[0];
+
+    /**
+     * 历史RedisData格式中缓存的空列表数据
+     */
+    public static final String EMPTY_LIST_VALUE = "[]";
+
+    /**
+     * 重建缓存使用的锁key的后缀
+     */
+    public static final String LOCK_SUFFIX = "_lock";
+
+    private CacheConstants() {
+    }
+
+    /**
+     * 缓存key对应的锁key
+     */
+    public static String getLockKey(String key) {
+        return key.concat(LOCK_SUFFIX);
+    }
+}
@@ -2,16 +2,19 @@ package com.lb.im.common.cache.distribute;
 
 import cn.hutool.core.convert.Convert;
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.crypto.digest.MD5;
 import cn.hutool.json.JSONUtil;
 import com.lb.im.common.cache.distribute.conversion.TypeConversion;
+import com.lb.im.common.cache.distribute.key.CacheKeyBuilder;
+import com.lb.im.common.cache.model.IMBusinessCache;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * 分布式缓存接口，通用型接口，在满足分布式缓存的需求时，解决了缓存击穿、穿透和雪崩的问题
@@ -46,6 +49,74 @@ public interface DistributedCacheService {
      */
     Boolean expire(String key, final long timeout, final TimeUnit unit);
 
+    /**
+     * 批量写入缓存，值为空的key跳过，每个key的过期时长按照过期策略增加抖动和错峰
+     *
+     * @param values  缓存键名到缓存值对象的映射
+     * @param timeout 物理缓存时长，为空时永久缓存
+     * @param unit    时间单位
+     */
+    default void multiSet(Map<String, ?> values, Long timeout, TimeUnit unit) {
+        values.forEach((key, value) -> {
+            if (value != null) {
+                set(key, value, timeout, unit);
+            }
+        });
+    }
+
+    /**
+     * 批量写入附加逻辑过期时间的缓存，值为空的key跳过
+     *
+     * @param values  缓存键名到缓存值对象的映射
+     * @param timeout 逻辑过期时长
+     * @param unit    时间单位
+     */
+    default void multiSetWithLogicalExpire(Map<String, ?> values, Long timeout, TimeUnit unit) {
+        values.forEach((key, value) -> {
+            if (value != null) {
+                setWithLogicalExpire(key, value, timeout, unit);
+            }
+        });
+    }
+
+    /**
+     * 延迟写入缓存，适用于高频覆盖写、允许短暂延迟的数据（例如在线状态、已读位置）。
+     * 开启write-behind时写入先进入缓冲区，同一个key在一个刷新周期内只保留最后一次写入，按数量或时间通过管道批量写入Redis；
+     * 未开启时等同于{@link #set(String, Object, Long, TimeUnit)}
+     *
+     * @param key     缓存键名
+     * @param value   缓存值对象
+     * @param timeout 物理缓存时长，为空时永久缓存
+     * @param unit    时间单位
+     */
+    default void setBehind(String key, Object value, Long timeout, TimeUnit unit) {
+        if (timeout == null) {
+            set(key, value);
+        } else {
+            set(key, value, timeout, unit);
+        }
+    }
+
+    /**
+     * 延迟设置缓存过期时间，未开启write-behind时等同于{@link #expire(String, long, TimeUnit)}
+     *
+     * @param key     缓存键名
+     * @param timeout 过期时长
+     * @param unit    时间单位
+     */
+    default void expireBehind(String key, long timeout, TimeUnit unit) {
+        expire(key, timeout, unit);
+    }
+
+    /**
+     * 立即刷新write-behind缓冲区中的所有写入，未开启write-behind时不做任何处理
+     *
+     * @return 写入Redis的key数量
+     */
+    default int flush() {
+        return 0;
+    }
+
     /**
      * 设置缓存时附加逻辑过期时间，用于缓存重建机制
      *
@@ -83,13 +154,34 @@ public interface DistributedCacheService {
     List<String> multiGet(Collection<String> keys);
 
     /**
-     * 通过正则表达式匹配所有符合条件的键
+     * 通过正则表达式匹配所有符合条件的键，匹配结果一次性加载到内存中
      *
      * @param pattern 正则表达式模式
      * @return 匹配到的键集合
+     * @deprecated 键数量较多时结果集占用大量内存，使用{@link #scan(String, int)}流式遍历
      */
+    @Deprecated
     Set<String> keys(String pattern);
 
+    /**
+     * 基于SCAN游标流式遍历匹配的键，不阻塞Redis，每次只从Redis获取一批键，内存占用与匹配的键数量无关。
+     * 集群模式下依次遍历所有主节点。返回的Stream持有Redis连接，使用完毕后需要关闭（try-with-resources）
+     *
+     * @param pattern   匹配模式
+     * @param batchSize 每次SCAN返回的建议数量（COUNT）
+     * @return 匹配到的键的惰性Stream
+     */
+    Stream<String> scan(String pattern, int batchSize);
+
+    /**
+     * 基于SCAN遍历删除匹配的键，每批键通过管道执行UNLINK，由Redis在后台线程释放内存
+     *
+     * @param pattern   匹配模式
+     * @param batchSize 每批删除的键数量
+     * @return 删除的键数量
+     */
+    long deleteByPattern(String pattern, int batchSize);
+
     /**
      * 删除指定键的缓存
      *
@@ -266,6 +358,273 @@ public interface DistributedCacheService {
      */
     <R> List<R> queryWithMutexListWithoutArgs(String keyPrefix, Class<R> type, Supplier<List<R>> dbFallback, Long timeout, TimeUnit unit);
 
+    /**
+     * 使用概率提前过期（XFetch）防止缓存集中过期的带参数查询。
+     * 缓存数据同时记录重新计算耗时delta，每次读取时以 now - delta * beta * ln(random) >= expireTime
+     * 的概率提前重新计算，越接近过期时间、重新计算越慢，提前重新计算的概率越大，
+     * 大概率只有一个调用方提前刷新，不需要分布式锁
+     *
+     * @param keyPrefix  缓存键前缀
+     * @param id         业务标识
+     * @param type       缓存对象类型
+     * @param dbFallback 数据库查询函数
+     * @param timeout    缓存时长
+     * @param unit       时间单位
+     * @param <R>        返回类型
+     * @param <ID>       业务标识类型
+     * @return 查询结果
+     */
+    <R, ID> R queryWithEarlyExpire(String keyPrefix, ID id, Class<R> type, Function<ID, R> dbFallback, Long timeout, TimeUnit unit);
+
+    /**
+     * 无参数概率提前过期查询
+     *
+     * @param keyPrefix  缓存键前缀
+     * @param type       缓存对象类型
+     * @param dbFallback 数据库查询函数
+     * @param timeout    缓存时长
+     * @param unit       时间单位
+     * @param <R>        返回类型
+     * @return 查询结果
+     */
+    <R> R queryWithEarlyExpireWithoutArgs(String keyPrefix, Class<R> type, Supplier<R> dbFallback, Long timeout, TimeUnit unit);
+
+    /**
+     * 概率提前过期的集合数据查询
+     *
+     * @param keyPrefix  缓存键前缀
+     * @param id         业务标识
+     * @param type       集合元素类型
+     * @param dbFallback 数据库查询函数（返回List）
+     * @param timeout    缓存时长
+     * @param unit       时间单位
+     * @param <R>        集合元素类型
+     * @param <ID>       业务标识类型
+     * @return 查询结果列表
+     */
+    <R, ID> List<R> queryWithEarlyExpireList(String keyPrefix, ID id, Class<R> type, Function<ID, List<R>> dbFallback, Long timeout, TimeUnit unit);
+
+    /**
+     * 无参数概率提前过期集合查询
+     *
+     * @param keyPrefix  缓存键前缀
+     * @param type       集合元素类型
+     * @param dbFallback 数据库查询函数（返回List）
+     * @param timeout    缓存时长
+     * @param unit       时间单位
+     * @param <R>        集合元素类型
+     * @return 查询结果列表
+     */
+    <R> List<R> queryWithEarlyExpireListWithoutArgs(String keyPrefix, Class<R> type, Supplier<List<R>> dbFallback, Long timeout, TimeUnit unit);
+
+    /**
+     * 基于重建租约的查询，与互斥锁查询的语义相同：缓存未命中时只有一个调用方查询数据库，数据库不存在的数据缓存空数据。
+     * 读取缓存和获取租约在一次Lua脚本调用中完成，写回数据和释放租约在另一次调用中完成，未命中时只需要两次网络往返。
+     * 租约作为占位值写在缓存key上，同一个key不能与其他查询策略混用。未实现该策略时等同于{@link #queryWithMutex}
+     *
+     * @param keyPrefix  缓存键前缀
+     * @param id         业务标识
+     * @param type       缓存对象类型
+     * @param dbFallback 数据库查询函数
+     * @param timeout    缓存时长
+     * @param unit       时间单位
+     * @param <R>        返回类型
+     * @param <ID>       业务标识类型
+     * @return 查询结果
+     */
+    default <R, ID> R queryWithLease(String keyPrefix, ID id, Class<R> type, Function<ID, R> dbFallback, Long timeout, TimeUnit unit) {
+        return queryWithMutex(keyPrefix, id, type, dbFallback, timeout, unit);
+    }
+
+    /**
+     * 基于重建租约的集合数据查询，未实现该策略时等同于{@link #queryWithMutexList}
+     *
+     * @param keyPrefix  缓存键前缀
+     * @param id         业务标识
+     * @param type       集合元素类型
+     * @param dbFallback 数据库查询函数（返回List）
+     * @param timeout    缓存时长
+     * @param unit       时间单位
+     * @param <R>        集合元素类型
+     * @param <ID>       业务标识类型
+     * @return 查询结果列表
+     */
+    default <R, ID> List<R> queryWithLeaseList(String keyPrefix, ID id, Class<R> type, Function<ID, List<R>> dbFallback, Long timeout, TimeUnit unit) {
+        return queryWithMutexList(keyPrefix, id, type, dbFallback, timeout, unit);
+    }
+
+    /**
+     * 批量防止缓存穿透的查询，一次批量读取所有缓存，未命中的业务标识一次性交给数据库查询，
+     * 查询结果和空数据标记通过管道一次性写回缓存
+     *
+     * @param keyPrefix  缓存键前缀
+     * @param ids        业务标识集合
+     * @param type       缓存对象类型
+     * @param dbFallback 数据库批量查询函数（参数为未命中的业务标识集合，返回业务标识到数据的映射）
+     * @param timeout    缓存时长
+     * @param unit       时间单位
+     * @param <R>        返回值类型
+     * @param <ID>       业务标识类型
+     * @return 业务标识到查询结果的映射（按输入顺序，不存在的数据不包含在结果中）
+     */
+    <R, ID> Map<ID, R> queryWithPassThroughBatch(String keyPrefix, Collection<ID> ids, Class<R> type, Function<Collection<ID>, Map<ID, R>> dbFallback, Long timeout, TimeUnit unit);
+
+    /**
+     * 批量互斥锁查询，只对未命中的业务标识加锁，获取到锁的业务标识一次性交给数据库查询
+     *
+     * @param keyPrefix  缓存键前缀
+     * @param ids        业务标识集合
+     * @param type       缓存对象类型
+     * @param dbFallback 数据库批量查询函数（参数为未命中的业务标识集合，返回业务标识到数据的映射）
+     * @param timeout    缓存时长
+     * @param unit       时间单位
+     * @param <R>        返回值类型
+     * @param <ID>       业务标识类型
+     * @return 业务标识到查询结果的映射（按输入顺序，不存在的数据不包含在结果中）
+     */
+    <R, ID> Map<ID, R> queryWithMutexBatch(String keyPrefix, Collection<ID> ids, Class<R> type, Function<Collection<ID>, Map<ID, R>> dbFallback, Long timeout, TimeUnit unit);
+
+    /**
+     * 批量逻辑过期查询，逻辑过期的数据直接返回并异步批量重建，缓存中不存在的数据同步批量加载
+     *
+     * @param keyPrefix  缓存键前缀
+     * @param ids        业务标识集合
+     * @param type       缓存对象类型
+     * @param dbFallback 数据库批量查询函数（参数为需要加载的业务标识集合，返回业务标识到数据的映射）
+     * @param timeout    逻辑过期时长
+     * @param unit       时间单位
+     * @param <R>        返回值类型
+     * @param <ID>       业务标识类型
+     * @return 业务标识到查询结果的映射（可能包含过期数据）
+     */
+    <R, ID> Map<ID, R> queryWithLogicalExpireBatch(String keyPrefix, Collection<ID> ids, Class<R> type, Function<Collection<ID>, Map<ID, R>> dbFallback, Long timeout, TimeUnit unit);
+
+    /**
+     * 将对象按属性写入Hash结构缓存，每个属性对应一个字段，覆盖已有的全部字段。
+     * Hash结构的key不能与set写入的字符串key混用
+     *
+     * @param key     缓存键名
+     * @param value   缓存值对象
+     * @param timeout 物理缓存时长，为空时永久缓存
+     * @param unit    时间单位
+     */
+    void setHash(String key, Object value, Long timeout, TimeUnit unit);
+
+    /**
+     * 读取Hash结构缓存的整个对象
+     *
+     * @param key  缓存键名
+     * @param type 缓存对象类型
+     * @param <T>  泛型类型
+     * @return 缓存对象，不存在或缓存了空数据时返回空
+     */
+    <T> T getHash(String key, Class<T> type);
+
+    /**
+     * 只读取Hash结构缓存的部分字段
+     *
+     * @param key    缓存键名
+     * @param fields 字段名（对象的属性名）
+     * @return 字段名到字段值的映射（按输入顺序，不存在的字段不包含在结果中）
+     */
+    Map<String, String> getFields(String key, String... fields);
+
+    /**
+     * 只读取Hash结构缓存的部分字段，并填充到目标类型的对象中
+     *
+     * @param key    缓存键名
+     * @param type   缓存对象类型
+     * @param fields 字段名（对象的属性名）
+     * @param <T>    泛型类型
+     * @return 只填充了指定字段的对象，缓存不存在或指定的字段都不存在时返回空
+     */
+    <T> T getFields(String key, Class<T> type, String... fields);
+
+    /**
+     * 只更新Hash结构缓存的部分字段，不改变过期时间；值为空的字段被删除。
+     * 缓存不存在（或缓存了空数据）时不写入，避免只有部分字段的对象被当作完整数据读取
+     *
+     * @param key    缓存键名
+     * @param fields 字段名到新值的映射
+     * @return 是否更新成功
+     */
+    Boolean updateFields(String key, Map<String, ?> fields);
+
+    /**
+     * 使用Hash结构缓存的防止缓存穿透查询，先查缓存再查数据库，数据库不存在的数据缓存空数据。
+     * 缓存的对象可以通过{@link #getFields}和{@link #updateFields}按字段读取和更新
+     *
+     * @param keyPrefix  缓存键前缀
+     * @param id         业务标识（如ID）
+     * @param type       缓存对象类型，需要有无参构造函数
+     * @param dbFallback 数据库查询函数（参数为id）
+     * @param timeout    缓存时长
+     * @param unit       时间单位
+     * @param <R>        返回值类型
+     * @param <ID>       业务标识类型
+     * @return 查询结果
+     */
+    <R, ID> R queryWithHash(String keyPrefix, ID id, Class<R> type, Function<ID, R> dbFallback, Long timeout, TimeUnit unit);
+
+    /**
+     * 带版本号的写入，只有传入的版本号大于缓存中的版本号时才覆盖（由Lua脚本原子比较），
+     * 缓存不存在或不是带版本号的数据时直接写入。并发重建时旧数据不会覆盖新数据，重建路径可以不加分布式锁
+     *
+     * @param key     缓存键名
+     * @param value   缓存值对象，为空时写入该版本的数据不存在标记，阻止更旧的版本写入
+     * @param version 数据版本号（例如数据库中的版本号或更新时间戳），不能为负数
+     * @param timeout 物理缓存时长，为空时永久缓存
+     * @param unit    时间单位
+     * @return 是否写入，缓存中已经是相同或更新的版本时返回false
+     */
+    boolean setIfNewer(String key, Object value, long version, Long timeout, TimeUnit unit);
+
+    /**
+     * 读取带版本号的数据，exists表示数据是否存在，version为缓存中的版本号（不存在标记也有版本号），
+     * 读取缓存失败时retryLater为true，此时的不存在不可信，调用方应稍后重试而不是直接查询数据库
+     *
+     * @param key  缓存键名
+     * @param type 缓存对象类型
+     * @param <T>  泛型类型
+     * @return 带版本号的缓存模型，不会返回空
+     */
+    <T> IMBusinessCache<T> getVersioned(String key, Class<T> type);
+
+    /**
+     * 带版本号的防止缓存穿透查询，缓存未命中时查询数据库并通过{@link #setIfNewer}写回，不加分布式锁：
+     * 并发重建时只有版本号最新的数据会保留，写入被拒绝时返回缓存中更新的数据。
+     * 数据库查询结果没有版本号或标记了retryLater时不写回缓存
+     *
+     * @param keyPrefix  缓存键前缀
+     * @param id         业务标识
+     * @param type       缓存对象类型
+     * @param dbFallback 数据库查询函数，返回带版本号的数据，数据不存在时exists为false
+     * @param timeout    缓存时长
+     * @param unit       时间单位
+     * @param <R>        返回值类型
+     * @param <ID>       业务标识类型
+     * @return 带版本号的查询结果
+     */
+    default <R, ID> IMBusinessCache<R> queryWithVersion(String keyPrefix, ID id, Class<R> type, Function<ID, IMBusinessCache<R>> dbFallback, Long timeout, TimeUnit unit) {
+        String key = getKey(keyPrefix, id);
+        IMBusinessCache<R> cached = getVersioned(key, type);
+        //命中数据或不存在标记
+        if (cached.getVersion() != null) {
+            return cached;
+        }
+        IMBusinessCache<R> loaded = dbFallback.apply(id);
+        //缓存读取失败时不写回，数据库结果没有版本号时无法安全地写入
+        if (loaded == null || cached.isRetryLater() || loaded.isRetryLater() || loaded.getVersion() == null) {
+            return loaded;
+        }
+        if (setIfNewer(key, loaded.isExists() ? loaded.getContent() : null, loaded.getVersion(), timeout, unit)) {
+            return loaded;
+        }
+        //缓存中已经是相同或更新的版本
+        IMBusinessCache<R> newer = getVersioned(key, type);
+        return newer.getVersion() != null ? newer : loaded;
+    }
+
     /**
      * 将缓存值转换为目标泛型类型
      *
@@ -312,7 +671,7 @@ public interface DistributedCacheService {
     }
 
     /**
-     * 生成带参数的缓存键，支持复杂类型参数的MD5处理
+     * 生成带参数的缓存键，简单类型直接拼接，复杂类型参数由{@link CacheKeyBuilder}计算摘要
      *
      * @param keyPrefix 缓存键前缀
      * @param id        业务标识（可为复杂对象）
@@ -320,20 +679,7 @@ public interface DistributedCacheService {
      * @return 唯一缓存键
      */
     default <ID> String getKey(String keyPrefix, ID id) {
-        if (id == null) {
-            return keyPrefix;
-        }
-        String key = "";
-        // 简单类型直接转换，复杂类型转JSON后MD5
-        if (TypeConversion.isSimpleType(id)) {
-            key = StrUtil.toString(id);
-        } else {
-            key = MD5.create().digestHex(JSONUtil.toJsonStr(id));
-        }
-        if (StrUtil.isEmpty(key)) {
-            key = "";
-        }
-        return keyPrefix.concat(key);
+        return CacheKeyBuilder.build(keyPrefix, id);
     }
 
     /**
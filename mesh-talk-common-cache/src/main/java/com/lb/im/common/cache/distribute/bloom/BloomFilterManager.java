@@ -0,0 +1,190 @@
+package com.lb.im.common.cache.distribute.bloom;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.MD5;
+import cn.hutool.json.JSONUtil;
+import com.lb.im.common.cache.distribute.conversion.TypeConversion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按缓存key前缀管理布隆过滤器，注册了布隆过滤器的key前缀在防止缓存穿透的查询中，
+ * 布隆过滤器判断不存在的业务标识直接返回空，不访问Redis和数据库，也不缓存空数据。
+ * 业务在启动时通过bulkLoad批量加载已有的业务标识，新增数据时调用add。
+ */
+@Component
+@ConditionalOnProperty(name = "distribute.cache.bloom.enabled", havingValue = "true")
+public class BloomFilterManager {
+
+    private final Logger logger = LoggerFactory.getLogger(BloomFilterManager.class);
+
+    //位图在Redis中的key前缀
+    @Value("${distribute.cache.bloom.key-prefix:im:cache:bloom:}")
+    private String redisKeyPrefix;
+
+    //默认的预期元素数量，超过后自动扩容
+    @Value("${distribute.cache.bloom.expected-insertions:1000000}")
+    private long expectedInsertions;
+
+    //默认的目标误判率
+    @Value("${distribute.cache.bloom.fpp:0.01}")
+    private double fpp;
+
+    //本地镜像从Redis刷新的间隔，单位秒
+    @Value("${distribute.cache.bloom.refresh-seconds:60}")
+    private long refreshSeconds;
+
+    //本地镜像判断不存在时是否通过Redis确认
+    @Value("${distribute.cache.bloom.confirm-negative:true}")
+    private boolean confirmNegative;
+
+    @Autowired
+    @Qualifier("byteRedisTemplate")
+    private RedisTemplate<String, byte[]> byteRedisTemplate;
+
+    @Autowired
+    @Qualifier("stringRedisTemplate")
+    private StringRedisTemplate stringRedisTemplate;
+
+    private final ConcurrentMap<String, RedisBloomFilter> filters = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService refreshExecutor;
+
+    @PostConstruct
+    public void init() {
+        refreshExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-bloom-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refreshExecutor.scheduleWithFixedDelay(this::refreshAll, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * 使用默认的预期元素数量和误判率为key前缀注册布隆过滤器
+     */
+    public RedisBloomFilter register(String keyPrefix) {
+        return this.register(keyPrefix, expectedInsertions, fpp);
+    }
+
+    /**
+     * 为key前缀注册布隆过滤器，并从Redis加载本地镜像
+     *
+     * @param keyPrefix          缓存key前缀
+     * @param expectedInsertions 预期元素数量
+     * @param fpp                目标误判率
+     * @return 布隆过滤器
+     */
+    public RedisBloomFilter register(String keyPrefix, long expectedInsertions, double fpp) {
+        return filters.computeIfAbsent(keyPrefix, prefix -> {
+            RedisBloomFilter filter = new RedisBloomFilter(prefix, redisKeyPrefix, expectedInsertions, fpp, confirmNegative, byteRedisTemplate, stringRedisTemplate);
+            filter.refresh();
+            return filter;
+        });
+    }
+
+    public RedisBloomFilter getFilter(String keyPrefix) {
+        return filters.get(keyPrefix);
+    }
+
+    /**
+     * 判断业务标识是否可能存在，key前缀未注册布隆过滤器时返回true
+     */
+    public <ID> boolean mightContain(String keyPrefix, ID id) {
+        RedisBloomFilter filter = filters.get(keyPrefix);
+        if (filter == null || id == null) {
+            return true;
+        }
+        try {
+            return filter.mightContain(this.toElement(id));
+        } catch (Exception e) {
+            //布隆过滤器不可用时放行，由空数据缓存兜底
+            logger.error("bloom filter might contain | {} | {}", keyPrefix, e.getMessage());
+            return true;
+        }
+    }
+
+    /**
+     * 新增业务标识
+     */
+    public <ID> void add(String keyPrefix, ID id) {
+        RedisBloomFilter filter = this.getRequiredFilter(keyPrefix);
+        filter.add(this.toElement(id));
+    }
+
+    /**
+     * 批量加载业务标识，每批通过一次管道写入
+     *
+     * @param keyPrefix 缓存key前缀
+     * @param ids       业务标识集合
+     * @param batchSize 每批数量
+     */
+    public <ID> void bulkLoad(String keyPrefix, Collection<ID> ids, int batchSize) {
+        RedisBloomFilter filter = this.getRequiredFilter(keyPrefix);
+        int size = Math.max(1, batchSize);
+        List<String> batch = new ArrayList<>(size);
+        for (ID id : ids) {
+            batch.add(this.toElement(id));
+            if (batch.size() >= size) {
+                filter.addAll(batch);
+                batch = new ArrayList<>(size);
+            }
+        }
+        filter.addAll(batch);
+    }
+
+    /**
+     * 立即从Redis刷新所有本地镜像
+     */
+    public void refreshAll() {
+        for (RedisBloomFilter filter : filters.values()) {
+            try {
+                filter.refresh();
+            } catch (Exception e) {
+                logger.error("refresh bloom filter | {} | {}", filter.getName(), e.getMessage());
+            }
+        }
+    }
+
+    private RedisBloomFilter getRequiredFilter(String keyPrefix) {
+        RedisBloomFilter filter = filters.get(keyPrefix);
+        if (filter == null) {
+            throw new IllegalStateException("bloom filter not registered: " + keyPrefix);
+        }
+        return filter;
+    }
+
+    /**
+     * 业务标识转换为布隆过滤器元素。位图中的元素会长期保存并被所有节点共享，
+     * 复杂类型固定使用JSON + MD5，不跟随distribute.cache.key.mode变化，切换缓存key模式后不需要重建布隆过滤器
+     */
+    private <ID> String toElement(ID id) {
+        if (TypeConversion.isSimpleType(id)) {
+            return StrUtil.toString(id);
+        }
+        return MD5.create().digestHex(JSONUtil.toJsonStr(id));
+    }
+}
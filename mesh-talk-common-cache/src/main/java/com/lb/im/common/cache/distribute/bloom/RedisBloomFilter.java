@@ -0,0 +1,285 @@
+package com.lb.im.common.cache.distribute.bloom;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 基于Redis位图的可扩展布隆过滤器，每一层是一个独立的位图，当前层写满后自动追加容量翻倍、误判率减半的新层，
+ * 总误判率不超过目标误判率。本地保存位图的镜像，判断存在时不访问Redis；
+ * 本地判断不存在时可以再通过Redis确认一次，避免其他节点新增的数据在镜像刷新前被误判为不存在。
+ */
+public class RedisBloomFilter {
+
+    //每层容量的增长倍数
+    private static final int GROWTH = 2;
+    //每层误判率的收紧比例，总误判率 <= 第一层误判率 / (1 - RATIO)
+    private static final double TIGHTENING_RATIO = 0.5D;
+    //Redis位图的最大位数
+    private static final long MAX_BIT_SIZE = (1L << 32) - 1;
+    //层数和每层数量的统计，超过当前层容量时追加新层
+    private static final DefaultRedisScript<Long> ADD_COUNT_SCRIPT = new DefaultRedisScript<>(
+            "local count = redis.call('HINCRBY', KEYS[1], 'count:' .. ARGV[1], ARGV[2]) " +
+            "local layers = tonumber(redis.call('HGET', KEYS[1], 'layers') or '1') " +
+            "if count >= tonumber(ARGV[3]) and layers == tonumber(ARGV[1]) + 1 then " +
+            "layers = layers + 1 redis.call('HSET', KEYS[1], 'layers', layers) end " +
+            "return layers", Long.class);
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final String name;
+    private final String keyPrefix;
+    private final long expectedInsertions;
+    private final double fpp;
+    private final boolean confirmNegative;
+    private final RedisTemplate<String, byte[]> byteRedisTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final List<Layer> layers = new CopyOnWriteArrayList<>();
+
+    public RedisBloomFilter(String name, String keyPrefix, long expectedInsertions, double fpp, boolean confirmNegative,
+                            RedisTemplate<String, byte[]> byteRedisTemplate, StringRedisTemplate stringRedisTemplate) {
+        if (expectedInsertions <= 0 || fpp <= 0 || fpp >= 1) {
+            throw new IllegalArgumentException("invalid bloom filter arguments: " + name);
+        }
+        this.name = name;
+        this.keyPrefix = keyPrefix;
+        this.expectedInsertions = expectedInsertions;
+        this.fpp = fpp;
+        this.confirmNegative = confirmNegative;
+        this.byteRedisTemplate = byteRedisTemplate;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.ensureLayers(1);
+    }
+
+    /**
+     * 判断元素是否可能存在，返回false时元素一定不存在
+     */
+    public boolean mightContain(String element) {
+        long[] hash = this.hash(element);
+        List<Layer> current = new ArrayList<>(layers);
+        for (Layer layer : current) {
+            if (layer.mightContainLocal(hash)) {
+                return true;
+            }
+        }
+        if (!confirmNegative) {
+            return false;
+        }
+        //本地镜像可能落后于Redis，通过Redis确认
+        List<Object> bits = byteRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Layer layer : current) {
+                for (long offset : layer.offsets(hash)) {
+                    connection.stringCommands().getBit(layer.rawKey, offset);
+                }
+            }
+            return null;
+        });
+        int index = 0;
+        for (Layer layer : current) {
+            boolean contains = true;
+            for (int i = 0; i < layer.hashCount; i++) {
+                if (!Boolean.TRUE.equals(bits.get(index++))) {
+                    contains = false;
+                }
+            }
+            if (contains) {
+                layer.setLocal(hash);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 新增元素
+     */
+    public void add(String element) {
+        this.addAll(Collections.singletonList(element));
+    }
+
+    /**
+     * 批量新增元素，所有位通过一次管道写入当前层
+     */
+    public void addAll(Collection<String> elements) {
+        if (elements == null || elements.isEmpty()) {
+            return;
+        }
+        Layer layer = layers.get(layers.size() - 1);
+        List<long[]> hashes = new ArrayList<>(elements.size());
+        for (String element : elements) {
+            hashes.add(this.hash(element));
+        }
+        byteRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (long[] hash : hashes) {
+                for (long offset : layer.offsets(hash)) {
+                    connection.stringCommands().setBit(layer.rawKey, offset, true);
+                }
+            }
+            return null;
+        });
+        hashes.forEach(layer::setLocal);
+        Long layerCount = stringRedisTemplate.execute(ADD_COUNT_SCRIPT, Collections.singletonList(this.getMetaKey()),
+                String.valueOf(layer.index), String.valueOf(elements.size()), String.valueOf(layer.capacity));
+        if (layerCount != null && layerCount > layers.size()) {
+            this.ensureLayers(layerCount.intValue());
+        }
+    }
+
+    /**
+     * 从Redis重新加载层数和位图，与本地镜像合并
+     */
+    public void refresh() {
+        Object layerCount = stringRedisTemplate.opsForHash().get(this.getMetaKey(), "layers");
+        if (layerCount != null) {
+            this.ensureLayers(Integer.parseInt(layerCount.toString()));
+        }
+        for (Layer layer : layers) {
+            layer.load(byteRedisTemplate.opsForValue().get(layer.redisKey));
+        }
+    }
+
+    /**
+     * 删除Redis中的位图和统计数据，重置本地镜像
+     */
+    public void clear() {
+        List<String> keys = new ArrayList<>();
+        keys.add(this.getMetaKey());
+        for (Layer layer : layers) {
+            keys.add(layer.redisKey);
+        }
+        stringRedisTemplate.delete(keys);
+        layers.clear();
+        this.ensureLayers(1);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 当前层数
+     */
+    public int getLayerCount() {
+        return layers.size();
+    }
+
+    /**
+     * 本地镜像占用的位数
+     */
+    public long getBitSize() {
+        long bitSize = 0;
+        for (Layer layer : layers) {
+            bitSize += layer.bitSize;
+        }
+        return bitSize;
+    }
+
+    private synchronized void ensureLayers(int count) {
+        while (layers.size() < count) {
+            int index = layers.size();
+            long capacity = expectedInsertions * (long) Math.pow(GROWTH, index);
+            double layerFpp = fpp * (1 - TIGHTENING_RATIO) * Math.pow(TIGHTENING_RATIO, index);
+            layers.add(new Layer(index, keyPrefix + name + ":" + index, capacity, layerFpp));
+        }
+    }
+
+    private String getMetaKey() {
+        return keyPrefix + name + ":meta";
+    }
+
+    private long[] hash(String element) {
+        HashCode hashCode = HASH_FUNCTION.hashString(element, StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.wrap(hashCode.asBytes()).order(ByteOrder.LITTLE_ENDIAN);
+        return new long[]{buffer.getLong(), buffer.getLong()};
+    }
+
+    /**
+     * 布隆过滤器的一层，对应一个Redis位图和本地镜像
+     */
+    private static class Layer {
+
+        private final int index;
+        private final String redisKey;
+        private final byte[] rawKey;
+        private final long capacity;
+        private final long bitSize;
+        private final int hashCount;
+        private volatile AtomicLongArray bits;
+
+        private Layer(int index, String redisKey, long capacity, double fpp) {
+            this.index = index;
+            this.redisKey = redisKey;
+            this.rawKey = redisKey.getBytes(StandardCharsets.UTF_8);
+            this.capacity = capacity;
+            long optimalBits = (long) Math.ceil(-capacity * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+            this.bitSize = Math.max(64, Math.min(MAX_BIT_SIZE, optimalBits));
+            this.hashCount = Math.max(1, (int) Math.round((double) bitSize / capacity * Math.log(2)));
+            this.bits = new AtomicLongArray((int) ((bitSize + 63) >>> 6));
+        }
+
+        /**
+         * 双重哈希计算位偏移：h1 + i * h2
+         */
+        private long[] offsets(long[] hash) {
+            long[] offsets = new long[hashCount];
+            long combined = hash[0];
+            for (int i = 0; i < hashCount; i++) {
+                offsets[i] = (combined & Long.MAX_VALUE) % bitSize;
+                combined += hash[1];
+            }
+            return offsets;
+        }
+
+        private boolean mightContainLocal(long[] hash) {
+            AtomicLongArray current = bits;
+            for (long offset : this.offsets(hash)) {
+                if ((current.get((int) (offset >>> 6)) & (1L << offset)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void setLocal(long[] hash) {
+            AtomicLongArray current = bits;
+            for (long offset : this.offsets(hash)) {
+                long mask = 1L << offset;
+                current.accumulateAndGet((int) (offset >>> 6), mask, (a, b) -> a | b);
+            }
+        }
+
+        /**
+         * 加载Redis位图，Redis位图的偏移0是第一个字节的最高位，本地镜像的偏移0是第一个long的最低位
+         */
+        private void load(byte[] bytes) {
+            AtomicLongArray loaded = new AtomicLongArray(bits.length());
+            if (bytes != null) {
+                byte[] padded = Arrays.copyOf(bytes, Math.max(bytes.length, loaded.length() * 8));
+                ByteBuffer buffer = ByteBuffer.wrap(padded).order(ByteOrder.BIG_ENDIAN);
+                for (int i = 0; i < loaded.length(); i++) {
+                    loaded.set(i, Long.reverse(buffer.getLong(i * 8)));
+                }
+            }
+            //合并加载期间本地新增的数据
+            AtomicLongArray previous = bits;
+            for (int i = 0; i < loaded.length(); i++) {
+                long word = previous.get(i);
+                if (word != 0) {
+                    loaded.accumulateAndGet(i, word, (a, b) -> a | b);
+                }
+            }
+            bits = loaded;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.lb.im.common.cache.distribute.codec;
+
+import java.util.List;
+
+/**
+ * 缓存值编解码接口，RedisDistributedCacheService所有读写都通过编解码器完成。
+ * 每种编码格式对应一个版本号，写入Redis的值以版本号字节开头，使不同格式的数据可以在滚动升级期间共存。
+ */
+public interface CacheCodec {
+
+    /**
+     * 编码格式的版本号，写在缓存值的第一个字节，版本号为0表示不写版本号字节（兼容历史数据格式）
+     *
+     * @return 版本号
+     */
+    byte getVersion();
+
+    /**
+     * 编码格式名称，与配置项distribute.cache.codec对应
+     *
+     * @return 编码格式名称
+     */
+    String getName();
+
+    /**
+     * 将缓存值编码为字节数组（不包含版本号字节）
+     *
+     * @param value 缓存值对象
+     * @return 编码后的字节数组
+     */
+    byte[] encode(Object value);
+
+    /**
+     * 将字节数组解码为目标类型对象
+     *
+     * @param bytes 编码后的字节数组（不包含版本号字节）
+     * @param type  目标类型
+     * @param <R>   泛型类型
+     * @return 解码后的对象
+     */
+    <R> R decode(byte[] bytes, Class<R> type);
+
+    /**
+     * 将字节数组解码为目标类型的列表
+     *
+     * @param bytes 编码后的字节数组（不包含版本号字节）
+     * @param type  列表元素类型
+     * @param <R>   泛型类型
+     * @return 解码后的列表
+     */
+    <R> List<R> decodeList(byte[] bytes, Class<R> type);
+
+    /**
+     * 将字节数组解码为字符串形式，简单类型返回其字符串值，复杂类型返回JSON字符串
+     *
+     * @param bytes 编码后的字节数组（不包含版本号字节）
+     * @return 字符串形式的缓存值
+     */
+    String decodeString(byte[] bytes);
+}
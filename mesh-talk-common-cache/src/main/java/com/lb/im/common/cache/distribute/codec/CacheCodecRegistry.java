@@ -0,0 +1,171 @@
+package com.lb.im.common.cache.distribute.codec;
+
+import com.lb.im.common.cache.distribute.compress.CacheCompression;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 编解码器注册表，写入时使用配置项distribute.cache.codec指定的编解码器，
+ * 读取时根据缓存值的第一个字节选择编解码器，不带版本号字节的数据按照JSON格式读取，
+ * 保证滚动升级和切换编码格式期间新旧格式的数据可以同时读取。
+ * 编码后的数据再经过{@link CacheCompression}，超过阈值时压缩，读取时先解压再选择编解码器。
+ */
+@Component
+public class CacheCodecRegistry {
+
+    //版本号字节的取值范围为[1, 31]，属于控制字符，不会出现在历史JSON数据和简单字符串的开头
+    private static final int MAX_VERSION = 31;
+
+    @Value("${distribute.cache.codec:json}")
+    private String codecName;
+
+    @Autowired
+    private List<CacheCodec> codecs;
+
+    @Autowired
+    private CacheCompression cacheCompression;
+
+    //写入使用的编解码器
+    private CacheCodec writeCodec;
+
+    //不带版本号字节时使用的编解码器
+    private CacheCodec legacyCodec;
+
+    //按版本号索引的编解码器
+    private final CacheCodec[] versionCodecs = new CacheCodec[MAX_VERSION + 1];
+
+    @PostConstruct
+    public void init() {
+        for (CacheCodec codec : codecs) {
+            byte version = codec.getVersion();
+            if (version < 0 || version > MAX_VERSION) {
+                throw new IllegalArgumentException("cache codec version out of range: " + codec.getName());
+            }
+            if (versionCodecs[version] != null) {
+                throw new IllegalArgumentException("duplicate cache codec version: " + codec.getName());
+            }
+            versionCodecs[version] = codec;
+            if (codec.getName().equalsIgnoreCase(codecName)) {
+                writeCodec = codec;
+            }
+        }
+        legacyCodec = versionCodecs[JsonCacheCodec.VERSION];
+        if (legacyCodec == null) {
+            throw new IllegalStateException("json cache codec is required to read legacy values");
+        }
+        if (writeCodec == null) {
+            throw new IllegalArgumentException("unknown cache codec: " + codecName);
+        }
+    }
+
+    /**
+     * 使用当前配置的编解码器编码，版本号不为0时在开头写入版本号字节
+     *
+     * @param value 缓存值对象
+     * @return 写入Redis的字节数组
+     */
+    public byte[] encode(Object value) {
+        return this.encode(null, value);
+    }
+
+    /**
+     * 使用当前配置的编解码器编码，超过压缩阈值时压缩
+     *
+     * @param key   缓存key，用于按前缀统计压缩指标
+     * @param value 缓存值对象
+     * @return 写入Redis的字节数组
+     */
+    public byte[] encode(String key, Object value) {
+        return cacheCompression.compress(key, this.encodeUncompressed(value));
+    }
+
+    /**
+     * 编码后再通过decoder解码，得到与value相互独立的副本，编码结果不压缩
+     *
+     * @param value   需要复制的对象
+     * @param decoder 读取缓存值时使用的解码函数
+     * @return 副本，value为空时返回空
+     */
+    public <T> T copy(T value, Function<byte[], T> decoder) {
+        return value == null ? null : decoder.apply(this.encodeUncompressed(value));
+    }
+
+    private byte[] encodeUncompressed(Object value) {
+        byte[] payload = writeCodec.encode(value);
+        byte version = writeCodec.getVersion();
+        if (version == JsonCacheCodec.VERSION) {
+            return payload;
+        }
+        byte[] bytes = new byte[payload.length + 1];
+        bytes[0] = version;
+        System.arraycopy(payload, 0, bytes, 1, payload.length);
+        return bytes;
+    }
+
+    public <R> R decode(byte[] bytes, Class<R> type) {
+        return this.decode(null, bytes, type);
+    }
+
+    public <R> R decode(String key, byte[] bytes, Class<R> type) {
+        byte[] data = cacheCompression.decompress(key, bytes);
+        CacheCodec codec = this.getCodec(data);
+        return codec.decode(this.getPayload(data, codec), type);
+    }
+
+    public <R> List<R> decodeList(byte[] bytes, Class<R> type) {
+        return this.decodeList(null, bytes, type);
+    }
+
+    public <R> List<R> decodeList(String key, byte[] bytes, Class<R> type) {
+        byte[] data = cacheCompression.decompress(key, bytes);
+        CacheCodec codec = this.getCodec(data);
+        return codec.decodeList(this.getPayload(data, codec), type);
+    }
+
+    public String decodeString(byte[] bytes) {
+        return this.decodeString(null, bytes);
+    }
+
+    public String decodeString(String key, byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        byte[] data = cacheCompression.decompress(key, bytes);
+        CacheCodec codec = this.getCodec(data);
+        return codec.decodeString(this.getPayload(data, codec));
+    }
+
+    /**
+     * 当前写入使用的编解码器
+     */
+    public CacheCodec getWriteCodec() {
+        return writeCodec;
+    }
+
+    /**
+     * 根据第一个字节选择编解码器
+     */
+    private CacheCodec getCodec(byte[] bytes) {
+        if (bytes.length > 0) {
+            int version = bytes[0];
+            if (version > 0 && version <= MAX_VERSION && versionCodecs[version] != null) {
+                return versionCodecs[version];
+            }
+        }
+        return legacyCodec;
+    }
+
+    private byte[] getPayload(byte[] bytes, CacheCodec codec) {
+        if (codec == legacyCodec) {
+            return bytes;
+        }
+        byte[] payload = new byte[bytes.length - 1];
+        System.arraycopy(bytes, 1, payload, 0, payload.length);
+        return payload;
+    }
+}
@@ -0,0 +1,57 @@
+package com.lb.im.common.cache.distribute.codec;
+
+import cn.hutool.core.convert.Convert;
+import cn.hutool.json.JSONUtil;
+import com.lb.im.common.cache.distribute.conversion.TypeConversion;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * JSON编解码器，简单类型直接存储字符串值，复杂类型存储JSON字符串。
+ * 版本号为0，不写版本号字节，与引入编解码器之前写入的数据格式完全一致。
+ */
+@Component
+public class JsonCacheCodec implements CacheCodec {
+
+    public static final byte VERSION = 0;
+
+    public static final String NAME = "json";
+
+    @Override
+    public byte getVersion() {
+        return VERSION;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        String str = TypeConversion.isSimpleType(value) ? String.valueOf(value) : JSONUtil.toJsonStr(value);
+        return str.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public <R> R decode(byte[] bytes, Class<R> type) {
+        String str = this.decodeString(bytes);
+        //字符串和简单类型直接转换，JSON字符串只解析一次
+        if (type == String.class || !JSONUtil.isJson(str)) {
+            return Convert.convert(type, str);
+        }
+        return JSONUtil.toBean(str, type);
+    }
+
+    @Override
+    public <R> List<R> decodeList(byte[] bytes, Class<R> type) {
+        return JSONUtil.toList(JSONUtil.parseArray(this.decodeString(bytes)), type);
+    }
+
+    @Override
+    public String decodeString(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,97 @@
+package com.lb.im.common.cache.distribute.codec;
+
+import cn.hutool.core.convert.Convert;
+import cn.hutool.json.JSONUtil;
+import com.lb.im.common.cache.distribute.conversion.TypeConversion;
+import com.lb.im.common.cache.serializer.ProtoStuffSerializerUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Protostuff二进制编解码器，基于ProtoStuffSerializerUtils实现，
+ * 相比JSON体积更小，反序列化时不需要解析文本，降低每次缓存命中的CPU开销。
+ */
+@Component
+public class ProtostuffCacheCodec implements CacheCodec {
+
+    public static final byte VERSION = 2;
+
+    public static final String NAME = "protostuff";
+
+    @Override
+    public byte getVersion() {
+        return VERSION;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        return ProtoStuffSerializerUtils.serialize(new CacheValueWrapper(value));
+    }
+
+    @Override
+    public <R> R decode(byte[] bytes, Class<R> type) {
+        Object value = this.decodeValue(bytes);
+        if (value == null || type.isInstance(value)) {
+            return type.cast(value);
+        }
+        return Convert.convert(type, value);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <R> List<R> decodeList(byte[] bytes, Class<R> type) {
+        Object value = this.decodeValue(bytes);
+        if (!(value instanceof List)) {
+            return null;
+        }
+        List<Object> list = (List<Object>) value;
+        List<R> result = new ArrayList<>(list.size());
+        for (Object element : list) {
+            result.add(element == null || type.isInstance(element) ? type.cast(element) : Convert.convert(type, element));
+        }
+        return result;
+    }
+
+    @Override
+    public String decodeString(byte[] bytes) {
+        Object value = this.decodeValue(bytes);
+        if (value == null) {
+            return null;
+        }
+        return TypeConversion.isSimpleType(value) ? String.valueOf(value) : JSONUtil.toJsonStr(value);
+    }
+
+    private Object decodeValue(byte[] bytes) {
+        return ProtoStuffSerializerUtils.deserialize(bytes, CacheValueWrapper.class).getValue();
+    }
+
+    /**
+     * Protostuff只能序列化对象的字段，使用包装类承载任意类型的缓存值（包括简单类型和集合）
+     */
+    public static class CacheValueWrapper {
+
+        private Object value;
+
+        public CacheValueWrapper() {
+        }
+
+        public CacheValueWrapper(Object value) {
+            this.value = value;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+
+        public void setValue(Object value) {
+            this.value = value;
+        }
+    }
+}
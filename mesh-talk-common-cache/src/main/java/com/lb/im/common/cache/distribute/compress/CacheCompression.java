@@ -0,0 +1,192 @@
+package com.lb.im.common.cache.distribute.compress;
+
+import com.lb.im.common.cache.distribute.metrics.CacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 缓存值的透明压缩，编码后的数据超过阈值时压缩，压缩数据的格式为：
+ * 标记字节(0xFC) + 压缩算法编号(1字节) + 原始长度(4字节) + 压缩数据。
+ * 标记字节不是合法的UTF-8首字节，也不与编解码器版本号和逻辑过期标记冲突，压缩和未压缩的数据可以同时存在，
+ * 关闭压缩后已经压缩的数据仍然可以读取。
+ * 压缩指标按缓存key前缀统计，前缀来自{@link CacheMetrics}中查询方法传入的keyPrefix，
+ * key按最长匹配的前缀归类，不属于任何已知前缀的key统一归入空前缀，指标数量不随key增长。
+ */
+@Component
+public class CacheCompression {
+
+    //压缩数据的标记字节
+    public static final byte MAGIC = (byte) 0xFC;
+    //标记字节 + 压缩算法编号 + 原始长度
+    private static final int HEADER_LENGTH = 6;
+    //压缩算法编号的最大值
+    private static final int MAX_ID = 127;
+
+    //是否开启压缩，关闭时只解压已有的压缩数据
+    @Value("${distribute.cache.compression.enabled:false}")
+    private boolean enabled;
+
+    //写入使用的压缩算法
+    @Value("${distribute.cache.compression.algorithm:deflate}")
+    private String algorithm;
+
+    //编码后的数据达到该字节数才压缩
+    @Value("${distribute.cache.compression.threshold-bytes:4096}")
+    private int thresholdBytes;
+
+    @Autowired
+    private List<CacheCompressor> compressors;
+
+    @Autowired
+    private CacheMetrics cacheMetrics;
+
+    //写入使用的压缩算法
+    private CacheCompressor writeCompressor;
+
+    //按编号索引的压缩算法
+    private final CacheCompressor[] idCompressors = new CacheCompressor[MAX_ID + 1];
+
+    //按key前缀统计的压缩指标
+    private final ConcurrentMap<String, CompressionStats> statsMap = new ConcurrentHashMap<>();
+
+    //已知的key前缀，按长度从长到短排列，用于最长前缀匹配
+    private volatile String[] prefixes = new String[0];
+
+    @PostConstruct
+    public void init() {
+        for (CacheCompressor compressor : compressors) {
+            byte id = compressor.getId();
+            if (id <= 0) {
+                throw new IllegalArgumentException("cache compressor id out of range: " + compressor.getName());
+            }
+            if (idCompressors[id] != null) {
+                throw new IllegalArgumentException("duplicate cache compressor id: " + compressor.getName());
+            }
+            idCompressors[id] = compressor;
+            if (compressor.getName().equalsIgnoreCase(algorithm)) {
+                writeCompressor = compressor;
+            }
+        }
+        if (enabled && writeCompressor == null) {
+            throw new IllegalArgumentException("unknown cache compressor: " + algorithm);
+        }
+        //查询方法首次使用某个keyPrefix时登记该前缀
+        cacheMetrics.addListener(stats -> this.registerPrefix(stats.getKeyPrefix()));
+    }
+
+    /**
+     * 超过阈值时压缩，压缩后体积没有减少时返回原始数据
+     *
+     * @param key   缓存key或key前缀，用于按前缀统计，可以为空
+     * @param bytes 编码后的数据
+     * @return 写入Redis的数据
+     */
+    public byte[] compress(String key, byte[] bytes) {
+        if (!enabled || bytes == null || bytes.length < thresholdBytes) {
+            return bytes;
+        }
+        long start = System.nanoTime();
+        byte[] compressed = writeCompressor.compress(bytes);
+        long elapsed = System.nanoTime() - start;
+        CompressionStats stats = this.getStats(this.resolvePrefix(key));
+        if (compressed.length + HEADER_LENGTH >= bytes.length) {
+            stats.recordSkip(elapsed);
+            return bytes;
+        }
+        byte[] result = ByteBuffer.allocate(compressed.length + HEADER_LENGTH)
+                .put(MAGIC)
+                .put(writeCompressor.getId())
+                .putInt(bytes.length)
+                .put(compressed)
+                .array();
+        stats.recordCompression(bytes.length, result.length, elapsed);
+        return result;
+    }
+
+    /**
+     * 解压数据，未压缩的数据原样返回
+     *
+     * @param key   缓存key或key前缀，用于按前缀统计，可以为空
+     * @param bytes Redis中读取的数据
+     * @return 编码后的数据
+     */
+    public byte[] decompress(String key, byte[] bytes) {
+        if (!isCompressed(bytes)) {
+            return bytes;
+        }
+        int id = bytes[1];
+        CacheCompressor compressor = id > 0 ? idCompressors[id] : null;
+        if (compressor == null) {
+            throw new IllegalStateException("unknown cache compressor id: " + id);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int originalLength = buffer.getInt(2);
+        byte[] compressed = new byte[bytes.length - HEADER_LENGTH];
+        System.arraycopy(bytes, HEADER_LENGTH, compressed, 0, compressed.length);
+        long start = System.nanoTime();
+        byte[] result = compressor.decompress(compressed, originalLength);
+        this.getStats(this.resolvePrefix(key)).recordDecompression(System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * 是否为压缩数据
+     */
+    public static boolean isCompressed(byte[] bytes) {
+        return bytes != null && bytes.length >= HEADER_LENGTH && bytes[0] == MAGIC;
+    }
+
+    /**
+     * 获取按key前缀统计的压缩指标
+     *
+     * @return key前缀到指标的映射
+     */
+    public Map<String, CompressionStats> getStatistics() {
+        return Collections.unmodifiableMap(statsMap);
+    }
+
+    private CompressionStats getStats(String keyPrefix) {
+        return statsMap.computeIfAbsent(keyPrefix, CompressionStats::new);
+    }
+
+    private synchronized void registerPrefix(String keyPrefix) {
+        if (keyPrefix == null || keyPrefix.isEmpty()) {
+            return;
+        }
+        for (String prefix : prefixes) {
+            if (prefix.equals(keyPrefix)) {
+                return;
+            }
+        }
+        String[] updated = Arrays.copyOf(prefixes, prefixes.length + 1);
+        updated[prefixes.length] = keyPrefix;
+        Arrays.sort(updated, Comparator.comparingInt(String::length).reversed());
+        prefixes = updated;
+    }
+
+    /**
+     * 按最长匹配的已知前缀归类，key中的业务标识可能包含分隔符，不能按分隔符截取
+     */
+    private String resolvePrefix(String key) {
+        if (key == null) {
+            return "";
+        }
+        for (String prefix : prefixes) {
+            if (key.startsWith(prefix)) {
+                return prefix;
+            }
+        }
+        return "";
+    }
+}
@@ -0,0 +1,40 @@
+package com.lb.im.common.cache.distribute.compress;
+
+/**
+ * 缓存值压缩算法接口，每种算法对应一个编号，写在压缩数据的头部，
+ * 读取时根据编号选择算法解压，切换压缩算法期间新旧数据可以同时读取。
+ * 新增压缩算法（如LZ4）只需要实现该接口并注册为Spring Bean，使用未被占用的编号。
+ */
+public interface CacheCompressor {
+
+    /**
+     * 压缩算法编号，取值范围为[1, 127]
+     *
+     * @return 压缩算法编号
+     */
+    byte getId();
+
+    /**
+     * 压缩算法名称，与配置项distribute.cache.compression.algorithm对应
+     *
+     * @return 压缩算法名称
+     */
+    String getName();
+
+    /**
+     * 压缩字节数组
+     *
+     * @param bytes 原始字节数组
+     * @return 压缩后的字节数组
+     */
+    byte[] compress(byte[] bytes);
+
+    /**
+     * 解压字节数组
+     *
+     * @param bytes          压缩后的字节数组
+     * @param originalLength 原始数据长度
+     * @return 原始字节数组
+     */
+    byte[] decompress(byte[] bytes, int originalLength);
+}
@@ -0,0 +1,118 @@
+package com.lb.im.common.cache.distribute.compress;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按缓存key前缀统计的压缩指标，包括压缩率和压缩、解压的CPU耗时
+ */
+public class CompressionStats {
+
+    //缓存key前缀
+    private final String keyPrefix;
+    //压缩后写入的次数
+    private final LongAdder compressions = new LongAdder();
+    //超过阈值但压缩收益不足，按原始数据写入的次数
+    private final LongAdder skips = new LongAdder();
+    //压缩前的累计字节数
+    private final LongAdder rawBytes = new LongAdder();
+    //压缩后的累计字节数
+    private final LongAdder compressedBytes = new LongAdder();
+    //压缩累计耗时，单位纳秒
+    private final LongAdder compressNanos = new LongAdder();
+    //解压次数
+    private final LongAdder decompressions = new LongAdder();
+    //解压累计耗时，单位纳秒
+    private final LongAdder decompressNanos = new LongAdder();
+
+    public CompressionStats(String keyPrefix) {
+        this.keyPrefix = keyPrefix;
+    }
+
+    /**
+     * 记录一次压缩
+     *
+     * @param rawLength        压缩前字节数
+     * @param compressedLength 压缩后字节数
+     * @param nanos            压缩耗时，单位纳秒
+     */
+    public void recordCompression(int rawLength, int compressedLength, long nanos) {
+        compressions.increment();
+        rawBytes.add(rawLength);
+        compressedBytes.add(compressedLength);
+        compressNanos.add(nanos);
+    }
+
+    /**
+     * 记录一次压缩收益不足的写入，压缩的耗时同样计入
+     */
+    public void recordSkip(long nanos) {
+        skips.increment();
+        compressNanos.add(nanos);
+    }
+
+    public void recordDecompression(long nanos) {
+        decompressions.increment();
+        decompressNanos.add(nanos);
+    }
+
+    public String getKeyPrefix() {
+        return keyPrefix;
+    }
+
+    public long getCompressions() {
+        return compressions.sum();
+    }
+
+    public long getSkips() {
+        return skips.sum();
+    }
+
+    public long getRawBytes() {
+        return rawBytes.sum();
+    }
+
+    public long getCompressedBytes() {
+        return compressedBytes.sum();
+    }
+
+    public long getDecompressions() {
+        return decompressions.sum();
+    }
+
+    /**
+     * 压缩率，压缩后字节数与压缩前字节数的比值
+     */
+    public double getCompressionRatio() {
+        long raw = rawBytes.sum();
+        return raw == 0 ? 0D : (double) compressedBytes.sum() / raw;
+    }
+
+    /**
+     * 平均压缩耗时（包括收益不足的压缩），单位微秒
+     */
+    public double getAvgCompressMicros() {
+        long count = compressions.sum() + skips.sum();
+        return count == 0 ? 0D : compressNanos.sum() / 1000D / count;
+    }
+
+    /**
+     * 平均解压耗时，单位微秒
+     */
+    public double getAvgDecompressMicros() {
+        long count = decompressions.sum();
+        return count == 0 ? 0D : decompressNanos.sum() / 1000D / count;
+    }
+
+    @Override
+    public String toString() {
+        return "CompressionStats{" +
+                "keyPrefix='" + keyPrefix + '\'' +
+                ", compressions=" + getCompressions() +
+                ", skips=" + getSkips() +
+                ", compressionRatio=" + getCompressionRatio() +
+                ", avgCompressMicros=" + getAvgCompressMicros() +
+                ", decompressions=" + getDecompressions() +
+                ", avgDecompressMicros=" + getAvgDecompressMicros() +
+                '}';
+    }
+}
@@ -0,0 +1,110 @@
+package com.lb.im.common.cache.distribute.compress;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 基于JDK Deflate的压缩算法，不依赖第三方库，作为默认的压缩算法。
+ * Deflater和Inflater持有本地内存，按线程复用，避免每次压缩都重新分配；
+ * 创建的实例以弱引用登记，关闭时统一释放本地内存，线程结束后的实例由GC回收时释放。
+ */
+@Component
+public class DeflateCacheCompressor implements CacheCompressor {
+
+    public static final byte ID = 1;
+
+    public static final String NAME = "deflate";
+
+    private static final int BUFFER_SIZE = 4096;
+
+    //压缩级别，缓存场景更看重CPU开销，默认使用最快的级别
+    @Value("${distribute.cache.compression.level:1}")
+    private int level;
+
+    //所有线程创建的Deflater和Inflater
+    private final Map<Deflater, Boolean> allDeflaters = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final Map<Inflater, Boolean> allInflaters = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final ThreadLocal<Deflater> deflaters = ThreadLocal.withInitial(() -> {
+        Deflater deflater = new Deflater(level, true);
+        allDeflaters.put(deflater, Boolean.TRUE);
+        return deflater;
+    });
+
+    private final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(() -> {
+        Inflater inflater = new Inflater(true);
+        allInflaters.put(inflater, Boolean.TRUE);
+        return inflater;
+    });
+
+    @PreDestroy
+    public void destroy() {
+        synchronized (allDeflaters) {
+            allDeflaters.keySet().forEach(Deflater::end);
+            allDeflaters.clear();
+        }
+        synchronized (allInflaters) {
+            allInflaters.keySet().forEach(Inflater::end);
+            allInflaters.clear();
+        }
+    }
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] compress(byte[] bytes) {
+        Deflater deflater = deflaters.get();
+        deflater.reset();
+        deflater.setInput(bytes);
+        deflater.finish();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(Math.max(64, bytes.length / 2));
+        byte[] buffer = new byte[BUFFER_SIZE];
+        while (!deflater.finished()) {
+            int count = deflater.deflate(buffer);
+            outputStream.write(buffer, 0, count);
+        }
+        return outputStream.toByteArray();
+    }
+
+    @Override
+    public byte[] decompress(byte[] bytes, int originalLength) {
+        Inflater inflater = inflaters.get();
+        inflater.reset();
+        inflater.setInput(bytes);
+        byte[] result = new byte[originalLength];
+        int offset = 0;
+        try {
+            while (offset < originalLength && !inflater.finished()) {
+                int count = inflater.inflate(result, offset, originalLength - offset);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                offset += count;
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("inflate cache value failed", e);
+        }
+        if (offset != originalLength) {
+            throw new IllegalStateException("inflate cache value failed, expected " + originalLength + " bytes but got " + offset);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,173 @@
+package com.lb.im.common.cache.distribute.data;
+
+import cn.hutool.json.JSONUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+
+/**
+ * 逻辑过期数据的存储格式：1字节标识 + 8字节过期时间点（毫秒时间戳，大端） + 编码后的业务数据。
+ * 提前过期（XFetch）策略的数据在过期时间点之后额外写入4字节的重新计算耗时，标识字节不同。
+ * 判断是否过期只需要读取头部，不需要解码业务数据；业务数据长度为0表示缓存的空数据。
+ * 不以标识字节开头的数据按照历史的RedisData JSON格式读取，保证迁移期间新旧格式可以同时读取。
+ */
+public class LogicalExpireData {
+
+    //标识字节，0xFE不是合法的UTF-8首字节，不会出现在历史JSON数据的开头，也不与编解码器版本号冲突
+    public static final byte MAGIC = (byte) 0xFE;
+    //带重新计算耗时的标识字节
+    public static final byte MAGIC_WITH_DELTA = (byte) 0xFD;
+    //头部长度
+    private static final int HEADER_LENGTH = 9;
+    //带重新计算耗时的头部长度
+    private static final int HEADER_LENGTH_WITH_DELTA = 13;
+
+    //过期时间点，毫秒时间戳
+    private final long expireMillis;
+    //重新计算耗时，单位毫秒
+    private final int deltaMillis;
+    //头部长度
+    private final int headerLength;
+    //新格式的原始字节
+    private final byte[] bytes;
+    //历史格式的数据
+    private final RedisData legacyData;
+
+    private LogicalExpireData(long expireMillis, int deltaMillis, int headerLength, byte[] bytes, RedisData legacyData) {
+        this.expireMillis = expireMillis;
+        this.deltaMillis = deltaMillis;
+        this.headerLength = headerLength;
+        this.bytes = bytes;
+        this.legacyData = legacyData;
+    }
+
+    /**
+     * 生成逻辑过期数据的字节数组
+     *
+     * @param expireMillis 过期时间点，毫秒时间戳
+     * @param payload      编码后的业务数据，为空时表示缓存的空数据
+     * @return 写入Redis的字节数组
+     */
+    public static byte[] encode(long expireMillis, byte[] payload) {
+        return allocate(MAGIC, HEADER_LENGTH, expireMillis, payload);
+    }
+
+    /**
+     * 生成带重新计算耗时的逻辑过期数据的字节数组
+     *
+     * @param expireMillis 过期时间点，毫秒时间戳
+     * @param deltaMillis  重新计算耗时，单位毫秒
+     * @param payload      编码后的业务数据，为空时表示缓存的空数据
+     * @return 写入Redis的字节数组
+     */
+    public static byte[] encode(long expireMillis, int deltaMillis, byte[] payload) {
+        byte[] bytes = allocate(MAGIC_WITH_DELTA, HEADER_LENGTH_WITH_DELTA, expireMillis, payload);
+        for (int i = 12; i >= 9; i--) {
+            bytes[i] = (byte) deltaMillis;
+            deltaMillis >>>= 8;
+        }
+        return bytes;
+    }
+
+    private static byte[] allocate(byte magic, int headerLength, long expireMillis, byte[] payload) {
+        int length = payload == null ? 0 : payload.length;
+        byte[] bytes = new byte[headerLength + length];
+        bytes[0] = magic;
+        for (int i = 8; i >= 1; i--) {
+            bytes[i] = (byte) expireMillis;
+            expireMillis >>>= 8;
+        }
+        if (length > 0) {
+            System.arraycopy(payload, 0, bytes, headerLength, length);
+        }
+        return bytes;
+    }
+
+    /**
+     * 解析逻辑过期数据，新格式只读取头部，历史格式解析RedisData JSON
+     */
+    public static LogicalExpireData parse(byte[] bytes) {
+        if (bytes != null && bytes.length >= HEADER_LENGTH_WITH_DELTA && bytes[0] == MAGIC_WITH_DELTA) {
+            int deltaMillis = 0;
+            for (int i = 9; i <= 12; i++) {
+                deltaMillis = (deltaMillis << 8) | (bytes[i] & 0xFF);
+            }
+            return new LogicalExpireData(readExpireMillis(bytes), deltaMillis, HEADER_LENGTH_WITH_DELTA, bytes, null);
+        }
+        if (bytes != null && bytes.length >= HEADER_LENGTH && bytes[0] == MAGIC) {
+            return new LogicalExpireData(readExpireMillis(bytes), 0, HEADER_LENGTH, bytes, null);
+        }
+        RedisData redisData = JSONUtil.toBean(new String(bytes, StandardCharsets.UTF_8), RedisData.class);
+        long expireMillis = redisData.getExpireTime() == null ? 0L : redisData.getExpireTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return new LogicalExpireData(expireMillis, 0, 0, null, redisData);
+    }
+
+    /**
+     * 是否是新格式的逻辑过期数据
+     */
+    public static boolean isEnvelope(byte[] bytes) {
+        if (bytes == null) {
+            return false;
+        }
+        if (bytes.length >= HEADER_LENGTH_WITH_DELTA && bytes[0] == MAGIC_WITH_DELTA) {
+            return true;
+        }
+        return bytes.length >= HEADER_LENGTH && bytes[0] == MAGIC;
+    }
+
+    private static long readExpireMillis(byte[] bytes) {
+        long expireMillis = 0L;
+        for (int i = 1; i <= 8; i++) {
+            expireMillis = (expireMillis << 8) | (bytes[i] & 0xFF);
+        }
+        return expireMillis;
+    }
+
+    public long getExpireMillis() {
+        return expireMillis;
+    }
+
+    /**
+     * 重新计算耗时，不带重新计算耗时的数据返回0
+     */
+    public int getDeltaMillis() {
+        return deltaMillis;
+    }
+
+    /**
+     * 是否已经逻辑过期
+     */
+    public boolean isExpired(long nowMillis) {
+        return expireMillis <= nowMillis;
+    }
+
+    /**
+     * 是否是历史格式的数据
+     */
+    public boolean isLegacy() {
+        return legacyData != null;
+    }
+
+    /**
+     * 新格式的数据是否是缓存的空数据
+     */
+    public boolean isEmpty() {
+        return bytes != null && bytes.length == headerLength;
+    }
+
+    /**
+     * 新格式的业务数据字节
+     */
+    public byte[] getPayload() {
+        byte[] payload = new byte[bytes.length - headerLength];
+        System.arraycopy(bytes, headerLength, payload, 0, payload.length);
+        return payload;
+    }
+
+    /**
+     * 历史格式的数据
+     */
+    public RedisData getLegacyData() {
+        return legacyData;
+    }
+}
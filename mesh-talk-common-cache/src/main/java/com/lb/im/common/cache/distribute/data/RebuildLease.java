@@ -0,0 +1,38 @@
+package com.lb.im.common.cache.distribute.data;
+
+import cn.hutool.core.util.IdUtil;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 重建租约的存储格式：1字节标识 + 32字节随机令牌。
+ * 租约直接作为占位值写在缓存key上（带过期时间），缓存未命中时只有写入占位值的调用方查询数据库，
+ * 其他调用方读到占位值后等待；写回数据时比较令牌，租约已经过期或被其他调用方接管时不覆盖。
+ * 租约与数据在同一个key上，Lua脚本只访问一个key，Redis Cluster下同样可用。
+ */
+public class RebuildLease {
+
+    //标识字节，与带版本号的数据（0xFB）、压缩数据（0xFC）和逻辑过期数据（0xFE、0xFD）都不冲突
+    public static final byte MAGIC = (byte) 0xFA;
+
+    private RebuildLease() {
+    }
+
+    /**
+     * 生成新的租约令牌
+     */
+    public static byte[] newToken() {
+        byte[] id = IdUtil.fastSimpleUUID().getBytes(StandardCharsets.US_ASCII);
+        byte[] token = new byte[id.length + 1];
+        token[0] = MAGIC;
+        System.arraycopy(id, 0, token, 1, id.length);
+        return token;
+    }
+
+    /**
+     * 是否是租约占位值
+     */
+    public static boolean isLease(byte[] bytes) {
+        return bytes != null && bytes.length > 1 && bytes[0] == MAGIC;
+    }
+}
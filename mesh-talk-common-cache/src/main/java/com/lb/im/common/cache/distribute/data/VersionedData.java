@@ -0,0 +1,93 @@
+package com.lb.im.common.cache.distribute.data;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 带版本号的数据的存储格式：1字节标识 + 20字节版本号（十进制ASCII，左侧补0） + 编码后的业务数据。
+ * 版本号定长补0后，Lua脚本可以直接按字符串比较新旧版本，不受Lua数字精度的限制；
+ * 业务数据长度为0表示该版本的数据不存在（已删除），旧版本的数据不能再覆盖。
+ */
+public class VersionedData {
+
+    //标识字节，与逻辑过期数据（0xFE、0xFD）、压缩数据（0xFC）和编解码器版本号都不冲突
+    public static final byte MAGIC = (byte) 0xFB;
+    //版本号的长度，long的最大值为19位
+    public static final int VERSION_LENGTH = 20;
+    //头部长度
+    private static final int HEADER_LENGTH = VERSION_LENGTH + 1;
+
+    private final long version;
+    private final byte[] bytes;
+
+    private VersionedData(long version, byte[] bytes) {
+        this.version = version;
+        this.bytes = bytes;
+    }
+
+    /**
+     * 生成带版本号的数据的字节数组
+     *
+     * @param version 版本号，不能为负数
+     * @param payload 编码后的业务数据，为空时表示数据不存在
+     * @return 写入Redis的字节数组
+     */
+    public static byte[] encode(long version, byte[] payload) {
+        byte[] header = formatVersion(version);
+        int length = payload == null ? 0 : payload.length;
+        byte[] bytes = new byte[HEADER_LENGTH + length];
+        bytes[0] = MAGIC;
+        System.arraycopy(header, 0, bytes, 1, VERSION_LENGTH);
+        if (length > 0) {
+            System.arraycopy(payload, 0, bytes, HEADER_LENGTH, length);
+        }
+        return bytes;
+    }
+
+    /**
+     * 定长补0的版本号，作为Lua脚本的比较参数
+     */
+    public static byte[] formatVersion(long version) {
+        if (version < 0) {
+            throw new IllegalArgumentException("version must not be negative: " + version);
+        }
+        return String.format("%0" + VERSION_LENGTH + "d", version).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 是否是带版本号的数据
+     */
+    public static boolean isEnvelope(byte[] bytes) {
+        return bytes != null && bytes.length >= HEADER_LENGTH && bytes[0] == MAGIC;
+    }
+
+    /**
+     * 解析带版本号的数据，不是带版本号的数据时返回空
+     */
+    public static VersionedData parse(byte[] bytes) {
+        if (!isEnvelope(bytes)) {
+            return null;
+        }
+        long version = Long.parseLong(new String(bytes, 1, VERSION_LENGTH, StandardCharsets.US_ASCII));
+        return new VersionedData(version, bytes);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * 是否是数据不存在的标记
+     */
+    public boolean isEmpty() {
+        return bytes.length == HEADER_LENGTH;
+    }
+
+    /**
+     * 业务数据字节
+     */
+    public byte[] getPayload() {
+        byte[] payload = new byte[bytes.length - HEADER_LENGTH];
+        System.arraycopy(bytes, HEADER_LENGTH, payload, 0, payload.length);
+        return payload;
+    }
+}
@@ -0,0 +1,145 @@
+package com.lb.im.common.cache.distribute.expire;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存过期策略，在调用方指定的过期时长上叠加分桶错峰和随机抖动，并限制在最小和最大过期时长之间，
+ * 避免同一批写入的缓存在同一时刻集中过期。
+ * 分桶错峰按照key的哈希值把过期时间固定地分散到spreadBuckets个桶中，每个桶相差bucketMillis；
+ * 随机抖动在过期时长上增加[0, 过期时长 * jitterRatio)的随机值。
+ */
+public class ExpiryPolicy {
+
+    /**
+     * 不做任何调整的过期策略
+     */
+    public static final ExpiryPolicy NONE = ExpiryPolicy.builder().build();
+
+    //随机抖动比例
+    private final double jitterRatio;
+    //错峰的桶数量
+    private final int spreadBuckets;
+    //每个桶的时长，单位毫秒
+    private final long bucketMillis;
+    //最小过期时长，单位毫秒
+    private final long minTtlMillis;
+    //最大过期时长，单位毫秒，0表示不限制
+    private final long maxTtlMillis;
+
+    private ExpiryPolicy(Builder builder) {
+        this.jitterRatio = builder.jitterRatio;
+        this.spreadBuckets = builder.spreadBuckets;
+        this.bucketMillis = builder.bucketMillis;
+        this.minTtlMillis = builder.minTtlMillis;
+        this.maxTtlMillis = builder.maxTtlMillis;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 计算实际的过期时长
+     *
+     * @param key       缓存key，用于确定错峰的桶
+     * @param ttlMillis 调用方指定的过期时长，单位毫秒
+     * @return 实际的过期时长，单位毫秒
+     */
+    public long apply(String key, long ttlMillis) {
+        long ttl = ttlMillis;
+        if (spreadBuckets > 1 && bucketMillis > 0) {
+            ttl += Math.floorMod(key.hashCode(), spreadBuckets) * bucketMillis;
+        }
+        if (jitterRatio > 0) {
+            ttl += (long) (ThreadLocalRandom.current().nextDouble() * ttlMillis * jitterRatio);
+        }
+        if (maxTtlMillis > 0) {
+            ttl = Math.min(ttl, maxTtlMillis);
+        }
+        return Math.max(Math.max(ttl, minTtlMillis), 1L);
+    }
+
+    public double getJitterRatio() {
+        return jitterRatio;
+    }
+
+    public int getSpreadBuckets() {
+        return spreadBuckets;
+    }
+
+    public long getBucketMillis() {
+        return bucketMillis;
+    }
+
+    public long getMinTtlMillis() {
+        return minTtlMillis;
+    }
+
+    public long getMaxTtlMillis() {
+        return maxTtlMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "ExpiryPolicy{" +
+                "jitterRatio=" + jitterRatio +
+                ", spreadBuckets=" + spreadBuckets +
+                ", bucketMillis=" + bucketMillis +
+                ", minTtlMillis=" + minTtlMillis +
+                ", maxTtlMillis=" + maxTtlMillis +
+                '}';
+    }
+
+    public static class Builder {
+
+        private double jitterRatio;
+        private int spreadBuckets;
+        private long bucketMillis;
+        private long minTtlMillis;
+        private long maxTtlMillis;
+
+        /**
+         * 随机抖动比例，例如0.1表示在过期时长上增加最多10%的随机值
+         */
+        public Builder jitterRatio(double jitterRatio) {
+            if (jitterRatio < 0) {
+                throw new IllegalArgumentException("jitter ratio must not be negative");
+            }
+            this.jitterRatio = jitterRatio;
+            return this;
+        }
+
+        /**
+         * 分桶错峰，过期时间按key分散到buckets个桶中，相邻的桶相差bucketDuration
+         */
+        public Builder spread(int buckets, long bucketDuration, TimeUnit unit) {
+            if (buckets < 0 || bucketDuration < 0) {
+                throw new IllegalArgumentException("spread buckets must not be negative");
+            }
+            this.spreadBuckets = buckets;
+            this.bucketMillis = unit.toMillis(bucketDuration);
+            return this;
+        }
+
+        public Builder minTtl(long minTtl, TimeUnit unit) {
+            this.minTtlMillis = unit.toMillis(minTtl);
+            return this;
+        }
+
+        /**
+         * 最大过期时长，0表示不限制
+         */
+        public Builder maxTtl(long maxTtl, TimeUnit unit) {
+            this.maxTtlMillis = unit.toMillis(maxTtl);
+            return this;
+        }
+
+        public ExpiryPolicy build() {
+            if (maxTtlMillis > 0 && minTtlMillis > maxTtlMillis) {
+                throw new IllegalArgumentException("min ttl must not be greater than max ttl");
+            }
+            return new ExpiryPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.lb.im.common.cache.distribute.expire;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按缓存key前缀管理过期策略，所有带过期时长的写入（包括queryWith*系列方法的缓存重建和逻辑过期时间点）
+ * 都通过最长匹配的key前缀对应的过期策略计算实际过期时长，未注册的key前缀使用distribute.cache.expiry配置的默认策略。
+ * 缓存空数据的过期时长不经过过期策略。
+ */
+@Component
+public class ExpiryPolicyManager {
+
+    //默认的随机抖动比例
+    @Value("${distribute.cache.expiry.jitter-ratio:0}")
+    private double jitterRatio;
+
+    //默认的错峰桶数量
+    @Value("${distribute.cache.expiry.spread-buckets:0}")
+    private int spreadBuckets;
+
+    //默认的每个桶的时长，单位秒
+    @Value("${distribute.cache.expiry.bucket-seconds:0}")
+    private long bucketSeconds;
+
+    //默认的最小过期时长，单位秒
+    @Value("${distribute.cache.expiry.min-ttl-seconds:0}")
+    private long minTtlSeconds;
+
+    //默认的最大过期时长，单位秒，0表示不限制
+    @Value("${distribute.cache.expiry.max-ttl-seconds:0}")
+    private long maxTtlSeconds;
+
+    private volatile ExpiryPolicy defaultPolicy = ExpiryPolicy.NONE;
+
+    private final ConcurrentMap<String, ExpiryPolicy> policies = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        defaultPolicy = ExpiryPolicy.builder()
+                .jitterRatio(jitterRatio)
+                .spread(spreadBuckets, bucketSeconds, TimeUnit.SECONDS)
+                .minTtl(minTtlSeconds, TimeUnit.SECONDS)
+                .maxTtl(maxTtlSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * 为key前缀注册过期策略
+     *
+     * @param keyPrefix 缓存key前缀
+     * @param policy    过期策略
+     */
+    public void register(String keyPrefix, ExpiryPolicy policy) {
+        policies.put(keyPrefix, policy);
+    }
+
+    public void remove(String keyPrefix) {
+        policies.remove(keyPrefix);
+    }
+
+    public Map<String, ExpiryPolicy> getPolicies() {
+        return Collections.unmodifiableMap(policies);
+    }
+
+    /**
+     * 获取key对应的过期策略，多个key前缀匹配时使用最长的前缀
+     */
+    public ExpiryPolicy getPolicy(String key) {
+        ExpiryPolicy matched = null;
+        int matchedLength = -1;
+        for (Map.Entry<String, ExpiryPolicy> entry : policies.entrySet()) {
+            String prefix = entry.getKey();
+            if (prefix.length() > matchedLength && key.startsWith(prefix)) {
+                matched = entry.getValue();
+                matchedLength = prefix.length();
+            }
+        }
+        return matched == null ? defaultPolicy : matched;
+    }
+
+    /**
+     * 计算key的实际过期时长
+     *
+     * @param key     缓存key
+     * @param timeout 调用方指定的过期时长
+     * @param unit    时间单位
+     * @return 实际的过期时长，单位毫秒
+     */
+    public long getTtlMillis(String key, long timeout, TimeUnit unit) {
+        return this.getPolicy(key).apply(key, unit.toMillis(timeout));
+    }
+}
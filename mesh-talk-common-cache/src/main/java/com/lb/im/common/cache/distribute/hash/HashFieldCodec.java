@@ -0,0 +1,104 @@
+package com.lb.im.common.cache.distribute.hash;
+
+import cn.hutool.core.bean.BeanDesc;
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.convert.Convert;
+import cn.hutool.core.util.ClassUtil;
+import cn.hutool.core.util.NumberUtil;
+import cn.hutool.core.util.ReflectUtil;
+import cn.hutool.json.JSONUtil;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Hash结构缓存的字段编解码，对象的每个属性对应Hash的一个字段：
+ * 简单类型（字符串、数字、布尔、枚举等）保存字符串形式，可以直接HGET查看或HINCRBY，Date保存毫秒时间戳，其他类型保存JSON；
+ * 值为空的属性不写入字段，读取时缺少的字段保持为空；所有属性都为空时写入只包含{@link #EMPTY_FIELD}的Hash，读取时得到属性都为空的对象。
+ */
+public final class HashFieldCodec {
+
+    /**
+     * 缓存空数据的字段名，Redis中不存在空的Hash，数据库不存在的数据写入只包含该字段的Hash
+     */
+    public static final String NULL_FIELD = "_null";
+
+    /**
+     * 所有属性都为空的对象的占位字段名，Redis中不存在空的Hash，写入只包含该字段的Hash，读取时目标类型中不存在该字段会被忽略
+     */
+    public static final String EMPTY_FIELD = "_empty";
+
+    private HashFieldCodec() {
+    }
+
+    /**
+     * 将对象的属性编码为字段，值为空的属性忽略，所有属性都为空时返回只包含占位字段的结果
+     */
+    public static Map<String, String> encode(Object bean) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        for (BeanDesc.PropDesc prop : BeanUtil.getBeanDesc(bean.getClass()).getProps()) {
+            if (prop.getGetter() == null) {
+                continue;
+            }
+            String value = encodeValue(prop.getValue(bean));
+            if (value != null) {
+                fields.put(prop.getFieldName(), value);
+            }
+        }
+        if (fields.isEmpty()) {
+            fields.put(EMPTY_FIELD, "");
+        }
+        return fields;
+    }
+
+    /**
+     * 编码单个字段的值，值为空时返回空
+     */
+    public static String encodeValue(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Date) {
+            return String.valueOf(((Date) value).getTime());
+        }
+        return ClassUtil.isSimpleValueType(value.getClass()) ? Convert.toStr(value) : JSONUtil.toJsonStr(value);
+    }
+
+    /**
+     * 按照目标类型的属性解码字段，目标类型中不存在的字段忽略
+     */
+    public static <T> T decode(Map<String, String> fields, Class<T> type) {
+        BeanDesc beanDesc = BeanUtil.getBeanDesc(type);
+        T bean = ReflectUtil.newInstanceIfPossible(type);
+        if (bean == null) {
+            throw new IllegalArgumentException("hash cache type requires a no-arg constructor: " + type.getName());
+        }
+        fields.forEach((field, value) -> {
+            BeanDesc.PropDesc prop = beanDesc.getProp(field);
+            if (prop == null || prop.getSetter() == null || value == null) {
+                return;
+            }
+            prop.setValue(bean, decodeValue(prop, value));
+        });
+        return bean;
+    }
+
+    private static Object decodeValue(BeanDesc.PropDesc prop, String value) {
+        Class<?> fieldClass = prop.getFieldClass();
+        if (Date.class.isAssignableFrom(fieldClass) && NumberUtil.isLong(value)) {
+            return Convert.convert(prop.getFieldType(), Long.parseLong(value));
+        }
+        if (ClassUtil.isSimpleValueType(fieldClass)) {
+            return Convert.convert(prop.getFieldType(), value);
+        }
+        return JSONUtil.toBean(value, prop.getFieldType(), false);
+    }
+
+    /**
+     * 是否为缓存的空数据
+     */
+    public static boolean isNull(Map<String, String> fields) {
+        return fields.containsKey(NULL_FIELD);
+    }
+}
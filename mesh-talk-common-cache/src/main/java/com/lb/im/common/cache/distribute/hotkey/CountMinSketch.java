@@ -0,0 +1,70 @@
+package com.lb.im.common.cache.distribute.hotkey;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-Min Sketch频率估计，使用固定大小的计数矩阵估计每个key的访问次数，估计值只会偏大不会偏小。
+ * 计数使用AtomicLongArray，多线程并发累加不需要加锁。
+ */
+public class CountMinSketch {
+
+    private final int depth;
+    private final int width;
+    private final AtomicLongArray counters;
+
+    /**
+     * @param depth 哈希函数数量（行数）
+     * @param width 每行的计数器数量，会向上取整为2的幂
+     */
+    public CountMinSketch(int depth, int width) {
+        if (depth <= 0 || width <= 0) {
+            throw new IllegalArgumentException("invalid count-min sketch size");
+        }
+        this.depth = depth;
+        this.width = Integer.highestOneBit(Math.max(1, width - 1)) << 1;
+        this.counters = new AtomicLongArray(this.depth * this.width);
+    }
+
+    /**
+     * 累加key的计数
+     *
+     * @param hash key的哈希值
+     */
+    public void add(long hash) {
+        for (int i = 0; i < depth; i++) {
+            counters.incrementAndGet(this.index(hash, i));
+        }
+    }
+
+    /**
+     * 估计key的计数，取所有行中的最小值
+     *
+     * @param hash key的哈希值
+     * @return 估计的计数
+     */
+    public long estimate(long hash) {
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            min = Math.min(min, counters.get(this.index(hash, i)));
+        }
+        return min;
+    }
+
+    /**
+     * 清空所有计数
+     */
+    public void clear() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0L);
+        }
+    }
+
+    /**
+     * 双重哈希计算第row行的下标：h1 + row * h2
+     */
+    private int index(long hash, int row) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        return row * width + ((h1 + row * h2) & (width - 1));
+    }
+}
@@ -0,0 +1,44 @@
+package com.lb.im.common.cache.distribute.hotkey;
+
+/**
+ * 热点key及其在滑动窗口内的估计访问次数
+ */
+public class HotKey {
+
+    private final String key;
+    //滑动窗口内的估计访问次数
+    private volatile long count;
+    //成为热点key的时间戳
+    private final long promotedAt;
+
+    public HotKey(String key, long count, long promotedAt) {
+        this.key = key;
+        this.count = count;
+        this.promotedAt = promotedAt;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    void setCount(long count) {
+        this.count = count;
+    }
+
+    public long getPromotedAt() {
+        return promotedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "HotKey{" +
+                "key='" + key + '\'' +
+                ", count=" + count +
+                ", promotedAt=" + promotedAt +
+                '}';
+    }
+}
@@ -0,0 +1,168 @@
+package com.lb.im.common.cache.distribute.hotkey;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 基于滑动窗口Count-Min Sketch和Top-K堆的热点key探测器。
+ * 滑动窗口由多个时间片组成，每个时间片一个Count-Min Sketch，key的窗口访问次数为所有时间片估计值之和；
+ * 按采样率采样访问，估计值按采样率放大。窗口访问次数达到阈值的key进入容量为K的小顶堆，
+ * 堆满时只有比堆顶更热的key才能替换堆顶，堆中的key即为当前的热点key。
+ * 每次滑动窗口时重新估计堆中key的访问次数，低于阈值的key被移出（降级）。
+ */
+public class HotKeyDetector {
+
+    private final CountMinSketch[] slices;
+    private final double sampleRate;
+    private final long threshold;
+    private final int topK;
+
+    //当前写入的时间片
+    private volatile int current;
+
+    //Top-K小顶堆，按照访问次数排序
+    private PriorityQueue<HotKey> heap;
+
+    //当前的热点key，读取时不需要加锁
+    private final ConcurrentMap<String, HotKey> hotKeys = new ConcurrentHashMap<>();
+
+    //被更热的key从堆中替换掉的key，在下次滑动窗口时一起返回
+    private final Queue<String> evicted = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param sliceCount 滑动窗口的时间片数量
+     * @param depth      Count-Min Sketch的行数
+     * @param width      Count-Min Sketch每行的计数器数量
+     * @param sampleRate 采样率，取值范围(0, 1]
+     * @param threshold  窗口内访问次数达到该值的key成为热点key
+     * @param topK       热点key的最大数量
+     */
+    public HotKeyDetector(int sliceCount, int depth, int width, double sampleRate, long threshold, int topK) {
+        if (sliceCount <= 0 || sampleRate <= 0 || sampleRate > 1 || threshold <= 0 || topK <= 0) {
+            throw new IllegalArgumentException("invalid hot key detector arguments");
+        }
+        this.slices = new CountMinSketch[sliceCount];
+        for (int i = 0; i < sliceCount; i++) {
+            slices[i] = new CountMinSketch(depth, width);
+        }
+        this.sampleRate = sampleRate;
+        this.threshold = threshold;
+        this.topK = topK;
+        this.heap = new PriorityQueue<>(topK, Comparator.comparingLong(HotKey::getCount));
+    }
+
+    /**
+     * 记录一次访问
+     *
+     * @param key 缓存key
+     * @return key当前是否为热点key
+     */
+    public boolean record(String key) {
+        if (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return hotKeys.containsKey(key);
+        }
+        long hash = this.hash(key);
+        slices[current].add(hash);
+        long count = this.estimate(hash);
+        if (count < threshold) {
+            return hotKeys.containsKey(key);
+        }
+        HotKey hotKey = hotKeys.get(key);
+        if (hotKey != null) {
+            //已经是热点key，只更新计数，堆顺序在滑动窗口时重建
+            hotKey.setCount(count);
+            return true;
+        }
+        return this.offer(key, count);
+    }
+
+    public boolean isHot(String key) {
+        return hotKeys.containsKey(key);
+    }
+
+    /**
+     * 滑动窗口：清空最旧的时间片作为新的写入时间片，重新估计热点key的访问次数并移出低于阈值的key
+     *
+     * @return 被移出的热点key，包括上次滑动窗口之后被更热的key替换掉的key
+     */
+    public synchronized List<String> rotate() {
+        int next = (current + 1) % slices.length;
+        slices[next].clear();
+        current = next;
+        List<String> demoted = new ArrayList<>();
+        for (String key = evicted.poll(); key != null; key = evicted.poll()) {
+            if (!hotKeys.containsKey(key)) {
+                demoted.add(key);
+            }
+        }
+        for (HotKey hotKey : hotKeys.values()) {
+            long count = this.estimate(this.hash(hotKey.getKey()));
+            if (count < threshold) {
+                hotKeys.remove(hotKey.getKey());
+                demoted.add(hotKey.getKey());
+            } else {
+                hotKey.setCount(count);
+            }
+        }
+        //访问次数已经变化，重建堆
+        PriorityQueue<HotKey> rebuilt = new PriorityQueue<>(topK, Comparator.comparingLong(HotKey::getCount));
+        rebuilt.addAll(hotKeys.values());
+        heap = rebuilt;
+        return demoted;
+    }
+
+    /**
+     * 当前的热点key，按访问次数从高到低排序
+     */
+    public List<HotKey> getHotKeys() {
+        List<HotKey> result = new ArrayList<>(hotKeys.values());
+        result.sort(Comparator.comparingLong(HotKey::getCount).reversed());
+        return result;
+    }
+
+    /**
+     * 尝试将key加入Top-K堆，堆满时替换比它冷的堆顶
+     */
+    private synchronized boolean offer(String key, long count) {
+        if (hotKeys.containsKey(key)) {
+            return true;
+        }
+        if (heap.size() >= topK) {
+            HotKey coldest = heap.peek();
+            if (coldest == null || coldest.getCount() >= count) {
+                return false;
+            }
+            heap.poll();
+            hotKeys.remove(coldest.getKey());
+            evicted.offer(coldest.getKey());
+        }
+        HotKey hotKey = new HotKey(key, count, System.currentTimeMillis());
+        heap.offer(hotKey);
+        hotKeys.put(key, hotKey);
+        return true;
+    }
+
+    /**
+     * 所有时间片的估计值之和，按采样率放大
+     */
+    private long estimate(long hash) {
+        long sum = 0;
+        for (CountMinSketch slice : slices) {
+            sum += slice.estimate(hash);
+        }
+        return (long) (sum / sampleRate);
+    }
+
+    /**
+     * 对String.hashCode做混淆得到64位哈希
+     */
+    private long hash(String key) {
+        long h = key.hashCode() * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        h *= 0xBF58476D1CE4E5B9L;
+        return h ^ (h >>> 29);
+    }
+}
@@ -0,0 +1,140 @@
+package com.lb.im.common.cache.distribute.hotkey;
+
+import com.lb.im.common.cache.local.LocalCacheService;
+import com.lb.im.common.cache.local.factory.LocalGuavaCacheFactory;
+import com.lb.im.common.cache.local.impl.GuavaLocalCacheService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 热点key本地提升，RedisDistributedCacheService的单key读取都经过热点key探测，
+ * 热点key从Redis读取的原始字节在进程内保存一份短过期时间的副本，之后的读取直接使用本地副本，不再访问Redis；
+ * key冷却后（窗口访问次数低于阈值）自动删除本地副本。
+ * 当前节点的写入和删除会立即删除本地副本，其他节点写入后的不一致时间不超过本地副本的过期时间。
+ */
+@Component
+@ConditionalOnProperty(name = "distribute.cache.hot-key.enabled", havingValue = "true")
+public class HotKeyManager {
+
+    private final Logger logger = LoggerFactory.getLogger(HotKeyManager.class);
+
+    //滑动窗口时长，单位秒
+    @Value("${distribute.cache.hot-key.window-seconds:10}")
+    private long windowSeconds;
+
+    //滑动窗口的时间片数量
+    @Value("${distribute.cache.hot-key.window-slices:5}")
+    private int windowSlices;
+
+    //窗口内访问次数达到该值的key成为热点key
+    @Value("${distribute.cache.hot-key.threshold:5000}")
+    private long threshold;
+
+    //访问的采样率
+    @Value("${distribute.cache.hot-key.sample-rate:0.1}")
+    private double sampleRate;
+
+    //热点key的最大数量
+    @Value("${distribute.cache.hot-key.top-k:100}")
+    private int topK;
+
+    //Count-Min Sketch的行数和每行的计数器数量
+    @Value("${distribute.cache.hot-key.sketch-depth:4}")
+    private int sketchDepth;
+
+    @Value("${distribute.cache.hot-key.sketch-width:4096}")
+    private int sketchWidth;
+
+    //本地副本的过期时间，单位秒
+    @Value("${distribute.cache.hot-key.local-expire-seconds:3}")
+    private long localExpireSeconds;
+
+    private HotKeyDetector detector;
+
+    private LocalCacheService<String, byte[]> localCache;
+
+    private ScheduledExecutorService rotateExecutor;
+
+    @PostConstruct
+    public void init() {
+        detector = new HotKeyDetector(windowSlices, sketchDepth, sketchWidth, sampleRate, threshold, topK);
+        localCache = new GuavaLocalCacheService<>(LocalGuavaCacheFactory.getBoundedLocalCache(topK, localExpireSeconds));
+        rotateExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-hot-key-rotate");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long sliceMillis = Math.max(1, TimeUnit.SECONDS.toMillis(windowSeconds) / windowSlices);
+        rotateExecutor.scheduleAtFixedRate(this::rotate, sliceMillis, sliceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        rotateExecutor.shutdownNow();
+    }
+
+    /**
+     * 读取缓存的原始字节，记录访问并在key为热点key时优先使用本地副本
+     *
+     * @param key    缓存key
+     * @param loader 从Redis读取原始字节的函数
+     * @return 原始字节
+     */
+    public byte[] get(String key, Function<String, byte[]> loader) {
+        if (!detector.record(key)) {
+            return loader.apply(key);
+        }
+        byte[] bytes = localCache.getIfPresent(key);
+        if (bytes != null) {
+            return bytes;
+        }
+        bytes = loader.apply(key);
+        if (bytes != null) {
+            localCache.put(key, bytes);
+        }
+        return bytes;
+    }
+
+    /**
+     * 删除本地副本，key在当前节点被写入或删除时调用
+     */
+    public void invalidate(String key) {
+        localCache.remove(key);
+    }
+
+    public boolean isHot(String key) {
+        return detector.isHot(key);
+    }
+
+    /**
+     * 当前的热点key，按访问次数从高到低排序，供运维查询
+     */
+    public List<HotKey> getHotKeys() {
+        return detector.getHotKeys();
+    }
+
+    private void rotate() {
+        try {
+            List<String> demoted = detector.rotate();
+            for (String key : demoted) {
+                localCache.remove(key);
+            }
+            if (!demoted.isEmpty()) {
+                logger.info("hot key demoted | {}", demoted);
+            }
+        } catch (Exception e) {
+            logger.error("rotate hot key window | {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package com.lb.im.common.cache.distribute.key;
+
+import cn.hutool.crypto.digest.MD5;
+import cn.hutool.json.JSONUtil;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 缓存key生成工具，业务标识为整数、浮点数、布尔值和普通字符串时直接拼接在前缀后面，不做任何JSON处理；
+ * 复杂类型的业务标识在默认的murmur3模式下按照规范的二进制格式编码后计算128位MurmurHash3，
+ * 编码缓冲区和拼接key的StringBuilder按线程复用；md5模式下与历史版本一致，转JSON后计算MD5。
+ * 两种模式下简单类型生成的key完全相同，只有复杂类型和JSON格式字符串的key不同。
+ * 开启了hash tag的key前缀，业务标识部分使用{}包裹，Redis Cluster下同一个业务标识在不同前缀下的key
+ * （例如群组信息和群成员列表）落在同一个slot，可以在一次MGET或同一个Lua脚本中访问。
+ */
+public final class CacheKeyBuilder {
+
+    /**
+     * 复杂类型业务标识的摘要方式
+     */
+    public enum Mode {
+        //规范二进制编码 + MurmurHash3 128位
+        MURMUR3,
+        //历史格式，JSON + MD5
+        MD5
+    }
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    //复杂对象的最大嵌套深度，防止循环引用
+    private static final int MAX_DEPTH = 32;
+
+    //按线程复用的StringBuilder的最大容量，超过后不再复用
+    private static final int MAX_REUSE_CAPACITY = 1024;
+
+    //编码类型标记
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_INTEGRAL = 1;
+    private static final byte TAG_DECIMAL = 2;
+    private static final byte TAG_BOOLEAN = 3;
+    private static final byte TAG_CHAR = 4;
+    private static final byte TAG_STRING = 5;
+    private static final byte TAG_ENUM = 6;
+    private static final byte TAG_TEXT = 7;
+    private static final byte TAG_DATE = 8;
+    private static final byte TAG_BYTES = 9;
+    private static final byte TAG_LIST = 10;
+    private static final byte TAG_SET = 11;
+    private static final byte TAG_MAP = 12;
+    private static final byte TAG_OBJECT = 13;
+
+    private static volatile Mode mode = Mode.MURMUR3;
+
+    //开启了hash tag的key前缀
+    private static final Set<String> HASH_TAG_PREFIXES = ConcurrentHashMap.newKeySet();
+
+    private static final ThreadLocal<StringBuilder> BUILDERS = ThreadLocal.withInitial(() -> new StringBuilder(64));
+
+    private static final ThreadLocal<KeyEncoder> ENCODERS = ThreadLocal.withInitial(KeyEncoder::new);
+
+    //按类型缓存参与编码的字段，按字段名排序
+    private static final ConcurrentMap<Class<?>, Field[]> FIELDS = new ConcurrentHashMap<>();
+
+    private CacheKeyBuilder() {
+    }
+
+    public static Mode getMode() {
+        return mode;
+    }
+
+    public static void setMode(Mode newMode) {
+        mode = Objects.requireNonNull(newMode);
+    }
+
+    /**
+     * key前缀开启hash tag，开启后该前缀下已有的缓存key会发生变化，需要在上线前开启或者等待旧key过期
+     *
+     * @param keyPrefix 缓存key前缀
+     */
+    public static void enableHashTag(String keyPrefix) {
+        if (keyPrefix == null || keyPrefix.isEmpty()) {
+            throw new IllegalArgumentException("key prefix must not be empty");
+        }
+        HASH_TAG_PREFIXES.add(keyPrefix);
+    }
+
+    public static void disableHashTag(String keyPrefix) {
+        HASH_TAG_PREFIXES.remove(keyPrefix);
+    }
+
+    public static boolean isHashTagEnabled(String keyPrefix) {
+        return !HASH_TAG_PREFIXES.isEmpty() && HASH_TAG_PREFIXES.contains(keyPrefix);
+    }
+
+    /**
+     * 生成缓存key
+     *
+     * @param keyPrefix 缓存key前缀
+     * @param id        业务标识，为空时直接返回前缀
+     * @return 缓存key
+     */
+    public static <ID> String build(String keyPrefix, ID id) {
+        if (id == null) {
+            return keyPrefix;
+        }
+        StringBuilder builder = BUILDERS.get();
+        builder.setLength(0);
+        builder.append(keyPrefix);
+        if (isHashTagEnabled(keyPrefix)) {
+            builder.append('{');
+            appendId(builder, id);
+            builder.append('}');
+        } else {
+            appendId(builder, id);
+        }
+        String key = builder.toString();
+        if (builder.capacity() > MAX_REUSE_CAPACITY) {
+            BUILDERS.remove();
+        }
+        return key;
+    }
+
+    /**
+     * 生成业务标识在缓存key中的部分，与{@link #build(String, Object)}中拼接在前缀后面的内容一致（不包含hash tag）
+     *
+     * @param id 业务标识
+     * @return 业务标识部分
+     */
+    public static <ID> String toKeyPart(ID id) {
+        return build("", id);
+    }
+
+    private static void appendId(StringBuilder builder, Object id) {
+        //整数类型直接拼接，不做任何字符串判断
+        if (id instanceof Long) {
+            builder.append(((Long) id).longValue());
+        } else if (id instanceof Integer || id instanceof Short || id instanceof Byte) {
+            builder.append(((Number) id).intValue());
+        } else if (id instanceof Double || id instanceof Float || id instanceof Boolean || id instanceof Character) {
+            builder.append(id);
+        } else if (id instanceof String && !isJsonLike((String) id)) {
+            builder.append((String) id);
+        } else if (mode == Mode.MD5) {
+            builder.append(MD5.create().digestHex(JSONUtil.toJsonStr(id)));
+        } else {
+            appendHash(builder, id);
+        }
+    }
+
+    /**
+     * 与JSONUtil.isJson的判断一致：去掉首尾空白后以{}或[]包裹，不分配新的字符串
+     */
+    private static boolean isJsonLike(String str) {
+        int start = 0;
+        int end = str.length() - 1;
+        while (start <= end && str.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && str.charAt(end) <= ' ') {
+            end--;
+        }
+        if (start >= end) {
+            return false;
+        }
+        char first = str.charAt(start);
+        char last = str.charAt(end);
+        return (first == '{' && last == '}') || (first == '[' && last == ']');
+    }
+
+    /**
+     * 按规范二进制格式编码后计算128位哈希，以32位十六进制拼接
+     */
+    private static void appendHash(StringBuilder builder, Object id) {
+        KeyEncoder encoder = ENCODERS.get();
+        encoder.reset();
+        encoder.writeValue(id, 0);
+        byte[] hash = HASH_FUNCTION.hashBytes(encoder.buffer, 0, encoder.position).asBytes();
+        if (encoder.buffer.length > MAX_REUSE_CAPACITY * 64) {
+            ENCODERS.remove();
+        }
+        for (byte b : hash) {
+            builder.append(HEX_DIGITS[(b >> 4) & 0x0F]).append(HEX_DIGITS[b & 0x0F]);
+        }
+    }
+
+    /**
+     * 参与编码的字段：包括父类字段，排除静态和transient字段，按字段名排序
+     */
+    private static Field[] getFields(Class<?> type) {
+        return FIELDS.computeIfAbsent(type, clazz -> {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> current = clazz; current != null && current != Object.class; current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+                        continue;
+                    }
+                    field.setAccessible(true);
+                    fields.add(field);
+                }
+            }
+            fields.sort(Comparator.comparing(Field::getName).thenComparing(field -> field.getDeclaringClass().getName()));
+            return fields.toArray(new Field[0]);
+        });
+    }
+
+    /**
+     * 规范二进制编码器，相同内容的业务标识编码结果相同：
+     * 所有整数类型统一按long编码，Set和Map的编码与迭代顺序无关，对象按字段名排序编码。
+     */
+    private static class KeyEncoder {
+
+        private byte[] buffer = new byte[256];
+
+        private int position;
+
+        private void reset() {
+            position = 0;
+        }
+
+        private void writeValue(Object value, int depth) {
+            if (depth > MAX_DEPTH) {
+                throw new IllegalArgumentException("cache key id nested too deep: " + value.getClass().getName());
+            }
+            if (value == null) {
+                this.writeByte(TAG_NULL);
+            } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                this.writeByte(TAG_INTEGRAL);
+                this.writeLong(((Number) value).longValue());
+            } else if (value instanceof Double || value instanceof Float) {
+                this.writeByte(TAG_DECIMAL);
+                this.writeLong(Double.doubleToLongBits(((Number) value).doubleValue()));
+            } else if (value instanceof Boolean) {
+                this.writeByte(TAG_BOOLEAN);
+                this.writeByte((Boolean) value ? (byte) 1 : (byte) 0);
+            } else if (value instanceof Character) {
+                this.writeByte(TAG_CHAR);
+                this.writeChar((Character) value);
+            } else if (value instanceof CharSequence) {
+                this.writeByte(TAG_STRING);
+                this.writeString((CharSequence) value);
+            } else if (value instanceof Enum) {
+                this.writeByte(TAG_ENUM);
+                this.writeString(((Enum<?>) value).name());
+            } else if (value instanceof Date) {
+                this.writeByte(TAG_DATE);
+                this.writeLong(((Date) value).getTime());
+            } else if (value instanceof byte[]) {
+                byte[] bytes = (byte[]) value;
+                this.writeByte(TAG_BYTES);
+                this.writeInt(bytes.length);
+                this.ensureCapacity(bytes.length);
+                System.arraycopy(bytes, 0, buffer, position, bytes.length);
+                position += bytes.length;
+            } else if (value instanceof Set) {
+                this.writeUnordered(TAG_SET, (Set<?>) value, depth);
+            } else if (value instanceof Map) {
+                this.writeUnordered(TAG_MAP, ((Map<?, ?>) value).entrySet(), depth);
+            } else if (value instanceof Collection) {
+                Collection<?> collection = (Collection<?>) value;
+                this.writeByte(TAG_LIST);
+                this.writeInt(collection.size());
+                for (Object element : collection) {
+                    this.writeValue(element, depth + 1);
+                }
+            } else if (value.getClass().isArray()) {
+                int length = Array.getLength(value);
+                this.writeByte(TAG_LIST);
+                this.writeInt(length);
+                for (int i = 0; i < length; i++) {
+                    this.writeValue(Array.get(value, i), depth + 1);
+                }
+            } else if (value instanceof Number || value.getClass().getName().startsWith("java.")) {
+                //BigDecimal、BigInteger、java.time等JDK类型使用字符串形式
+                this.writeByte(TAG_TEXT);
+                this.writeString(value.toString());
+            } else {
+                this.writeObject(value, depth);
+            }
+        }
+
+        /**
+         * 逐个计算元素编码的哈希后求和，与迭代顺序无关
+         */
+        private void writeUnordered(byte tag, Collection<?> elements, int depth) {
+            long sum = 0;
+            long xor = 0;
+            int start = position;
+            for (Object element : elements) {
+                if (element instanceof Map.Entry) {
+                    Map.Entry<?, ?> entry = (Map.Entry<?, ?>) element;
+                    this.writeValue(entry.getKey(), depth + 1);
+                    this.writeValue(entry.getValue(), depth + 1);
+                } else {
+                    this.writeValue(element, depth + 1);
+                }
+                long hash = HASH_FUNCTION.hashBytes(buffer, start, position - start).asLong();
+                sum += hash;
+                xor ^= hash;
+                position = start;
+            }
+            this.writeByte(tag);
+            this.writeInt(elements.size());
+            this.writeLong(sum);
+            this.writeLong(xor);
+        }
+
+        private void writeObject(Object value, int depth) {
+            Field[] fields = getFields(value.getClass());
+            this.writeByte(TAG_OBJECT);
+            this.writeString(value.getClass().getName());
+            this.writeInt(fields.length);
+            for (Field field : fields) {
+                this.writeString(field.getName());
+                try {
+                    this.writeValue(field.get(value), depth + 1);
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException("read cache key id field failed: " + field, e);
+                }
+            }
+        }
+
+        private void writeString(CharSequence str) {
+            int length = str.length();
+            this.writeInt(length);
+            this.ensureCapacity(length * 2);
+            for (int i = 0; i < length; i++) {
+                char c = str.charAt(i);
+                buffer[position++] = (byte) (c >>> 8);
+                buffer[position++] = (byte) c;
+            }
+        }
+
+        private void writeChar(char c) {
+            this.ensureCapacity(2);
+            buffer[position++] = (byte) (c >>> 8);
+            buffer[position++] = (byte) c;
+        }
+
+        private void writeInt(int value) {
+            this.ensureCapacity(4);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void writeLong(long value) {
+            this.ensureCapacity(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void writeByte(byte value) {
+            this.ensureCapacity(1);
+            buffer[position++] = value;
+        }
+
+        private void ensureCapacity(int length) {
+            if (position + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.lb.im.common.cache.distribute.memory;
+
+import java.util.regex.Pattern;
+
+/**
+ * 与Redis KEYS/SCAN相同的glob匹配模式：*匹配任意字符串，?匹配单个字符，[...]匹配字符集合（^开头表示取反），\转义
+ */
+public final class KeyPattern {
+
+    private final Pattern pattern;
+
+    private KeyPattern(Pattern pattern) {
+        this.pattern = pattern;
+    }
+
+    public static KeyPattern compile(String glob) {
+        StringBuilder regex = new StringBuilder(glob.length() + 8);
+        int i = 0;
+        while (i < glob.length()) {
+            char c = glob.charAt(i);
+            if (c == '*') {
+                regex.append(".*");
+            } else if (c == '?') {
+                regex.append('.');
+            } else if (c == '\\' && i + 1 < glob.length()) {
+                i++;
+                regex.append(Pattern.quote(String.valueOf(glob.charAt(i))));
+            } else if (c == '[' && glob.indexOf(']', i + 1) > i + 1) {
+                int end = glob.indexOf(']', i + 1);
+                regex.append('[');
+                int start = i + 1;
+                if (glob.charAt(start) == '^') {
+                    regex.append('^');
+                    start++;
+                }
+                for (int j = start; j < end; j++) {
+                    char member = glob.charAt(j);
+                    //保留范围符号，字母数字以外的字符转义
+                    if ((member == '-' && j > start && j < end - 1) || Character.isLetterOrDigit(member)) {
+                        regex.append(member);
+                    } else {
+                        regex.append('\\').append(member);
+                    }
+                }
+                regex.append(']');
+                i = end;
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+            i++;
+        }
+        return new KeyPattern(Pattern.compile(regex.toString(), Pattern.DOTALL));
+    }
+
+    public boolean matches(String key) {
+        return pattern.matcher(key).matches();
+    }
+}
@@ -0,0 +1,389 @@
+package com.lb.im.common.cache.distribute.memory;
+
+import com.google.common.cache.CacheBuilder;
+import com.lb.im.common.cache.distribute.data.RebuildLease;
+import com.lb.im.common.cache.distribute.data.VersionedData;
+import com.lb.im.common.cache.distribute.hash.HashFieldCodec;
+import com.lb.im.common.cache.distribute.store.CacheByteStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * 进程内的缓存字节存储，distribute.cache.type为memory时启用。
+ * 物理过期时间由分层时间轮定时清理，读取时也会检查过期时间，数据量超过maximum-size后按照最近最少使用淘汰。
+ * 时间轮中的任务只持有key和到期时间点，每个key同时只有一个有效的任务：覆盖写入时新的过期时间点不早于已有任务的时间点则沿用该任务，
+ * 任务到期时数据还未过期再按最新的过期时间点重新调度，频繁覆盖写入的key不会在时间轮中累积任务，也不会让旧数据在过期前无法回收；
+ * 租约、版本号比较和Hash字段更新在ConcurrentMap的原子操作中完成，与Redis实现中Lua脚本的语义一致
+ */
+@Component
+@ConditionalOnProperty(name = "distribute.cache.type", havingValue = "memory")
+public class MemoryCacheByteStore implements CacheByteStore {
+
+    private final Logger logger = LoggerFactory.getLogger(MemoryCacheByteStore.class);
+
+    //缓存的最大数量
+    @Value("${distribute.cache.memory.maximum-size:100000}")
+    private long maximumSize;
+
+    //时间轮每个tick的时长，单位毫秒
+    @Value("${distribute.cache.memory.tick-millis:100}")
+    private long tickMillis;
+
+    private ConcurrentMap<String, MemoryEntry> store;
+
+    private TimingWheel<ExpiryTimer> timingWheel;
+
+    private ScheduledExecutorService tickExecutor;
+
+    @PostConstruct
+    public void init() {
+        store = CacheBuilder.newBuilder().maximumSize(maximumSize).<String, MemoryEntry>build().asMap();
+        timingWheel = new TimingWheel<>(tickMillis, System.currentTimeMillis(), this::onTimer);
+        tickExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-memory-timing-wheel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        tickExecutor.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        tickExecutor.shutdownNow();
+    }
+
+    @Override
+    public byte[] get(String key) {
+        MemoryEntry entry = this.getEntry(key);
+        return entry == null || RebuildLease.isLease(entry.value) ? null : entry.value;
+    }
+
+    @Override
+    public byte[] getDirect(String key) {
+        return this.get(key);
+    }
+
+    @Override
+    public List<byte[]> multiGet(Collection<String> keys) {
+        List<byte[]> result = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            result.add(this.get(key));
+        }
+        return result;
+    }
+
+    @Override
+    public void set(String key, byte[] value, Long ttlMillis) {
+        this.putEntry(key, value, null, this.getExpireAt(ttlMillis));
+    }
+
+    @Override
+    public void setAll(Map<String, byte[]> values, Function<String, Long> ttlMillis) {
+        values.forEach((key, value) -> this.set(key, value, ttlMillis.apply(key)));
+    }
+
+    @Override
+    public boolean expire(String key, long ttlMillis) {
+        long expireAt = System.currentTimeMillis() + ttlMillis;
+        MemoryEntry[] updated = new MemoryEntry[1];
+        store.computeIfPresent(key, (k, current) -> {
+            if (!this.isLive(current)) {
+                return null;
+            }
+            updated[0] = this.newEntry(current.value, current.fields, expireAt, current);
+            return updated[0];
+        });
+        if (updated[0] == null) {
+            return false;
+        }
+        this.schedule(key, updated[0]);
+        return true;
+    }
+
+    @Override
+    public void expireAll(Map<String, Long> ttlMillis) {
+        ttlMillis.forEach(this::expire);
+    }
+
+    @Override
+    public boolean delete(String key) {
+        MemoryEntry entry = store.remove(key);
+        return entry != null && !entry.isExpired(System.currentTimeMillis());
+    }
+
+    @Override
+    public long deleteAll(List<String> keys) {
+        long count = 0;
+        for (String key : keys) {
+            if (this.delete(key)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 遍历当前key的快照，遍历期间写入的key可能不会返回，与SCAN的语义一致
+     */
+    @Override
+    public Stream<String> scan(String pattern, int batchSize) {
+        KeyPattern keyPattern = KeyPattern.compile(pattern);
+        return new ArrayList<>(store.keySet()).stream()
+                .filter(keyPattern::matches)
+                .filter(key -> this.getEntry(key) != null);
+    }
+
+    @Override
+    public byte[] getOrLease(String key, byte[] token, long ttlMillis) {
+        long expireAt = this.getExpireAt(ttlMillis);
+        MemoryEntry[] lease = new MemoryEntry[1];
+        MemoryEntry result = store.compute(key, (k, current) -> {
+            if (this.isLive(current)) {
+                return current;
+            }
+            lease[0] = this.newEntry(token, null, expireAt, current);
+            return lease[0];
+        });
+        if (result == lease[0]) {
+            this.schedule(key, result);
+            return token;
+        }
+        if (result.value == null) {
+            throw new IllegalStateException("cache key holds a hash: " + key);
+        }
+        return result.value;
+    }
+
+    @Override
+    public boolean setIfLeased(String key, byte[] token, byte[] value, long ttlMillis) {
+        long expireAt = this.getExpireAt(ttlMillis);
+        MemoryEntry[] updated = new MemoryEntry[1];
+        store.computeIfPresent(key, (k, current) -> {
+            if (!this.isLive(current) || !Arrays.equals(current.value, token)) {
+                return current;
+            }
+            updated[0] = this.newEntry(value, null, expireAt, current);
+            return updated[0];
+        });
+        if (updated[0] == null) {
+            return false;
+        }
+        this.schedule(key, updated[0]);
+        return true;
+    }
+
+    @Override
+    public void releaseLease(String key, byte[] token) {
+        store.computeIfPresent(key, (k, current) -> Arrays.equals(current.value, token) ? null : current);
+    }
+
+    @Override
+    public boolean setIfNewer(String key, long version, byte[] value, long ttlMillis) {
+        long expireAt = this.getExpireAt(ttlMillis);
+        MemoryEntry[] updated = new MemoryEntry[1];
+        store.compute(key, (k, current) -> {
+            if (this.isLive(current)) {
+                VersionedData currentData = VersionedData.parse(current.value);
+                if (currentData != null && currentData.getVersion() >= version) {
+                    return current;
+                }
+            }
+            updated[0] = this.newEntry(value, null, expireAt, current);
+            return updated[0];
+        });
+        if (updated[0] == null) {
+            return false;
+        }
+        this.schedule(key, updated[0]);
+        return true;
+    }
+
+    @Override
+    public Map<String, String> getHash(String key) {
+        MemoryEntry entry = this.getEntry(key);
+        return entry == null || entry.fields == null ? Collections.emptyMap() : entry.fields;
+    }
+
+    @Override
+    public List<String> getHashFields(String key, List<String> fields) {
+        Map<String, String> hash = this.getHash(key);
+        List<String> values = new ArrayList<>(fields.size());
+        for (String field : fields) {
+            values.add(hash.get(field));
+        }
+        return values;
+    }
+
+    @Override
+    public void setHash(String key, Map<String, String> fields, Long ttlMillis) {
+        if (fields.isEmpty()) {
+            store.remove(key);
+            return;
+        }
+        this.putEntry(key, null, Collections.unmodifiableMap(new LinkedHashMap<>(fields)), this.getExpireAt(ttlMillis));
+    }
+
+    @Override
+    public boolean updateHash(String key, String nullField, Map<String, String> setFields, List<String> deleteFields) {
+        while (true) {
+            MemoryEntry entry = this.getEntry(key);
+            //不存在、不是Hash结构或者缓存了空数据时不更新
+            if (entry == null || entry.fields == null || entry.fields.containsKey(nullField)) {
+                return false;
+            }
+            Map<String, String> merged = new LinkedHashMap<>(entry.fields);
+            merged.putAll(setFields);
+            if (!deleteFields.isEmpty()) {
+                merged.putIfAbsent(HashFieldCodec.EMPTY_FIELD, "");
+                deleteFields.forEach(merged::remove);
+            }
+            //删除全部字段时保留只包含占位字段的Hash
+            if (merged.isEmpty()) {
+                merged.put(HashFieldCodec.EMPTY_FIELD, "");
+            }
+            //过期时间不变，沿用已有的定时任务
+            MemoryEntry updated = this.newEntry(null, Collections.unmodifiableMap(merged), entry.expireAt, entry);
+            if (store.replace(key, entry, updated)) {
+                this.schedule(key, updated);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 当前缓存的数量，包括已经过期但还未被时间轮清理的数据
+     */
+    public long size() {
+        return store.size();
+    }
+
+    /**
+     * 推进时间轮，清理到期的数据
+     */
+    private void tick() {
+        try {
+            timingWheel.advance(System.currentTimeMillis());
+        } catch (Exception e) {
+            logger.error("memory cache timing wheel | {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 时间轮任务到期，只处理仍然由该任务负责的数据：已经过期时删除，过期时间被延后时按新的过期时间点重新调度
+     */
+    private void onTimer(ExpiryTimer timer) {
+        long now = System.currentTimeMillis();
+        MemoryEntry[] rescheduled = new MemoryEntry[1];
+        store.computeIfPresent(timer.key, (k, current) -> {
+            if (current.timerAt != timer.expireAt) {
+                return current;
+            }
+            if (current.isExpired(now)) {
+                return null;
+            }
+            rescheduled[0] = new MemoryEntry(current.value, current.fields, current.expireAt, current.expireAt, current.expireAt > 0);
+            return rescheduled[0];
+        });
+        if (rescheduled[0] != null) {
+            this.schedule(timer.key, rescheduled[0]);
+        }
+    }
+
+    /**
+     * 读取未过期的数据，已经过期但还未被时间轮清理的数据在这里删除
+     */
+    private MemoryEntry getEntry(String key) {
+        MemoryEntry entry = store.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(System.currentTimeMillis())) {
+            store.remove(key, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    private boolean isLive(MemoryEntry entry) {
+        return entry != null && !entry.isExpired(System.currentTimeMillis());
+    }
+
+    //过期时长为空或小于等于0时永不过期
+    private long getExpireAt(Long ttlMillis) {
+        return ttlMillis == null || ttlMillis <= 0 ? 0 : System.currentTimeMillis() + ttlMillis;
+    }
+
+    /**
+     * 覆盖写入数据，需要新的定时任务时加入时间轮
+     */
+    private void putEntry(String key, byte[] value, Map<String, String> fields, long expireAt) {
+        MemoryEntry entry = store.compute(key, (k, current) -> this.newEntry(value, fields, expireAt, current));
+        this.schedule(key, entry);
+    }
+
+    /**
+     * 创建替换current的数据，current的定时任务不晚于新的过期时间点时沿用该任务，否则需要新的定时任务
+     */
+    private MemoryEntry newEntry(byte[] value, Map<String, String> fields, long expireAt, MemoryEntry current) {
+        if (expireAt > 0 && current != null && current.timerAt > 0 && current.timerAt <= expireAt) {
+            return new MemoryEntry(value, fields, expireAt, current.timerAt, false);
+        }
+        return new MemoryEntry(value, fields, expireAt, expireAt, expireAt > 0);
+    }
+
+    private void schedule(String key, MemoryEntry entry) {
+        if (entry.newTimer) {
+            timingWheel.schedule(new ExpiryTimer(key, entry.timerAt), entry.timerAt);
+        }
+    }
+
+    /**
+     * 缓存的数据，value和fields只有一个不为空，分别对应字符串结构和Hash结构；expireAt为物理过期时间点，0表示永不过期；
+     * timerAt为负责清理该key的时间轮任务的到期时间点，0表示没有任务，newTimer表示写入后需要为其创建新的任务
+     */
+    private static class MemoryEntry {
+        private final byte[] value;
+        private final Map<String, String> fields;
+        private final long expireAt;
+        private final long timerAt;
+        private final boolean newTimer;
+
+        private MemoryEntry(byte[] value, Map<String, String> fields, long expireAt, long timerAt, boolean newTimer) {
+            this.value = value;
+            this.fields = fields;
+            this.expireAt = expireAt;
+            this.timerAt = timerAt;
+            this.newTimer = newTimer;
+        }
+
+        private boolean isExpired(long now) {
+            return expireAt > 0 && expireAt <= now;
+        }
+    }
+
+    /**
+     * 时间轮中的过期任务，只持有key和到期时间点，不引用数据本身，被覆盖、删除或淘汰的数据可以立即回收
+     */
+    private static class ExpiryTimer {
+        private final String key;
+        private final long expireAt;
+
+        private ExpiryTimer(String key, long expireAt) {
+            this.key = key;
+            this.expireAt = expireAt;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.lb.im.common.cache.distribute.memory;
+
+import com.lb.im.common.cache.distribute.AbstractDistributedCacheService;
+import com.lb.im.common.cache.lock.factory.DistributedLockFactory;
+import com.lb.im.common.cache.lock.local.LocalLockFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * 进程内的分布式缓存实现，distribute.cache.type为memory时启用，用于单节点部署和测试，不需要Redis。
+ * 数据读写通过{@link MemoryCacheByteStore}完成，各查询策略（包括重建租约和write-behind）与Redis实现共用同一套逻辑，
+ * 分布式锁替换为进程内的锁，布隆过滤器依赖Redis，不生效。
+ */
+@Component
+@ConditionalOnProperty(name = "distribute.cache.type", havingValue = "memory")
+public class MemoryDistributedCacheService extends AbstractDistributedCacheService {
+
+    //进程内的锁，不使用容器中的分布式锁
+    private final DistributedLockFactory lockFactory = new LocalLockFactory();
+
+    @Autowired
+    private MemoryCacheByteStore memoryCacheByteStore;
+
+    @Override
+    protected DistributedLockFactory getLockFactory() {
+        return lockFactory;
+    }
+
+    /**
+     * 当前缓存的数量，包括已经过期但还未被时间轮清理的数据
+     */
+    public long size() {
+        return memoryCacheByteStore.size();
+    }
+}
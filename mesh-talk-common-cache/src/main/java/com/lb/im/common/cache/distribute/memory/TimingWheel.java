@@ -0,0 +1,155 @@
+package com.lb.im.common.cache.distribute.memory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 分层时间轮，每层64个槽，第0层每个槽为一个tick，第n层每个槽覆盖64^n个tick，
+ * 6层可以覆盖64^6个tick，超出范围的任务放在最高层，到期时重新计算所在的层。
+ * 添加任务只写入无锁队列，由推进时间轮的单个线程放入槽中，推进到某层的槽时将其中的任务降级到低层，
+ * 推进到第0层的槽时执行到期回调。任务不支持取消，回调中需要自行判断任务是否仍然有效。
+ *
+ * @param <T> 任务类型
+ */
+public class TimingWheel<T> {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 6;
+
+    //每个tick的时长，单位毫秒
+    private final long tickMillis;
+
+    //到期回调
+    private final Consumer<T> expireHandler;
+
+    //等待放入槽中的任务
+    private final Queue<Timeout<T>> pending = new ConcurrentLinkedQueue<>();
+
+    //各层的槽，只在推进时间轮的线程中访问
+    private final List<List<Timeout<T>>> slots = new ArrayList<>(LEVELS * WHEEL_SIZE);
+
+    //时间轮中的任务数量，包括等待放入槽中的任务
+    private final AtomicInteger size = new AtomicInteger();
+
+    //当前推进到的tick
+    private long currentTick;
+
+    public TimingWheel(long tickMillis, long startMillis, Consumer<T> expireHandler) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive: " + tickMillis);
+        }
+        this.tickMillis = tickMillis;
+        this.expireHandler = expireHandler;
+        this.currentTick = startMillis / tickMillis;
+        for (int i = 0; i < LEVELS * WHEEL_SIZE; i++) {
+            slots.add(null);
+        }
+    }
+
+    /**
+     * 添加任务，可以在任意线程调用，到期时间点向上取整到tick
+     *
+     * @param task         任务
+     * @param expireMillis 到期时间点，单位毫秒
+     */
+    public void schedule(T task, long expireMillis) {
+        size.incrementAndGet();
+        pending.offer(new Timeout<>(task, (expireMillis + tickMillis - 1) / tickMillis));
+    }
+
+    /**
+     * 推进时间轮到指定时间点，执行所有到期任务的回调，只能由同一个线程调用
+     *
+     * @param nowMillis 当前时间点，单位毫秒
+     */
+    public void advance(long nowMillis) {
+        this.drainPending();
+        long targetTick = nowMillis / tickMillis;
+        while (currentTick < targetTick) {
+            currentTick++;
+            //先从高层向低层降级，再执行第0层当前槽中的任务
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (WHEEL_BITS * level)) - 1)) == 0) {
+                    this.cascade(level, (int) ((currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK));
+                }
+            }
+            List<Timeout<T>> expired = this.takeSlot(0, (int) (currentTick & WHEEL_MASK));
+            if (expired != null) {
+                expired.forEach(this::expire);
+            }
+        }
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    private void drainPending() {
+        Timeout<T> timeout;
+        while ((timeout = pending.poll()) != null) {
+            this.place(timeout);
+        }
+    }
+
+    private void cascade(int level, int slot) {
+        List<Timeout<T>> timeouts = this.takeSlot(level, slot);
+        if (timeouts != null) {
+            timeouts.forEach(this::place);
+        }
+    }
+
+    /**
+     * 按照剩余的tick数放入对应层的槽中，已经到期的任务直接执行回调
+     */
+    private void place(Timeout<T> timeout) {
+        long delta = timeout.expireTick - currentTick;
+        if (delta <= 0) {
+            this.expire(timeout);
+            return;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta < 1L << (WHEEL_BITS * (level + 1))) {
+                this.addToSlot(level, (int) ((timeout.expireTick >>> (WHEEL_BITS * level)) & WHEEL_MASK), timeout);
+                return;
+            }
+        }
+        //超出时间轮的范围，放在最高层最远的槽中，降级时重新计算
+        int topShift = WHEEL_BITS * (LEVELS - 1);
+        this.addToSlot(LEVELS - 1, (int) (((currentTick >>> topShift) + WHEEL_MASK) & WHEEL_MASK), timeout);
+    }
+
+    private void expire(Timeout<T> timeout) {
+        size.decrementAndGet();
+        expireHandler.accept(timeout.task);
+    }
+
+    private void addToSlot(int level, int slot, Timeout<T> timeout) {
+        int index = level * WHEEL_SIZE + slot;
+        List<Timeout<T>> timeouts = slots.get(index);
+        if (timeouts == null) {
+            timeouts = new ArrayList<>();
+            slots.set(index, timeouts);
+        }
+        timeouts.add(timeout);
+    }
+
+    private List<Timeout<T>> takeSlot(int level, int slot) {
+        return slots.set(level * WHEEL_SIZE + slot, null);
+    }
+
+    private static class Timeout<T> {
+        private final T task;
+        private final long expireTick;
+
+        private Timeout(T task, long expireTick) {
+            this.task = task;
+            this.expireTick = expireTick;
+        }
+    }
+}
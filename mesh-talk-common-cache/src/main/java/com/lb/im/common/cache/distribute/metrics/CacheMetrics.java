@@ -0,0 +1,84 @@
+package com.lb.im.common.cache.distribute.metrics;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * 缓存指标注册表，按缓存key前缀和查询策略保存{@link CacheStats}。
+ * 指标首次创建时通知监听器（例如注册到Micrometer），之后的查询只做一次Map查找和数组下标访问。
+ */
+@Component
+public class CacheMetrics {
+
+    private static final CacheStrategy[] STRATEGIES = CacheStrategy.values();
+
+    //key前缀到按策略下标保存的指标
+    private final ConcurrentMap<String, CacheStats[]> statsMap = new ConcurrentHashMap<>();
+
+    //指标创建的监听器
+    private final List<Consumer<CacheStats>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 获取key前缀和查询策略对应的指标
+     */
+    public CacheStats getStats(String keyPrefix, CacheStrategy strategy) {
+        CacheStats[] stats = statsMap.get(keyPrefix);
+        if (stats == null) {
+            stats = this.create(keyPrefix);
+        }
+        return stats[strategy.ordinal()];
+    }
+
+    /**
+     * 注册指标创建的监听器，已经创建的指标会立即回调
+     */
+    public synchronized void addListener(Consumer<CacheStats> listener) {
+        listeners.add(listener);
+        for (CacheStats[] stats : statsMap.values()) {
+            for (CacheStats stat : stats) {
+                listener.accept(stat);
+            }
+        }
+    }
+
+    /**
+     * 所有指标的快照，不依赖Micrometer
+     *
+     * @return 指标列表
+     */
+    public List<CacheStats> getSnapshot() {
+        List<CacheStats> result = new ArrayList<>();
+        for (CacheStats[] stats : statsMap.values()) {
+            for (CacheStats stat : stats) {
+                if (stat.getHits() + stat.getNullHits() + stat.getMisses() > 0) {
+                    result.add(stat);
+                }
+            }
+        }
+        return result;
+    }
+
+    private synchronized CacheStats[] create(String keyPrefix) {
+        CacheStats[] stats = statsMap.get(keyPrefix);
+        if (stats != null) {
+            return stats;
+        }
+        stats = new CacheStats[STRATEGIES.length];
+        for (CacheStrategy strategy : STRATEGIES) {
+            stats[strategy.ordinal()] = new CacheStats(keyPrefix, strategy);
+        }
+        statsMap.put(keyPrefix, stats);
+        for (CacheStats stat : stats) {
+            for (Consumer<CacheStats> listener : listeners) {
+                listener.accept(stat);
+            }
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,152 @@
+package com.lb.im.common.cache.distribute.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按缓存key前缀和查询策略统计的缓存指标，所有记录方法只累加计数器，不分配对象
+ */
+public class CacheStats {
+
+    //缓存key前缀
+    private final String keyPrefix;
+    //查询策略
+    private final CacheStrategy strategy;
+    //命中次数
+    private final LongAdder hits = new LongAdder();
+    //命中缓存的空数据次数
+    private final LongAdder nullHits = new LongAdder();
+    //未命中次数
+    private final LongAdder misses = new LongAdder();
+    //获取分布式锁失败次数
+    private final LongAdder lockFailures = new LongAdder();
+    //返回逻辑过期数据的次数
+    private final LongAdder staleServed = new LongAdder();
+    //数据库查询耗时
+    private final LatencyHistogram loadLatency = new LatencyHistogram();
+    //Redis读取耗时
+    private final LatencyHistogram redisLatency = new LatencyHistogram();
+
+    public CacheStats(String keyPrefix, CacheStrategy strategy) {
+        this.keyPrefix = keyPrefix;
+        this.strategy = strategy;
+    }
+
+    public void recordHit() {
+        hits.increment();
+    }
+
+    public void recordHits(int count) {
+        hits.add(count);
+    }
+
+    public void recordNullHit() {
+        nullHits.increment();
+    }
+
+    public void recordNullHits(int count) {
+        nullHits.add(count);
+    }
+
+    public void recordMiss() {
+        misses.increment();
+    }
+
+    public void recordMisses(int count) {
+        misses.add(count);
+    }
+
+    public void recordLockFailure() {
+        lockFailures.increment();
+    }
+
+    public void recordLockFailures(int count) {
+        lockFailures.add(count);
+    }
+
+    public void recordStaleServed() {
+        staleServed.increment();
+    }
+
+    public void recordStaleServed(int count) {
+        staleServed.add(count);
+    }
+
+    /**
+     * 记录一次数据库查询耗时
+     *
+     * @param startNanos 开始时间，System.nanoTime()
+     */
+    public void recordLoad(long startNanos) {
+        loadLatency.record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * 记录一次Redis读取耗时
+     *
+     * @param startNanos 开始时间，System.nanoTime()
+     */
+    public void recordRedis(long startNanos) {
+        redisLatency.record(System.nanoTime() - startNanos);
+    }
+
+    public String getKeyPrefix() {
+        return keyPrefix;
+    }
+
+    public CacheStrategy getStrategy() {
+        return strategy;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getNullHits() {
+        return nullHits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getLockFailures() {
+        return lockFailures.sum();
+    }
+
+    public long getStaleServed() {
+        return staleServed.sum();
+    }
+
+    public LatencyHistogram getLoadLatency() {
+        return loadLatency;
+    }
+
+    public LatencyHistogram getRedisLatency() {
+        return redisLatency;
+    }
+
+    /**
+     * 命中率，命中缓存的空数据也算作命中
+     */
+    public double getHitRatio() {
+        long hit = hits.sum() + nullHits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 0D : (double) hit / total;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{" +
+                "keyPrefix='" + keyPrefix + '\'' +
+                ", strategy=" + strategy.getTag() +
+                ", hits=" + getHits() +
+                ", nullHits=" + getNullHits() +
+                ", misses=" + getMisses() +
+                ", hitRatio=" + getHitRatio() +
+                ", lockFailures=" + getLockFailures() +
+                ", staleServed=" + getStaleServed() +
+                ", loadP99Millis=" + loadLatency.getPercentileMillis(0.99D) +
+                ", redisP99Millis=" + redisLatency.getPercentileMillis(0.99D) +
+                '}';
+    }
+}
@@ -0,0 +1,29 @@
+package com.lb.im.common.cache.distribute.metrics;
+
+/**
+ * 缓存查询策略，作为缓存指标的标签
+ */
+public enum CacheStrategy {
+
+    PASS_THROUGH("passThrough"),
+
+    MUTEX("mutex"),
+
+    LOGICAL_EXPIRE("logicalExpire"),
+
+    EARLY_EXPIRE("earlyExpire"),
+
+    HASH("hash"),
+
+    LEASE("lease");
+
+    private final String tag;
+
+    CacheStrategy(String tag) {
+        this.tag = tag;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+}
@@ -0,0 +1,97 @@
+package com.lb.im.common.cache.distribute.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 固定分桶的耗时直方图，桶的上界按1-2.5-5递增，从50微秒到10秒。
+ * 记录时只累加计数器，不分配对象，分位数根据桶的上界近似计算。
+ */
+public class LatencyHistogram {
+
+    //每个桶的上界，单位纳秒，最后一个桶没有上界
+    private static final long[] BOUNDS = {
+            50_000L, 100_000L, 250_000L, 500_000L,
+            1_000_000L, 2_500_000L, 5_000_000L, 10_000_000L, 25_000_000L, 50_000_000L,
+            100_000_000L, 250_000_000L, 500_000_000L,
+            1_000_000_000L, 2_500_000_000L, 5_000_000_000L, 10_000_000_000L
+    };
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 记录一次耗时
+     *
+     * @param nanos 耗时，单位纳秒
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        int index = 0;
+        while (index < BOUNDS.length && value > BOUNDS[index]) {
+            index++;
+        }
+        buckets[index].increment();
+        count.increment();
+        totalNanos.add(value);
+        if (value > maxNanos.get()) {
+            maxNanos.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * 平均耗时，单位毫秒
+     */
+    public double getMeanMillis() {
+        long total = count.sum();
+        return total == 0 ? 0D : (double) totalNanos.sum() / total / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * 近似分位数，返回分位数所在桶的上界，单位毫秒
+     *
+     * @param quantile 分位数，取值范围[0, 1]
+     */
+    public double getPercentileMillis(double quantile) {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0D;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long accumulated = 0;
+        for (int i = 0; i < counts.length; i++) {
+            accumulated += counts[i];
+            if (accumulated >= rank) {
+                long bound = i < BOUNDS.length ? BOUNDS[i] : maxNanos.get();
+                return (double) bound / TimeUnit.MILLISECONDS.toNanos(1);
+            }
+        }
+        return (double) maxNanos.get() / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,81 @@
+package com.lb.im.common.cache.distribute.metrics;
+
+import com.lb.im.common.cache.distribute.tracking.ClientSideCacheManager;
+import com.lb.im.common.cache.distribute.tracking.ClientSideCacheStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 存在Micrometer时把缓存指标注册到MeterRegistry，标签为prefix和strategy；开启客户端缓存时同时注册命中率和失效消息指标，标签为mode。
+ * 指标通过函数读取CacheStats中的计数器，记录路径上没有额外开销。
+ */
+@Component
+@ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+public class MicrometerCacheMetricsBinder implements SmartInitializingSingleton {
+
+    private static final String PREFIX = "im.cache.";
+
+    @Autowired
+    private CacheMetrics cacheMetrics;
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+    @Autowired
+    private ObjectProvider<ClientSideCacheManager> clientSideCacheManagerProvider;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        MeterRegistry registry = meterRegistryProvider.getIfAvailable();
+        if (registry != null) {
+            cacheMetrics.addListener(stats -> this.bind(registry, stats));
+            ClientSideCacheManager clientSideCacheManager = clientSideCacheManagerProvider.getIfAvailable();
+            if (clientSideCacheManager != null) {
+                this.bindClientSide(registry, clientSideCacheManager);
+            }
+        }
+    }
+
+    private void bind(MeterRegistry registry, CacheStats stats) {
+        Tags tags = Tags.of("prefix", stats.getKeyPrefix(), "strategy", stats.getStrategy().getTag());
+        FunctionCounter.builder(PREFIX + "requests", stats, CacheStats::getHits).tags(tags).tag("result", "hit").register(registry);
+        FunctionCounter.builder(PREFIX + "requests", stats, CacheStats::getNullHits).tags(tags).tag("result", "null_hit").register(registry);
+        FunctionCounter.builder(PREFIX + "requests", stats, CacheStats::getMisses).tags(tags).tag("result", "miss").register(registry);
+        FunctionCounter.builder(PREFIX + "lock.failures", stats, CacheStats::getLockFailures).tags(tags).register(registry);
+        FunctionCounter.builder(PREFIX + "stale.served", stats, CacheStats::getStaleServed).tags(tags).register(registry);
+        this.bindLatency(registry, PREFIX + "load", tags, stats.getLoadLatency());
+        this.bindLatency(registry, PREFIX + "redis", tags, stats.getRedisLatency());
+    }
+
+    private void bindClientSide(MeterRegistry registry, ClientSideCacheManager manager) {
+        ClientSideCacheStats stats = manager.getStats();
+        Tags tags = Tags.of("mode", manager.getMode());
+        String name = PREFIX + "client.side.";
+        FunctionCounter.builder(name + "requests", stats, ClientSideCacheStats::getHits).tags(tags).tag("result", "hit").register(registry);
+        FunctionCounter.builder(name + "requests", stats, ClientSideCacheStats::getMisses).tags(tags).tag("result", "miss").register(registry);
+        FunctionCounter.builder(name + "requests", stats, ClientSideCacheStats::getFallbacks).tags(tags).tag("result", "fallback").register(registry);
+        FunctionCounter.builder(name + "invalidations", stats, ClientSideCacheStats::getInvalidations).tags(tags).register(registry);
+        FunctionCounter.builder(name + "invalidated.keys", stats, ClientSideCacheStats::getInvalidatedKeys).tags(tags).register(registry);
+        FunctionCounter.builder(name + "flushes", stats, ClientSideCacheStats::getFlushes).tags(tags).register(registry);
+        FunctionCounter.builder(name + "rejected.puts", stats, ClientSideCacheStats::getRejectedPuts).tags(tags).register(registry);
+        Gauge.builder(name + "hit.rate", stats, ClientSideCacheStats::getHitRate).tags(tags).register(registry);
+        Gauge.builder(name + "size", manager, ClientSideCacheManager::size).tags(tags).register(registry);
+    }
+
+    private void bindLatency(MeterRegistry registry, String name, Tags tags, LatencyHistogram histogram) {
+        FunctionTimer.builder(name, histogram, LatencyHistogram::getCount, LatencyHistogram::getTotalNanos, TimeUnit.NANOSECONDS)
+                .tags(tags).register(registry);
+        Gauge.builder(name + ".max", histogram, h -> h.getMaxNanos() / 1_000_000D).tags(tags).baseUnit("milliseconds").register(registry);
+        Gauge.builder(name + ".p99", histogram, h -> h.getPercentileMillis(0.99D)).tags(tags).baseUnit("milliseconds").register(registry);
+    }
+}
@@ -0,0 +1,66 @@
+package com.lb.im.common.cache.distribute.near;
+
+import java.util.List;
+
+/**
+ * 近端缓存失效消息，通过Redis发布订阅广播到所有节点，通知各节点删除本地一级缓存。
+ * 单个key的失效使用key，批量写入和延迟写入刷新时一批key合并为一条消息，使用keys。
+ */
+public class NearCacheInvalidation {
+
+    //发布消息的节点标识
+    private String nodeId;
+    //失效的缓存key
+    private String key;
+    //批量失效的缓存key
+    private List<String> keys;
+    //消息发布的时间戳，单位毫秒，用于统计失效延迟
+    private long timestamp;
+
+    public NearCacheInvalidation() {
+    }
+
+    public NearCacheInvalidation(String nodeId, String key, long timestamp) {
+        this.nodeId = nodeId;
+        this.key = key;
+        this.timestamp = timestamp;
+    }
+
+    public NearCacheInvalidation(String nodeId, List<String> keys, long timestamp) {
+        this.nodeId = nodeId;
+        this.keys = keys;
+        this.timestamp = timestamp;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public List<String> getKeys() {
+        return keys;
+    }
+
+    public void setKeys(List<String> keys) {
+        this.keys = keys;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+}
@@ -0,0 +1,97 @@
+package com.lb.im.common.cache.distribute.near;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按缓存key前缀统计的近端缓存指标，包括一级缓存命中率和跨节点失效延迟
+ */
+public class NearCacheStats {
+
+    //缓存key前缀
+    private final String keyPrefix;
+    //一级缓存命中次数
+    private final LongAdder hits = new LongAdder();
+    //一级缓存未命中次数
+    private final LongAdder misses = new LongAdder();
+    //收到的其他节点失效消息数
+    private final LongAdder invalidations = new LongAdder();
+    //失效延迟累计值，单位毫秒
+    private final LongAdder invalidationLagMillis = new LongAdder();
+    //最大失效延迟，单位毫秒
+    private final AtomicLong maxInvalidationLagMillis = new AtomicLong();
+
+    public NearCacheStats(String keyPrefix) {
+        this.keyPrefix = keyPrefix;
+    }
+
+    public void recordHit() {
+        hits.increment();
+    }
+
+    public void recordMiss() {
+        misses.increment();
+    }
+
+    /**
+     * 记录一次来自其他节点的失效消息
+     *
+     * @param lagMillis 消息从发布到本节点处理完成的延迟，单位毫秒
+     */
+    public void recordInvalidation(long lagMillis) {
+        long lag = Math.max(lagMillis, 0);
+        invalidations.increment();
+        invalidationLagMillis.add(lag);
+        maxInvalidationLagMillis.accumulateAndGet(lag, Math::max);
+    }
+
+    public String getKeyPrefix() {
+        return keyPrefix;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    public long getMaxInvalidationLagMillis() {
+        return maxInvalidationLagMillis.get();
+    }
+
+    /**
+     * 一级缓存命中率
+     */
+    public double getHitRatio() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 0D : (double) hit / total;
+    }
+
+    /**
+     * 平均失效延迟，单位毫秒
+     */
+    public double getAvgInvalidationLagMillis() {
+        long count = invalidations.sum();
+        return count == 0 ? 0D : (double) invalidationLagMillis.sum() / count;
+    }
+
+    @Override
+    public String toString() {
+        return "NearCacheStats{" +
+                "keyPrefix='" + keyPrefix + '\'' +
+                ", hits=" + getHits() +
+                ", misses=" + getMisses() +
+                ", hitRatio=" + getHitRatio() +
+                ", invalidations=" + getInvalidations() +
+                ", avgInvalidationLagMillis=" + getAvgInvalidationLagMillis() +
+                ", maxInvalidationLagMillis=" + getMaxInvalidationLagMillis() +
+                '}';
+    }
+}
@@ -0,0 +1,683 @@
+package com.lb.im.common.cache.distribute.near;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import com.lb.im.common.cache.distribute.AbstractDistributedCacheService;
+import com.lb.im.common.cache.distribute.DistributedCacheService;
+import com.lb.im.common.cache.distribute.codec.CacheCodec;
+import com.lb.im.common.cache.distribute.codec.CacheCodecRegistry;
+import com.lb.im.common.cache.distribute.metrics.CacheMetrics;
+import com.lb.im.common.cache.local.LocalCacheService;
+import com.lb.im.common.cache.local.factory.LocalGuavaCacheFactory;
+import com.lb.im.common.cache.local.impl.GuavaLocalCacheService;
+import com.lb.im.common.cache.model.IMBusinessCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * 两级近端缓存，在二级缓存（distribute.cache.type指定的实现）前增加有界的进程内一级缓存。
+ * 写入和删除操作会通过Redis发布订阅广播失效消息，保证各节点一级缓存的一致性，
+ * 一级缓存的过期时间是跨节点数据不一致的时间上限。
+ * 一级缓存保存编码后的字节，每次读取时解码出新的对象，调用方修改返回的对象不会影响其他线程读取到的数据；
+ * 同一个key通过get和queryWith*按不同类型读取时分别视为未命中，不会返回其他类型的数据。
+ * 指标按缓存key前缀统计，get、multiGet和失效消息只有完整的key，按{@link CacheMetrics}中登记的前缀做最长匹配，
+ * 不属于任何已知前缀的key统一归入空前缀，指标数量不随key增长。
+ */
+@Primary
+@Component
+@ConditionalOnProperty(name = "distribute.cache.near.enabled", havingValue = "true")
+public class NearDistributedCacheService implements DistributedCacheService, MessageListener {
+
+    private final Logger logger = LoggerFactory.getLogger(NearDistributedCacheService.class);
+
+    //失效序号的分段数量，加载数据期间同一分段的key发生失效时不回填一级缓存
+    private static final int SEQUENCE_STRIPES = 1024;
+
+    //get和multiGet读取的字符串视图
+    private static final String STRING_VIEW = "string";
+
+    //当前节点标识，用于忽略自己发布的失效消息
+    private final String nodeId = IdUtil.fastSimpleUUID();
+
+    //按key前缀统计的指标
+    private final ConcurrentMap<String, NearCacheStats> statsMap = new ConcurrentHashMap<>();
+
+    //已知的key前缀，按长度从长到短排列，用于最长前缀匹配
+    private volatile String[] prefixes = new String[0];
+
+    //按key分段的失效序号，加载数据期间发生失效时不回填一级缓存，避免写入旧数据
+    private final AtomicLongArray sequences = new AtomicLongArray(SEQUENCE_STRIPES);
+
+    @Value("${distribute.cache.near.maximum-size:10000}")
+    private long maximumSize;
+
+    @Value("${distribute.cache.near.expire-seconds:30}")
+    private long expireSeconds;
+
+    @Value("${distribute.cache.near.channel:im:cache:near:invalidate}")
+    private String channel;
+
+    //二级缓存，distribute.cache.type为redis或memory时分别对应Redis和进程内实现
+    @Autowired
+    private AbstractDistributedCacheService distributedCacheService;
+
+    @Autowired
+    private CacheCodecRegistry cacheCodecRegistry;
+
+    @Autowired
+    private CacheMetrics cacheMetrics;
+
+    @Autowired
+    @Qualifier("stringRedisTemplate")
+    private StringRedisTemplate redisTemplate;
+
+    private LocalCacheService<String, NearEntry> localCache;
+
+    @PostConstruct
+    public void init() {
+        localCache = new GuavaLocalCacheService<>(LocalGuavaCacheFactory.getBoundedLocalCache(maximumSize, expireSeconds));
+        //逻辑过期数据在后台重建后广播失效消息，否则其他节点的一级缓存在过期前一直返回重建前的数据
+        distributedCacheService.addRebuildListener(this::invalidate);
+        //延迟写入按刷新的批次广播失效消息，当前节点的一级缓存在写入时已经删除
+        distributedCacheService.addBehindListener(this::publishInvalidation);
+        //查询方法首次使用某个keyPrefix时登记该前缀
+        cacheMetrics.addListener(stats -> this.registerPrefix(stats.getKeyPrefix()));
+    }
+
+    @Override
+    public void set(String key, Object value) {
+        distributedCacheService.set(key, value);
+        this.invalidate(key);
+    }
+
+    @Override
+    public void set(String key, Object value, Long timeout, TimeUnit unit) {
+        distributedCacheService.set(key, value, timeout, unit);
+        this.invalidate(key);
+    }
+
+    @Override
+    public Boolean expire(String key, long timeout, TimeUnit unit) {
+        Boolean result = distributedCacheService.expire(key, timeout, unit);
+        this.invalidate(key);
+        return result;
+    }
+
+    /**
+     * 批量写入不逐个key广播失效消息，整批key合并为一条失效消息
+     */
+    @Override
+    public void multiSet(Map<String, ?> values, Long timeout, TimeUnit unit) {
+        distributedCacheService.multiSet(values, timeout, unit);
+        this.invalidateAll(values.keySet());
+    }
+
+    @Override
+    public void multiSetWithLogicalExpire(Map<String, ?> values, Long timeout, TimeUnit unit) {
+        distributedCacheService.multiSetWithLogicalExpire(values, timeout, unit);
+        this.invalidateAll(values.keySet());
+    }
+
+    /**
+     * 延迟写入只删除当前节点的一级缓存，写入缓存后按刷新的批次合并为一条失效消息通知其他节点
+     */
+    @Override
+    public void setBehind(String key, Object value, Long timeout, TimeUnit unit) {
+        distributedCacheService.setBehind(key, value, timeout, unit);
+        this.invalidateLocal(key);
+    }
+
+    @Override
+    public void expireBehind(String key, long timeout, TimeUnit unit) {
+        distributedCacheService.expireBehind(key, timeout, unit);
+        this.invalidateLocal(key);
+    }
+
+    @Override
+    public int flush() {
+        return distributedCacheService.flush();
+    }
+
+    @Override
+    public void setWithLogicalExpire(String key, Object value, Long timeout, TimeUnit unit) {
+        distributedCacheService.setWithLogicalExpire(key, value, timeout, unit);
+        this.invalidate(key);
+    }
+
+    @Override
+    public String get(String key) {
+        return this.getOrLoad(this.resolvePrefix(key), key, STRING_VIEW, bytes -> new String(bytes, StandardCharsets.UTF_8),
+                value -> value.getBytes(StandardCharsets.UTF_8), () -> distributedCacheService.get(key), false);
+    }
+
+    @Override
+    public <T> T getObject(String key, Class<T> targetClass) {
+        String result = this.get(key);
+        if (result == null) {
+            return null;
+        }
+        try {
+            return JSONUtil.toBean(result, targetClass);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    @Override
+    public List<String> multiGet(Collection<String> keys) {
+        List<String> keyList = new ArrayList<>(keys);
+        List<String> result = new ArrayList<>(keyList.size());
+        List<String> missKeys = new ArrayList<>();
+        List<Integer> missIndexes = new ArrayList<>();
+        for (int i = 0; i < keyList.size(); i++) {
+            String key = keyList.get(i);
+            NearEntry entry = this.getEntry(key, STRING_VIEW);
+            NearCacheStats stats = this.getStats(this.resolvePrefix(key));
+            if (entry != null && entry.bytes != null) {
+                stats.recordHit();
+                result.add(new String(entry.bytes, StandardCharsets.UTF_8));
+            } else {
+                stats.recordMiss();
+                result.add(null);
+                missKeys.add(key);
+                missIndexes.add(i);
+            }
+        }
+        if (missKeys.isEmpty()) {
+            return result;
+        }
+        long[] startSequences = this.getSequences(missKeys);
+        List<String> values = distributedCacheService.multiGet(missKeys);
+        for (int i = 0; i < missKeys.size(); i++) {
+            String value = values == null ? null : values.get(i);
+            result.set(missIndexes.get(i), value);
+            if (value != null && startSequences[i] == this.getSequence(missKeys.get(i))) {
+                localCache.put(missKeys.get(i), new NearEntry(STRING_VIEW, value.getBytes(StandardCharsets.UTF_8)));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Set<String> keys(String pattern) {
+        return distributedCacheService.keys(pattern);
+    }
+
+    @Override
+    public Stream<String> scan(String pattern, int batchSize) {
+        return distributedCacheService.scan(pattern, batchSize);
+    }
+
+    @Override
+    public long deleteByPattern(String pattern, int batchSize) {
+        return distributedCacheService.deleteByPattern(pattern, batchSize, this::invalidateAll);
+    }
+
+    @Override
+    public Boolean delete(String key) {
+        Boolean result = distributedCacheService.delete(key);
+        if (StrUtil.isNotEmpty(key)) {
+            this.invalidate(key);
+        }
+        return result;
+    }
+
+    @Override
+    public <R, ID> R queryWithPassThrough(String keyPrefix, ID id, Class<R> type, Function<ID, R> dbFallback, Long timeout, TimeUnit unit) {
+        return this.getOrLoadObject(keyPrefix, this.getKey(keyPrefix, id), type,
+                () -> distributedCacheService.queryWithPassThrough(keyPrefix, id, type, dbFallback, timeout, unit));
+    }
+
+    @Override
+    public <R> R queryWithPassThroughWithoutArgs(String keyPrefix, Class<R> type, Supplier<R> dbFallback, Long timeout, TimeUnit unit) {
+        return this.getOrLoadObject(keyPrefix, this.getKey(keyPrefix), type,
+                () -> distributedCacheService.queryWithPassThroughWithoutArgs(keyPrefix, type, dbFallback, timeout, unit));
+    }
+
+    @Override
+    public <R, ID> List<R> queryWithPassThroughList(String keyPrefix, ID id, Class<R> type, Function<ID, List<R>> dbFallback, Long timeout, TimeUnit unit) {
+        return this.getOrLoadList(keyPrefix, this.getKey(keyPrefix, id), type,
+                () -> distributedCacheService.queryWithPassThroughList(keyPrefix, id, type, dbFallback, timeout, unit));
+    }
+
+    @Override
+    public <R> List<R> queryWithPassThroughListWithoutArgs(String keyPrefix, Class<R> type, Supplier<List<R>> dbFallback, Long timeout, TimeUnit unit) {
+        return this.getOrLoadList(keyPrefix, this.getKey(keyPrefix), type,
+                () -> distributedCacheService.queryWithPassThroughListWithoutArgs(keyPrefix, type, dbFallback, timeout, unit));
+    }
+
+    @Override
+    public <R, ID> R queryWithLogicalExpire(String keyPrefix, ID id, Class<R> type, Function<ID, R> dbFallback, Long timeout, TimeUnit unit) {
+        return this.getOrLoadObject(keyPrefix, this.getKey(keyPrefix, id), type,
+                () -> distributedCacheService.queryWithLogicalExpire(keyPrefix, id, type, dbFallback, timeout, unit));
+    }
+
+    @Override
+    public <R> R queryWithLogicalExpireWithoutArgs(String keyPrefix, Class<R> type, Supplier<R> dbFallback, Long timeout, TimeUnit unit) {
+        return this.getOrLoadObject(keyPrefix, this.getKey(keyPrefix), type,
+                () -> distributedCacheService.queryWithLogicalExpireWithoutArgs(keyPrefix, type, dbFallback, timeout, unit));
+    }
+
+    @Override
+    public <R, ID> List<R> queryWithLogicalExpireList(String keyPrefix, ID id, Class<R> type, Function<ID, List<R>> dbFallback, Long timeout, TimeUnit unit) {
+        return this.getOrLoadList(keyPrefix, this.getKey(keyPrefix, id), type,
+                () -> distributedCacheService.queryWithLogicalExpireList(keyPrefix, id, type, dbFallback, timeout, unit));
+    }
+
+    @Override
+    public <R> List<R> queryWithLogicalExpireListWithoutArgs(String keyPrefix, Class<R> type, Supplier<List<R>> dbFallback, Long timeout, TimeUnit unit) {
+        return this.getOrLoadList(keyPrefix, this.getKey(keyPrefix), type,
+                () -> distributedCacheService.queryWithLogicalExpireListWithoutArgs(keyPrefix, type, dbFallback, timeout, unit));
+    }
+
+    @Override
+    public <R, ID> R queryWithMutex(String keyPrefix, ID id, Class<R> type, Function<ID, R> dbFallback, Long timeout, TimeUnit unit) {
+        return this.getOrLoadObject(keyPrefix, this.getKey(keyPrefix, id), type,
+                () -> distributedCacheService.queryWithMutex(keyPrefix, id, type, dbFallback, timeout, unit));
+    }
+
+    @Override
+    public <R> R queryWithMutexWithoutArgs(String keyPrefix, Class<R> type, Supplier<R> dbFallback, Long timeout, TimeUnit unit) {
+        return this.getOrLoadObject(keyPrefix, this.getKey(keyPrefix), type,
+                () -> distributedCacheService.queryWithMutexWithoutArgs(keyPrefix, type, dbFallback, timeout, unit));
+    }
+
+    @Override
+    public <R, ID> List<R> queryWithMutexList(String keyPrefix, ID id, Class<R> type, Function<ID, List<R>> dbFallback, Long timeout, TimeUnit unit) {
+        return this.getOrLoadList(keyPrefix, this.getKey(keyPrefix, id), type,
+                () -> distributedCacheService.queryWithMutexList(keyPrefix, id, type, dbFallback, timeout, unit));
+    }
+
+    @Override
+    public <R> List<R> queryWithMutexListWithoutArgs(String keyPrefix, Class<R> type, Supplier<List<R>> dbFallback, Long timeout, TimeUnit unit) {
+        return this.getOrLoadList(keyPrefix, this.getKey(keyPrefix), type,
+                () -> distributedCacheService.queryWithMutexListWithoutArgs(keyPrefix, type, dbFallback, timeout, unit));
+    }
+
+    @Override
+    public <R, ID> R queryWithLease(String keyPrefix, ID id, Class<R> type, Function<ID, R> dbFallback, Long timeout, TimeUnit unit) {
+        return this.getOrLoadObject(keyPrefix, this.getKey(keyPrefix, id), type,
+                () -> distributedCacheService.queryWithLease(keyPrefix, id, type, dbFallback, timeout, unit));
+    }
+
+    @Override
+    public <R, ID> List<R> queryWithLeaseList(String keyPrefix, ID id, Class<R> type, Function<ID, List<R>> dbFallback, Long timeout, TimeUnit unit) {
+        return this.getOrLoadList(keyPrefix, this.getKey(keyPrefix, id), type,
+                () -> distributedCacheService.queryWithLeaseList(keyPrefix, id, type, dbFallback, timeout, unit));
+    }
+
+    @Override
+    public <R, ID> R queryWithEarlyExpire(String keyPrefix, ID id, Class<R> type, Function<ID, R> dbFallback, Long timeout, TimeUnit unit) {
+        return this.getOrLoadObject(keyPrefix, this.getKey(keyPrefix, id), type,
+                () -> distributedCacheService.queryWithEarlyExpire(keyPrefix, id, type, dbFallback, timeout, unit));
+    }
+
+    @Override
+    public <R> R queryWithEarlyExpireWithoutArgs(String keyPrefix, Class<R> type, Supplier<R> dbFallback, Long timeout, TimeUnit unit) {
+        return this.getOrLoadObject(keyPrefix, this.getKey(keyPrefix), type,
+                () -> distributedCacheService.queryWithEarlyExpireWithoutArgs(keyPrefix, type, dbFallback, timeout, unit));
+    }
+
+    @Override
+    public <R, ID> List<R> queryWithEarlyExpireList(String keyPrefix, ID id, Class<R> type, Function<ID, List<R>> dbFallback, Long timeout, TimeUnit unit) {
+        return this.getOrLoadList(keyPrefix, this.getKey(keyPrefix, id), type,
+                () -> distributedCacheService.queryWithEarlyExpireList(keyPrefix, id, type, dbFallback, timeout, unit));
+    }
+
+    @Override
+    public <R> List<R> queryWithEarlyExpireListWithoutArgs(String keyPrefix, Class<R> type, Supplier<List<R>> dbFallback, Long timeout, TimeUnit unit) {
+        return this.getOrLoadList(keyPrefix, this.getKey(keyPrefix), type,
+                () -> distributedCacheService.queryWithEarlyExpireListWithoutArgs(keyPrefix, type, dbFallback, timeout, unit));
+    }
+
+    @Override
+    public <R, ID> Map<ID, R> queryWithPassThroughBatch(String keyPrefix, Collection<ID> ids, Class<R> type, Function<Collection<ID>, Map<ID, R>> dbFallback, Long timeout, TimeUnit unit) {
+        return this.getOrLoadBatch(keyPrefix, ids, type,
+                missIds -> distributedCacheService.queryWithPassThroughBatch(keyPrefix, missIds, type, dbFallback, timeout, unit));
+    }
+
+    @Override
+    public <R, ID> Map<ID, R> queryWithMutexBatch(String keyPrefix, Collection<ID> ids, Class<R> type, Function<Collection<ID>, Map<ID, R>> dbFallback, Long timeout, TimeUnit unit) {
+        return this.getOrLoadBatch(keyPrefix, ids, type,
+                missIds -> distributedCacheService.queryWithMutexBatch(keyPrefix, missIds, type, dbFallback, timeout, unit));
+    }
+
+    @Override
+    public <R, ID> Map<ID, R> queryWithLogicalExpireBatch(String keyPrefix, Collection<ID> ids, Class<R> type, Function<Collection<ID>, Map<ID, R>> dbFallback, Long timeout, TimeUnit unit) {
+        return this.getOrLoadBatch(keyPrefix, ids, type,
+                missIds -> distributedCacheService.queryWithLogicalExpireBatch(keyPrefix, missIds, type, dbFallback, timeout, unit));
+    }
+
+    @Override
+    public boolean setIfNewer(String key, Object value, long version, Long timeout, TimeUnit unit) {
+        boolean written = distributedCacheService.setIfNewer(key, value, version, timeout, unit);
+        if (written) {
+            this.invalidate(key);
+        }
+        return written;
+    }
+
+    @Override
+    public <T> IMBusinessCache<T> getVersioned(String key, Class<T> type) {
+        return distributedCacheService.getVersioned(key, type);
+    }
+
+    /**
+     * Hash结构缓存按字段读写，本地一级缓存无法按字段失效，直接读写Redis
+     */
+    @Override
+    public void setHash(String key, Object value, Long timeout, TimeUnit unit) {
+        distributedCacheService.setHash(key, value, timeout, unit);
+    }
+
+    @Override
+    public <T> T getHash(String key, Class<T> type) {
+        return distributedCacheService.getHash(key, type);
+    }
+
+    @Override
+    public Map<String, String> getFields(String key, String... fields) {
+        return distributedCacheService.getFields(key, fields);
+    }
+
+    @Override
+    public <T> T getFields(String key, Class<T> type, String... fields) {
+        return distributedCacheService.getFields(key, type, fields);
+    }
+
+    @Override
+    public Boolean updateFields(String key, Map<String, ?> fields) {
+        return distributedCacheService.updateFields(key, fields);
+    }
+
+    @Override
+    public <R, ID> R queryWithHash(String keyPrefix, ID id, Class<R> type, Function<ID, R> dbFallback, Long timeout, TimeUnit unit) {
+        return distributedCacheService.queryWithHash(keyPrefix, id, type, dbFallback, timeout, unit);
+    }
+
+    /**
+     * 处理其他节点发布的失效消息，删除本地一级缓存
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            NearCacheInvalidation invalidation = JSONUtil.toBean(new String(message.getBody(), StandardCharsets.UTF_8), NearCacheInvalidation.class);
+            if (invalidation == null || nodeId.equals(invalidation.getNodeId())) {
+                return;
+            }
+            List<String> keys = invalidation.getKeys() != null ? invalidation.getKeys()
+                    : StrUtil.isEmpty(invalidation.getKey()) ? Collections.emptyList() : Collections.singletonList(invalidation.getKey());
+            long latencyMillis = System.currentTimeMillis() - invalidation.getTimestamp();
+            for (String key : keys) {
+                this.invalidateLocal(key);
+                this.getStats(this.resolvePrefix(key)).recordInvalidation(latencyMillis);
+            }
+        } catch (Exception e) {
+            logger.error("near cache invalidation message | {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 获取按key前缀统计的近端缓存指标
+     *
+     * @return key前缀到指标的映射
+     */
+    public Map<String, NearCacheStats> getStatistics() {
+        return Collections.unmodifiableMap(statsMap);
+    }
+
+    /**
+     * 获取失效消息的发布订阅通道
+     */
+    public String getChannel() {
+        return channel;
+    }
+
+    private <R> R getOrLoadObject(String keyPrefix, String key, Class<R> type, Supplier<R> loader) {
+        CacheCodec codec = cacheCodecRegistry.getWriteCodec();
+        return this.getOrLoad(keyPrefix, key, type.getName(), bytes -> codec.decode(bytes, type), codec::encode, loader, true);
+    }
+
+    private <R> List<R> getOrLoadList(String keyPrefix, String key, Class<R> type, Supplier<List<R>> loader) {
+        CacheCodec codec = cacheCodecRegistry.getWriteCodec();
+        return this.getOrLoad(keyPrefix, key, "list:" + type.getName(), bytes -> codec.decodeList(bytes, type), codec::encode, loader, true);
+    }
+
+    /**
+     * 先查询一级缓存，未命中时从二级缓存加载并回填一级缓存，一级缓存保存编码后的字节，每次命中时解码出新的对象
+     *
+     * @param view 读取的类型，与回填时的类型不同时视为未命中
+     */
+    private <T> T getOrLoad(String keyPrefix, String key, String view, Function<byte[], T> decoder, Function<T, byte[]> encoder, Supplier<T> loader, boolean cacheNull) {
+        NearCacheStats stats = this.getStats(keyPrefix);
+        NearEntry entry = this.getEntry(key, view);
+        if (entry != null) {
+            if (entry.bytes == null) {
+                stats.recordHit();
+                return null;
+            }
+            T value = this.decodeQuietly(key, entry.bytes, decoder);
+            if (value != null) {
+                stats.recordHit();
+                return value;
+            }
+        }
+        stats.recordMiss();
+        long sequence = this.getSequence(key);
+        T result = loader.get();
+        //加载期间同一分段发生过失效，不回填一级缓存
+        if (sequence != this.getSequence(key)) {
+            return result;
+        }
+        if (result != null) {
+            localCache.put(key, new NearEntry(view, encoder.apply(result)));
+        } else if (cacheNull) {
+            localCache.put(key, new NearEntry(view, null));
+        }
+        return result;
+    }
+
+    /**
+     * 批量查询一级缓存，未命中的业务标识一次性从二级缓存批量加载并回填一级缓存
+     */
+    private <R, ID> Map<ID, R> getOrLoadBatch(String keyPrefix, Collection<ID> ids, Class<R> type, Function<Collection<ID>, Map<ID, R>> loader) {
+        Map<ID, R> result = new LinkedHashMap<>();
+        if (ids == null || ids.isEmpty()) {
+            return result;
+        }
+        NearCacheStats stats = this.getStats(keyPrefix);
+        CacheCodec codec = cacheCodecRegistry.getWriteCodec();
+        String view = type.getName();
+        Map<ID, String> missKeys = new LinkedHashMap<>();
+        for (ID id : ids) {
+            String key = this.getKey(keyPrefix, id);
+            NearEntry entry = this.getEntry(key, view);
+            R value = entry == null || entry.bytes == null ? null : this.decodeQuietly(key, entry.bytes, bytes -> codec.decode(bytes, type));
+            if (entry != null && entry.bytes == null) {
+                stats.recordHit();
+            } else if (value != null) {
+                stats.recordHit();
+                result.put(id, value);
+            } else {
+                stats.recordMiss();
+                missKeys.put(id, key);
+            }
+        }
+        if (missKeys.isEmpty()) {
+            return result;
+        }
+        long[] startSequences = this.getSequences(missKeys.values());
+        Map<ID, R> loaded = loader.apply(new ArrayList<>(missKeys.keySet()));
+        int index = 0;
+        for (Map.Entry<ID, String> missKey : missKeys.entrySet()) {
+            R r = loaded == null ? null : loaded.get(missKey.getKey());
+            if (r != null) {
+                result.put(missKey.getKey(), r);
+            }
+            //加载期间同一分段发生过失效的key不回填
+            if (startSequences[index++] == this.getSequence(missKey.getValue())) {
+                localCache.put(missKey.getValue(), new NearEntry(view, r == null ? null : codec.encode(r)));
+            }
+        }
+        //按照输入顺序整理结果
+        Map<ID, R> sorted = new LinkedHashMap<>();
+        for (ID id : ids) {
+            R r = result.get(id);
+            if (r != null) {
+                sorted.put(id, r);
+            }
+        }
+        return sorted;
+    }
+
+    /**
+     * 读取一级缓存中指定类型的数据，类型不同时视为未命中
+     */
+    private NearEntry getEntry(String key, String view) {
+        NearEntry entry = localCache.getIfPresent(key);
+        return entry == null || !entry.view.equals(view) ? null : entry;
+    }
+
+    /**
+     * 解码一级缓存中的字节，失败时删除一级缓存并视为未命中
+     */
+    private <T> T decodeQuietly(String key, byte[] bytes, Function<byte[], T> decoder) {
+        try {
+            return decoder.apply(bytes);
+        } catch (Exception e) {
+            logger.warn("near cache decode | {} | {}", key, e.getMessage());
+            localCache.remove(key);
+            return null;
+        }
+    }
+
+    /**
+     * 删除本地一级缓存，并通知其他节点删除，绕过本服务直接写入二级缓存时需要调用
+     */
+    public void invalidate(String key) {
+        this.invalidateLocal(key);
+        try {
+            NearCacheInvalidation invalidation = new NearCacheInvalidation(nodeId, key, System.currentTimeMillis());
+            redisTemplate.convertAndSend(channel, JSONUtil.toJsonStr(invalidation));
+        } catch (Exception e) {
+            logger.error("publish near cache invalidation | {} | {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * 删除本地一级缓存，并把这一批key合并为一条失效消息通知其他节点删除
+     */
+    private void invalidateAll(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        keys.forEach(this::invalidateLocal);
+        this.publishInvalidation(keys);
+    }
+
+    private void publishInvalidation(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        try {
+            NearCacheInvalidation invalidation = new NearCacheInvalidation(nodeId, new ArrayList<>(keys), System.currentTimeMillis());
+            redisTemplate.convertAndSend(channel, JSONUtil.toJsonStr(invalidation));
+        } catch (Exception e) {
+            logger.error("publish near cache invalidation | {} keys | {}", keys.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * 只删除当前节点的一级缓存，不广播失效消息
+     */
+    private void invalidateLocal(String key) {
+        sequences.incrementAndGet(this.stripe(key));
+        localCache.remove(key);
+    }
+
+    private int stripe(String key) {
+        return (key.hashCode() & Integer.MAX_VALUE) % SEQUENCE_STRIPES;
+    }
+
+    private long getSequence(String key) {
+        return sequences.get(this.stripe(key));
+    }
+
+    private long[] getSequences(Collection<String> keys) {
+        long[] result = new long[keys.size()];
+        int index = 0;
+        for (String key : keys) {
+            result[index++] = this.getSequence(key);
+        }
+        return result;
+    }
+
+    private NearCacheStats getStats(String keyPrefix) {
+        return statsMap.computeIfAbsent(keyPrefix, NearCacheStats::new);
+    }
+
+    private synchronized void registerPrefix(String keyPrefix) {
+        if (keyPrefix == null || keyPrefix.isEmpty()) {
+            return;
+        }
+        for (String prefix : prefixes) {
+            if (prefix.equals(keyPrefix)) {
+                return;
+            }
+        }
+        String[] updated = Arrays.copyOf(prefixes, prefixes.length + 1);
+        updated[prefixes.length] = keyPrefix;
+        Arrays.sort(updated, Comparator.comparingInt(String::length).reversed());
+        prefixes = updated;
+    }
+
+    /**
+     * 按最长匹配的已知前缀归类，key中的业务标识可能包含分隔符，不能按分隔符截取
+     */
+    private String resolvePrefix(String key) {
+        for (String prefix : prefixes) {
+            if (key.startsWith(prefix)) {
+                return prefix;
+            }
+        }
+        return "";
+    }
+
+    /**
+     * 一级缓存中的数据，保存回填时读取的类型和编码后的字节
+     */
+    private static final class NearEntry {
+
+        //回填时读取的类型
+        private final String view;
+
+        //编码后的字节，为空时表示空数据
+        private final byte[] bytes;
+
+        private NearEntry(String view, byte[] bytes) {
+            this.view = view;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,757 @@
+package com.lb.im.common.cache.distribute.redis;
+
+import cn.hutool.json.JSONUtil;
+import com.lb.im.common.cache.distribute.AbstractDistributedCacheService;
+import com.lb.im.common.cache.distribute.AsyncDistributedCacheService;
+import com.lb.im.common.cache.distribute.CacheConstants;
+import com.lb.im.common.cache.distribute.codec.CacheCodecRegistry;
+import com.lb.im.common.cache.distribute.data.LogicalExpireData;
+import com.lb.im.common.cache.distribute.expire.ExpiryPolicyManager;
+import com.lb.im.common.cache.distribute.metrics.CacheMetrics;
+import com.lb.im.common.cache.distribute.metrics.CacheStats;
+import com.lb.im.common.cache.distribute.metrics.CacheStrategy;
+import com.lb.im.common.cache.distribute.near.NearDistributedCacheService;
+import com.lb.im.common.cache.distribute.store.CacheByteStore;
+import com.lb.im.common.cache.flight.SingleFlight;
+import com.lb.im.common.cache.lock.DistributedLock;
+import com.lb.im.common.cache.lock.factory.DistributedLockFactory;
+import com.lb.im.common.cache.threadpool.ThreadPoolUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 基于Lettuce异步命令的分布式缓存实现，读写通过{@link CacheByteStore}的异步方法完成，
+ * 缓存格式、编解码和逻辑过期数据的兼容规则复用同步实现，同一个key可以被同步和异步接口混合读写。
+ * 写入和删除与同步接口一样丢弃本节点的本地副本和write-behind缓冲区中未刷新的写入，读取优先返回缓冲区中的数据，
+ * 按key前缀和查询策略记录缓存指标。分布式锁通过Redisson异步接口获取，锁的持有者使用独立的ownerId标识，不依赖调用线程。
+ * 读取不经过近端缓存；开启近端缓存时写入、删除和后台重建会通知近端缓存失效。
+ */
+@Component
+@ConditionalOnProperty(name = "distribute.cache.type", havingValue = "redis")
+public class RedisAsyncDistributedCacheService implements AsyncDistributedCacheService {
+
+    private final Logger logger = LoggerFactory.getLogger(RedisAsyncDistributedCacheService.class);
+
+    //互斥锁查询等待其他线程重建缓存的最长时间，单位毫秒
+    @Value("${distribute.cache.mutex.wait-millis:3000}")
+    private long mutexWaitMillis;
+
+    //概率提前过期的beta参数
+    @Value("${distribute.cache.early-expire.beta:1.0}")
+    private double earlyExpireBeta;
+
+    @Autowired
+    private CacheByteStore byteStore;
+
+    @Autowired
+    private CacheCodecRegistry cacheCodecRegistry;
+
+    @Autowired
+    private DistributedLockFactory distributedLockFactory;
+
+    @Autowired
+    private ExpiryPolicyManager expiryPolicyManager;
+
+    @Autowired
+    private CacheMetrics cacheMetrics;
+
+    //复用同步实现的key生成、编解码、历史数据转换规则和write-behind缓冲区
+    @Autowired
+    private AbstractDistributedCacheService distributedCacheService;
+
+    @Autowired(required = false)
+    private NearDistributedCacheService nearDistributedCacheService;
+
+    //进程内请求合并，每种策略各自合并
+    private final SingleFlight logicalExpireFlight = new SingleFlight();
+
+    private final SingleFlight mutexFlight = new SingleFlight();
+
+    private final SingleFlight earlyExpireFlight = new SingleFlight();
+
+    //异步锁持有者标识，取负数避免与线程ID冲突
+    private final AtomicLong ownerSequence = new AtomicLong();
+
+    @Override
+    public CompletableFuture<Void> set(String key, Object value) {
+        return this.setBytes(key, cacheCodecRegistry.encode(key, value), null).thenRun(() -> this.invalidateNearCache(key));
+    }
+
+    @Override
+    public CompletableFuture<Void> set(String key, Object value, Long timeout, TimeUnit unit) {
+        return this.setBytes(key, cacheCodecRegistry.encode(key, value), expiryPolicyManager.getTtlMillis(key, timeout, unit)).thenRun(() -> this.invalidateNearCache(key));
+    }
+
+    @Override
+    public CompletableFuture<String> get(String key) {
+        return this.getBytes(key).thenApply(bytes -> distributedCacheService.decodeString(key, bytes));
+    }
+
+    @Override
+    public CompletableFuture<List<String>> multiGet(Collection<String> keys) {
+        return this.multiGetBytes(keys).thenApply(values -> {
+            List<String> result = new ArrayList<>(values.size());
+            Iterator<String> keyIterator = keys.iterator();
+            for (byte[] bytes : values) {
+                result.add(distributedCacheService.decodeString(keyIterator.next(), bytes));
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> delete(String key) {
+        distributedCacheService.prepareDelete(key);
+        return byteStore.deleteAsync(key).thenApply(deleted -> {
+            this.invalidateNearCache(key);
+            return deleted;
+        });
+    }
+
+    @Override
+    public <R, ID> CompletableFuture<R> queryWithPassThrough(String keyPrefix, ID id, Class<R> type, Function<ID, CompletableFuture<R>> dbFallback, Long timeout, TimeUnit unit) {
+        String key = distributedCacheService.getKey(keyPrefix, id);
+        return this.doQueryWithPassThrough(this.getStats(keyPrefix, CacheStrategy.PASS_THROUGH), key, bytes -> cacheCodecRegistry.decode(key, bytes, type), () -> dbFallback.apply(id), timeout, unit);
+    }
+
+    @Override
+    public <R> CompletableFuture<R> queryWithPassThroughWithoutArgs(String keyPrefix, Class<R> type, Supplier<CompletableFuture<R>> dbFallback, Long timeout, TimeUnit unit) {
+        String key = distributedCacheService.getKey(keyPrefix);
+        return this.doQueryWithPassThrough(this.getStats(keyPrefix, CacheStrategy.PASS_THROUGH), key, bytes -> cacheCodecRegistry.decode(key, bytes, type), dbFallback, timeout, unit);
+    }
+
+    @Override
+    public <R, ID> CompletableFuture<List<R>> queryWithPassThroughList(String keyPrefix, ID id, Class<R> type, Function<ID, CompletableFuture<List<R>>> dbFallback, Long timeout, TimeUnit unit) {
+        String key = distributedCacheService.getKey(keyPrefix, id);
+        return this.doQueryWithPassThrough(this.getStats(keyPrefix, CacheStrategy.PASS_THROUGH), key, bytes -> cacheCodecRegistry.decodeList(key, bytes, type), () -> dbFallback.apply(id).thenApply(this::emptyListAsNull), timeout, unit);
+    }
+
+    @Override
+    public <R> CompletableFuture<List<R>> queryWithPassThroughListWithoutArgs(String keyPrefix, Class<R> type, Supplier<CompletableFuture<List<R>>> dbFallback, Long timeout, TimeUnit unit) {
+        String key = distributedCacheService.getKey(keyPrefix);
+        return this.doQueryWithPassThrough(this.getStats(keyPrefix, CacheStrategy.PASS_THROUGH), key, bytes -> cacheCodecRegistry.decodeList(key, bytes, type), () -> dbFallback.get().thenApply(this::emptyListAsNull), timeout, unit);
+    }
+
+    /**
+     * 防止缓存穿透的异步查询，数据库不存在的数据缓存空数据
+     */
+    private <T> CompletableFuture<T> doQueryWithPassThrough(CacheStats stats, String key, Function<byte[], T> decoder, Supplier<CompletableFuture<T>> dbFallback, Long timeout, TimeUnit unit) {
+        return this.getBytes(stats, key).thenCompose(bytes -> {
+            //缓存存在数据，直接返回
+            if (bytes != null && bytes.length > 0) {
+                stats.recordHit();
+                return CompletableFuture.completedFuture(decoder.apply(bytes));
+            }
+            //缓存中存储的是空数据
+            if (bytes != null) {
+                stats.recordNullHit();
+                return CompletableFuture.completedFuture(null);
+            }
+            stats.recordMiss();
+            return this.loadAndSet(stats, key, dbFallback, timeout, unit);
+        });
+    }
+
+    @Override
+    public <R, ID> CompletableFuture<R> queryWithLogicalExpire(String keyPrefix, ID id, Class<R> type, Function<ID, CompletableFuture<R>> dbFallback, Long timeout, TimeUnit unit) {
+        String key = distributedCacheService.getKey(keyPrefix, id);
+        return this.doQueryWithLogicalExpire(this.getStats(keyPrefix, CacheStrategy.LOGICAL_EXPIRE), key, this.logicalExpireDecoder(key, type), () -> dbFallback.apply(id), () -> null, timeout, unit);
+    }
+
+    @Override
+    public <R> CompletableFuture<R> queryWithLogicalExpireWithoutArgs(String keyPrefix, Class<R> type, Supplier<CompletableFuture<R>> dbFallback, Long timeout, TimeUnit unit) {
+        String key = distributedCacheService.getKey(keyPrefix);
+        return this.doQueryWithLogicalExpire(this.getStats(keyPrefix, CacheStrategy.LOGICAL_EXPIRE), key, this.logicalExpireDecoder(key, type), dbFallback, () -> null, timeout, unit);
+    }
+
+    @Override
+    public <R, ID> CompletableFuture<List<R>> queryWithLogicalExpireList(String keyPrefix, ID id, Class<R> type, Function<ID, CompletableFuture<List<R>>> dbFallback, Long timeout, TimeUnit unit) {
+        String key = distributedCacheService.getKey(keyPrefix, id);
+        return this.doQueryWithLogicalExpire(this.getStats(keyPrefix, CacheStrategy.LOGICAL_EXPIRE), key, this.logicalExpireListDecoder(key, type), () -> dbFallback.apply(id), ArrayList::new, timeout, unit);
+    }
+
+    @Override
+    public <R> CompletableFuture<List<R>> queryWithLogicalExpireListWithoutArgs(String keyPrefix, Class<R> type, Supplier<CompletableFuture<List<R>>> dbFallback, Long timeout, TimeUnit unit) {
+        String key = distributedCacheService.getKey(keyPrefix);
+        return this.doQueryWithLogicalExpire(this.getStats(keyPrefix, CacheStrategy.LOGICAL_EXPIRE), key, this.logicalExpireListDecoder(key, type), dbFallback, ArrayList::new, timeout, unit);
+    }
+
+    /**
+     * 逻辑过期的异步查询，逻辑过期的数据直接返回并在后台重建，缓存不存在时加锁加载
+     *
+     * @param stats       缓存指标
+     * @param key         缓存key
+     * @param dataDecoder 逻辑过期数据解码函数（兼容历史格式）
+     * @param dbFallback  异步数据库查询函数
+     * @param emptyResult 空数据时返回的结果
+     * @param timeout     逻辑过期时长
+     * @param unit        时间单位
+     */
+    private <T> CompletableFuture<T> doQueryWithLogicalExpire(CacheStats stats, String key, Function<LogicalExpireData, T> dataDecoder, Supplier<CompletableFuture<T>> dbFallback, Supplier<T> emptyResult, Long timeout, TimeUnit unit) {
+        return this.getBytes(stats, key).thenCompose(bytes -> {
+            //缓存不存在，进程内合并后加锁加载
+            if (bytes == null || bytes.length == 0) {
+                stats.recordMiss();
+                return logicalExpireFlight.executeAsync(key, () -> this.loadWithLogicalExpire(stats, key, dataDecoder, dbFallback, emptyResult, timeout, unit),
+                        r -> cacheCodecRegistry.copy(r, payload -> dataDecoder.apply(LogicalExpireData.parse(LogicalExpireData.encode(0, payload)))));
+            }
+            LogicalExpireData logicalExpireData = LogicalExpireData.parse(bytes);
+            T r = dataDecoder.apply(logicalExpireData);
+            if (r == null) {
+                stats.recordNullHit();
+            } else {
+                stats.recordHit();
+            }
+            //已经逻辑过期，后台重建缓存，当前返回过期数据
+            if (logicalExpireData.isExpired(System.currentTimeMillis())) {
+                stats.recordStaleServed();
+                this.buildCache(stats, key, dbFallback, timeout, unit);
+            }
+            return CompletableFuture.completedFuture(r);
+        });
+    }
+
+    /**
+     * 缓存不存在时加锁加载逻辑过期数据，获取锁超时直接查询数据库，不写回缓存
+     */
+    private <T> CompletableFuture<T> loadWithLogicalExpire(CacheStats stats, String key, Function<LogicalExpireData, T> dataDecoder, Supplier<CompletableFuture<T>> dbFallback, Supplier<T> emptyResult, Long timeout, TimeUnit unit) {
+        DistributedLock distributedLock = distributedLockFactory.getDistributedLock(CacheConstants.getLockKey(key));
+        long ownerId = this.nextOwnerId();
+        return distributedLock.tryLockAsync(mutexWaitMillis, TimeUnit.MILLISECONDS, ownerId).thenCompose(isLock -> {
+            CompletableFuture<T> result = this.getBytes(null, key).thenCompose(bytes -> {
+                //Double Check，其他节点已经加载完成
+                if (bytes != null && bytes.length > 0) {
+                    return CompletableFuture.completedFuture(dataDecoder.apply(LogicalExpireData.parse(bytes)));
+                }
+                if (!isLock) {
+                    stats.recordLockFailure();
+                    logger.warn("async query data with logical expire wait timeout | {}", key);
+                    return this.load(stats, dbFallback);
+                }
+                return this.load(stats, dbFallback).thenCompose(r -> this.setLogicalExpire(key, r, timeout, unit).thenApply(v -> r == null ? emptyResult.get() : r));
+            });
+            return isLock ? this.unlockAfter(result, distributedLock, ownerId) : result;
+        });
+    }
+
+    /**
+     * 后台重建逻辑过期数据，获取不到锁说明其他调用方正在重建，直接放弃
+     */
+    private <T> void buildCache(CacheStats stats, String key, Supplier<CompletableFuture<T>> dbFallback, Long timeout, TimeUnit unit) {
+        DistributedLock distributedLock = distributedLockFactory.getDistributedLock(CacheConstants.getLockKey(key));
+        long ownerId = this.nextOwnerId();
+        distributedLock.tryLockAsync(0, TimeUnit.MILLISECONDS, ownerId).thenCompose(isLock -> {
+            if (!isLock) {
+                stats.recordLockFailure();
+                return CompletableFuture.<Void>completedFuture(null);
+            }
+            CompletableFuture<Void> rebuild = this.getBytes(null, key).thenCompose(bytes -> {
+                //Double Check，缓存已经被其他调用方重建
+                if (bytes != null && bytes.length > 0 && !LogicalExpireData.parse(bytes).isExpired(System.currentTimeMillis())) {
+                    return CompletableFuture.<Void>completedFuture(null);
+                }
+                return this.load(stats, dbFallback).thenCompose(r -> this.setLogicalExpire(key, r, timeout, unit))
+                        .thenRun(() -> this.notifyRebuilt(Collections.singletonList(key)));
+            });
+            return this.unlockAfter(rebuild, distributedLock, ownerId);
+        }).whenComplete((v, e) -> {
+            if (e != null) {
+                logger.error("async build cache | {} | {}", key, e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public <R, ID> CompletableFuture<R> queryWithMutex(String keyPrefix, ID id, Class<R> type, Function<ID, CompletableFuture<R>> dbFallback, Long timeout, TimeUnit unit) {
+        String key = distributedCacheService.getKey(keyPrefix, id);
+        return this.doQueryWithMutex(this.getStats(keyPrefix, CacheStrategy.MUTEX), key, bytes -> cacheCodecRegistry.decode(key, bytes, type), () -> dbFallback.apply(id), timeout, unit);
+    }
+
+    @Override
+    public <R> CompletableFuture<R> queryWithMutexWithoutArgs(String keyPrefix, Class<R> type, Supplier<CompletableFuture<R>> dbFallback, Long timeout, TimeUnit unit) {
+        String key = distributedCacheService.getKey(keyPrefix);
+        return this.doQueryWithMutex(this.getStats(keyPrefix, CacheStrategy.MUTEX), key, bytes -> cacheCodecRegistry.decode(key, bytes, type), dbFallback, timeout, unit);
+    }
+
+    @Override
+    public <R, ID> CompletableFuture<List<R>> queryWithMutexList(String keyPrefix, ID id, Class<R> type, Function<ID, CompletableFuture<List<R>>> dbFallback, Long timeout, TimeUnit unit) {
+        String key = distributedCacheService.getKey(keyPrefix, id);
+        return this.doQueryWithMutex(this.getStats(keyPrefix, CacheStrategy.MUTEX), key, bytes -> cacheCodecRegistry.decodeList(key, bytes, type), () -> dbFallback.apply(id), timeout, unit);
+    }
+
+    @Override
+    public <R> CompletableFuture<List<R>> queryWithMutexListWithoutArgs(String keyPrefix, Class<R> type, Supplier<CompletableFuture<List<R>>> dbFallback, Long timeout, TimeUnit unit) {
+        String key = distributedCacheService.getKey(keyPrefix);
+        return this.doQueryWithMutex(this.getStats(keyPrefix, CacheStrategy.MUTEX), key, bytes -> cacheCodecRegistry.decodeList(key, bytes, type), dbFallback, timeout, unit);
+    }
+
+    /**
+     * 互斥锁的异步查询，缓存未命中时先在进程内合并，再异步竞争分布式锁
+     */
+    private <T> CompletableFuture<T> doQueryWithMutex(CacheStats stats, String key, Function<byte[], T> decoder, Supplier<CompletableFuture<T>> dbFallback, Long timeout, TimeUnit unit) {
+        return this.getBytes(stats, key).thenCompose(bytes -> {
+            if (bytes != null && bytes.length > 0) {
+                stats.recordHit();
+                return CompletableFuture.completedFuture(decoder.apply(bytes));
+            }
+            if (bytes != null) {
+                stats.recordNullHit();
+                return CompletableFuture.completedFuture(null);
+            }
+            stats.recordMiss();
+            return mutexFlight.executeAsync(key, () -> this.rebuildWithMutex(stats, key, decoder, dbFallback, timeout, unit), r -> cacheCodecRegistry.copy(r, decoder));
+        });
+    }
+
+    /**
+     * 异步获取分布式锁后重建缓存，锁被占用时由Redisson在锁释放后回调，总等待时长不超过mutexWaitMillis
+     */
+    private <T> CompletableFuture<T> rebuildWithMutex(CacheStats stats, String key, Function<byte[], T> decoder, Supplier<CompletableFuture<T>> dbFallback, Long timeout, TimeUnit unit) {
+        DistributedLock distributedLock = distributedLockFactory.getDistributedLock(CacheConstants.getLockKey(key));
+        long ownerId = this.nextOwnerId();
+        return distributedLock.tryLockAsync(mutexWaitMillis, TimeUnit.MILLISECONDS, ownerId).thenCompose(isLock -> {
+            CompletableFuture<T> result = this.getBytes(null, key).thenCompose(bytes -> {
+                //获取锁成功时Double Check，等待超时时也再检查一次缓存
+                if (bytes != null && bytes.length > 0) {
+                    return CompletableFuture.completedFuture(decoder.apply(bytes));
+                }
+                if (bytes != null) {
+                    return CompletableFuture.completedFuture(null);
+                }
+                if (!isLock) {
+                    //超过等待时长，直接查询数据库，不写回缓存
+                    stats.recordLockFailure();
+                    logger.warn("async query data with mutex wait timeout | {}", key);
+                    return this.load(stats, dbFallback);
+                }
+                return this.loadAndSet(stats, key, dbFallback, timeout, unit);
+            });
+            return isLock ? this.unlockAfter(result, distributedLock, ownerId) : result;
+        });
+    }
+
+    @Override
+    public <R, ID> CompletableFuture<R> queryWithEarlyExpire(String keyPrefix, ID id, Class<R> type, Function<ID, CompletableFuture<R>> dbFallback, Long timeout, TimeUnit unit) {
+        String key = distributedCacheService.getKey(keyPrefix, id);
+        return this.doQueryWithEarlyExpire(this.getStats(keyPrefix, CacheStrategy.EARLY_EXPIRE), key, bytes -> cacheCodecRegistry.decode(key, bytes, type), () -> dbFallback.apply(id), timeout, unit);
+    }
+
+    @Override
+    public <R> CompletableFuture<R> queryWithEarlyExpireWithoutArgs(String keyPrefix, Class<R> type, Supplier<CompletableFuture<R>> dbFallback, Long timeout, TimeUnit unit) {
+        String key = distributedCacheService.getKey(keyPrefix);
+        return this.doQueryWithEarlyExpire(this.getStats(keyPrefix, CacheStrategy.EARLY_EXPIRE), key, bytes -> cacheCodecRegistry.decode(key, bytes, type), dbFallback, timeout, unit);
+    }
+
+    @Override
+    public <R, ID> CompletableFuture<List<R>> queryWithEarlyExpireList(String keyPrefix, ID id, Class<R> type, Function<ID, CompletableFuture<List<R>>> dbFallback, Long timeout, TimeUnit unit) {
+        String key = distributedCacheService.getKey(keyPrefix, id);
+        return this.doQueryWithEarlyExpire(this.getStats(keyPrefix, CacheStrategy.EARLY_EXPIRE), key, bytes -> cacheCodecRegistry.decodeList(key, bytes, type), () -> dbFallback.apply(id), timeout, unit);
+    }
+
+    @Override
+    public <R> CompletableFuture<List<R>> queryWithEarlyExpireListWithoutArgs(String keyPrefix, Class<R> type, Supplier<CompletableFuture<List<R>>> dbFallback, Long timeout, TimeUnit unit) {
+        String key = distributedCacheService.getKey(keyPrefix);
+        return this.doQueryWithEarlyExpire(this.getStats(keyPrefix, CacheStrategy.EARLY_EXPIRE), key, bytes -> cacheCodecRegistry.decodeList(key, bytes, type), dbFallback, timeout, unit);
+    }
+
+    /**
+     * 概率提前过期的异步查询，命中的数据按照XFetch公式决定是否由当前调用方提前重新计算
+     */
+    private <T> CompletableFuture<T> doQueryWithEarlyExpire(CacheStats stats, String key, Function<byte[], T> decoder, Supplier<CompletableFuture<T>> dbFallback, Long timeout, TimeUnit unit) {
+        return this.getBytes(stats, key).thenCompose(bytes -> {
+            if (LogicalExpireData.isEnvelope(bytes)) {
+                LogicalExpireData logicalExpireData = LogicalExpireData.parse(bytes);
+                if (!this.shouldRecomputeEarly(logicalExpireData)) {
+                    if (logicalExpireData.isEmpty()) {
+                        stats.recordNullHit();
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    stats.recordHit();
+                    return CompletableFuture.completedFuture(decoder.apply(logicalExpireData.getPayload()));
+                }
+            }
+            stats.recordMiss();
+            return earlyExpireFlight.executeAsync(key, () -> this.recompute(stats, key, dbFallback, timeout, unit), r -> cacheCodecRegistry.copy(r, decoder));
+        });
+    }
+
+    @Override
+    public <R, ID> CompletableFuture<Map<ID, R>> queryWithPassThroughBatch(String keyPrefix, Collection<ID> ids, Class<R> type, Function<Collection<ID>, CompletableFuture<Map<ID, R>>> dbFallback, Long timeout, TimeUnit unit) {
+        Map<ID, String> idKeys = this.getKeys(keyPrefix, ids);
+        if (idKeys.isEmpty()) {
+            return CompletableFuture.completedFuture(new LinkedHashMap<>());
+        }
+        CacheStats stats = this.getStats(keyPrefix, CacheStrategy.PASS_THROUGH);
+        return this.multiGetBytes(stats, idKeys.values()).thenCompose(values -> {
+            Map<ID, R> result = new HashMap<>();
+            List<ID> missIds = new ArrayList<>();
+            int index = 0;
+            for (Map.Entry<ID, String> idKey : idKeys.entrySet()) {
+                byte[] bytes = values.get(index++);
+                if (bytes == null) {
+                    missIds.add(idKey.getKey());
+                } else if (bytes.length > 0) {
+                    result.put(idKey.getKey(), cacheCodecRegistry.decode(idKey.getValue(), bytes, type));
+                }
+            }
+            stats.recordHits(result.size());
+            stats.recordNullHits(idKeys.size() - missIds.size() - result.size());
+            stats.recordMisses(missIds.size());
+            if (missIds.isEmpty()) {
+                return CompletableFuture.completedFuture(this.sortBatchResult(idKeys, result));
+            }
+            //未命中的业务标识一次性查询数据库，查询结果和空数据标记一起写回
+            return this.loadBatch(stats, dbFallback, missIds).thenCompose(loaded -> {
+                List<CompletableFuture<Void>> writes = new ArrayList<>(missIds.size());
+                for (ID id : missIds) {
+                    String key = idKeys.get(id);
+                    R r = loaded == null ? null : loaded.get(id);
+                    if (r == null) {
+                        writes.add(this.setBytes(key, CacheConstants.EMPTY_BYTES, TimeUnit.SECONDS.toMillis(CacheConstants.CACHE_NULL_TTL)));
+                    } else {
+                        result.put(id, r);
+                        writes.add(this.setBytes(key, cacheCodecRegistry.encode(key, r), expiryPolicyManager.getTtlMillis(key, timeout, unit)));
+                    }
+                }
+                return CompletableFuture.allOf(writes.toArray(new CompletableFuture[0])).thenApply(v -> this.sortBatchResult(idKeys, result));
+            });
+        });
+    }
+
+    @Override
+    public <R, ID> CompletableFuture<Map<ID, R>> queryWithLogicalExpireBatch(String keyPrefix, Collection<ID> ids, Class<R> type, Function<Collection<ID>, CompletableFuture<Map<ID, R>>> dbFallback, Long timeout, TimeUnit unit) {
+        Map<ID, String> idKeys = this.getKeys(keyPrefix, ids);
+        if (idKeys.isEmpty()) {
+            return CompletableFuture.completedFuture(new LinkedHashMap<>());
+        }
+        CacheStats stats = this.getStats(keyPrefix, CacheStrategy.LOGICAL_EXPIRE);
+        return this.multiGetBytes(stats, idKeys.values()).thenCompose(values -> {
+            Map<ID, R> result = new HashMap<>();
+            List<ID> missIds = new ArrayList<>();
+            List<ID> expiredIds = new ArrayList<>();
+            long now = System.currentTimeMillis();
+            int index = 0;
+            for (Map.Entry<ID, String> idKey : idKeys.entrySet()) {
+                byte[] bytes = values.get(index++);
+                if (bytes == null || bytes.length == 0) {
+                    missIds.add(idKey.getKey());
+                    continue;
+                }
+                LogicalExpireData logicalExpireData = LogicalExpireData.parse(bytes);
+                R r = this.logicalExpireDecoder(idKey.getValue(), type).apply(logicalExpireData);
+                if (r != null) {
+                    result.put(idKey.getKey(), r);
+                }
+                if (logicalExpireData.isExpired(now)) {
+                    expiredIds.add(idKey.getKey());
+                }
+            }
+            stats.recordHits(result.size());
+            stats.recordNullHits(idKeys.size() - missIds.size() - result.size());
+            stats.recordMisses(missIds.size());
+            stats.recordStaleServed(expiredIds.size());
+            //逻辑过期的数据后台批量重建，当前直接返回过期数据
+            if (!expiredIds.isEmpty()) {
+                this.buildCacheBatch(stats, idKeys, expiredIds, dbFallback, timeout, unit);
+            }
+            if (missIds.isEmpty()) {
+                return CompletableFuture.completedFuture(this.sortBatchResult(idKeys, result));
+            }
+            //缓存中不存在的数据批量加载
+            return this.loadLogicalExpireBatch(stats, idKeys, missIds, dbFallback, timeout, unit).thenApply(loaded -> {
+                result.putAll(loaded);
+                return this.sortBatchResult(idKeys, result);
+            });
+        });
+    }
+
+    /**
+     * 后台批量重建逻辑过期数据，只重建获取到锁的数据，获取锁时不等待
+     */
+    private <R, ID> void buildCacheBatch(CacheStats stats, Map<ID, String> idKeys, List<ID> expiredIds, Function<Collection<ID>, CompletableFuture<Map<ID, R>>> dbFallback, Long timeout, TimeUnit unit) {
+        Map<ID, DistributedLock> locks = new LinkedHashMap<>();
+        Map<ID, CompletableFuture<Boolean>> lockResults = new LinkedHashMap<>();
+        long ownerId = this.nextOwnerId();
+        for (ID id : expiredIds) {
+            DistributedLock distributedLock = distributedLockFactory.getDistributedLock(CacheConstants.getLockKey(idKeys.get(id)));
+            locks.put(id, distributedLock);
+            lockResults.put(id, distributedLock.tryLockAsync(0, TimeUnit.MILLISECONDS, ownerId));
+        }
+        CompletableFuture.allOf(lockResults.values().toArray(new CompletableFuture[0])).thenCompose(v -> {
+            List<ID> lockedIds = new ArrayList<>();
+            lockResults.forEach((id, lockResult) -> {
+                if (Boolean.TRUE.equals(lockResult.join())) {
+                    lockedIds.add(id);
+                }
+            });
+            stats.recordLockFailures(expiredIds.size() - lockedIds.size());
+            if (lockedIds.isEmpty()) {
+                return CompletableFuture.<Void>completedFuture(null);
+            }
+            //获取锁成功, Double Check
+            List<String> lockedKeys = new ArrayList<>(lockedIds.size());
+            lockedIds.forEach(id -> lockedKeys.add(idKeys.get(id)));
+            CompletableFuture<Void> rebuild = this.multiGetBytes(null, lockedKeys).thenCompose(values -> {
+                List<ID> loadIds = new ArrayList<>();
+                long now = System.currentTimeMillis();
+                for (int i = 0; i < lockedIds.size(); i++) {
+                    byte[] bytes = values.get(i);
+                    if (bytes == null || bytes.length == 0 || LogicalExpireData.parse(bytes).isExpired(now)) {
+                        loadIds.add(lockedIds.get(i));
+                    }
+                }
+                if (loadIds.isEmpty()) {
+                    return CompletableFuture.<Void>completedFuture(null);
+                }
+                List<String> loadKeys = new ArrayList<>(loadIds.size());
+                loadIds.forEach(id -> loadKeys.add(idKeys.get(id)));
+                return this.loadLogicalExpireBatch(stats, idKeys, loadIds, dbFallback, timeout, unit).thenRun(() -> this.notifyRebuilt(loadKeys));
+            });
+            return rebuild.whenComplete((r, e) -> lockedIds.forEach(id -> locks.get(id).unlockAsync(ownerId)));
+        }).whenComplete((v, e) -> {
+            if (e != null) {
+                logger.error("async build cache batch | {} keys | {}", expiredIds.size(), e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 批量查询数据库并写回逻辑过期数据，数据库不存在的数据缓存空数据
+     */
+    private <R, ID> CompletableFuture<Map<ID, R>> loadLogicalExpireBatch(CacheStats stats, Map<ID, String> idKeys, List<ID> loadIds, Function<Collection<ID>, CompletableFuture<Map<ID, R>>> dbFallback, Long timeout, TimeUnit unit) {
+        return this.loadBatch(stats, dbFallback, loadIds).thenCompose(loaded -> {
+            Map<ID, R> result = new HashMap<>();
+            List<CompletableFuture<Void>> writes = new ArrayList<>(loadIds.size());
+            for (ID id : loadIds) {
+                R r = loaded == null ? null : loaded.get(id);
+                if (r != null) {
+                    result.put(id, r);
+                }
+                writes.add(this.setLogicalExpire(idKeys.get(id), r, timeout, unit));
+            }
+            return CompletableFuture.allOf(writes.toArray(new CompletableFuture[0])).thenApply(v -> result);
+        });
+    }
+
+    /**
+     * 按照输入顺序整理批量查询结果，不存在的数据不包含在结果中
+     */
+    private <R, ID> Map<ID, R> sortBatchResult(Map<ID, String> idKeys, Map<ID, R> result) {
+        Map<ID, R> sorted = new LinkedHashMap<>();
+        for (ID id : idKeys.keySet()) {
+            R r = result.get(id);
+            if (r != null) {
+                sorted.put(id, r);
+            }
+        }
+        return sorted;
+    }
+
+    /**
+     * 批量查询使用的业务标识到缓存key的映射，保持输入顺序
+     */
+    private <ID> Map<ID, String> getKeys(String keyPrefix, Collection<ID> ids) {
+        Map<ID, String> idKeys = new LinkedHashMap<>();
+        if (ids != null) {
+            for (ID id : ids) {
+                idKeys.put(id, distributedCacheService.getKey(keyPrefix, id));
+            }
+        }
+        return idKeys;
+    }
+
+    /**
+     * XFetch公式：now - delta * beta * ln(random) >= expireTime 时提前重新计算
+     */
+    private boolean shouldRecomputeEarly(LogicalExpireData logicalExpireData) {
+        long now = System.currentTimeMillis();
+        double random = 1.0D - ThreadLocalRandom.current().nextDouble();
+        double gap = -logicalExpireData.getDeltaMillis() * earlyExpireBeta * Math.log(random);
+        return now + gap >= logicalExpireData.getExpireMillis();
+    }
+
+    /**
+     * 异步查询数据库并记录重新计算耗时
+     */
+    private <T> CompletableFuture<T> recompute(CacheStats stats, String key, Supplier<CompletableFuture<T>> dbFallback, Long timeout, TimeUnit unit) {
+        long start = System.currentTimeMillis();
+        return this.load(stats, dbFallback).thenCompose(r -> {
+            long now = System.currentTimeMillis();
+            int deltaMillis = (int) Math.min(Integer.MAX_VALUE, now - start);
+            long ttlMillis = r == null ? TimeUnit.SECONDS.toMillis(CacheConstants.CACHE_NULL_TTL) : expiryPolicyManager.getTtlMillis(key, timeout, unit);
+            byte[] payload = r == null ? null : cacheCodecRegistry.encode(key, r);
+            return this.setBytes(key, LogicalExpireData.encode(now + ttlMillis, deltaMillis, payload), ttlMillis).thenApply(v -> r);
+        });
+    }
+
+    /**
+     * 异步查询数据库并写回缓存，数据库不存在的数据缓存空数据
+     */
+    private <T> CompletableFuture<T> loadAndSet(CacheStats stats, String key, Supplier<CompletableFuture<T>> dbFallback, Long timeout, TimeUnit unit) {
+        return this.load(stats, dbFallback).thenCompose(r -> {
+            if (r == null) {
+                return this.setBytes(key, CacheConstants.EMPTY_BYTES, TimeUnit.SECONDS.toMillis(CacheConstants.CACHE_NULL_TTL)).thenApply(v -> null);
+            }
+            return this.setBytes(key, cacheCodecRegistry.encode(key, r), expiryPolicyManager.getTtlMillis(key, timeout, unit)).thenApply(v -> r);
+        });
+    }
+
+    /**
+     * 异步查询数据库，完成时记录加载耗时
+     */
+    private <T> CompletableFuture<T> load(CacheStats stats, Supplier<CompletableFuture<T>> dbFallback) {
+        long start = System.nanoTime();
+        return dbFallback.get().whenComplete((r, e) -> stats.recordLoad(start));
+    }
+
+    /**
+     * 异步批量查询数据库，完成时记录加载耗时
+     */
+    private <R, ID> CompletableFuture<Map<ID, R>> loadBatch(CacheStats stats, Function<Collection<ID>, CompletableFuture<Map<ID, R>>> dbFallback, List<ID> ids) {
+        long start = System.nanoTime();
+        return dbFallback.apply(Collections.unmodifiableList(ids)).whenComplete((r, e) -> stats.recordLoad(start));
+    }
+
+    /**
+     * 写入逻辑过期数据，value为空时缓存空数据，编码规则与同步接口一致
+     */
+    private CompletableFuture<Void> setLogicalExpire(String key, Object value, Long timeout, TimeUnit unit) {
+        byte[] bytes = value == null ? distributedCacheService.encodeLogicalExpire(key, null, CacheConstants.CACHE_NULL_TTL, TimeUnit.SECONDS)
+                : distributedCacheService.encodeLogicalExpire(key, value, timeout, unit);
+        return this.setBytes(key, bytes, null);
+    }
+
+    /**
+     * 逻辑过期数据的解码函数，兼容历史的RedisData格式
+     */
+    private <R> Function<LogicalExpireData, R> logicalExpireDecoder(String key, Class<R> type) {
+        return logicalExpireData -> distributedCacheService.getLogicalExpireResult(logicalExpireData, payload -> cacheCodecRegistry.decode(key, payload, type),
+                data -> distributedCacheService.getResult(data, type), CacheConstants.EMPTY_VALUE, () -> null);
+    }
+
+    /**
+     * 逻辑过期集合数据的解码函数，兼容历史的RedisData格式
+     */
+    private <R> Function<LogicalExpireData, List<R>> logicalExpireListDecoder(String key, Class<R> type) {
+        return logicalExpireData -> distributedCacheService.getLogicalExpireResult(logicalExpireData, payload -> cacheCodecRegistry.decodeList(key, payload, type),
+                data -> distributedCacheService.getResultList(JSONUtil.toJsonStr(data), type), CacheConstants.EMPTY_LIST_VALUE, ArrayList::new);
+    }
+
+    /**
+     * 在future完成后异步释放锁，锁释放完成后再通知调用方
+     */
+    private <T> CompletableFuture<T> unlockAfter(CompletableFuture<T> future, DistributedLock distributedLock, long ownerId) {
+        CompletableFuture<T> released = new CompletableFuture<>();
+        future.whenComplete((r, e) -> distributedLock.unlockAsync(ownerId).whenComplete((v, unlockError) -> {
+            if (unlockError != null) {
+                logger.error("async unlock | {}", unlockError.getMessage());
+            }
+            if (e != null) {
+                released.completeExceptionally(e);
+            } else {
+                released.complete(r);
+            }
+        }));
+        return released;
+    }
+
+    private CompletableFuture<byte[]> getBytes(String key) {
+        return this.getBytes(null, key);
+    }
+
+    /**
+     * 异步读取原始字节，write-behind缓冲区中未刷新的数据优先，stats不为空时记录读取耗时
+     */
+    private CompletableFuture<byte[]> getBytes(CacheStats stats, String key) {
+        byte[] pending = distributedCacheService.getPending(key);
+        if (pending != null) {
+            return CompletableFuture.completedFuture(pending);
+        }
+        long start = System.nanoTime();
+        CompletableFuture<byte[]> future = byteStore.getAsync(key);
+        return stats == null ? future : future.whenComplete((bytes, e) -> stats.recordRedis(start));
+    }
+
+    private CompletableFuture<List<byte[]>> multiGetBytes(Collection<String> keys) {
+        return this.multiGetBytes(null, keys);
+    }
+
+    /**
+     * 批量读取原始字节，返回结果与输入key的顺序一致，write-behind缓冲区中未刷新的数据优先，stats不为空时记录读取耗时
+     */
+    private CompletableFuture<List<byte[]>> multiGetBytes(CacheStats stats, Collection<String> keys) {
+        long start = System.nanoTime();
+        return byteStore.multiGetAsync(keys).thenApply(values -> {
+            if (stats != null) {
+                stats.recordRedis(start);
+            }
+            List<byte[]> result = new ArrayList<>(values.size());
+            Iterator<String> keyIterator = keys.iterator();
+            for (byte[] bytes : values) {
+                byte[] pending = distributedCacheService.getPending(keyIterator.next());
+                result.add(pending != null ? pending : bytes);
+            }
+            return result;
+        });
+    }
+
+    /**
+     * 异步写入原始字节，先丢弃write-behind缓冲区中未刷新的写入，避免之后刷新时覆盖这次写入
+     *
+     * @param ttlMillis 过期时长，单位毫秒，为空时不设置过期时间
+     */
+    private CompletableFuture<Void> setBytes(String key, byte[] value, Long ttlMillis) {
+        distributedCacheService.discardPending(key);
+        return byteStore.setAsync(key, value, ttlMillis);
+    }
+
+    /**
+     * 获取key前缀和查询策略对应的缓存指标，与同步接口共用
+     */
+    private CacheStats getStats(String keyPrefix, CacheStrategy strategy) {
+        return cacheMetrics.getStats(keyPrefix, strategy);
+    }
+
+    /**
+     * 通知近端缓存失效，发布消息是阻塞操作，不能在Redis客户端的IO线程中执行
+     */
+    private void invalidateNearCache(String key) {
+        if (nearDistributedCacheService != null) {
+            ThreadPoolUtils.execute(() -> nearDistributedCacheService.invalidate(key));
+        }
+    }
+
+    /**
+     * 通知后台重建的回调（例如近端缓存广播失效消息），回调可能阻塞，不能在Redis客户端的IO线程中执行
+     */
+    private void notifyRebuilt(List<String> keys) {
+        ThreadPoolUtils.execute(() -> distributedCacheService.notifyRebuilt(keys));
+    }
+
+    private <R> List<R> emptyListAsNull(List<R> list) {
+        return list == null || list.isEmpty() ? null : list;
+    }
+
+    private long nextOwnerId() {
+        return -ownerSequence.incrementAndGet();
+    }
+}
@@ -0,0 +1,341 @@
+package com.lb.im.common.cache.distribute.redis;
+
+import io.lettuce.core.AbstractRedisClient;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.RedisCommandExecutionException;
+import io.lettuce.core.RedisCommandTimeoutException;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.cluster.RedisClusterClient;
+import io.lettuce.core.cluster.SlotHash;
+import io.lettuce.core.cluster.api.StatefulRedisClusterConnection;
+import io.lettuce.core.cluster.api.async.RedisAdvancedClusterAsyncCommands;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.lettuce.core.cluster.models.partitions.RedisClusterNode;
+import io.lettuce.core.codec.ByteArrayCodec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * 缓存的批量读写操作，单机模式下MGET直接执行，写入和删除通过一次管道执行；
+ * Redis Cluster模式下按照slot对key分组，每个slot一条MGET/UNLINK，再按照slot所属的主节点对命令分组，
+ * 同一个节点的命令在该节点的连接上关闭自动刷新后一次写出（管道），不同节点之间并行执行，最后按照输入顺序重新组装结果，
+ * 避免跨slot的MGET报CROSSSLOT错误，也避免退化为逐个key的GET或者每条命令一次网络写入。
+ * 槽位迁移期间节点返回MOVED/ASK的命令改为通过集群连接重新路由执行。
+ * 需要在一次MGET中访问的相关key可以通过{@link com.lb.im.common.cache.distribute.key.CacheKeyBuilder#enableHashTag(String)}
+ * 落到同一个slot。
+ */
+@Component
+@ConditionalOnProperty(name = "distribute.cache.type", havingValue = "redis")
+public class RedisBatchOperations {
+
+    @Autowired
+    private LettuceConnectionFactory lettuceConnectionFactory;
+
+    @Autowired
+    @Qualifier("byteRedisTemplate")
+    private RedisTemplate<String, byte[]> redisTemplate;
+
+    //集群模式下使用的独立连接，单机模式下为空
+    private StatefulRedisClusterConnection<byte[], byte[]> clusterConnection;
+
+    private RedisAdvancedClusterAsyncCommands<byte[], byte[]> clusterCommands;
+
+    //等待集群批量命令执行完成的最长时间
+    private Duration timeout;
+
+    @PostConstruct
+    public void init() {
+        AbstractRedisClient client = lettuceConnectionFactory.getRequiredNativeClient();
+        if (client instanceof RedisClusterClient) {
+            clusterConnection = ((RedisClusterClient) client).connect(ByteArrayCodec.INSTANCE);
+            clusterCommands = clusterConnection.async();
+            timeout = Duration.ofMillis(lettuceConnectionFactory.getTimeout());
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (clusterConnection != null) {
+            clusterConnection.close();
+        }
+    }
+
+    /**
+     * 是否为Redis Cluster模式
+     */
+    public boolean isCluster() {
+        return clusterCommands != null;
+    }
+
+    /**
+     * 批量读取，返回结果与输入key的顺序一致，不存在的key对应的元素为空
+     *
+     * @param keys 缓存key
+     * @return 原始字节列表
+     */
+    public List<byte[]> multiGet(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (!this.isCluster()) {
+            return redisTemplate.opsForValue().multiGet(keys);
+        }
+        byte[][] rawKeys = this.rawKeys(keys);
+        Map<Integer, List<Integer>> slots = this.partition(rawKeys);
+        List<SlotCommand<List<KeyValue<byte[], byte[]>>>> commands = new ArrayList<>(slots.size());
+        slots.forEach((slot, indexes) -> {
+            byte[][] slotKeys = this.select(rawKeys, indexes);
+            commands.add(new SlotCommand<>(slot, redis -> redis.mget(slotKeys)));
+        });
+        List<List<KeyValue<byte[], byte[]>>> results = this.execute(commands);
+        byte[][] values = new byte[rawKeys.length][];
+        int slot = 0;
+        for (List<Integer> indexes : slots.values()) {
+            List<KeyValue<byte[], byte[]>> keyValues = results.get(slot++);
+            for (int i = 0; i < indexes.size(); i++) {
+                KeyValue<byte[], byte[]> keyValue = keyValues.get(i);
+                values[indexes.get(i)] = keyValue.hasValue() ? keyValue.getValue() : null;
+            }
+        }
+        return Arrays.asList(values);
+    }
+
+    /**
+     * 批量写入，每个key的过期时间通过expiration计算
+     *
+     * @param values     key和原始字节
+     * @param expiration key对应的过期时间
+     */
+    public void setAll(Map<String, byte[]> values, Function<String, Expiration> expiration) {
+        if (values.isEmpty()) {
+            return;
+        }
+        if (!this.isCluster()) {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                values.forEach((key, value) -> connection.stringCommands().set(this.rawKey(key), value, expiration.apply(key), RedisStringCommands.SetOption.upsert()));
+                return null;
+            });
+            return;
+        }
+        List<SlotCommand<String>> commands = new ArrayList<>(values.size());
+        values.forEach((key, value) -> {
+            byte[] rawKey = this.rawKey(key);
+            Expiration keyExpiration = expiration.apply(key);
+            if (keyExpiration == null || keyExpiration.isPersistent()) {
+                commands.add(new SlotCommand<>(SlotHash.getSlot(rawKey), redis -> redis.set(rawKey, value)));
+            } else {
+                SetArgs setArgs = SetArgs.Builder.px(keyExpiration.getExpirationTimeInMilliseconds());
+                commands.add(new SlotCommand<>(SlotHash.getSlot(rawKey), redis -> redis.set(rawKey, value, setArgs)));
+            }
+        });
+        this.execute(commands);
+    }
+
+    /**
+     * 批量修改过期时间
+     *
+     * @param ttlMillis key和过期时长，单位毫秒
+     */
+    public void expireAll(Map<String, Long> ttlMillis) {
+        if (ttlMillis.isEmpty()) {
+            return;
+        }
+        if (!this.isCluster()) {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                ttlMillis.forEach((key, millis) -> connection.keyCommands().pExpire(this.rawKey(key), millis));
+                return null;
+            });
+            return;
+        }
+        List<SlotCommand<Boolean>> commands = new ArrayList<>(ttlMillis.size());
+        ttlMillis.forEach((key, millis) -> {
+            byte[] rawKey = this.rawKey(key);
+            commands.add(new SlotCommand<>(SlotHash.getSlot(rawKey), redis -> redis.pexpire(rawKey, millis)));
+        });
+        this.execute(commands);
+    }
+
+    /**
+     * 批量执行UNLINK
+     *
+     * @param keys 缓存key
+     * @return 删除的key数量
+     */
+    public long unlink(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        if (!this.isCluster()) {
+            List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                keys.forEach(key -> connection.keyCommands().unlink(this.rawKey(key)));
+                return null;
+            });
+            long count = 0;
+            for (Object result : results) {
+                if (result instanceof Number) {
+                    count += ((Number) result).longValue();
+                }
+            }
+            return count;
+        }
+        byte[][] rawKeys = this.rawKeys(keys);
+        List<SlotCommand<Long>> commands = new ArrayList<>();
+        this.partition(rawKeys).forEach((slot, indexes) -> {
+            byte[][] slotKeys = this.select(rawKeys, indexes);
+            commands.add(new SlotCommand<>(slot, redis -> redis.unlink(slotKeys)));
+        });
+        long count = 0;
+        for (Long result : this.execute(commands)) {
+            count += result == null ? 0 : result;
+        }
+        return count;
+    }
+
+    /**
+     * 按照slot分组，保持每个slot内key的输入顺序，返回slot到key下标的映射
+     */
+    private Map<Integer, List<Integer>> partition(byte[][] rawKeys) {
+        Map<Integer, List<Integer>> slots = new LinkedHashMap<>();
+        for (int i = 0; i < rawKeys.length; i++) {
+            slots.computeIfAbsent(SlotHash.getSlot(rawKeys[i]), slot -> new ArrayList<>()).add(i);
+        }
+        return slots;
+    }
+
+    /**
+     * 按照slot所属的主节点对命令分组，每个节点的命令在该节点的连接上关闭自动刷新后一次写出，
+     * 所有节点的命令发出后统一等待，返回结果与命令的顺序一致
+     */
+    private <T> List<T> execute(List<SlotCommand<T>> commands) {
+        Map<String, List<Integer>> nodes = new LinkedHashMap<>();
+        List<RedisFuture<T>> futures = new ArrayList<>(Collections.nCopies(commands.size(), null));
+        for (int i = 0; i < commands.size(); i++) {
+            RedisClusterNode node = clusterConnection.getPartitions().getPartitionBySlot(commands.get(i).slot);
+            if (node == null) {
+                //拓扑中还没有该slot的节点，由集群连接路由
+                futures.set(i, commands.get(i).command.apply(clusterCommands));
+            } else {
+                nodes.computeIfAbsent(node.getNodeId(), nodeId -> new ArrayList<>()).add(i);
+            }
+        }
+        nodes.forEach((nodeId, indexes) -> {
+            StatefulRedisConnection<byte[], byte[]> connection = clusterConnection.getConnection(nodeId);
+            //节点连接由集群连接共享，同一时间只允许一个批次关闭该连接的自动刷新
+            synchronized (connection) {
+                connection.setAutoFlushCommands(false);
+                try {
+                    for (Integer index : indexes) {
+                        futures.set(index, commands.get(index).command.apply(connection.async()));
+                    }
+                } finally {
+                    connection.flushCommands();
+                    connection.setAutoFlushCommands(true);
+                }
+            }
+        });
+        this.await(futures);
+        //槽位迁移中的命令通过集群连接重新路由
+        List<Integer> redirected = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            if (this.isRedirected(futures.get(i))) {
+                futures.set(i, commands.get(i).command.apply(clusterCommands));
+                redirected.add(i);
+            }
+        }
+        if (!redirected.isEmpty()) {
+            this.await(futures);
+        }
+        List<T> results = new ArrayList<>(futures.size());
+        for (RedisFuture<T> future : futures) {
+            results.add(this.getResult(future));
+        }
+        return results;
+    }
+
+    /**
+     * 节点是否因为槽位迁移返回了MOVED/ASK
+     */
+    private boolean isRedirected(RedisFuture<?> future) {
+        try {
+            future.get();
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            String message = e.getCause() instanceof RedisCommandExecutionException ? e.getCause().getMessage() : null;
+            return message != null && (message.startsWith("MOVED") || message.startsWith("ASK"));
+        }
+    }
+
+    private byte[][] select(byte[][] rawKeys, List<Integer> indexes) {
+        byte[][] selected = new byte[indexes.size()][];
+        for (int i = 0; i < selected.length; i++) {
+            selected[i] = rawKeys[indexes.get(i)];
+        }
+        return selected;
+    }
+
+    private void await(List<? extends RedisFuture<?>> futures) {
+        if (!LettuceFutures.awaitAll(timeout, futures.toArray(new RedisFuture[0]))) {
+            throw new RedisCommandTimeoutException("cluster batch command timed out after " + timeout.toMillis() + " ms");
+        }
+    }
+
+    private <T> T getResult(RedisFuture<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private byte[][] rawKeys(Collection<String> keys) {
+        byte[][] rawKeys = new byte[keys.size()][];
+        int index = 0;
+        for (String key : keys) {
+            rawKeys[index++] = this.rawKey(key);
+        }
+        return rawKeys;
+    }
+
+    private byte[] rawKey(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 集群模式下需要发送到某个slot的一条命令
+     */
+    private static class SlotCommand<T> {
+
+        private final int slot;
+
+        private final Function<RedisClusterAsyncCommands<byte[], byte[]>, RedisFuture<T>> command;
+
+        private SlotCommand(int slot, Function<RedisClusterAsyncCommands<byte[], byte[]>, RedisFuture<T>> command) {
+            this.slot = slot;
+            this.command = command;
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package com.lb.im.common.cache.distribute.redis;
+
+import com.lb.im.common.cache.distribute.data.RebuildLease;
+import com.lb.im.common.cache.distribute.data.VersionedData;
+import com.lb.im.common.cache.distribute.hash.HashFieldCodec;
+import com.lb.im.common.cache.distribute.hotkey.HotKeyManager;
+import com.lb.im.common.cache.distribute.store.CacheByteStore;
+import com.lb.im.common.cache.distribute.tracking.ClientSideCacheManager;
+import io.lettuce.core.AbstractRedisClient;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.cluster.RedisClusterClient;
+import io.lettuce.core.cluster.api.StatefulRedisClusterConnection;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 基于Redis的缓存字节存储，多步操作通过Lua脚本保证原子性，只访问一个key，Redis Cluster下同样可用。
+ * 开启客户端缓存时配置前缀下的key读取服务端协助失效的本地副本，开启热点key探测时热点key优先读取本地副本，
+ * 经过该存储的写入会先删除本地副本。
+ * 异步读写使用独立的Lettuce共享连接（连接线程安全，多路复用），集群模式下MGET由Lettuce按slot拆分
+ */
+@Component
+@ConditionalOnProperty(name = "distribute.cache.type", havingValue = "redis")
+public class RedisCacheByteStore implements CacheByteStore {
+
+    //覆盖写入Hash的全部字段，ARGV[1]为过期时长（毫秒，小于等于0时永久缓存），之后依次为字段和值
+    private static final DefaultRedisScript<Long> SET_HASH_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('DEL', KEYS[1]) " +
+            "redis.call('HSET', KEYS[1], unpack(ARGV, 2)) " +
+            "if tonumber(ARGV[1]) > 0 then redis.call('PEXPIRE', KEYS[1], ARGV[1]) end " +
+            "return 1", Long.class);
+    //Hash存在且不是空数据时更新字段，ARGV[1]为空数据字段名，ARGV[2]为写入的字段数量n，之后是n组字段和值，剩余的为删除的字段；
+    //删除字段前先写入占位字段，删除全部字段时Hash不会被Redis删除，保留原有的过期时间
+    private static final DefaultRedisScript<Long> UPDATE_FIELDS_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 or redis.call('HEXISTS', KEYS[1], ARGV[1]) == 1 then return 0 end " +
+            "local n = tonumber(ARGV[2]) " +
+            "if n > 0 then redis.call('HSET', KEYS[1], unpack(ARGV, 3, 2 + n * 2)) end " +
+            "if #ARGV > 2 + n * 2 then redis.call('HSETNX', KEYS[1], '" + HashFieldCodec.EMPTY_FIELD + "', '') redis.call('HDEL', KEYS[1], unpack(ARGV, 3 + n * 2)) end " +
+            "return 1", Long.class);
+    //缓存中的版本号大于等于ARGV[1]时不写入，ARGV[2]为带版本号的数据，ARGV[3]为过期时长（毫秒，小于等于0时永久缓存）
+    private static final DefaultRedisScript<Long> SET_IF_NEWER_SCRIPT = new DefaultRedisScript<>(
+            "local current = redis.call('GET', KEYS[1]) " +
+            "if current and string.byte(current, 1) == " + (VersionedData.MAGIC & 0xFF) + " and string.sub(current, 2, " + (VersionedData.VERSION_LENGTH + 1) + ") >= ARGV[1] then return 0 end " +
+            "if tonumber(ARGV[3]) > 0 then redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3]) else redis.call('SET', KEYS[1], ARGV[2]) end " +
+            "return 1", Long.class);
+
+    //缓存存在时返回缓存值，不存在时写入租约占位值ARGV[1]（过期时长ARGV[2]毫秒）并返回该占位值，其他调用方持有租约时返回其占位值
+    private static final DefaultRedisScript<byte[]> GET_OR_LEASE_SCRIPT = new DefaultRedisScript<>(
+            "local value = redis.call('GET', KEYS[1]) " +
+            "if value then return value end " +
+            "redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2]) " +
+            "return ARGV[1]", byte[].class);
+    //仍然持有租约ARGV[1]时写入数据ARGV[2]（过期时长ARGV[3]毫秒，小于等于0时永久缓存）
+    private static final DefaultRedisScript<Long> SET_AND_RELEASE_LEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) ~= ARGV[1] then return 0 end " +
+            "if tonumber(ARGV[3]) > 0 then redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3]) else redis.call('SET', KEYS[1], ARGV[2]) end " +
+            "return 1", Long.class);
+    //仍然持有租约ARGV[1]时删除占位值，重建失败时使用
+    private static final DefaultRedisScript<Long> RELEASE_LEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end " +
+            "return 0", Long.class);
+
+    @Autowired
+    @Qualifier("byteRedisTemplate")
+    private RedisTemplate<String, byte[]> redisTemplate;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisBatchOperations redisBatchOperations;
+
+    @Autowired
+    private LettuceConnectionFactory lettuceConnectionFactory;
+
+    @Autowired(required = false)
+    private HotKeyManager hotKeyManager;
+
+    @Autowired(required = false)
+    private ClientSideCacheManager clientSideCacheManager;
+
+    //异步读写使用的连接
+    private StatefulConnection<byte[], byte[]> asyncConnection;
+
+    private RedisClusterAsyncCommands<byte[], byte[]> asyncCommands;
+
+    @PostConstruct
+    public void init() {
+        AbstractRedisClient client = lettuceConnectionFactory.getRequiredNativeClient();
+        if (client instanceof RedisClusterClient) {
+            StatefulRedisClusterConnection<byte[], byte[]> clusterConnection = ((RedisClusterClient) client).connect(ByteArrayCodec.INSTANCE);
+            asyncConnection = clusterConnection;
+            asyncCommands = clusterConnection.async();
+        } else {
+            StatefulRedisConnection<byte[], byte[]> redisConnection = ((RedisClient) client).connect(ByteArrayCodec.INSTANCE);
+            asyncConnection = redisConnection;
+            asyncCommands = redisConnection.async();
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (asyncConnection != null) {
+            asyncConnection.close();
+        }
+    }
+
+    @Override
+    public byte[] get(String key) {
+        if (clientSideCacheManager != null && clientSideCacheManager.isTracked(key)) {
+            return clientSideCacheManager.get(key, this::getDirect);
+        }
+        if (hotKeyManager == null) {
+            return this.getDirect(key);
+        }
+        return hotKeyManager.get(key, this::getDirect);
+    }
+
+    /**
+     * 重建租约的占位值不是缓存数据，在这里统一视为未命中，get、getObject等读取不会把令牌当作数据解码
+     */
+    @Override
+    public byte[] getDirect(String key) {
+        byte[] bytes = redisTemplate.opsForValue().get(key);
+        return RebuildLease.isLease(bytes) ? null : bytes;
+    }
+
+    @Override
+    public List<byte[]> multiGet(Collection<String> keys) {
+        List<byte[]> values = redisBatchOperations.multiGet(keys);
+        if (values == null) {
+            return null;
+        }
+        List<byte[]> result = new ArrayList<>(values.size());
+        for (byte[] bytes : values) {
+            result.add(RebuildLease.isLease(bytes) ? null : bytes);
+        }
+        return result;
+    }
+
+    @Override
+    public void set(String key, byte[] value, Long ttlMillis) {
+        this.evictLocal(key);
+        if (ttlMillis == null || ttlMillis <= 0) {
+            redisTemplate.opsForValue().set(key, value);
+        } else {
+            redisTemplate.opsForValue().set(key, value, ttlMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 集群模式下按slot分组并行写入
+     */
+    @Override
+    public void setAll(Map<String, byte[]> values, Function<String, Long> ttlMillis) {
+        if (values.isEmpty()) {
+            return;
+        }
+        values.keySet().forEach(this::evictLocal);
+        redisBatchOperations.setAll(values, key -> {
+            Long millis = ttlMillis.apply(key);
+            return millis == null || millis <= 0 ? Expiration.persistent() : Expiration.milliseconds(millis);
+        });
+    }
+
+    @Override
+    public boolean expire(String key, long ttlMillis) {
+        this.evictLocal(key);
+        return Boolean.TRUE.equals(redisTemplate.expire(key, ttlMillis, TimeUnit.MILLISECONDS));
+    }
+
+    @Override
+    public void expireAll(Map<String, Long> ttlMillis) {
+        ttlMillis.keySet().forEach(this::evictLocal);
+        redisBatchOperations.expireAll(ttlMillis);
+    }
+
+    @Override
+    public boolean delete(String key) {
+        this.evictLocal(key);
+        return Boolean.TRUE.equals(redisTemplate.delete(key));
+    }
+
+    /**
+     * 批量执行UNLINK，集群模式下按slot分组并行删除
+     */
+    @Override
+    public long deleteAll(List<String> keys) {
+        keys.forEach(this::evictLocal);
+        return redisBatchOperations.unlink(keys);
+    }
+
+    /**
+     * 通过SCAN遍历，避免KEYS命令阻塞Redis
+     */
+    @Override
+    public Stream<String> scan(String pattern, int batchSize) {
+        RedisKeyScanner scanner = new RedisKeyScanner(redisTemplate.getRequiredConnectionFactory(), pattern, batchSize);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(scanner, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(scanner::close);
+    }
+
+    @Override
+    public CompletableFuture<byte[]> getAsync(String key) {
+        return asyncCommands.get(this.rawKey(key)).toCompletableFuture().thenApply(bytes -> RebuildLease.isLease(bytes) ? null : bytes);
+    }
+
+    @Override
+    public CompletableFuture<List<byte[]>> multiGetAsync(Collection<String> keys) {
+        byte[][] rawKeys = keys.stream().map(this::rawKey).toArray(byte[][]::new);
+        return asyncCommands.mget(rawKeys).toCompletableFuture().thenApply(values -> {
+            List<byte[]> result = new ArrayList<>(values.size());
+            for (KeyValue<byte[], byte[]> keyValue : values) {
+                result.add(keyValue.hasValue() && !RebuildLease.isLease(keyValue.getValue()) ? keyValue.getValue() : null);
+            }
+            return result;
+        });
+    }
+
+    /**
+     * 写入前后各删除一次本地副本，写入完成前本节点的读取可能把旧值重新放入本地副本
+     */
+    @Override
+    public CompletableFuture<Void> setAsync(String key, byte[] value, Long ttlMillis) {
+        this.evictLocal(key);
+        CompletableFuture<String> written = ttlMillis == null || ttlMillis <= 0 ? asyncCommands.set(this.rawKey(key), value).toCompletableFuture()
+                : asyncCommands.set(this.rawKey(key), value, SetArgs.Builder.px(ttlMillis)).toCompletableFuture();
+        return written.thenRun(() -> this.evictLocal(key));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteAsync(String key) {
+        this.evictLocal(key);
+        return asyncCommands.del(this.rawKey(key)).toCompletableFuture().thenApply(count -> {
+            this.evictLocal(key);
+            return count != null && count > 0;
+        });
+    }
+
+    /**
+     * 删除热点key和客户端缓存的本地副本
+     */
+    @Override
+    public void evictLocal(String key) {
+        if (hotKeyManager != null) {
+            hotKeyManager.invalidate(key);
+        }
+        if (clientSideCacheManager != null) {
+            clientSideCacheManager.evict(key);
+        }
+    }
+
+    @Override
+    public byte[] getOrLease(String key, byte[] token, long ttlMillis) {
+        return redisTemplate.execute(GET_OR_LEASE_SCRIPT, Collections.singletonList(key), token, this.toArg(ttlMillis));
+    }
+
+    @Override
+    public boolean setIfLeased(String key, byte[] token, byte[] value, long ttlMillis) {
+        this.evictLocal(key);
+        Long written = redisTemplate.execute(SET_AND_RELEASE_LEASE_SCRIPT, Collections.singletonList(key), token, value, this.toArg(ttlMillis));
+        return written != null && written > 0;
+    }
+
+    @Override
+    public void releaseLease(String key, byte[] token) {
+        redisTemplate.execute(RELEASE_LEASE_SCRIPT, Collections.singletonList(key), token);
+    }
+
+    @Override
+    public boolean setIfNewer(String key, long version, byte[] value, long ttlMillis) {
+        this.evictLocal(key);
+        Long written = redisTemplate.execute(SET_IF_NEWER_SCRIPT, Collections.singletonList(key),
+                VersionedData.formatVersion(version), value, this.toArg(ttlMillis));
+        return written != null && written > 0;
+    }
+
+    @Override
+    public Map<String, String> getHash(String key) {
+        return stringRedisTemplate.<String, String>opsForHash().entries(key);
+    }
+
+    @Override
+    public List<String> getHashFields(String key, List<String> fields) {
+        List<String> values = stringRedisTemplate.<String, String>opsForHash().multiGet(key, fields);
+        return values == null ? Collections.nCopies(fields.size(), null) : values;
+    }
+
+    @Override
+    public void setHash(String key, Map<String, String> fields, Long ttlMillis) {
+        if (fields.isEmpty()) {
+            stringRedisTemplate.delete(key);
+            return;
+        }
+        List<String> args = new ArrayList<>(fields.size() * 2 + 1);
+        args.add(String.valueOf(ttlMillis == null ? 0 : ttlMillis));
+        fields.forEach((field, value) -> {
+            args.add(field);
+            args.add(value);
+        });
+        stringRedisTemplate.execute(SET_HASH_SCRIPT, Collections.singletonList(key), args.toArray());
+    }
+
+    @Override
+    public boolean updateHash(String key, String nullField, Map<String, String> setFields, List<String> deleteFields) {
+        List<String> args = new ArrayList<>(setFields.size() * 2 + deleteFields.size() + 2);
+        args.add(nullField);
+        args.add(String.valueOf(setFields.size()));
+        setFields.forEach((field, value) -> {
+            args.add(field);
+            args.add(value);
+        });
+        args.addAll(deleteFields);
+        Long updated = stringRedisTemplate.execute(UPDATE_FIELDS_SCRIPT, Collections.singletonList(key), args.toArray());
+        return updated != null && updated > 0;
+    }
+
+    //脚本参数按照字节数组序列化，数字参数转换为ASCII字符串
+    private byte[] toArg(long value) {
+        return String.valueOf(value).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private byte[] rawKey(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+}
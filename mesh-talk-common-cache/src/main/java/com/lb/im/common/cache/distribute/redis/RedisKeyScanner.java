@@ -0,0 +1,93 @@
+package com.lb.im.common.cache.distribute.redis;
+
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * 基于SCAN游标的键迭代器，每次只从Redis获取一批键。
+ * 单机模式下直接使用SCAN游标，集群模式下依次遍历每个主节点的SCAN游标。
+ * 迭代器持有一个Redis连接，遍历结束或提前终止时需要调用close释放。
+ */
+public class RedisKeyScanner implements Iterator<String>, Closeable {
+
+    private final RedisConnection connection;
+    private final ScanOptions scanOptions;
+    //集群模式下待遍历的主节点，单机模式为空
+    private final Iterator<RedisClusterNode> nodes;
+    //当前遍历的游标
+    private Cursor<byte[]> cursor;
+    private boolean closed;
+
+    public RedisKeyScanner(RedisConnectionFactory connectionFactory, String pattern, int batchSize) {
+        this.scanOptions = ScanOptions.scanOptions().match(pattern).count(Math.max(1, batchSize)).build();
+        this.connection = connectionFactory.getConnection();
+        if (connection instanceof RedisClusterConnection) {
+            List<RedisClusterNode> masters = new ArrayList<>();
+            for (RedisClusterNode node : ((RedisClusterConnection) connection).clusterGetNodes()) {
+                if (node.isMaster()) {
+                    masters.add(node);
+                }
+            }
+            this.nodes = masters.iterator();
+        } else {
+            this.nodes = null;
+            this.cursor = connection.keyCommands().scan(scanOptions);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        while (cursor == null || !cursor.hasNext()) {
+            //当前节点遍历完毕，切换到下一个主节点
+            if (nodes == null || !nodes.hasNext()) {
+                this.close();
+                return false;
+            }
+            this.closeCursor();
+            cursor = ((RedisClusterConnection) connection).scan(nodes.next(), scanOptions);
+        }
+        return true;
+    }
+
+    @Override
+    public String next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return new String(cursor.next(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            this.closeCursor();
+        } finally {
+            connection.close();
+        }
+    }
+
+    private void closeCursor() {
+        if (cursor != null && !cursor.isClosed()) {
+            cursor.close();
+        }
+        cursor = null;
+    }
+}
@@ -0,0 +1,208 @@
+package com.lb.im.common.cache.distribute.refresh;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Iterator;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * 逻辑过期数据的提前刷新，通过queryWithLogicalExpire系列查询读取到的key连同数据库查询函数登记在这里，
+ * 后台定时扫描，在逻辑过期前的一段时间内（提前量取ahead-millis和逻辑过期时长 * ahead-ratio中的较大值）
+ * 由有界线程池重新加载，热点数据几乎不会在过期后才被读到；
+ * 超过idle-seconds没有被读取的key移出登记，登记的key数量达到上限后不再登记新的key。
+ * 多个节点登记了同一个key时，通过分布式锁和Double Check保证只有一个节点查询数据库。
+ */
+@Component
+@ConditionalOnProperty(name = "distribute.cache.refresh-ahead.enabled", havingValue = "true")
+public class RefreshAheadRegistry {
+
+    private final Logger logger = LoggerFactory.getLogger(RefreshAheadRegistry.class);
+
+    //逻辑过期前提前刷新的最小时长，单位毫秒
+    @Value("${distribute.cache.refresh-ahead.ahead-millis:3000}")
+    private long aheadMillis;
+
+    //逻辑过期前提前刷新的时长占逻辑过期时长的比例
+    @Value("${distribute.cache.refresh-ahead.ahead-ratio:0.1}")
+    private double aheadRatio;
+
+    //超过该时长没有被读取的key移出登记，单位秒
+    @Value("${distribute.cache.refresh-ahead.idle-seconds:60}")
+    private long idleSeconds;
+
+    //登记的key数量上限
+    @Value("${distribute.cache.refresh-ahead.max-keys:10000}")
+    private int maxKeys;
+
+    //扫描间隔，单位毫秒
+    @Value("${distribute.cache.refresh-ahead.scan-interval-millis:500}")
+    private long scanIntervalMillis;
+
+    //并行刷新的线程数量
+    @Value("${distribute.cache.refresh-ahead.concurrency:4}")
+    private int concurrency;
+
+    //等待刷新的任务数量上限，超过后本次扫描不再提交，下次扫描重试
+    @Value("${distribute.cache.refresh-ahead.queue-size:1000}")
+    private int queueSize;
+
+    private final ConcurrentMap<String, RefreshEntry> entries = new ConcurrentHashMap<>();
+
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private ScheduledExecutorService scanExecutor;
+
+    private ThreadPoolExecutor refreshExecutor;
+
+    @PostConstruct
+    public void init() {
+        scanExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-refresh-ahead-scan");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger threadIndex = new AtomicInteger();
+        int threads = Math.max(1, concurrency);
+        refreshExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(Math.max(1, queueSize)), runnable -> {
+            Thread thread = new Thread(runnable, "cache-refresh-ahead-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        scanExecutor.scheduleWithFixedDelay(this::scan, scanIntervalMillis, scanIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scanExecutor.shutdownNow();
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * 记录一次读取，key已经登记时更新访问时间和逻辑过期时间点
+     *
+     * @param key          缓存key
+     * @param expireMillis 读取到的逻辑过期时间点
+     * @return key是否已经登记
+     */
+    public boolean touch(String key, long expireMillis) {
+        RefreshEntry entry = entries.get(key);
+        if (entry == null) {
+            return false;
+        }
+        entry.lastAccessMillis = System.currentTimeMillis();
+        if (expireMillis > entry.expireMillis) {
+            entry.expireMillis = expireMillis;
+        }
+        return true;
+    }
+
+    /**
+     * 登记key
+     *
+     * @param key          缓存key
+     * @param ttlMillis    逻辑过期时长，单位毫秒
+     * @param expireMillis 当前的逻辑过期时间点
+     * @param refresher    刷新函数，参数为提前刷新的时长，剩余时间大于该时长时不需要刷新；返回刷新后的逻辑过期时间点，小于等于0表示本次没有刷新
+     */
+    public void register(String key, long ttlMillis, long expireMillis, LongUnaryOperator refresher) {
+        if (entries.size() >= maxKeys) {
+            return;
+        }
+        long ahead = Math.max(aheadMillis, (long) (ttlMillis * aheadRatio));
+        entries.putIfAbsent(key, new RefreshEntry(Math.min(ahead, ttlMillis / 2), expireMillis, refresher));
+    }
+
+    /**
+     * 移出登记，删除key时调用
+     */
+    public void remove(String key) {
+        entries.remove(key);
+    }
+
+    public int getTrackedCount() {
+        return entries.size();
+    }
+
+    public long getRefreshes() {
+        return refreshes.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    private void scan() {
+        long now = System.currentTimeMillis();
+        long idleMillis = TimeUnit.SECONDS.toMillis(idleSeconds);
+        Iterator<RefreshEntry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            RefreshEntry entry = iterator.next();
+            if (now - entry.lastAccessMillis > idleMillis) {
+                iterator.remove();
+                evictions.increment();
+                continue;
+            }
+            if (entry.expireMillis - now > entry.aheadMillis || !entry.refreshing.compareAndSet(false, true)) {
+                continue;
+            }
+            try {
+                refreshExecutor.execute(() -> this.refresh(entry));
+            } catch (RejectedExecutionException e) {
+                //刷新任务积压，下次扫描重试
+                entry.refreshing.set(false);
+                return;
+            }
+        }
+    }
+
+    private void refresh(RefreshEntry entry) {
+        try {
+            long expireMillis = entry.refresher.applyAsLong(entry.aheadMillis);
+            if (expireMillis > 0) {
+                entry.expireMillis = expireMillis;
+                refreshes.increment();
+            }
+        } catch (Exception e) {
+            failures.increment();
+            logger.error("refresh ahead | {}", e.getMessage());
+        } finally {
+            entry.refreshing.set(false);
+        }
+    }
+
+    /**
+     * 登记的key
+     */
+    private static class RefreshEntry {
+
+        //逻辑过期前提前刷新的时长，单位毫秒
+        private final long aheadMillis;
+        private final LongUnaryOperator refresher;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private volatile long expireMillis;
+        private volatile long lastAccessMillis;
+
+        private RefreshEntry(long aheadMillis, long expireMillis, LongUnaryOperator refresher) {
+            this.aheadMillis = aheadMillis;
+            this.expireMillis = expireMillis;
+            this.refresher = refresher;
+            this.lastAccessMillis = System.currentTimeMillis();
+        }
+    }
+}
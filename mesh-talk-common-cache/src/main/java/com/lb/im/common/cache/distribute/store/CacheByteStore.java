@@ -0,0 +1,228 @@
+package com.lb.im.common.cache.distribute.store;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * 缓存的字节存储，查询策略只通过该接口读写编码后的原始字节和Hash字段，
+ * Redis实现基于RedisTemplate和Lua脚本，进程内实现基于ConcurrentMap和时间轮，两者的原子性语义一致。
+ * 读取时重建租约的占位值不是缓存数据，统一按照未命中返回空；过期时长小于等于0或为空时表示永久缓存
+ */
+public interface CacheByteStore {
+
+    /**
+     * 读取原始字节，实现可以使用本地副本（热点key、客户端缓存）
+     *
+     * @param key 缓存key
+     * @return 不存在时返回空
+     */
+    byte[] get(String key);
+
+    /**
+     * 跳过本地副本直接读取原始字节，重建缓存前的Double Check使用
+     *
+     * @param key 缓存key
+     * @return 不存在时返回空
+     */
+    byte[] getDirect(String key);
+
+    /**
+     * 批量读取原始字节，结果与keys的顺序一致，不存在的key对应空
+     *
+     * @param keys 缓存key
+     * @return 原始字节列表
+     */
+    List<byte[]> multiGet(Collection<String> keys);
+
+    /**
+     * 写入原始字节
+     *
+     * @param key       缓存key
+     * @param value     原始字节
+     * @param ttlMillis 过期时长，单位毫秒，为空时永久缓存
+     */
+    void set(String key, byte[] value, Long ttlMillis);
+
+    /**
+     * 批量写入原始字节，Redis实现通过管道一次性写入
+     *
+     * @param values    缓存key和原始字节
+     * @param ttlMillis 按key计算的过期时长，单位毫秒，返回空时永久缓存
+     */
+    void setAll(Map<String, byte[]> values, Function<String, Long> ttlMillis);
+
+    /**
+     * 设置过期时间
+     *
+     * @param key       缓存key
+     * @param ttlMillis 过期时长，单位毫秒
+     * @return key不存在时返回false
+     */
+    boolean expire(String key, long ttlMillis);
+
+    /**
+     * 批量设置过期时间
+     *
+     * @param ttlMillis 缓存key和过期时长，单位毫秒
+     */
+    void expireAll(Map<String, Long> ttlMillis);
+
+    /**
+     * 删除key
+     *
+     * @param key 缓存key
+     * @return key是否存在
+     */
+    boolean delete(String key);
+
+    /**
+     * 批量删除key
+     *
+     * @param keys 缓存key
+     * @return 删除的key数量
+     */
+    long deleteAll(List<String> keys);
+
+    /**
+     * 按照glob模式遍历key，使用完成后需要关闭Stream
+     *
+     * @param pattern   匹配模式
+     * @param batchSize 每批遍历的建议数量
+     * @return key的Stream
+     */
+    Stream<String> scan(String pattern, int batchSize);
+
+    /**
+     * 异步读取原始字节，不使用本地副本，不阻塞调用线程。
+     * 默认实现直接调用同步方法，只适用于不涉及网络IO的实现，Redis实现使用Lettuce的异步命令
+     *
+     * @param key 缓存key
+     * @return 不存在时完成值为空
+     */
+    default CompletableFuture<byte[]> getAsync(String key) {
+        return CompletableFuture.completedFuture(this.getDirect(key));
+    }
+
+    /**
+     * 异步批量读取原始字节，结果与keys的顺序一致，不存在的key对应空
+     *
+     * @param keys 缓存key
+     * @return 原始字节列表
+     */
+    default CompletableFuture<List<byte[]>> multiGetAsync(Collection<String> keys) {
+        return CompletableFuture.completedFuture(this.multiGet(keys));
+    }
+
+    /**
+     * 异步写入原始字节，与同步写入一样丢弃本地副本
+     *
+     * @param key       缓存key
+     * @param value     原始字节
+     * @param ttlMillis 过期时长，单位毫秒，为空时永久缓存
+     * @return 写入完成的通知
+     */
+    default CompletableFuture<Void> setAsync(String key, byte[] value, Long ttlMillis) {
+        this.set(key, value, ttlMillis);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * 异步删除key，与同步删除一样丢弃本地副本
+     *
+     * @param key 缓存key
+     * @return key是否存在
+     */
+    default CompletableFuture<Boolean> deleteAsync(String key) {
+        return CompletableFuture.completedFuture(this.delete(key));
+    }
+
+    /**
+     * 丢弃key的本地副本，数据不经过存储写入（例如进入write-behind缓冲区）时调用，没有本地副本的实现不做任何处理
+     *
+     * @param key 缓存key
+     */
+    default void evictLocal(String key) {
+    }
+
+    /**
+     * 原子地读取缓存或获取重建租约：缓存存在时返回缓存值，不存在时写入租约占位值token并返回token，
+     * 其他调用方持有租约时返回其占位值
+     *
+     * @param key       缓存key
+     * @param token     租约占位值
+     * @param ttlMillis 租约有效时长，单位毫秒
+     * @return 缓存值或租约占位值
+     */
+    byte[] getOrLease(String key, byte[] token, long ttlMillis);
+
+    /**
+     * 仍然持有租约token时写入数据，租约已经过期或被其他调用方接管时不写入
+     *
+     * @param key       缓存key
+     * @param token     租约占位值
+     * @param value     原始字节
+     * @param ttlMillis 过期时长，单位毫秒，小于等于0时永久缓存
+     * @return 是否写入
+     */
+    boolean setIfLeased(String key, byte[] token, byte[] value, long ttlMillis);
+
+    /**
+     * 仍然持有租约token时删除占位值，重建失败时使用
+     *
+     * @param key   缓存key
+     * @param token 租约占位值
+     */
+    void releaseLease(String key, byte[] token);
+
+    /**
+     * 缓存中带版本号的数据版本号小于version时写入
+     *
+     * @param key       缓存key
+     * @param version   版本号
+     * @param value     带版本号的原始字节
+     * @param ttlMillis 过期时长，单位毫秒，小于等于0时永久缓存
+     * @return 是否写入
+     */
+    boolean setIfNewer(String key, long version, byte[] value, long ttlMillis);
+
+    /**
+     * 读取Hash的全部字段
+     *
+     * @param key 缓存key
+     * @return 不存在时返回空Map
+     */
+    Map<String, String> getHash(String key);
+
+    /**
+     * 读取Hash的部分字段，结果与fields的顺序一致，不存在的字段对应空
+     *
+     * @param key    缓存key
+     * @param fields 字段名
+     * @return 字段值列表
+     */
+    List<String> getHashFields(String key, List<String> fields);
+
+    /**
+     * 原子地覆盖Hash的全部字段并设置过期时间，没有字段时删除key
+     *
+     * @param key       缓存key
+     * @param fields    字段和值
+     * @param ttlMillis 过期时长，单位毫秒，为空时永久缓存
+     */
+    void setHash(String key, Map<String, String> fields, Long ttlMillis);
+
+    /**
+     * Hash存在且不包含nullField时原子地更新字段，保留原有的过期时间；删除全部字段时保留只包含占位字段的Hash
+     *
+     * @param key          缓存key
+     * @param nullField    空数据字段名
+     * @param setFields    写入的字段和值
+     * @param deleteFields 删除的字段
+     * @return 是否更新
+     */
+    boolean updateHash(String key, String nullField, Map<String, String> setFields, List<String> deleteFields);
+}
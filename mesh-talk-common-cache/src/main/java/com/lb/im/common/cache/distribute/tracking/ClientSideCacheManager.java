@@ -0,0 +1,318 @@
+package com.lb.im.common.cache.distribute.tracking;
+
+import cn.hutool.core.util.StrUtil;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.lettuce.core.RedisChannelHandler;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisConnectionStateListener;
+import io.lettuce.core.RedisException;
+import io.lettuce.core.TrackingArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.push.PushMessage;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.support.caching.CacheAccessor;
+import io.lettuce.core.support.caching.CacheFrontend;
+import io.lettuce.core.support.caching.ClientSideCaching;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.net.SocketAddress;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * 基于RESP3和Redis 6+ CLIENT TRACKING的客户端缓存，RedisDistributedCacheService读取配置前缀下的key时优先使用本地副本，
+ * key在Redis中被修改、删除或过期后由服务端推送失效消息，本地副本随之删除，不需要额外的失效消息通道。
+ * 跟踪使用一条独立的RESP3连接，通过Lettuce的{@link ClientSideCaching}读取和维护有界的本地副本：
+ * bcast模式下服务端按前缀广播失效消息，不记录读取过的key；optin模式下只跟踪通过该连接读取过的key，
+ * 每次未命中多一条CLIENT CACHING yes命令，且未命中的读取串行执行。
+ * 读取期间收到失效消息时不写入本地副本，跟踪连接断开期间直接读取Redis，重连后重新开启跟踪并清空本地副本；
+ * 本地副本另有过期时间作为兜底。只支持单节点部署，集群模式下不开启。
+ */
+@Component
+@ConditionalOnProperty(name = "distribute.cache.client-side.enabled", havingValue = "true")
+public class ClientSideCacheManager {
+
+    private final Logger logger = LoggerFactory.getLogger(ClientSideCacheManager.class);
+
+    //失效序号的分段数量，读取期间同一分段的key收到失效消息时放弃写入本地副本
+    private static final int SEQUENCE_STRIPES = 1024;
+
+    private static final String INVALIDATE = "invalidate";
+
+    //跟踪模式，bcast或optin
+    @Value("${distribute.cache.client-side.mode:bcast}")
+    private String mode;
+
+    //使用客户端缓存的key前缀，多个前缀使用逗号分隔
+    @Value("${distribute.cache.client-side.prefixes:}")
+    private String prefixConfig;
+
+    //本地副本的最大数量
+    @Value("${distribute.cache.client-side.maximum-size:10000}")
+    private long maximumSize;
+
+    //本地副本的过期时间，单位秒，避免失效消息丢失时长期读取旧数据
+    @Value("${distribute.cache.client-side.expire-seconds:300}")
+    private long expireSeconds;
+
+    //Redis部署类型，single或cluster
+    @Value("${redis.arrange.type:single}")
+    private String arrangeType;
+
+    @Autowired
+    @Qualifier("clientSideCachingRedisClient")
+    private RedisClient redisClient;
+
+    private final ClientSideCacheStats stats = new ClientSideCacheStats();
+
+    private final AtomicLongArray sequences = new AtomicLongArray(SEQUENCE_STRIPES);
+
+    //当前线程开始读取时key所在分段的失效序号
+    private final ThreadLocal<Long> readSequence = new ThreadLocal<>();
+
+    private List<String> prefixes = Collections.emptyList();
+
+    private boolean optin;
+
+    private TrackingArgs trackingArgs;
+
+    private Cache<String, byte[]> store;
+
+    private StatefulRedisConnection<String, byte[]> connection;
+
+    private CacheFrontend<String, byte[]> frontend;
+
+    //跟踪已开启且连接可用
+    private volatile boolean available;
+
+    @PostConstruct
+    public void init() {
+        if ("cluster".equals(arrangeType)) {
+            logger.warn("client side caching does not support redis cluster, disabled");
+            return;
+        }
+        prefixes = StrUtil.split(prefixConfig, ',', true, true);
+        if (prefixes.isEmpty()) {
+            logger.warn("client side caching enabled without prefixes, disabled");
+            return;
+        }
+        optin = "optin".equalsIgnoreCase(mode);
+        trackingArgs = optin ? TrackingArgs.Builder.enabled().optin()
+                : TrackingArgs.Builder.enabled().bcast().prefixes(prefixes.toArray(new String[0]));
+        store = CacheBuilder.newBuilder().maximumSize(maximumSize).expireAfterWrite(expireSeconds, TimeUnit.SECONDS).build();
+        try {
+            connection = redisClient.connect(RedisCodec.of(StringCodec.UTF8, ByteArrayCodec.INSTANCE));
+            //先于ClientSideCaching注册，FLUSHALL/FLUSHDB的失效消息中key为空，Lettuce的监听器无法处理
+            connection.addListener(this::onPushMessage);
+            frontend = ClientSideCaching.enable(new TrackingCacheAccessor(), connection, trackingArgs);
+            redisClient.addListener(new TrackingConnectionListener());
+            available = true;
+            logger.info("client side caching enabled | mode: {}, prefixes: {}", optin ? "optin" : "bcast", prefixes);
+        } catch (RedisException e) {
+            logger.error("enable client side caching failed, fall back to redis reads | {}", e.getMessage());
+            if (connection != null) {
+                connection.close();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        available = false;
+        if (frontend != null) {
+            frontend.close();
+        }
+    }
+
+    /**
+     * key是否使用客户端缓存
+     */
+    public boolean isTracked(String key) {
+        if (frontend == null) {
+            return false;
+        }
+        for (String prefix : prefixes) {
+            if (key.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 读取缓存的原始字节，本地副本不存在时通过跟踪连接读取Redis并保存副本，跟踪连接不可用时使用loader读取
+     *
+     * @param key    缓存key
+     * @param loader 从Redis读取原始字节的函数
+     * @return 原始字节
+     */
+    public byte[] get(String key, Function<String, byte[]> loader) {
+        if (!available) {
+            stats.recordFallback();
+            return loader.apply(key);
+        }
+        byte[] value = store.getIfPresent(key);
+        if (value != null) {
+            stats.recordHit();
+            return value;
+        }
+        readSequence.set(sequences.get(this.stripe(key)));
+        try {
+            value = this.readThrough(key);
+            stats.recordMiss();
+            return value;
+        } catch (RedisException e) {
+            stats.recordFallback();
+            logger.warn("client side caching read failed, fall back to redis read | {} | {}", key, e.getMessage());
+            return loader.apply(key);
+        } finally {
+            readSequence.remove();
+        }
+    }
+
+    /**
+     * 删除本地副本，当前节点写入和删除key时调用，不等待服务端的失效消息
+     */
+    public void evict(String key) {
+        if (store == null) {
+            return;
+        }
+        sequences.incrementAndGet(this.stripe(key));
+        store.invalidate(key);
+    }
+
+    public ClientSideCacheStats getStats() {
+        return stats;
+    }
+
+    /**
+     * 本地副本数量
+     */
+    public long size() {
+        return store == null ? 0 : store.size();
+    }
+
+    public String getMode() {
+        return optin ? "optin" : "bcast";
+    }
+
+    private byte[] readThrough(String key) {
+        if (!optin) {
+            return frontend.get(key);
+        }
+        //CLIENT CACHING yes只对下一条命令生效，跟踪连接上的两条命令不能与其他线程交错
+        synchronized (this) {
+            connection.sync().clientCaching(true);
+            return frontend.get(key);
+        }
+    }
+
+    /**
+     * 清空本地副本，所有分段的失效序号加1，正在进行的读取不再写入本地副本
+     */
+    private void flush() {
+        for (int i = 0; i < SEQUENCE_STRIPES; i++) {
+            sequences.incrementAndGet(i);
+        }
+        store.invalidateAll();
+        stats.recordFlush();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void onPushMessage(PushMessage message) {
+        if (!INVALIDATE.equals(message.getType())) {
+            return;
+        }
+        List<Object> content = message.getContent(StringCodec.UTF8::decodeKey);
+        Object keys = content.size() > 1 ? content.get(1) : null;
+        if (keys == null) {
+            //FLUSHALL/FLUSHDB
+            this.flush();
+            return;
+        }
+        stats.recordInvalidation(((List<Object>) keys).size());
+    }
+
+    private int stripe(String key) {
+        return (key.hashCode() & Integer.MAX_VALUE) % SEQUENCE_STRIPES;
+    }
+
+    /**
+     * ClientSideCaching使用的本地副本存取，失效消息中的key通过evict删除
+     */
+    private class TrackingCacheAccessor implements CacheAccessor<String, byte[]> {
+
+        @Override
+        public byte[] get(String key) {
+            return store.getIfPresent(key);
+        }
+
+        @Override
+        public void put(String key, byte[] value) {
+            Long start = readSequence.get();
+            //与evict在同一个key上互斥，读取开始后收到失效消息时保留原值（已被删除）
+            store.asMap().compute(key, (k, old) -> {
+                if (start == null || start != sequences.get(stripe(k))) {
+                    stats.recordRejectedPut();
+                    return old;
+                }
+                return value;
+            });
+        }
+
+        @Override
+        public void evict(String key) {
+            ClientSideCacheManager.this.evict(key);
+        }
+    }
+
+    /**
+     * 跟踪连接断开时停止使用本地副本，重连后重新开启跟踪，期间的失效消息已经丢失，需要清空本地副本
+     */
+    private class TrackingConnectionListener implements RedisConnectionStateListener {
+
+        @Override
+        public void onRedisConnected(RedisChannelHandler<?, ?> channelHandler, SocketAddress socketAddress) {
+            if (channelHandler != connection) {
+                return;
+            }
+            connection.async().clientTracking(trackingArgs).whenComplete((result, e) -> {
+                if (e != null) {
+                    logger.error("re-enable client tracking failed | {}", e.getMessage());
+                    return;
+                }
+                flush();
+                available = true;
+                logger.info("client tracking re-enabled after reconnect");
+            });
+        }
+
+        @Override
+        public void onRedisDisconnected(RedisChannelHandler<?, ?> channelHandler) {
+            if (channelHandler != connection) {
+                return;
+            }
+            available = false;
+            flush();
+            logger.warn("client tracking connection lost, fall back to redis reads");
+        }
+
+        @Override
+        public void onRedisExceptionCaught(RedisChannelHandler<?, ?> channelHandler, Throwable cause) {
+        }
+    }
+}
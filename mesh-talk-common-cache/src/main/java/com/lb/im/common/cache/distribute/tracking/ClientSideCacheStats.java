@@ -0,0 +1,100 @@
+package com.lb.im.common.cache.distribute.tracking;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 客户端缓存（Redis服务端协助失效）的指标，包括本地命中率和收到的失效消息
+ */
+public class ClientSideCacheStats {
+
+    //本地副本命中次数
+    private final LongAdder hits = new LongAdder();
+    //本地副本未命中，通过跟踪连接读取Redis的次数
+    private final LongAdder misses = new LongAdder();
+    //跟踪连接不可用或读取失败，直接读取Redis的次数
+    private final LongAdder fallbacks = new LongAdder();
+    //收到的失效消息数量
+    private final LongAdder invalidations = new LongAdder();
+    //失效消息中的key数量
+    private final LongAdder invalidatedKeys = new LongAdder();
+    //清空本地副本的次数，包括FLUSHALL/FLUSHDB的失效消息和跟踪连接断开
+    private final LongAdder flushes = new LongAdder();
+    //读取期间收到失效消息，放弃写入本地副本的次数
+    private final LongAdder rejectedPuts = new LongAdder();
+
+    public void recordHit() {
+        hits.increment();
+    }
+
+    public void recordMiss() {
+        misses.increment();
+    }
+
+    public void recordFallback() {
+        fallbacks.increment();
+    }
+
+    public void recordInvalidation(int keys) {
+        invalidations.increment();
+        invalidatedKeys.add(keys);
+    }
+
+    public void recordFlush() {
+        flushes.increment();
+    }
+
+    public void recordRejectedPut() {
+        rejectedPuts.increment();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getFallbacks() {
+        return fallbacks.sum();
+    }
+
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    public long getInvalidatedKeys() {
+        return invalidatedKeys.sum();
+    }
+
+    public long getFlushes() {
+        return flushes.sum();
+    }
+
+    public long getRejectedPuts() {
+        return rejectedPuts.sum();
+    }
+
+    /**
+     * 本地副本的命中率，直接读取Redis的次数计为未命中
+     */
+    public double getHitRate() {
+        long hit = hits.sum();
+        long total = hit + misses.sum() + fallbacks.sum();
+        return total == 0 ? 0D : (double) hit / total;
+    }
+
+    @Override
+    public String toString() {
+        return "ClientSideCacheStats{" +
+                "hits=" + getHits() +
+                ", misses=" + getMisses() +
+                ", fallbacks=" + getFallbacks() +
+                ", hitRate=" + getHitRate() +
+                ", invalidations=" + getInvalidations() +
+                ", invalidatedKeys=" + getInvalidatedKeys() +
+                ", flushes=" + getFlushes() +
+                ", rejectedPuts=" + getRejectedPuts() +
+                '}';
+    }
+}
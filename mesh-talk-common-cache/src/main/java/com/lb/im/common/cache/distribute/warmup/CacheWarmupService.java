@@ -0,0 +1,275 @@
+package com.lb.im.common.cache.distribute.warmup;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.lb.im.common.cache.distribute.DistributedCacheService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 缓存预热，Redis故障切换或冷启动后在业务流量到来之前批量加载缓存，避免大量请求同时回源数据库。
+ * 每个预热任务按批调用批量加载函数，加载到的数据通过管道批量写入缓存，过期时间按照过期策略增加抖动和错峰；
+ * 所有任务的批次共用一个有界线程池并行执行，并按照每秒加载的业务标识数量限流，保护数据库。
+ * distribute.cache.warmup.enabled为true时，应用启动后自动执行容器中所有的{@link CacheWarmupTask}；
+ * distribute.cache.warmup.gate-readiness为true时，预热完成（或超时）前{@link WarmupReadinessHealthIndicator}
+ * 报告的就绪状态为REFUSING_TRAFFIC（需要spring-boot-actuator），不修改Spring Boot自身发布的就绪状态事件。
+ * 故障切换后可以调用{@link #warmup()}重新预热。容器中没有{@link DistributedCacheService}时（未配置distribute.cache.type）
+ * 不执行预热任务，预热直接完成。
+ */
+@Component
+public class CacheWarmupService {
+
+    private final Logger logger = LoggerFactory.getLogger(CacheWarmupService.class);
+
+    //应用启动后是否自动预热
+    @Value("${distribute.cache.warmup.enabled:false}")
+    private boolean enabled;
+
+    //并行执行的批次数量
+    @Value("${distribute.cache.warmup.concurrency:4}")
+    private int concurrency;
+
+    //每批加载的业务标识数量
+    @Value("${distribute.cache.warmup.batch-size:500}")
+    private int batchSize;
+
+    //每秒最多加载的业务标识数量，小于等于0时不限流
+    @Value("${distribute.cache.warmup.rate-per-second:0}")
+    private double ratePerSecond;
+
+    //预热完成前是否拒绝流量
+    @Value("${distribute.cache.warmup.gate-readiness:false}")
+    private boolean gateReadiness;
+
+    //拒绝流量的最长时间，超时后无论预热是否完成都接受流量，单位秒
+    @Value("${distribute.cache.warmup.timeout-seconds:600}")
+    private long timeoutSeconds;
+
+    //缓存服务是可选的，未启用分布式缓存时不影响应用启动
+    @Autowired
+    private ObjectProvider<DistributedCacheService> distributedCacheService;
+
+    @Autowired
+    private ObjectProvider<CacheWarmupTask<?, ?>> warmupTasks;
+
+    //当前的预热进度
+    private volatile WarmupProgress progress;
+
+    //是否正在拒绝流量
+    private volatile boolean refusingTraffic;
+
+    private volatile ExecutorService executor;
+
+    //拒绝流量超时的定时任务，与执行批次的线程池分开，批次占满线程池时仍能按时触发
+    private ScheduledExecutorService timeoutExecutor;
+
+    @PostConstruct
+    public void init() {
+        //容器启动期间就开始拒绝流量，直到启动后的预热完成
+        refusingTraffic = enabled && gateReadiness;
+    }
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void onApplicationStarted() {
+        if (!enabled) {
+            return;
+        }
+        if (refusingTraffic && timeoutSeconds > 0) {
+            timeoutExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "cache-warmup-timeout");
+                thread.setDaemon(true);
+                return thread;
+            });
+            ScheduledFuture<?> timeout = timeoutExecutor.schedule(() -> {
+                logger.warn("cache warmup timed out, accept traffic | {}", progress);
+                this.acceptTraffic();
+            }, timeoutSeconds, TimeUnit.SECONDS);
+            this.warmup().whenComplete((result, e) -> {
+                timeout.cancel(false);
+                timeoutExecutor.shutdown();
+            });
+            return;
+        }
+        this.warmup();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        ExecutorService current = executor;
+        if (current != null) {
+            current.shutdownNow();
+        }
+        if (timeoutExecutor != null) {
+            timeoutExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 是否正在因为启动预热而拒绝流量
+     */
+    public boolean isRefusingTraffic() {
+        return refusingTraffic;
+    }
+
+    /**
+     * 执行容器中所有的预热任务
+     */
+    public CompletableFuture<WarmupProgress> warmup() {
+        return this.warmup(warmupTasks.orderedStream().collect(Collectors.toList()));
+    }
+
+    /**
+     * 执行预热任务，上一次预热未完成时直接返回上一次预热
+     *
+     * @param tasks 预热任务
+     * @return 预热完成时返回进度
+     */
+    public synchronized CompletableFuture<WarmupProgress> warmup(Collection<? extends CacheWarmupTask<?, ?>> tasks) {
+        if (executor != null) {
+            logger.warn("cache warmup is already running | {}", progress);
+            return CompletableFuture.completedFuture(progress);
+        }
+        WarmupProgress current = new WarmupProgress();
+        progress = current;
+        DistributedCacheService cacheService = distributedCacheService.getIfAvailable();
+        if (cacheService == null && !tasks.isEmpty()) {
+            logger.warn("cache warmup skipped, no distributed cache service | {} tasks", tasks.size());
+        }
+        if (cacheService == null || tasks.isEmpty()) {
+            current.complete();
+            this.acceptTraffic();
+            return CompletableFuture.completedFuture(current);
+        }
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService warmupExecutor = Executors.newFixedThreadPool(Math.max(1, concurrency), runnable -> {
+            Thread thread = new Thread(runnable, "cache-warmup-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor = warmupExecutor;
+        RateLimiter rateLimiter = ratePerSecond > 0 ? RateLimiter.create(ratePerSecond) : null;
+        logger.info("cache warmup started | {} tasks", tasks.size());
+        List<CompletableFuture<Void>> futures = new ArrayList<>(tasks.size());
+        for (CacheWarmupTask<?, ?> task : tasks) {
+            futures.add(this.runTask(cacheService, task, current, rateLimiter, warmupExecutor));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).handle((result, e) -> {
+            current.complete();
+            logger.info("cache warmup completed | {}", current);
+            synchronized (this) {
+                executor = null;
+            }
+            warmupExecutor.shutdownNow();
+            this.acceptTraffic();
+            return current;
+        });
+    }
+
+    /**
+     * 当前（或最近一次）预热的进度，未预热时返回空
+     */
+    public WarmupProgress getProgress() {
+        return progress;
+    }
+
+    /**
+     * 在线程池中获取业务标识并分批，每批作为一个独立的任务执行
+     */
+    private <ID, R> CompletableFuture<Void> runTask(DistributedCacheService cacheService, CacheWarmupTask<ID, R> task, WarmupProgress current, RateLimiter rateLimiter, ExecutorService warmupExecutor) {
+        WarmupProgress.PrefixProgress prefixProgress = current.getPrefix(task.getKeyPrefix());
+        return CompletableFuture.supplyAsync(() -> this.partition(task), warmupExecutor).thenCompose(batches -> {
+            prefixProgress.addBatches(batches.stream().mapToInt(List::size).sum(), batches.size());
+            int logInterval = Math.max(1, batches.size() / 10);
+            List<CompletableFuture<Void>> futures = new ArrayList<>(batches.size());
+            for (List<ID> batch : batches) {
+                futures.add(CompletableFuture.runAsync(() -> {
+                    int done;
+                    try {
+                        done = prefixProgress.recordCompleted(this.loadBatch(cacheService, task, batch, rateLimiter));
+                    } catch (Exception e) {
+                        logger.error("cache warmup batch | {} | {}", task.getKeyPrefix(), e.getMessage());
+                        done = prefixProgress.recordFailed();
+                    }
+                    if (done % logInterval == 0 || done == batches.size()) {
+                        logger.info("cache warmup progress | {}", prefixProgress);
+                    }
+                }, warmupExecutor));
+            }
+            return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+        }).exceptionally(e -> {
+            //获取业务标识失败，整个任务跳过
+            logger.error("cache warmup task | {} | {}", task.getKeyPrefix(), e.getMessage());
+            return null;
+        });
+    }
+
+    private <ID, R> List<List<ID>> partition(CacheWarmupTask<ID, R> task) {
+        Collection<ID> ids = task.getIdSupplier().get();
+        if (ids == null || ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        int size = Math.max(1, task.getBatchSize() > 0 ? task.getBatchSize() : batchSize);
+        List<List<ID>> batches = new ArrayList<>((ids.size() + size - 1) / size);
+        List<ID> batch = new ArrayList<>(size);
+        for (ID id : new LinkedHashSet<>(ids)) {
+            batch.add(id);
+            if (batch.size() >= size) {
+                batches.add(batch);
+                batch = new ArrayList<>(size);
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    /**
+     * 加载一批数据并批量写入缓存，返回写入的数量
+     */
+    private <ID, R> int loadBatch(DistributedCacheService cacheService, CacheWarmupTask<ID, R> task, List<ID> batch, RateLimiter rateLimiter) {
+        if (rateLimiter != null) {
+            rateLimiter.acquire(batch.size());
+        }
+        Map<ID, R> loaded = task.getLoader().apply(Collections.unmodifiableList(batch));
+        if (loaded == null || loaded.isEmpty()) {
+            return 0;
+        }
+        Map<String, R> values = new LinkedHashMap<>();
+        loaded.forEach((id, r) -> {
+            if (r != null) {
+                values.put(cacheService.getKey(task.getKeyPrefix(), id), r);
+            }
+        });
+        if (task.isLogicalExpire()) {
+            cacheService.multiSetWithLogicalExpire(values, task.getTimeout(), task.getUnit());
+        } else {
+            cacheService.multiSet(values, task.getTimeout(), task.getUnit());
+        }
+        return values.size();
+    }
+
+    private void acceptTraffic() {
+        if (refusingTraffic) {
+            refusingTraffic = false;
+            logger.info("cache warmup readiness gate released");
+        }
+    }
+}
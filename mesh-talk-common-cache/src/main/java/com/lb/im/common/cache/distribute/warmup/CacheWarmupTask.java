@@ -0,0 +1,132 @@
+package com.lb.im.common.cache.distribute.warmup;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 缓存预热任务，一个key前缀对应一个任务：先通过idSupplier获取需要预热的业务标识，
+ * 再按批调用批量加载函数（与批量查询的dbFallback形式相同），加载到的数据批量写入缓存。
+ * 业务可以把任务声明为Spring Bean，由{@link CacheWarmupService}在启动时自动执行。
+ *
+ * @param <ID> 业务标识类型
+ * @param <R>  缓存数据类型
+ */
+public class CacheWarmupTask<ID, R> {
+
+    //缓存key前缀
+    private final String keyPrefix;
+    //需要预热的业务标识
+    private final Supplier<Collection<ID>> idSupplier;
+    //批量加载函数，参数为一批业务标识，返回业务标识到数据的映射
+    private final Function<Collection<ID>, Map<ID, R>> loader;
+    //过期时长，逻辑过期时为逻辑过期时长
+    private final Long timeout;
+    private final TimeUnit unit;
+    //是否按照逻辑过期格式写入，供queryWithLogicalExpire系列查询使用
+    private final boolean logicalExpire;
+    //每批加载的数量，小于等于0时使用全局配置
+    private final int batchSize;
+
+    private CacheWarmupTask(Builder<ID, R> builder) {
+        this.keyPrefix = builder.keyPrefix;
+        this.idSupplier = builder.idSupplier;
+        this.loader = builder.loader;
+        this.timeout = builder.timeout;
+        this.unit = builder.unit;
+        this.logicalExpire = builder.logicalExpire;
+        this.batchSize = builder.batchSize;
+    }
+
+    public static <ID, R> Builder<ID, R> builder(String keyPrefix) {
+        return new Builder<>(keyPrefix);
+    }
+
+    public String getKeyPrefix() {
+        return keyPrefix;
+    }
+
+    public Supplier<Collection<ID>> getIdSupplier() {
+        return idSupplier;
+    }
+
+    public Function<Collection<ID>, Map<ID, R>> getLoader() {
+        return loader;
+    }
+
+    public Long getTimeout() {
+        return timeout;
+    }
+
+    public TimeUnit getUnit() {
+        return unit;
+    }
+
+    public boolean isLogicalExpire() {
+        return logicalExpire;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public static class Builder<ID, R> {
+
+        private final String keyPrefix;
+        private Supplier<Collection<ID>> idSupplier;
+        private Function<Collection<ID>, Map<ID, R>> loader;
+        private Long timeout;
+        private TimeUnit unit = TimeUnit.SECONDS;
+        private boolean logicalExpire;
+        private int batchSize;
+
+        private Builder(String keyPrefix) {
+            this.keyPrefix = Objects.requireNonNull(keyPrefix);
+        }
+
+        public Builder<ID, R> ids(Supplier<Collection<ID>> idSupplier) {
+            this.idSupplier = idSupplier;
+            return this;
+        }
+
+        public Builder<ID, R> loader(Function<Collection<ID>, Map<ID, R>> loader) {
+            this.loader = loader;
+            return this;
+        }
+
+        /**
+         * 物理过期时长，为空时永久缓存
+         */
+        public Builder<ID, R> expire(Long timeout, TimeUnit unit) {
+            this.timeout = timeout;
+            this.unit = unit;
+            this.logicalExpire = false;
+            return this;
+        }
+
+        /**
+         * 逻辑过期时长
+         */
+        public Builder<ID, R> logicalExpire(long timeout, TimeUnit unit) {
+            this.timeout = timeout;
+            this.unit = unit;
+            this.logicalExpire = true;
+            return this;
+        }
+
+        public Builder<ID, R> batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        public CacheWarmupTask<ID, R> build() {
+            if (idSupplier == null || loader == null) {
+                throw new IllegalArgumentException("warmup task requires ids and loader: " + keyPrefix);
+            }
+            return new CacheWarmupTask<>(this);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.lb.im.common.cache.distribute.warmup;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一次缓存预热的进度，按key前缀统计业务标识数量、已写入缓存的数量和批次完成情况
+ */
+public class WarmupProgress {
+
+    private final long startTime = System.currentTimeMillis();
+
+    private volatile long endTime;
+
+    private final ConcurrentMap<String, PrefixProgress> prefixes = new ConcurrentHashMap<>();
+
+    public PrefixProgress getPrefix(String keyPrefix) {
+        return prefixes.computeIfAbsent(keyPrefix, PrefixProgress::new);
+    }
+
+    public Map<String, PrefixProgress> getPrefixes() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(prefixes));
+    }
+
+    void complete() {
+        endTime = System.currentTimeMillis();
+    }
+
+    public boolean isCompleted() {
+        return endTime > 0;
+    }
+
+    /**
+     * 已完成的批次占全部批次的百分比，业务标识还未全部获取时不准确
+     */
+    public double getPercent() {
+        long total = 0;
+        long done = 0;
+        for (PrefixProgress progress : prefixes.values()) {
+            total += progress.getTotalBatches();
+            done += progress.getCompletedBatches() + progress.getFailedBatches();
+        }
+        if (total == 0) {
+            return this.isCompleted() ? 100D : 0D;
+        }
+        return done * 100D / total;
+    }
+
+    public long getLoadedKeys() {
+        long loaded = 0;
+        for (PrefixProgress progress : prefixes.values()) {
+            loaded += progress.getLoadedKeys();
+        }
+        return loaded;
+    }
+
+    public long getFailedBatches() {
+        long failed = 0;
+        for (PrefixProgress progress : prefixes.values()) {
+            failed += progress.getFailedBatches();
+        }
+        return failed;
+    }
+
+    public long getElapsedMillis() {
+        return (this.isCompleted() ? endTime : System.currentTimeMillis()) - startTime;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("WarmupProgress{percent=%.1f, loadedKeys=%d, failedBatches=%d, elapsedMillis=%d, prefixes=%s}",
+                this.getPercent(), this.getLoadedKeys(), this.getFailedBatches(), this.getElapsedMillis(), prefixes.values());
+    }
+
+    /**
+     * 单个key前缀的预热进度
+     */
+    public static class PrefixProgress {
+
+        private final String keyPrefix;
+        //需要预热的业务标识数量
+        private final LongAdder totalIds = new LongAdder();
+        //加载到数据并写入缓存的数量
+        private final LongAdder loadedKeys = new LongAdder();
+        private final AtomicInteger totalBatches = new AtomicInteger();
+        private final AtomicInteger completedBatches = new AtomicInteger();
+        private final AtomicInteger failedBatches = new AtomicInteger();
+
+        private PrefixProgress(String keyPrefix) {
+            this.keyPrefix = keyPrefix;
+        }
+
+        void addBatches(int ids, int batches) {
+            totalIds.add(ids);
+            totalBatches.addAndGet(batches);
+        }
+
+        /**
+         * 记录一个批次完成，返回已完成（包括失败）的批次数量
+         */
+        int recordCompleted(int loaded) {
+            loadedKeys.add(loaded);
+            return completedBatches.incrementAndGet() + failedBatches.get();
+        }
+
+        int recordFailed() {
+            return failedBatches.incrementAndGet() + completedBatches.get();
+        }
+
+        public String getKeyPrefix() {
+            return keyPrefix;
+        }
+
+        public long getTotalIds() {
+            return totalIds.sum();
+        }
+
+        public long getLoadedKeys() {
+            return loadedKeys.sum();
+        }
+
+        public int getTotalBatches() {
+            return totalBatches.get();
+        }
+
+        public int getCompletedBatches() {
+            return completedBatches.get();
+        }
+
+        public int getFailedBatches() {
+            return failedBatches.get();
+        }
+
+        @Override
+        public String toString() {
+            return keyPrefix + "{ids=" + this.getTotalIds() + ", loaded=" + this.getLoadedKeys()
+                    + ", batches=" + this.getCompletedBatches() + "/" + this.getTotalBatches()
+                    + ", failed=" + this.getFailedBatches() + "}";
+        }
+    }
+}
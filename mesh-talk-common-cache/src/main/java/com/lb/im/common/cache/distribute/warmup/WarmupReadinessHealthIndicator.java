@@ -0,0 +1,36 @@
+package com.lb.im.common.cache.distribute.warmup;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.availability.ReadinessStateHealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.AvailabilityState;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.stereotype.Component;
+
+/**
+ * 启动预热期间的就绪探针，替换Spring Boot默认的readinessStateHealthIndicator（bean名称相同，默认的不再创建）。
+ * 预热完成或超时前报告REFUSING_TRAFFIC，之后与默认实现一致，读取ApplicationAvailability中的就绪状态；
+ * 不发布就绪状态事件，不依赖与ApplicationAvailabilityBean之间的监听器顺序。
+ */
+@Component("readinessStateHealthIndicator")
+@ConditionalOnClass(name = "org.springframework.boot.actuate.availability.ReadinessStateHealthIndicator")
+@ConditionalOnProperty(name = "distribute.cache.warmup.gate-readiness", havingValue = "true")
+public class WarmupReadinessHealthIndicator extends ReadinessStateHealthIndicator {
+
+    @Autowired
+    private CacheWarmupService cacheWarmupService;
+
+    public WarmupReadinessHealthIndicator(ApplicationAvailability applicationAvailability) {
+        super(applicationAvailability);
+    }
+
+    @Override
+    protected AvailabilityState getState(ApplicationAvailability applicationAvailability) {
+        if (cacheWarmupService.isRefusingTraffic()) {
+            return ReadinessState.REFUSING_TRAFFIC;
+        }
+        return super.getState(applicationAvailability);
+    }
+}
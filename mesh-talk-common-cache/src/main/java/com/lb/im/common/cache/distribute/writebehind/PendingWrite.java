@@ -0,0 +1,52 @@
+package com.lb.im.common.cache.distribute.writebehind;
+
+/**
+ * write-behind缓冲区中一个key待刷新的写入，同一个key的多次写入合并为一个：
+ * 后写入的数据覆盖之前的数据，只修改过期时间的写入保留之前待写入的数据并使用新的过期时间。
+ */
+public class PendingWrite {
+
+    //待写入的原始字节，为空时只修改过期时间
+    private final byte[] value;
+    //过期时长，单位毫秒，为空时不设置过期时间
+    private final Long ttlMillis;
+
+    private PendingWrite(byte[] value, Long ttlMillis) {
+        this.value = value;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public static PendingWrite set(byte[] value, Long ttlMillis) {
+        return new PendingWrite(value, ttlMillis);
+    }
+
+    public static PendingWrite expire(long ttlMillis) {
+        return new PendingWrite(null, ttlMillis);
+    }
+
+    /**
+     * 合并同一个key的后一次写入
+     *
+     * @param previous 之前待刷新的写入
+     * @param next     后一次写入
+     * @return 合并后的写入
+     */
+    public static PendingWrite merge(PendingWrite previous, PendingWrite next) {
+        if (next.isSet() || !previous.isSet()) {
+            return next;
+        }
+        return new PendingWrite(previous.value, next.ttlMillis);
+    }
+
+    public boolean isSet() {
+        return value != null;
+    }
+
+    public byte[] getValue() {
+        return value;
+    }
+
+    public Long getTtlMillis() {
+        return ttlMillis;
+    }
+}
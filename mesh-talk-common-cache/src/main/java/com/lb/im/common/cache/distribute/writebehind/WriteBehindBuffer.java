@@ -0,0 +1,269 @@
+package com.lb.im.common.cache.distribute.writebehind;
+
+import com.lb.im.common.cache.distribute.store.CacheByteStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 缓存写入的write-behind缓冲区，适用于在线状态、已读位置这类高频覆盖写、允许短暂延迟的数据。
+ * 写入先按key进入缓冲区，同一个key在一个刷新周期内只保留最后一次写入，
+ * 定时或者待刷新的key数量达到批量大小时，通过{@link CacheByteStore}批量写入（Redis实现为一次管道），写入成功后才从缓冲区移除；
+ * 待刷新的key数量达到上限时，不在缓冲区中的key改为由写入线程直接写入缓存，不等待刷新。
+ * 当前节点读取时优先返回缓冲区中未刷新的数据；同一个key不要混用同步写入和延迟写入，刷新时会覆盖期间同步写入的数据。
+ * 应用关闭时会刷新缓冲区中剩余的写入，进程异常退出时未刷新的写入会丢失。
+ */
+@Component
+@ConditionalOnProperty(name = "distribute.cache.write-behind.enabled", havingValue = "true")
+public class WriteBehindBuffer {
+
+    private final Logger logger = LoggerFactory.getLogger(WriteBehindBuffer.class);
+
+    //定时刷新的间隔，单位毫秒
+    @Value("${distribute.cache.write-behind.flush-millis:100}")
+    private long flushMillis;
+
+    //每批通过一次管道写入的key数量，待刷新的key数量达到该值时立即触发刷新
+    @Value("${distribute.cache.write-behind.batch-size:500}")
+    private int batchSize;
+
+    //待刷新的key数量上限，达到上限时新的key由写入线程直接写入缓存
+    @Value("${distribute.cache.write-behind.max-pending:100000}")
+    private int maxPending;
+
+    @Autowired
+    private CacheByteStore cacheByteStore;
+
+    private final ConcurrentMap<String, PendingWrite> pendingWrites = new ConcurrentHashMap<>();
+
+    //每批写入缓存成功后的回调，参数为这一批写入的key
+    private final List<Consumer<Collection<String>>> flushListeners = new CopyOnWriteArrayList<>();
+
+    //是否已经提交了按数量触发的刷新任务
+    private final AtomicBoolean flushSubmitted = new AtomicBoolean();
+
+    //写入次数
+    private final LongAdder writes = new LongAdder();
+    //刷新时实际写入缓存的key数量
+    private final LongAdder flushedKeys = new LongAdder();
+    //管道批次数量
+    private final LongAdder batches = new LongAdder();
+    //刷新失败的批次数量
+    private final LongAdder failures = new LongAdder();
+
+    private ScheduledExecutorService flushExecutor;
+
+    @PostConstruct
+    public void init() {
+        batchSize = Math.max(1, batchSize);
+        flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushExecutor.scheduleWithFixedDelay(this::flushQuietly, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 应用关闭时停止定时刷新，并刷新缓冲区中剩余的写入
+     */
+    @PreDestroy
+    public void destroy() {
+        flushExecutor.shutdown();
+        try {
+            flushExecutor.awaitTermination(flushMillis * 10, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.flushQuietly();
+    }
+
+    /**
+     * 延迟写入数据
+     *
+     * @param key       缓存key
+     * @param value     编码后的原始字节
+     * @param ttlMillis 过期时长，单位毫秒，为空时不设置过期时间
+     */
+    public void set(String key, byte[] value, Long ttlMillis) {
+        this.add(key, PendingWrite.set(value, ttlMillis));
+    }
+
+    /**
+     * 延迟修改过期时间
+     *
+     * @param key       缓存key
+     * @param ttlMillis 过期时长，单位毫秒
+     */
+    public void expire(String key, long ttlMillis) {
+        this.add(key, PendingWrite.expire(ttlMillis));
+    }
+
+    /**
+     * 缓冲区中key未刷新的数据，没有待写入的数据时返回空
+     */
+    public byte[] getPending(String key) {
+        PendingWrite pendingWrite = pendingWrites.get(key);
+        return pendingWrite == null ? null : pendingWrite.getValue();
+    }
+
+    /**
+     * 丢弃key未刷新的写入，同步写入和删除key时调用
+     *
+     * @return 丢弃的未刷新数据，没有待写入的数据时返回空
+     */
+    public byte[] discard(String key) {
+        PendingWrite pendingWrite = pendingWrites.remove(key);
+        return pendingWrite == null ? null : pendingWrite.getValue();
+    }
+
+    /**
+     * 立即刷新缓冲区中的所有写入，每批写入成功后才从缓冲区移除，刷新失败的写入留在缓冲区等待下次刷新
+     *
+     * @return 写入缓存的key数量
+     */
+    public synchronized int flush() {
+        if (pendingWrites.isEmpty()) {
+            return 0;
+        }
+        int count = 0;
+        Map<String, PendingWrite> batch = new LinkedHashMap<>();
+        Iterator<Map.Entry<String, PendingWrite>> iterator = pendingWrites.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, PendingWrite> entry = iterator.next();
+            batch.put(entry.getKey(), entry.getValue());
+            if (batch.size() >= batchSize || !iterator.hasNext()) {
+                if (this.writeBatch(batch)) {
+                    //只移除写入的那一次写入，期间被覆盖或者丢弃的写入不受影响
+                    batch.forEach(pendingWrites::remove);
+                    count += batch.size();
+                }
+                batch = new LinkedHashMap<>();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 注册每批写入缓存成功后的回调，在刷新线程中执行（积压过多直接写入时在写入线程中执行），例如近端缓存按批广播失效消息
+     *
+     * @param listener 参数为这一批写入的key
+     */
+    public void addFlushListener(Consumer<Collection<String>> listener) {
+        flushListeners.add(listener);
+    }
+
+    public int getPendingCount() {
+        return pendingWrites.size();
+    }
+
+    public long getWrites() {
+        return writes.sum();
+    }
+
+    public long getFlushedKeys() {
+        return flushedKeys.sum();
+    }
+
+    /**
+     * 合并掉的写入次数
+     */
+    public long getCoalescedWrites() {
+        return Math.max(0, writes.sum() - flushedKeys.sum() - pendingWrites.size());
+    }
+
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    private void add(String key, PendingWrite pendingWrite) {
+        writes.increment();
+        if (pendingWrites.size() >= maxPending && !pendingWrites.containsKey(key)) {
+            //积压过多，新的key不再进入缓冲区，由写入线程直接写入缓存，不等待正在进行的刷新
+            if (!this.writeBatch(Collections.singletonMap(key, pendingWrite))) {
+                throw new IllegalStateException("write behind overflow write failed, key: " + key);
+            }
+            return;
+        }
+        pendingWrites.merge(key, pendingWrite, PendingWrite::merge);
+        if (pendingWrites.size() >= batchSize && flushSubmitted.compareAndSet(false, true)) {
+            try {
+                flushExecutor.execute(() -> {
+                    flushSubmitted.set(false);
+                    this.flushQuietly();
+                });
+            } catch (RejectedExecutionException e) {
+                //应用关闭中，剩余的写入由destroy刷新
+                flushSubmitted.set(false);
+            }
+        }
+    }
+
+    /**
+     * 数据写入和过期时间修改分别通过一次管道执行
+     *
+     * @return 是否写入成功
+     */
+    private boolean writeBatch(Map<String, PendingWrite> batch) {
+        Map<String, byte[]> values = new LinkedHashMap<>();
+        Map<String, Long> expires = new LinkedHashMap<>();
+        batch.forEach((key, pendingWrite) -> {
+            if (pendingWrite.isSet()) {
+                values.put(key, pendingWrite.getValue());
+            } else {
+                expires.put(key, pendingWrite.getTtlMillis());
+            }
+        });
+        try {
+            cacheByteStore.setAll(values, key -> batch.get(key).getTtlMillis());
+            cacheByteStore.expireAll(expires);
+            batches.increment();
+            flushedKeys.add(batch.size());
+        } catch (Exception e) {
+            failures.increment();
+            logger.error("write behind flush | {} keys | {}", batch.size(), e.getMessage());
+            return false;
+        }
+        this.notifyFlushed(new ArrayList<>(batch.keySet()));
+        return true;
+    }
+
+    private void notifyFlushed(List<String> keys) {
+        for (Consumer<Collection<String>> listener : flushListeners) {
+            try {
+                listener.accept(keys);
+            } catch (Exception e) {
+                logger.error("write behind flush listener | {} keys | {}", keys.size(), e.getMessage());
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            this.flush();
+        } catch (Exception e) {
+            logger.error("write behind flush | {}", e.getMessage());
+        }
+    }
+}
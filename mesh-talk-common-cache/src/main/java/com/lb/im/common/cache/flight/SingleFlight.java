@@ -0,0 +1,130 @@
+package com.lb.im.common.cache.flight;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * 进程内请求合并工具，同一个key同一时刻只有一个线程执行加载逻辑，
+ * 其他并发线程等待同一个结果，避免本进程内的多个线程同时竞争分布式锁和查询数据库。
+ * 不同缓存策略对同一个key的加载逻辑和返回类型不同，每种策略使用各自的实例；
+ * 返回可变对象时通过copier让每个等待线程拿到各自的副本，避免多个调用方修改同一个对象。
+ */
+public class SingleFlight {
+
+    //正在执行的加载任务，key为缓存key
+    private final ConcurrentMap<String, CompletableFuture<Object>> calls = new ConcurrentHashMap<>();
+
+    /**
+     * 执行加载逻辑，同一个key的并发调用合并为一次执行，所有调用方拿到同一个结果对象
+     *
+     * @param key      合并请求的key
+     * @param supplier 加载逻辑
+     * @param <T>      返回值类型
+     * @return 加载结果
+     */
+    public <T> T execute(String key, Supplier<T> supplier) {
+        return this.execute(key, supplier, UnaryOperator.identity());
+    }
+
+    /**
+     * 执行加载逻辑，同一个key的并发调用合并为一次执行，等待的调用方拿到结果的副本
+     *
+     * @param key      合并请求的key
+     * @param supplier 加载逻辑
+     * @param copier   为等待的调用方复制结果，结果为空时不调用
+     * @param <T>      返回值类型
+     * @return 加载结果
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, Supplier<T> supplier, UnaryOperator<T> copier) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = calls.putIfAbsent(key, future);
+        //已经有线程在加载，等待其结果
+        if (existing != null) {
+            T result = (T) this.await(existing);
+            return result == null ? null : copier.apply(result);
+        }
+        try {
+            T result = supplier.get();
+            future.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            calls.remove(key, future);
+        }
+    }
+
+    /**
+     * 异步执行加载逻辑，同一个key的并发调用合并为一次执行，不阻塞调用线程
+     *
+     * @param key      合并请求的key
+     * @param supplier 异步加载逻辑
+     * @param <T>      返回值类型
+     * @return 加载结果
+     */
+    public <T> CompletableFuture<T> executeAsync(String key, Supplier<CompletableFuture<T>> supplier) {
+        return this.executeAsync(key, supplier, UnaryOperator.identity());
+    }
+
+    /**
+     * 异步执行加载逻辑，同一个key的并发调用合并为一次执行，复用结果的调用方拿到结果的副本
+     *
+     * @param key      合并请求的key
+     * @param supplier 异步加载逻辑
+     * @param copier   为复用结果的调用方复制结果，结果为空时不调用
+     * @param <T>      返回值类型
+     * @return 加载结果
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> executeAsync(String key, Supplier<CompletableFuture<T>> supplier, UnaryOperator<T> copier) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = calls.putIfAbsent(key, future);
+        //已经有线程在加载，复用其结果
+        if (existing != null) {
+            return existing.thenApply(result -> result == null ? null : copier.apply((T) result));
+        }
+        CompletableFuture<T> loading;
+        try {
+            loading = supplier.get();
+        } catch (RuntimeException | Error e) {
+            loading = new CompletableFuture<>();
+            loading.completeExceptionally(e);
+        }
+        return loading.whenComplete((result, e) -> {
+            calls.remove(key, future);
+            if (e != null) {
+                future.completeExceptionally(e);
+            } else {
+                future.complete(result);
+            }
+        });
+    }
+
+    /**
+     * 当前正在执行的加载任务数
+     */
+    public int inFlight() {
+        return calls.size();
+    }
+
+    private Object await(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+}
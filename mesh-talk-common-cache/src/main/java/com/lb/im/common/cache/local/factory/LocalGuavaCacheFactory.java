@@ -55,4 +55,21 @@ public class LocalGuavaCacheFactory {
                 .build();
     }
 
+    /**
+     * 创建有容量上限的本地Guava缓存实例，超过上限后按照LRU策略淘汰。
+     *
+     * @param maximumSize 缓存的最大条目数
+     * @param duration    缓存项过期时间（秒）
+     * @return 配置好的缓存实例，初始容量为200，最大并发级别为5，缓存项在写入后指定duration秒过期。
+     */
+    public static <K, V> Cache<K, V> getBoundedLocalCache(long maximumSize, long duration) {
+        // 配置缓存参数：最大条目数和过期时间由参数指定，保持并发级别为5
+        return CacheBuilder.newBuilder()
+                .initialCapacity(200)
+                .concurrencyLevel(5)
+                .maximumSize(maximumSize)
+                .expireAfterWrite(duration, TimeUnit.SECONDS)
+                .build();
+    }
+
 }
@@ -10,7 +10,15 @@ import org.springframework.stereotype.Component;
 @ConditionalOnProperty(name = "local.cache.type", havingValue = "guava")
 public class GuavaLocalCacheService<K, V> implements LocalCacheService<K, V> {
 
-    private final Cache<K, V> cache = LocalGuavaCacheFactory.getLocalCache();
+    private final Cache<K, V> cache;
+
+    public GuavaLocalCacheService() {
+        this(LocalGuavaCacheFactory.getLocalCache());
+    }
+
+    public GuavaLocalCacheService(Cache<K, V> cache) {
+        this.cache = cache;
+    }
 
     @Override
     public void put(K key, V value) {
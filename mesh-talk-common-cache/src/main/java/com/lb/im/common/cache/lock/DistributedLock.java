@@ -1,5 +1,6 @@
 package com.lb.im.common.cache.lock;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 public interface DistributedLock {
@@ -20,4 +21,14 @@ public interface DistributedLock {
 
     boolean isHeldByThread(long threadId);
 
+    /**
+     * 异步获取锁，不阻塞调用线程，锁的持有者由ownerId标识而不是当前线程
+     */
+    CompletableFuture<Boolean> tryLockAsync(long waitTime, TimeUnit unit, long ownerId);
+
+    /**
+     * 异步释放ownerId持有的锁
+     */
+    CompletableFuture<Void> unlockAsync(long ownerId);
+
 }
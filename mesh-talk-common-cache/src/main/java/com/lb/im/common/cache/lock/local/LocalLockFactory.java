@@ -0,0 +1,292 @@
+package com.lb.im.common.cache.lock.local;
+
+import com.lb.im.common.cache.lock.DistributedLock;
+import com.lb.im.common.cache.lock.factory.DistributedLockFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进程内的锁，用于单节点部署和内存缓存，按key创建锁对象，没有持有者和等待者时自动移除。
+ * 锁的持有者同步接口使用线程ID，异步接口使用调用方传入的ownerId，同一个持有者可以重入。
+ * 持有者只能是当前进程，不会因为进程崩溃残留，因此不支持leaseTime，锁一直持有到释放为止。
+ * 异步接口不占用线程等待：锁被占用时登记等待者，持有者释放时直接把锁交给最早的异步等待者并在释放线程中完成其future，
+ * 等待超时由独立的定时线程完成。
+ */
+@Component
+@ConditionalOnProperty(name = "distribute.lock.type", havingValue = "local")
+public class LocalLockFactory implements DistributedLockFactory {
+
+    //没有等待时长限制
+    private static final long WAIT_FOREVER = -1L;
+
+    private final ConcurrentMap<String, LockEntry> locks = new ConcurrentHashMap<>();
+
+    //异步等待超时的定时线程
+    private final ScheduledThreadPoolExecutor timeoutScheduler;
+
+    public LocalLockFactory() {
+        timeoutScheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "cache-local-lock-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timeoutScheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    @Override
+    public DistributedLock getDistributedLock(String lockKey) {
+        return new LocalLock(lockKey);
+    }
+
+    /**
+     * 当前持有或等待锁的key数量
+     */
+    public int getLockCount() {
+        return locks.size();
+    }
+
+    /**
+     * 获取锁
+     *
+     * @param key       锁的key
+     * @param owner     持有者
+     * @param waitNanos 最长等待时长，单位纳秒，小于0时一直等待
+     * @return 是否获取成功
+     */
+    private boolean acquire(String key, long owner, long waitNanos) throws InterruptedException {
+        LockEntry entry = this.retain(key);
+        boolean acquired = false;
+        try {
+            synchronized (entry) {
+                long deadline = System.nanoTime() + waitNanos;
+                while (entry.holds > 0 && entry.owner != owner) {
+                    if (waitNanos < 0) {
+                        entry.wait();
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(entry, remaining);
+                }
+                entry.owner = owner;
+                entry.holds++;
+                acquired = true;
+                return true;
+            }
+        } finally {
+            if (!acquired) {
+                this.release(key);
+            }
+        }
+    }
+
+    /**
+     * 异步获取锁，锁被占用时登记等待者，不占用线程等待
+     *
+     * @param key       锁的key
+     * @param owner     持有者
+     * @param waitNanos 最长等待时长，单位纳秒
+     * @return 是否获取成功
+     */
+    private CompletableFuture<Boolean> acquireAsync(String key, long owner, long waitNanos) {
+        LockEntry entry = this.retain(key);
+        AsyncWaiter waiter = null;
+        synchronized (entry) {
+            if (entry.holds == 0 || entry.owner == owner) {
+                entry.owner = owner;
+                entry.holds++;
+                return CompletableFuture.completedFuture(true);
+            }
+            if (waitNanos > 0) {
+                waiter = new AsyncWaiter(owner);
+                entry.asyncWaiters.add(waiter);
+            }
+        }
+        if (waiter == null) {
+            this.release(key);
+            return CompletableFuture.completedFuture(false);
+        }
+        AsyncWaiter timedWaiter = waiter;
+        waiter.timeout = timeoutScheduler.schedule(() -> this.expireWaiter(key, entry, timedWaiter), waitNanos, TimeUnit.NANOSECONDS);
+        return waiter.future;
+    }
+
+    /**
+     * 异步等待超时，等待者还没有拿到锁时移除并返回获取失败
+     */
+    private void expireWaiter(String key, LockEntry entry, AsyncWaiter waiter) {
+        boolean removed;
+        synchronized (entry) {
+            removed = entry.asyncWaiters.remove(waiter);
+        }
+        if (removed) {
+            this.release(key);
+            waiter.future.complete(false);
+        }
+    }
+
+    /**
+     * 释放owner持有的锁，不是owner持有时不做任何处理；完全释放时优先交给最早的异步等待者，没有异步等待者时唤醒同步等待的线程
+     */
+    private void releaseLock(String key, long owner) {
+        LockEntry entry = locks.get(key);
+        if (entry == null) {
+            return;
+        }
+        boolean released = false;
+        AsyncWaiter next = null;
+        synchronized (entry) {
+            if (entry.holds > 0 && entry.owner == owner) {
+                entry.holds--;
+                if (entry.holds == 0) {
+                    next = entry.asyncWaiters.poll();
+                    if (next != null) {
+                        //异步等待者登记时已经增加了引用计数，直接成为新的持有者
+                        entry.owner = next.owner;
+                        entry.holds = 1;
+                    } else {
+                        entry.notifyAll();
+                    }
+                }
+                released = true;
+            }
+        }
+        if (released) {
+            this.release(key);
+        }
+        if (next != null) {
+            ScheduledFuture<?> timeout = next.timeout;
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+            next.future.complete(true);
+        }
+    }
+
+    private LockEntry retain(String key) {
+        return locks.compute(key, (k, entry) -> {
+            LockEntry current = entry == null ? new LockEntry() : entry;
+            current.references++;
+            return current;
+        });
+    }
+
+    private void release(String key) {
+        locks.computeIfPresent(key, (k, entry) -> --entry.references == 0 ? null : entry);
+    }
+
+    private LockEntry getEntry(String key) {
+        return locks.get(key);
+    }
+
+    /**
+     * 锁状态，references为持有和等待的次数，在ConcurrentHashMap的compute中修改；owner、holds和asyncWaiters在entry的监视器中修改
+     */
+    private static class LockEntry {
+        private int references;
+        private long owner;
+        private int holds;
+        private final Deque<AsyncWaiter> asyncWaiters = new ArrayDeque<>();
+    }
+
+    /**
+     * 异步等待锁的持有者
+     */
+    private static class AsyncWaiter {
+        private final long owner;
+        private final CompletableFuture<Boolean> future = new CompletableFuture<>();
+        private volatile ScheduledFuture<?> timeout;
+
+        private AsyncWaiter(long owner) {
+            this.owner = owner;
+        }
+    }
+
+    private class LocalLock implements DistributedLock {
+
+        private final String key;
+
+        private LocalLock(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public boolean tryLock(long waitTime, long leaseTime, TimeUnit unit) throws InterruptedException {
+            return this.tryLock(waitTime, unit);
+        }
+
+        @Override
+        public boolean tryLock(long waitTime, TimeUnit unit) throws InterruptedException {
+            return acquire(key, Thread.currentThread().getId(), Math.max(0, unit.toNanos(waitTime)));
+        }
+
+        @Override
+        public boolean tryLock() throws InterruptedException {
+            return acquire(key, Thread.currentThread().getId(), 0);
+        }
+
+        @Override
+        public void lock(long leaseTime, TimeUnit unit) {
+            try {
+                acquire(key, Thread.currentThread().getId(), WAIT_FOREVER);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while acquiring lock: " + key, e);
+            }
+        }
+
+        @Override
+        public void unlock() {
+            releaseLock(key, Thread.currentThread().getId());
+        }
+
+        @Override
+        public boolean isLocked() {
+            LockEntry entry = getEntry(key);
+            if (entry == null) {
+                return false;
+            }
+            synchronized (entry) {
+                return entry.holds > 0;
+            }
+        }
+
+        @Override
+        public boolean isHeldByCurrentThread() {
+            return this.isHeldByThread(Thread.currentThread().getId());
+        }
+
+        @Override
+        public boolean isHeldByThread(long threadId) {
+            LockEntry entry = getEntry(key);
+            if (entry == null) {
+                return false;
+            }
+            synchronized (entry) {
+                return entry.holds > 0 && entry.owner == threadId;
+            }
+        }
+
+        @Override
+        public CompletableFuture<Boolean> tryLockAsync(long waitTime, TimeUnit unit, long ownerId) {
+            return acquireAsync(key, ownerId, Math.max(0, unit.toNanos(waitTime)));
+        }
+
+        @Override
+        public CompletableFuture<Void> unlockAsync(long ownerId) {
+            releaseLock(key, ownerId);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+}
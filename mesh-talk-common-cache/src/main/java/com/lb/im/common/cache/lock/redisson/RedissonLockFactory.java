@@ -10,6 +10,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 @Component
@@ -91,6 +92,17 @@ public class RedissonLockFactory implements DistributedLockFactory {
             public boolean isHeldByCurrentThread() {
                 return rLock.isHeldByCurrentThread();
             }
+
+            @Override
+            public CompletableFuture<Boolean> tryLockAsync(long waitTime, TimeUnit unit, long ownerId) {
+                //leaseTime为-1时由看门狗自动续期
+                return rLock.tryLockAsync(waitTime, -1, unit, ownerId).toCompletableFuture();
+            }
+
+            @Override
+            public CompletableFuture<Void> unlockAsync(long ownerId) {
+                return rLock.unlockAsync(ownerId).toCompletableFuture();
+            }
         };
     }
 }
\ No newline at end of file
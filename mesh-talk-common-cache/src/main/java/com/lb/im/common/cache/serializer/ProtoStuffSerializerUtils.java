@@ -1,7 +1,6 @@
 package com.lb.im.common.cache.serializer;
 
 import io.protostuff.LinkedBuffer;
-import io.protostuff.ProtobufIOUtil;
 import io.protostuff.ProtostuffIOUtil;
 import io.protostuff.Schema;
 import io.protostuff.runtime.RuntimeSchema;
@@ -13,6 +12,12 @@ import java.util.List;
 
 public class ProtoStuffSerializerUtils {
 
+    //序列化缓冲区初始大小，不够时LinkedBuffer会自动追加分段
+    private static final int BUFFER_SIZE = 512;
+
+    //每个线程复用一个序列化缓冲区，避免每次序列化都分配大块内存
+    private static final ThreadLocal<LinkedBuffer> BUFFER = ThreadLocal.withInitial(() -> LinkedBuffer.allocate(BUFFER_SIZE));
+
     /**
      * 将对象序列化为字节数组。
      *
@@ -27,12 +32,12 @@ public class ProtoStuffSerializerUtils {
         }
         // 根据对象类型获取对应的Protobuf schema
         Schema<T> schema = (Schema<T>) RuntimeSchema.getSchema(obj.getClass());
-        // 分配足够大小的缓冲区用于序列化（初始大小1MB）
-        LinkedBuffer buffer = LinkedBuffer.allocate(1024 * 1024);
+        // 复用当前线程的缓冲区
+        LinkedBuffer buffer = BUFFER.get();
         byte[] protostuff = null;
         try {
-            // 执行实际的序列化操作
-            protostuff = ProtobufIOUtil.toByteArray(obj, schema, buffer);
+            // 执行实际的序列化操作，与deserialize使用相同的Protostuff格式，保证嵌套对象可以正确反序列化
+            protostuff = ProtostuffIOUtil.toByteArray(obj, schema, buffer);
         } catch (Exception e) {
             throw new RuntimeException("序列化(" + obj.getClass() + ")对象(" + obj + ")发生异常!", e);
         } finally {
@@ -84,8 +89,8 @@ public class ProtoStuffSerializerUtils {
         @SuppressWarnings("unchecked")
         Schema<T> schema = (Schema<T>) RuntimeSchema.getSchema(objList.get(0).getClass());
 
-        // 预分配1MB大小的缓冲区用于序列化操作
-        LinkedBuffer buffer = LinkedBuffer.allocate(1024 * 1024);
+        // 复用当前线程的缓冲区
+        LinkedBuffer buffer = BUFFER.get();
         byte[] protostuff = null;
         ByteArrayOutputStream bos = null;
         try {
@@ -0,0 +1,94 @@
+package com.lb.im.common.cache.distribute.data;
+
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.lb.im.common.cache.distribute.CacheConstants;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 逻辑过期数据的新格式编解码和历史RedisData格式的兼容读取
+ */
+class LogicalExpireDataTest {
+
+    @Test
+    void parsesLegacyRedisData() {
+        LocalDateTime expireTime = LocalDateTime.now().plusMinutes(5).truncatedTo(ChronoUnit.MILLIS);
+        Map<String, Object> user = new LinkedHashMap<>();
+        user.put("id", 1L);
+        user.put("name", "alice");
+        //历史版本写入的格式
+        byte[] bytes = JSONUtil.toJsonStr(new RedisData(user, expireTime)).getBytes(StandardCharsets.UTF_8);
+
+        Assertions.assertFalse(LogicalExpireData.isEnvelope(bytes));
+        LogicalExpireData data = LogicalExpireData.parse(bytes);
+        Assertions.assertTrue(data.isLegacy());
+        Assertions.assertFalse(data.isEmpty());
+        Assertions.assertEquals(expireTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), data.getExpireMillis());
+        Assertions.assertFalse(data.isExpired(System.currentTimeMillis()));
+
+        JSONObject legacy = JSONUtil.parseObj(data.getLegacyData().getData());
+        Assertions.assertEquals(1L, legacy.getLong("id").longValue());
+        Assertions.assertEquals("alice", legacy.getStr("name"));
+    }
+
+    @Test
+    void parsesLegacyEmptyMarkerAndExpiredData() {
+        LocalDateTime expireTime = LocalDateTime.now().minusSeconds(1);
+        byte[] bytes = JSONUtil.toJsonStr(new RedisData(CacheConstants.EMPTY_VALUE, expireTime)).getBytes(StandardCharsets.UTF_8);
+
+        LogicalExpireData data = LogicalExpireData.parse(bytes);
+        Assertions.assertTrue(data.isLegacy());
+        Assertions.assertEquals(CacheConstants.EMPTY_VALUE, data.getLegacyData().getData());
+        Assertions.assertTrue(data.isExpired(System.currentTimeMillis()));
+    }
+
+    @Test
+    void legacyDataWithoutExpireTimeIsExpired() {
+        byte[] bytes = "{\"data\":\"value\"}".getBytes(StandardCharsets.UTF_8);
+        LogicalExpireData data = LogicalExpireData.parse(bytes);
+        Assertions.assertTrue(data.isLegacy());
+        Assertions.assertEquals(0L, data.getExpireMillis());
+        Assertions.assertTrue(data.isExpired(System.currentTimeMillis()));
+    }
+
+    @Test
+    void roundTripsEnvelope() {
+        byte[] payload = "payload".getBytes(StandardCharsets.UTF_8);
+        long expireMillis = System.currentTimeMillis() + 60_000;
+        byte[] bytes = LogicalExpireData.encode(expireMillis, payload);
+
+        Assertions.assertTrue(LogicalExpireData.isEnvelope(bytes));
+        LogicalExpireData data = LogicalExpireData.parse(bytes);
+        Assertions.assertFalse(data.isLegacy());
+        Assertions.assertFalse(data.isEmpty());
+        Assertions.assertEquals(expireMillis, data.getExpireMillis());
+        Assertions.assertEquals(0, data.getDeltaMillis());
+        Assertions.assertArrayEquals(payload, data.getPayload());
+    }
+
+    @Test
+    void roundTripsEnvelopeWithDelta() {
+        byte[] payload = "payload".getBytes(StandardCharsets.UTF_8);
+        byte[] bytes = LogicalExpireData.encode(123456789L, 4321, payload);
+
+        LogicalExpireData data = LogicalExpireData.parse(bytes);
+        Assertions.assertEquals(123456789L, data.getExpireMillis());
+        Assertions.assertEquals(4321, data.getDeltaMillis());
+        Assertions.assertArrayEquals(payload, data.getPayload());
+    }
+
+    @Test
+    void emptyPayloadIsNullMarker() {
+        LogicalExpireData data = LogicalExpireData.parse(LogicalExpireData.encode(1L, null));
+        Assertions.assertTrue(data.isEmpty());
+        Assertions.assertEquals(0, data.getPayload().length);
+    }
+}
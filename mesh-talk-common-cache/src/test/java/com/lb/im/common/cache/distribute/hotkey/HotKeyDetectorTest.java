@@ -0,0 +1,88 @@
+package com.lb.im.common.cache.distribute.hotkey;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 热点key的晋升、Top-K替换和滑动窗口降级
+ */
+class HotKeyDetectorTest {
+
+    @Test
+    void promotesKeyAtThreshold() {
+        HotKeyDetector detector = new HotKeyDetector(3, 4, 1024, 1.0, 10, 2);
+        for (int i = 0; i < 9; i++) {
+            Assertions.assertFalse(detector.record("hot"));
+        }
+        Assertions.assertFalse(detector.isHot("hot"));
+        Assertions.assertTrue(detector.record("hot"));
+        Assertions.assertTrue(detector.isHot("hot"));
+        Assertions.assertEquals("hot", detector.getHotKeys().get(0).getKey());
+        Assertions.assertEquals(10, detector.getHotKeys().get(0).getCount());
+        Assertions.assertFalse(detector.isHot("cold"));
+    }
+
+    @Test
+    void hotterKeyReplacesColdestWhenFull() {
+        HotKeyDetector detector = new HotKeyDetector(3, 4, 1024, 1.0, 10, 2);
+        record(detector, "a", 10);
+        record(detector, "b", 12);
+        //与堆顶一样热时不替换
+        record(detector, "c", 10);
+        Assertions.assertFalse(detector.isHot("c"));
+
+        Assertions.assertTrue(detector.record("c"));
+        Assertions.assertTrue(detector.isHot("c"));
+        Assertions.assertFalse(detector.isHot("a"));
+        Assertions.assertEquals(2, detector.getHotKeys().size());
+        Assertions.assertEquals("b", detector.getHotKeys().get(0).getKey());
+
+        //被替换掉的key在下次滑动窗口时作为降级返回
+        Assertions.assertEquals(Collections.singletonList("a"), detector.rotate());
+    }
+
+    @Test
+    void demotesKeyAfterWindowSlidesPast() {
+        HotKeyDetector detector = new HotKeyDetector(3, 4, 1024, 1.0, 10, 4);
+        record(detector, "hot", 10);
+        Assertions.assertTrue(detector.isHot("hot"));
+
+        //访问次数仍然在窗口内
+        Assertions.assertTrue(detector.rotate().isEmpty());
+        Assertions.assertTrue(detector.rotate().isEmpty());
+        Assertions.assertTrue(detector.isHot("hot"));
+
+        //写入访问的时间片被清空后低于阈值
+        List<String> demoted = detector.rotate();
+        Assertions.assertEquals(Collections.singletonList("hot"), demoted);
+        Assertions.assertFalse(detector.isHot("hot"));
+        Assertions.assertTrue(detector.getHotKeys().isEmpty());
+    }
+
+    @Test
+    void keepsKeyHotWhileAccessesContinue() {
+        HotKeyDetector detector = new HotKeyDetector(2, 4, 1024, 1.0, 10, 4);
+        record(detector, "hot", 10);
+        for (int i = 0; i < 5; i++) {
+            detector.rotate();
+            record(detector, "hot", 10);
+            Assertions.assertTrue(detector.isHot("hot"));
+        }
+    }
+
+    @Test
+    void rejectsInvalidArguments() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new HotKeyDetector(0, 4, 1024, 1.0, 10, 2));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new HotKeyDetector(3, 4, 1024, 1.5, 10, 2));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new HotKeyDetector(3, 4, 1024, 1.0, 0, 2));
+    }
+
+    private static void record(HotKeyDetector detector, String key, int times) {
+        for (int i = 0; i < times; i++) {
+            detector.record(key);
+        }
+    }
+}
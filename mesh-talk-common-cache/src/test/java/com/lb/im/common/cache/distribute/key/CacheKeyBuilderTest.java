@@ -0,0 +1,134 @@
+package com.lb.im.common.cache.distribute.key;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.MD5;
+import cn.hutool.json.JSONUtil;
+import com.lb.im.common.cache.distribute.conversion.TypeConversion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * md5模式与历史版本getKey生成的key一致，murmur3模式下简单类型的key不变
+ */
+class CacheKeyBuilderTest {
+
+    private static final String PREFIX = "im:user:";
+
+    @AfterEach
+    void tearDown() {
+        CacheKeyBuilder.setMode(CacheKeyBuilder.Mode.MURMUR3);
+    }
+
+    @Test
+    void md5ModeMatchesBaselineKeys() {
+        CacheKeyBuilder.setMode(CacheKeyBuilder.Mode.MD5);
+        for (Object id : ids()) {
+            Assertions.assertEquals(baselineKey(PREFIX, id), CacheKeyBuilder.build(PREFIX, id), String.valueOf(id));
+        }
+        Assertions.assertEquals(PREFIX, CacheKeyBuilder.build(PREFIX, null));
+    }
+
+    @Test
+    void murmur3ModeKeepsSimpleKeys() {
+        for (Object id : simpleIds()) {
+            Assertions.assertEquals(baselineKey(PREFIX, id), CacheKeyBuilder.build(PREFIX, id), String.valueOf(id));
+        }
+    }
+
+    @Test
+    void murmur3ModeIgnoresUnorderedIterationOrder() {
+        Map<String, Object> first = new LinkedHashMap<>();
+        first.put("a", 1);
+        first.put("b", Arrays.asList(1L, 2L));
+        Map<String, Object> second = new TreeMap<>(Collections.reverseOrder());
+        second.putAll(first);
+        Assertions.assertEquals(CacheKeyBuilder.build(PREFIX, first), CacheKeyBuilder.build(PREFIX, second));
+
+        Assertions.assertEquals(CacheKeyBuilder.build(PREFIX, new LinkedHashSet<>(Arrays.asList("x", "y"))),
+                CacheKeyBuilder.build(PREFIX, new LinkedHashSet<>(Arrays.asList("y", "x"))));
+        //整数类型统一编码
+        Assertions.assertEquals(CacheKeyBuilder.build(PREFIX, Collections.singletonList(1)),
+                CacheKeyBuilder.build(PREFIX, Collections.singletonList(1L)));
+        Assertions.assertNotEquals(CacheKeyBuilder.build(PREFIX, Arrays.asList(1, 2)), CacheKeyBuilder.build(PREFIX, Arrays.asList(2, 1)));
+    }
+
+    @Test
+    void hashTagWrapsIdPart() {
+        CacheKeyBuilder.enableHashTag("im:group:");
+        try {
+            Assertions.assertEquals("im:group:{42}", CacheKeyBuilder.build("im:group:", 42L));
+            Assertions.assertEquals("42", CacheKeyBuilder.toKeyPart(42L));
+        } finally {
+            CacheKeyBuilder.disableHashTag("im:group:");
+        }
+    }
+
+    /**
+     * 历史版本DistributedCacheService.getKey的实现
+     */
+    private static String baselineKey(String keyPrefix, Object id) {
+        if (id == null) {
+            return keyPrefix;
+        }
+        String key;
+        if (TypeConversion.isSimpleType(id)) {
+            key = StrUtil.toString(id);
+        } else {
+            key = MD5.create().digestHex(JSONUtil.toJsonStr(id));
+        }
+        if (StrUtil.isEmpty(key)) {
+            key = "";
+        }
+        return keyPrefix.concat(key);
+    }
+
+    private static List<Object> simpleIds() {
+        return Arrays.asList(1L, -7L, Long.MAX_VALUE, 42, (short) 3, (byte) 9, 1.5D, 2.25F, true, 'c',
+                "alice", "", " spaced ", "a:b:c", "{not json");
+    }
+
+    private static List<Object> ids() {
+        List<Object> ids = new ArrayList<>(simpleIds());
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("userId", 1L);
+        map.put("terminal", 2);
+        ids.add(map);
+        ids.add(Arrays.asList(1L, 2L, 3L));
+        ids.add(new HashSet<>(Arrays.asList("a", "b")));
+        ids.add("{\"userId\":1}");
+        ids.add(" [1,2] ");
+        ids.add(new KeyId(7L, "web"));
+        return ids;
+    }
+
+    public static class KeyId {
+
+        private Long userId;
+
+        private String terminal;
+
+        public KeyId(Long userId, String terminal) {
+            this.userId = userId;
+            this.terminal = terminal;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        public String getTerminal() {
+            return terminal;
+        }
+    }
+}
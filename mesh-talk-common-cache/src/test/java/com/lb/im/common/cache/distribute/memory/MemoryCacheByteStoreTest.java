@@ -0,0 +1,182 @@
+package com.lb.im.common.cache.distribute.memory;
+
+import com.lb.im.common.cache.distribute.data.RebuildLease;
+import com.lb.im.common.cache.distribute.data.VersionedData;
+import com.lb.im.common.cache.distribute.hash.HashFieldCodec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 进程内字节存储的租约、版本号比较、Hash字段更新和时间轮过期清理
+ */
+class MemoryCacheByteStoreTest {
+
+    private static final long TICK_MILLIS = 10;
+
+    private MemoryCacheByteStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new MemoryCacheByteStore();
+        ReflectionTestUtils.setField(store, "maximumSize", 1000L);
+        ReflectionTestUtils.setField(store, "tickMillis", TICK_MILLIS);
+        store.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.destroy();
+    }
+
+    @Test
+    void leaseIsHeldUntilLeasedWrite() {
+        byte[] token = RebuildLease.newToken();
+        Assertions.assertArrayEquals(token, store.getOrLease("user:1", token, 10_000));
+        //租约占位值对普通读取不可见
+        Assertions.assertNull(store.get("user:1"));
+
+        //其他调用方拿到的是已有的租约
+        byte[] otherToken = RebuildLease.newToken();
+        Assertions.assertArrayEquals(token, store.getOrLease("user:1", otherToken, 10_000));
+        Assertions.assertFalse(store.setIfLeased("user:1", otherToken, bytes("stale"), 10_000));
+
+        Assertions.assertTrue(store.setIfLeased("user:1", token, bytes("fresh"), 10_000));
+        Assertions.assertArrayEquals(bytes("fresh"), store.get("user:1"));
+        //缓存存在时直接返回缓存值，不再发放租约
+        Assertions.assertArrayEquals(bytes("fresh"), store.getOrLease("user:1", otherToken, 10_000));
+        //租约已经被写入的数据替换，再次写入失败
+        Assertions.assertFalse(store.setIfLeased("user:1", token, bytes("again"), 10_000));
+    }
+
+    @Test
+    void releasedOrExpiredLeaseCanBeTakenOver() {
+        byte[] token = RebuildLease.newToken();
+        store.getOrLease("user:2", token, 10_000);
+        store.releaseLease("user:2", token);
+        byte[] next = RebuildLease.newToken();
+        Assertions.assertArrayEquals(next, store.getOrLease("user:2", next, 30));
+
+        awaitTrue(() -> {
+            byte[] third = RebuildLease.newToken();
+            return Arrays.equals(third, store.getOrLease("user:2", third, 10_000));
+        });
+        Assertions.assertFalse(store.setIfLeased("user:2", next, bytes("late"), 10_000));
+    }
+
+    @Test
+    void setIfNewerKeepsHigherVersion() {
+        Assertions.assertTrue(store.setIfNewer("order:1", 5, VersionedData.encode(5, bytes("v5")), 10_000));
+        Assertions.assertFalse(store.setIfNewer("order:1", 4, VersionedData.encode(4, bytes("v4")), 10_000));
+        Assertions.assertFalse(store.setIfNewer("order:1", 5, VersionedData.encode(5, bytes("v5'")), 10_000));
+        Assertions.assertTrue(store.setIfNewer("order:1", 6, VersionedData.encode(6, bytes("v6")), 10_000));
+
+        VersionedData data = VersionedData.parse(store.get("order:1"));
+        Assertions.assertEquals(6, data.getVersion());
+        Assertions.assertArrayEquals(bytes("v6"), data.getPayload());
+
+        //没有版本号的数据可以被带版本号的数据覆盖
+        store.set("order:2", bytes("plain"), null);
+        Assertions.assertTrue(store.setIfNewer("order:2", 1, VersionedData.encode(1, bytes("v1")), 10_000));
+    }
+
+    @Test
+    void hashOperations() {
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("name", "alice");
+        fields.put("age", "20");
+        store.setHash("profile:1", fields, 10_000L);
+        Assertions.assertEquals(fields, store.getHash("profile:1"));
+        Assertions.assertEquals(Arrays.asList("20", null), store.getHashFields("profile:1", Arrays.asList("age", "missing")));
+
+        Assertions.assertTrue(store.updateHash("profile:1", HashFieldCodec.NULL_FIELD, Collections.singletonMap("age", "21"), Collections.emptyList()));
+        Assertions.assertEquals("21", store.getHash("profile:1").get("age"));
+        Assertions.assertEquals("alice", store.getHash("profile:1").get("name"));
+
+        //删除全部字段时保留只包含占位字段的Hash
+        Assertions.assertTrue(store.updateHash("profile:1", HashFieldCodec.NULL_FIELD, Collections.emptyMap(), Arrays.asList("name", "age")));
+        Assertions.assertEquals(Collections.singletonMap(HashFieldCodec.EMPTY_FIELD, ""), store.getHash("profile:1"));
+
+        //缓存了空数据或者不存在时不更新
+        store.setHash("profile:2", Collections.singletonMap(HashFieldCodec.NULL_FIELD, ""), 10_000L);
+        Assertions.assertFalse(store.updateHash("profile:2", HashFieldCodec.NULL_FIELD, Collections.singletonMap("age", "1"), Collections.emptyList()));
+        Assertions.assertFalse(store.updateHash("profile:3", HashFieldCodec.NULL_FIELD, Collections.singletonMap("age", "1"), Collections.emptyList()));
+
+        //没有字段时删除key
+        store.setHash("profile:1", Collections.emptyMap(), 10_000L);
+        Assertions.assertTrue(store.getHash("profile:1").isEmpty());
+    }
+
+    @Test
+    void overwritesReuseOneTimerPerKey() {
+        for (int i = 0; i < 1000; i++) {
+            store.set("hot", bytes("v" + i), 60_000L + i);
+        }
+        Assertions.assertEquals(1, timerCount());
+        Assertions.assertArrayEquals(bytes("v999"), store.get("hot"));
+
+        //过期时间提前时需要新的定时任务
+        store.set("hot", bytes("short"), 30_000L);
+        Assertions.assertEquals(2, timerCount());
+
+        //永不过期的数据不需要定时任务
+        store.set("forever", bytes("v"), null);
+        Assertions.assertEquals(2, timerCount());
+    }
+
+    @Test
+    void timerRemovesExpiredEntriesWithoutReads() {
+        for (int i = 0; i < 100; i++) {
+            store.set("expire:" + i, bytes("v"), 50L);
+        }
+        Assertions.assertEquals(100, store.size());
+        awaitTrue(() -> store.size() == 0);
+        Assertions.assertEquals(0, timerCount());
+    }
+
+    @Test
+    void timerReschedulesExtendedEntries() throws InterruptedException {
+        store.set("extend", bytes("v"), 50L);
+        Assertions.assertTrue(store.expire("extend", 400));
+        Assertions.assertEquals(1, timerCount());
+
+        //原来的定时任务到期时数据还未过期，按新的过期时间点重新调度
+        Thread.sleep(150);
+        Assertions.assertArrayEquals(bytes("v"), store.get("extend"));
+        Assertions.assertEquals(1, timerCount());
+
+        awaitTrue(() -> store.size() == 0);
+        Assertions.assertEquals(0, timerCount());
+    }
+
+    private int timerCount() {
+        TimingWheel<?> timingWheel = (TimingWheel<?>) ReflectionTestUtils.getField(store, "timingWheel");
+        return timingWheel.size();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            Assertions.assertTrue(System.currentTimeMillis() < deadline, "condition not met in time");
+            try {
+                Thread.sleep(TICK_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.lb.im.common.cache.distribute.memory;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 分层时间轮的到期和降级
+ */
+class TimingWheelTest {
+
+    @Test
+    void expiresTasksAtTheirTick() {
+        List<String> expired = new ArrayList<>();
+        TimingWheel<String> timingWheel = new TimingWheel<>(10, 0, expired::add);
+        timingWheel.schedule("a", 25);
+        timingWheel.schedule("b", 5);
+        timingWheel.schedule("c", 100);
+        Assertions.assertEquals(3, timingWheel.size());
+
+        timingWheel.advance(9);
+        Assertions.assertEquals(0, expired.size());
+        timingWheel.advance(10);
+        Assertions.assertEquals(Collections.singletonList("b"), expired);
+        //到期时间点向上取整到tick
+        timingWheel.advance(29);
+        Assertions.assertEquals(1, expired.size());
+        timingWheel.advance(30);
+        Assertions.assertEquals(2, expired.size());
+        timingWheel.advance(1000);
+        Assertions.assertEquals(3, expired.size());
+        Assertions.assertEquals(0, timingWheel.size());
+    }
+
+    @Test
+    void expiresPastTasksOnNextAdvance() {
+        List<String> expired = new ArrayList<>();
+        TimingWheel<String> timingWheel = new TimingWheel<>(10, 1000, expired::add);
+        timingWheel.schedule("past", 500);
+        timingWheel.advance(1000);
+        Assertions.assertEquals(Collections.singletonList("past"), expired);
+    }
+
+    /**
+     * 跨越第1、2、3层的任务在降级后仍然在到期的那一次推进中执行，不提前也不推迟
+     */
+    @Test
+    void cascadesFromHigherLevels() {
+        long tickMillis = 1;
+        long start = 12345;
+        Map<Integer, Long> firedAt = new HashMap<>();
+        long[] now = new long[1];
+        TimingWheel<Integer> timingWheel = new TimingWheel<>(tickMillis, start, task -> firedAt.put(task, now[0]));
+        long[] expireAt = {
+                start + 63,
+                start + 64,
+                start + 64 * 3 + 5,
+                start + 64 * 64 - 1,
+                start + 64 * 64 + 7,
+                start + 64 * 64 * 5 + 11,
+                start + 64 * 64 * 64 + 3
+        };
+        for (int i = 0; i < expireAt.length; i++) {
+            timingWheel.schedule(i, expireAt[i]);
+        }
+        Random random = new Random(42);
+        long end = start + 64 * 64 * 64 + 100;
+        for (now[0] = start; now[0] < end; ) {
+            now[0] = Math.min(end, now[0] + 1 + random.nextInt(97));
+            timingWheel.advance(now[0]);
+            for (int i = 0; i < expireAt.length; i++) {
+                Long fired = firedAt.get(i);
+                if (now[0] < expireAt[i]) {
+                    Assertions.assertNull(fired, "task " + i + " fired early");
+                } else {
+                    Assertions.assertNotNull(fired, "task " + i + " not fired");
+                }
+            }
+        }
+        Assertions.assertEquals(expireAt.length, firedAt.size());
+        Assertions.assertEquals(0, timingWheel.size());
+    }
+
+    @Test
+    void schedulesRandomTasksAcrossLevels() {
+        Random random = new Random(7);
+        long start = random.nextInt(1_000_000);
+        Map<Integer, Long> firedAt = new HashMap<>();
+        long[] now = {start};
+        TimingWheel<Integer> timingWheel = new TimingWheel<>(1, start, task -> firedAt.put(task, now[0]));
+        long[] expireAt = new long[2000];
+        for (int i = 0; i < expireAt.length; i++) {
+            expireAt[i] = start + random.nextInt(64 * 64 * 64);
+            timingWheel.schedule(i, expireAt[i]);
+        }
+        long previous = start;
+        while (firedAt.size() < expireAt.length) {
+            now[0] = previous + 1 + random.nextInt(500);
+            timingWheel.advance(now[0]);
+            for (int i = 0; i < expireAt.length; i++) {
+                boolean due = expireAt[i] <= now[0];
+                Assertions.assertEquals(due, firedAt.containsKey(i), "task " + i);
+                if (due && expireAt[i] > previous) {
+                    Assertions.assertEquals(now[0], firedAt.get(i).longValue(), "task " + i);
+                }
+            }
+            previous = now[0];
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.lb.im.common.cache.lock.local;
+
+import com.lb.im.common.cache.lock.DistributedLock;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 进程内锁的异步等待者交接和等待超时
+ */
+class LocalLockFactoryTest {
+
+    private final LocalLockFactory lockFactory = new LocalLockFactory();
+
+    @Test
+    void handsLockToAsyncWaiterOnRelease() throws Exception {
+        DistributedLock lock = lockFactory.getDistributedLock("lock:handoff");
+        Assertions.assertTrue(lock.tryLockAsync(0, TimeUnit.MILLISECONDS, 1L).get());
+
+        CompletableFuture<Boolean> waiter = lock.tryLockAsync(10, TimeUnit.SECONDS, 2L);
+        Assertions.assertFalse(waiter.isDone());
+
+        lock.unlockAsync(1L).get();
+        //释放线程中直接完成等待者的future
+        Assertions.assertTrue(waiter.isDone());
+        Assertions.assertTrue(waiter.get());
+        Assertions.assertTrue(lock.isLocked());
+        Assertions.assertFalse(lock.tryLockAsync(0, TimeUnit.MILLISECONDS, 1L).get());
+
+        lock.unlockAsync(2L).get();
+        Assertions.assertFalse(lock.isLocked());
+        Assertions.assertEquals(0, lockFactory.getLockCount());
+    }
+
+    @Test
+    void handsLockToAsyncWaitersInOrder() throws Exception {
+        DistributedLock lock = lockFactory.getDistributedLock("lock:order");
+        Assertions.assertTrue(lock.tryLockAsync(0, TimeUnit.MILLISECONDS, 1L).get());
+        CompletableFuture<Boolean> second = lock.tryLockAsync(10, TimeUnit.SECONDS, 2L);
+        CompletableFuture<Boolean> third = lock.tryLockAsync(10, TimeUnit.SECONDS, 3L);
+
+        lock.unlockAsync(1L).get();
+        Assertions.assertTrue(second.get());
+        Assertions.assertFalse(third.isDone());
+
+        //不是持有者的释放不生效
+        lock.unlockAsync(3L).get();
+        Assertions.assertFalse(third.isDone());
+
+        lock.unlockAsync(2L).get();
+        Assertions.assertTrue(third.get());
+        lock.unlockAsync(3L).get();
+        Assertions.assertEquals(0, lockFactory.getLockCount());
+    }
+
+    @Test
+    void reentrantOwnerReleasesAfterLastUnlock() throws Exception {
+        DistributedLock lock = lockFactory.getDistributedLock("lock:reentrant");
+        Assertions.assertTrue(lock.tryLockAsync(0, TimeUnit.MILLISECONDS, 1L).get());
+        Assertions.assertTrue(lock.tryLockAsync(0, TimeUnit.MILLISECONDS, 1L).get());
+        CompletableFuture<Boolean> waiter = lock.tryLockAsync(10, TimeUnit.SECONDS, 2L);
+
+        lock.unlockAsync(1L).get();
+        Assertions.assertFalse(waiter.isDone());
+        lock.unlockAsync(1L).get();
+        Assertions.assertTrue(waiter.get());
+        lock.unlockAsync(2L).get();
+        Assertions.assertEquals(0, lockFactory.getLockCount());
+    }
+
+    @Test
+    void asyncWaiterTimesOut() throws Exception {
+        DistributedLock lock = lockFactory.getDistributedLock("lock:timeout");
+        Assertions.assertTrue(lock.tryLockAsync(0, TimeUnit.MILLISECONDS, 1L).get());
+
+        CompletableFuture<Boolean> waiter = lock.tryLockAsync(50, TimeUnit.MILLISECONDS, 2L);
+        Assertions.assertFalse(waiter.get(5, TimeUnit.SECONDS));
+
+        //超时的等待者不会再拿到锁，持有者释放后锁对象被移除
+        lock.unlockAsync(1L).get();
+        Assertions.assertFalse(lock.isLocked());
+        Assertions.assertEquals(0, lockFactory.getLockCount());
+    }
+
+    @Test
+    void failsImmediatelyWithoutWaitTime() throws Exception {
+        DistributedLock lock = lockFactory.getDistributedLock("lock:nowait");
+        Assertions.assertTrue(lock.tryLockAsync(0, TimeUnit.MILLISECONDS, 1L).get());
+        CompletableFuture<Boolean> waiter = lock.tryLockAsync(0, TimeUnit.MILLISECONDS, 2L);
+        Assertions.assertTrue(waiter.isDone());
+        Assertions.assertFalse(waiter.get());
+        lock.unlockAsync(1L).get();
+        Assertions.assertEquals(0, lockFactory.getLockCount());
+    }
+
+    @Test
+    void wakesSyncWaiterWhenNoAsyncWaiter() throws Exception {
+        DistributedLock lock = lockFactory.getDistributedLock("lock:sync");
+        Assertions.assertTrue(lock.tryLockAsync(0, TimeUnit.MILLISECONDS, -1L).get());
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean acquired = new AtomicBoolean();
+        Thread thread = new Thread(() -> {
+            started.countDown();
+            try {
+                acquired.set(lock.tryLock(10, TimeUnit.SECONDS));
+                lock.unlock();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+        started.await();
+        lock.unlockAsync(-1L).get();
+        thread.join(TimeUnit.SECONDS.toMillis(10));
+        Assertions.assertTrue(acquired.get());
+        Assertions.assertEquals(0, lockFactory.getLockCount());
+    }
+}